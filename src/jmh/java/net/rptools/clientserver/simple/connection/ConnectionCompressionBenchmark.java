@@ -0,0 +1,124 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.clientserver.simple.connection;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.rptools.maptool.server.proto.Message;
+import net.rptools.maptool.server.proto.PutTokenMsg;
+import net.rptools.maptool.server.proto.TokenDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Compresses and inflates messages the way every message sent between client and server is. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConnectionCompressionBenchmark {
+
+  /** The number of token properties in the message, which sets its size. */
+  @Param({"0", "50", "5000"})
+  public int properties;
+
+  private BenchmarkConnection connection;
+  private byte[] message;
+  private byte[] compressedMessage;
+
+  /** A connection that only queues and dispatches messages, without any network. */
+  private static class BenchmarkConnection extends AbstractConnection {
+    private byte[] received;
+
+    BenchmarkConnection() {
+      addMessageHandler((id, message) -> received = message);
+    }
+
+    byte[] compress(byte[] message) {
+      addMessage(null, message);
+      return nextMessage();
+    }
+
+    byte[] inflate(byte[] compressedMessage) {
+      dispatchCompressedMessage(getId(), compressedMessage);
+      return received;
+    }
+
+    @Override
+    public void open() {}
+
+    @Override
+    public void close() {}
+
+    @Override
+    public void sendMessage(Object channel, byte[] message) {}
+
+    @Override
+    public boolean isAlive() {
+      return true;
+    }
+
+    @Override
+    public String getId() {
+      return "benchmark";
+    }
+
+    @Override
+    public String getError() {
+      return null;
+    }
+  }
+
+  @Setup
+  public void setUp() {
+    var random = new Random(42);
+    var token =
+        TokenDto.newBuilder()
+            .setId("0123456789abcdef0123456789abcdef")
+            .setName("Token")
+            .setX(random.nextInt(10000))
+            .setY(random.nextInt(10000));
+    for (int i = 0; i < properties; i++) {
+      token.putProperties("Property" + i, "value " + random.nextInt(1000));
+    }
+    message =
+        Message.newBuilder()
+            .setPutTokenMsg(PutTokenMsg.newBuilder().setZoneGuid("zone").setToken(token))
+            .build()
+            .toByteArray();
+    connection = new BenchmarkConnection();
+    compressedMessage = connection.compress(message);
+  }
+
+  @Benchmark
+  public byte[] compress() {
+    return connection.compress(message);
+  }
+
+  @Benchmark
+  public byte[] inflate() {
+    return connection.inflate(compressedMessage);
+  }
+}
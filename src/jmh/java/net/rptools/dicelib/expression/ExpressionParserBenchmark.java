@@ -0,0 +1,79 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.dicelib.expression;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import net.rptools.parser.MapVariableResolver;
+import net.rptools.parser.ParserException;
+import net.rptools.parser.VariableResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Evaluates typical roll expressions, from plain arithmetic to dice and variables. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExpressionParserBenchmark {
+
+  private static final Map<String, String> EXPRESSIONS =
+      Map.of(
+          "arithmetic", "(100 + 4 * 10) / 7 - 3 * (2 + 5)",
+          "dice", "1d20 + 4d6k3 + 10d6e + 2d8 + 5",
+          "variables", "if(strength > dexterity, strength, dexterity) + level / 2 + bonus",
+          "long",
+              "1d20 + 5 + 2d6 + 3 + 1d8 + 1d4 + 2 // attack with every modifier the table uses");
+
+  @Param({"arithmetic", "dice", "variables", "long"})
+  public String expression;
+
+  private String text;
+  private ExpressionParser parser;
+  private VariableResolver resolver;
+
+  @Setup
+  public void setUp() throws ParserException {
+    text = EXPRESSIONS.get(expression);
+    parser = new ExpressionParser();
+    resolver = new MapVariableResolver();
+    resolver.setVariable("strength", new BigDecimal(16));
+    resolver.setVariable("dexterity", new BigDecimal(14));
+    resolver.setVariable("level", new BigDecimal(7));
+    resolver.setVariable("bonus", new BigDecimal(2));
+  }
+
+  @Benchmark
+  public Result evaluate() throws ParserException {
+    return parser.evaluate(text, resolver);
+  }
+
+  @Benchmark
+  public Result evaluateNonDeterministic() throws ParserException {
+    return parser.evaluate(text, resolver, false);
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.lib;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+import net.rptools.maptool.model.transform.campaign.ExportInfoTransform;
+import net.rptools.maptool.model.transform.campaign.PCVisionTransform;
+import net.rptools.maptool.model.transform.campaign.TokenPropertyMapTransform;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Transforms a legacy campaign document in memory and streamed. Run with {@code -Pjmh.profilers=gc}
+ * to compare how much each allocates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ModelVersionManagerBenchmark {
+
+  private static final String FILE_VERSION = "1.3.40";
+
+  @Param({"1000", "10000"})
+  public int tokens;
+
+  private ModelVersionManager manager;
+  private String xml;
+
+  @Setup
+  public void setUp() {
+    manager = new ModelVersionManager();
+    manager.registerTransformation("1.3.51", new PCVisionTransform());
+    manager.registerTransformation("1.3.75", new ExportInfoTransform());
+    manager.registerTransformation("1.3.78", new TokenPropertyMapTransform());
+
+    var sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?><campaign>");
+    sb.append("<exportInfo><location><path>/x</path></location></exportInfo>");
+    for (int i = 0; i < tokens; i++) {
+      sb.append("<token><name>Token ")
+          .append(i)
+          .append("</name><tokenType>")
+          .append(i % 3 == 0 ? "PC" : "NPC")
+          .append("</tokenType><hasSight>false</hasSight><propertyMap><store>");
+      for (int p = 0; p < 10; p++) {
+        sb.append("<entry><string>prop")
+            .append(p)
+            .append("</string><string>")
+            .append(i * p)
+            .append("</string></entry>");
+      }
+      sb.append("</store></propertyMap></token>");
+    }
+    xml = sb.append("</campaign>").toString();
+  }
+
+  @Benchmark
+  public String transformInMemory() {
+    return manager.transform(xml, FILE_VERSION);
+  }
+
+  @Benchmark
+  public void transformStreamed(Blackhole blackhole) throws IOException {
+    char[] buffer = new char[8192];
+    try (Reader reader = manager.transform(new StringReader(xml), FILE_VERSION)) {
+      int read;
+      while ((read = reader.read(buffer)) != -1) {
+        blackhole.consume(read);
+      }
+    }
+    blackhole.consume(buffer);
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.lib.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.rptools.lib.FileUtil;
+import net.rptools.maptool.model.SquareGrid;
+import net.rptools.maptool.model.Token;
+import net.rptools.maptool.model.Zone;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Saves and loads a map full of tokens with properties, the way maps and campaigns are stored. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PackedFileBenchmark {
+
+  private static final String VERSION = "1.13.0";
+
+  @Param({"100", "1000"})
+  public int tokens;
+
+  private File tmpDir;
+  private File saveFile;
+  private File loadFile;
+  private Zone zone;
+
+  @Setup
+  public void setUp() throws IOException {
+    tmpDir = Files.createTempDirectory("packedfile-benchmark").toFile();
+    PackedFile.init(tmpDir);
+    saveFile = new File(tmpDir, "save.rpmap");
+    loadFile = new File(tmpDir, "load.rpmap");
+
+    zone = new Zone();
+    zone.setGrid(new SquareGrid());
+    var random = new Random(42);
+    for (int i = 0; i < tokens; i++) {
+      var token = new Token();
+      token.setName("Token " + i);
+      token.setX(random.nextInt(10000));
+      token.setY(random.nextInt(10000));
+      for (int p = 0; p < 20; p++) {
+        token.setProperty("Property" + p, Integer.toString(random.nextInt(100)));
+      }
+      zone.putToken(token);
+    }
+    save(loadFile);
+  }
+
+  @TearDown
+  public void tearDown() {
+    FileUtil.delete(tmpDir);
+  }
+
+  private void save(File file) throws IOException {
+    file.delete();
+    try (var packedFile = new PackedFile(file)) {
+      packedFile.setContent(zone);
+      packedFile.setProperty("version", VERSION);
+      packedFile.save();
+    }
+  }
+
+  @Benchmark
+  public File save() throws IOException {
+    save(saveFile);
+    return saveFile;
+  }
+
+  @Benchmark
+  public Object load() throws IOException {
+    try (var packedFile = new PackedFile(loadFile)) {
+      return packedFile.getContent();
+    }
+  }
+}
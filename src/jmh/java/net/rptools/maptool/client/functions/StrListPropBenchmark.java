@@ -0,0 +1,104 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.functions;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import net.rptools.parser.ParserException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Repeated lookups in one large string list and string property, the way macros loop over them. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StrListPropBenchmark {
+
+  @Param({"1000", "10000"})
+  public int entries;
+
+  private final StrListFunctions listFunctions = StrListFunctions.getInstance();
+  private final StrPropFunctions propFunctions = StrPropFunctions.getInstance();
+  private String list;
+  private String props;
+  private int index;
+
+  @Setup
+  public void setUp() {
+    var listBuilder = new StringBuilder();
+    var propsBuilder = new StringBuilder();
+    for (int i = 0; i < entries; i++) {
+      if (i > 0) {
+        listBuilder.append(", ");
+      }
+      listBuilder.append("item").append(i);
+      propsBuilder.append("key").append(i).append('=').append("value").append(i).append("; ");
+    }
+    list = listBuilder.toString();
+    props = propsBuilder.toString();
+  }
+
+  /** Walks through the entries so that each call looks up a different one. */
+  private int nextIndex() {
+    index = (index + 7919) % entries;
+    return index;
+  }
+
+  private static List<Object> parameters(Object... values) {
+    return new ArrayList<>(List.of(values));
+  }
+
+  @Benchmark
+  public Object listGet() throws ParserException {
+    return listFunctions.childEvaluate(
+        null, null, "listGet", parameters(list, BigDecimal.valueOf(nextIndex())));
+  }
+
+  @Benchmark
+  public Object listFind() throws ParserException {
+    return listFunctions.childEvaluate(
+        null, null, "listFind", parameters(list, "item" + nextIndex()));
+  }
+
+  @Benchmark
+  public Object listCount() throws ParserException {
+    return listFunctions.childEvaluate(null, null, "listCount", parameters(list));
+  }
+
+  @Benchmark
+  public Object getStrProp() throws ParserException {
+    return propFunctions.childEvaluate(
+        null, null, "getStrProp", parameters(props, "key" + nextIndex()));
+  }
+
+  @Benchmark
+  public Object countStrProp() throws ParserException {
+    return propFunctions.childEvaluate(null, null, "countStrProp", parameters(props));
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.zone;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.rptools.maptool.client.ui.zone.vbl.AreaTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Vision from the middle of a map scattered with wall pillars, with hill and pit topology in some
+ * of the same places.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FogUtilBenchmark {
+
+  private static final int MAP_SIZE = 5000;
+
+  /** The number of pillars of each kind of topology. */
+  @Param({"50", "500"})
+  public int pillars;
+
+  /** The radius of the vision in map units. */
+  @Param({"500", "2000"})
+  public int visionRadius;
+
+  private final Point origin = new Point(MAP_SIZE / 2, MAP_SIZE / 2);
+  private Area vision;
+  private AreaTree wallVbl;
+  private AreaTree hillVbl;
+  private AreaTree pitVbl;
+
+  private static Area pillars(Random random, int count) {
+    Area area = new Area();
+    for (int i = 0; i < count; i++) {
+      int x = random.nextInt(MAP_SIZE);
+      int y = random.nextInt(MAP_SIZE);
+      if (random.nextBoolean()) {
+        area.add(new Area(new Rectangle(x, y, 10 + random.nextInt(90), 10 + random.nextInt(90))));
+      } else {
+        int size = 20 + random.nextInt(80);
+        area.add(new Area(new Ellipse2D.Double(x, y, size, size)));
+      }
+    }
+    // Keep the origin itself clear so that it is in the ocean
+    area.subtract(new Area(new Rectangle(origin.x - 60, origin.y - 60, 120, 120)));
+    return area;
+  }
+
+  @Setup
+  public void setUp() {
+    var random = new Random(42);
+    wallVbl = new AreaTree(pillars(random, pillars));
+    hillVbl = new AreaTree(pillars(random, pillars / 5));
+    pitVbl = new AreaTree(pillars(random, pillars / 5));
+    vision =
+        new Area(
+            new Ellipse2D.Double(
+                origin.x - visionRadius,
+                origin.y - visionRadius,
+                visionRadius * 2,
+                visionRadius * 2));
+  }
+
+  @Benchmark
+  public Area calculateVisibility() {
+    return FogUtil.calculateVisibility(origin, vision, wallVbl, hillVbl, pitVbl);
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.zone;
+
+import java.awt.Composite;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Blends a screen sized light image onto another the way the lighting overlay is rendered. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LightingCompositeBenchmark {
+
+  @Param({"BlendedLights", "OverlaidLights"})
+  public String composite;
+
+  @Param({"1920x1080", "3840x2160"})
+  public String size;
+
+  private Composite lightingComposite;
+  private BufferedImage lights;
+  private BufferedImage target;
+
+  private static BufferedImage randomImage(Random random, int width, int height) {
+    var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    int[] row = new int[width];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        row[x] = random.nextInt();
+      }
+      image.setRGB(0, y, width, 1, row, 0, width);
+    }
+    return image;
+  }
+
+  @Setup
+  public void setUp() {
+    lightingComposite =
+        "BlendedLights".equals(composite)
+            ? LightingComposite.BlendedLights
+            : LightingComposite.OverlaidLights;
+    String[] dimensions = size.split("x");
+    int width = Integer.parseInt(dimensions[0]);
+    int height = Integer.parseInt(dimensions[1]);
+    var random = new Random(42);
+    lights = randomImage(random, width, height);
+    target = randomImage(random, width, height);
+  }
+
+  @Benchmark
+  public BufferedImage compose() {
+    var g = target.createGraphics();
+    try {
+      g.setComposite(lightingComposite);
+      g.drawImage(lights, 0, 0, null);
+    } finally {
+      g.dispose();
+    }
+    return target;
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.walker.astar;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.rptools.maptool.client.DeveloperOptions;
+import net.rptools.maptool.client.walker.WalkerMetric;
+import net.rptools.maptool.model.CellPoint;
+import net.rptools.maptool.model.Path;
+import net.rptools.maptool.model.SquareGrid;
+import net.rptools.maptool.model.Token;
+import net.rptools.maptool.model.Token.TerrainModifierOperation;
+import net.rptools.maptool.model.Zone;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Pathfinding across a square grid scattered with difficult and blocking terrain tokens. There is
+ * no zone renderer when running headless, so the walker sees no topology or fog.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AStarWalkerBenchmark {
+
+  private static final int GRID_SIZE = 50;
+
+  /** The distance in cells between the start and the goal. */
+  @Param({"10", "40"})
+  public int distance;
+
+  /** The number of terrain modifier tokens on the map. */
+  @Param({"0", "200"})
+  public int terrainTokens;
+
+  private Zone zone;
+  private CellPoint start;
+  private CellPoint goal;
+  private boolean showAiDebugging;
+
+  @Setup
+  public void setUp() {
+    // The debug labels would otherwise be measured as well
+    showAiDebugging = DeveloperOptions.Toggle.ShowAiDebugging.isEnabled();
+    DeveloperOptions.Toggle.ShowAiDebugging.setEnabled(false);
+
+    zone = new Zone();
+    var grid = new SquareGrid();
+    grid.setSize(GRID_SIZE);
+    zone.setGrid(grid);
+
+    var random = new Random(42);
+    for (int i = 0; i < terrainTokens; i++) {
+      var token = new Token();
+      token.setName("Terrain " + i);
+      token.setX((random.nextInt(distance + 20) - 10) * GRID_SIZE);
+      token.setY((random.nextInt(distance + 20) - 10) * GRID_SIZE);
+      if (i % 4 == 0) {
+        token.setTerrainModifierOperation(TerrainModifierOperation.BLOCK);
+      } else {
+        token.setTerrainModifierOperation(TerrainModifierOperation.MULTIPLY);
+        token.setTerrainModifier(2);
+      }
+      zone.putToken(token);
+    }
+
+    start = new CellPoint(0, 0);
+    goal = new CellPoint(distance, distance / 2);
+  }
+
+  @TearDown
+  public void tearDown() {
+    DeveloperOptions.Toggle.ShowAiDebugging.setEnabled(showAiDebugging);
+  }
+
+  @Benchmark
+  public Path<CellPoint> calculatePath() {
+    // A new walker each time so that nothing is cached between paths
+    var walker = new AStarSquareEuclideanWalker(zone, WalkerMetric.ONE_TWO_ONE);
+    walker.setWaypoints(start, goal);
+    return walker.getPath();
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.rptools.maptool.model.Token.TerrainModifierOperation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** The token lookups and filters that macros and the renderer run against a crowded zone. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ZoneTokenQueryBenchmark {
+
+  @Param({"100", "1000", "10000"})
+  public int tokens;
+
+  private Zone zone;
+  private Token lastToken;
+  private String lastTokenId;
+  private String lastTokenName;
+  private String lastTokenGMName;
+
+  @Setup
+  public void setUp() {
+    zone = new Zone();
+    var random = new Random(42);
+    List<Token> tokenList = new ArrayList<>();
+    for (int i = 0; i < tokens; i++) {
+      var token = new Token();
+      token.setName("Token " + i);
+      if (i % 2 == 0) {
+        token.setGMName("GM Token " + i);
+      }
+      token.setX(random.nextInt(10000));
+      token.setY(random.nextInt(10000));
+      token.setType(i % 10 == 0 ? Token.Type.PC : Token.Type.NPC);
+      token.setHasSight(i % 5 == 0);
+      token.setOwnedByAll(i % 20 == 0);
+      if (i % 50 == 0) {
+        token.setTerrainModifierOperation(TerrainModifierOperation.MULTIPLY);
+        token.setTerrainModifier(2);
+      }
+      tokenList.add(token);
+    }
+    zone.putTokens(tokenList);
+
+    // The tokens that are found last in the z-order are the slowest to look up
+    lastToken = zone.getAllTokens().get(tokens - 1);
+    lastTokenId = lastToken.getId().toString();
+    lastTokenName = lastToken.getName();
+    lastTokenGMName = "GM " + lastToken.getName();
+  }
+
+  @Benchmark
+  public Token getToken() {
+    return zone.getToken(lastToken.getId());
+  }
+
+  @Benchmark
+  public Token resolveTokenById() {
+    return zone.resolveToken(lastTokenId);
+  }
+
+  @Benchmark
+  public Token resolveTokenByName() {
+    return zone.resolveToken(lastTokenName);
+  }
+
+  @Benchmark
+  public Token resolveTokenByGMName() {
+    return zone.resolveToken(lastTokenGMName);
+  }
+
+  @Benchmark
+  public List<Token> getTokens() {
+    return zone.getTokens();
+  }
+
+  @Benchmark
+  public List<Token> getTokensWithTerrainModifiers() {
+    return zone.getTokensWithTerrainModifiers();
+  }
+
+  @Benchmark
+  public List<Token> getAllTokens() {
+    return zone.getAllTokens();
+  }
+
+  @Benchmark
+  public void putExistingToken() {
+    zone.putToken(lastToken);
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model.library.addon;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import net.rptools.maptool.model.Asset;
+import net.rptools.maptool.model.AssetManager;
+import net.rptools.maptool.model.library.MTScriptMacroInfo;
+import net.rptools.maptool.model.library.proto.AddOnLibraryDto;
+import net.rptools.maptool.model.library.proto.AddOnLibraryEventsDto;
+import net.rptools.maptool.model.library.proto.MTScriptPropertiesDto;
+import org.javatuples.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The cost of looking up an add-on library macro, which happens on every {@code macro@lib} call.
+ * {@code decodeEachCall} does what every lookup used to do, {@code cachedLookup} what it does now.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AddOnLibraryMacroBenchmark {
+
+  private static final String MACRO_NAME = "macro";
+
+  private AddOnLibrary library;
+  private Asset asset;
+
+  @Setup
+  public void setUp() {
+    AssetManager.setUsePersistentCache(false);
+    asset =
+        Asset.createTextAsset(
+            "macro.mts",
+            "[h: total = 0][h, count(100): total = total + roll.count]"
+                .repeat(50)
+                .getBytes(StandardCharsets.UTF_8));
+    AssetManager.putAsset(asset);
+
+    library =
+        AddOnLibrary.fromDto(
+            asset.getMD5Key(),
+            AddOnLibraryDto.newBuilder()
+                .setName("Benchmark")
+                .setVersion("1.0")
+                .setNamespace("net.rptools.benchmark")
+                .build(),
+            MTScriptPropertiesDto.getDefaultInstance(),
+            AddOnLibraryEventsDto.getDefaultInstance(),
+            Map.of(
+                "mtscript/public/" + MACRO_NAME + ".mts",
+                Pair.with(asset.getMD5Key(), asset.getType())));
+  }
+
+  @Benchmark
+  public Optional<MTScriptMacroInfo> decodeEachCall() {
+    return CompletableFuture.supplyAsync(
+            () -> {
+              Asset macroAsset = AssetManager.getAsset(asset.getMD5Key());
+              return Optional.of(
+                  new MTScriptMacroInfo(MACRO_NAME, macroAsset.getDataAsString(), true, false, ""));
+            })
+        .join();
+  }
+
+  @Benchmark
+  public Optional<MTScriptMacroInfo> cachedLookup() {
+    return library.getMTScriptMacroInfo(MACRO_NAME).join();
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.server;
+
+import java.awt.Rectangle;
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.rptools.maptool.server.proto.drawing.AreaDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Converts topology sized areas to and from their protobuf form, as is done for every update. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapperAreaBenchmark {
+
+  /** The number of shapes combined into the area. */
+  @Param({"10", "100", "1000"})
+  public int shapes;
+
+  private Area area;
+  private AreaDto areaDto;
+
+  @Setup
+  public void setUp() {
+    var random = new Random(42);
+    area = new Area();
+    for (int i = 0; i < shapes; i++) {
+      int x = random.nextInt(5000);
+      int y = random.nextInt(5000);
+      int width = 20 + random.nextInt(200);
+      int height = 20 + random.nextInt(200);
+      var shape =
+          i % 2 == 0
+              ? new Area(new Rectangle(x, y, width, height))
+              : new Area(new Ellipse2D.Double(x, y, width, height));
+      if (i % 7 == 0) {
+        area.subtract(shape);
+      } else {
+        area.add(shape);
+      }
+    }
+    areaDto = Mapper.map(area);
+  }
+
+  @Benchmark
+  public AreaDto toDto() {
+    return Mapper.map(area);
+  }
+
+  @Benchmark
+  public Area fromDto() {
+    return Mapper.map(areaDto);
+  }
+}
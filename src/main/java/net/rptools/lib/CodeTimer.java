@@ -19,12 +19,20 @@
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-
+import net.rptools.lib.metrics.Metrics;
+
+/**
+ * Simple named section timer used for ad hoc profiling. The results are formatted by {@link
+ * #toString()} for the profiling note frame when the timer is enabled. When {@link Metrics} are
+ * enabled each section is also recorded in the {@link net.rptools.lib.metrics.Timer} named <code>
+ * timerName.sectionId</code>, even if this timer is disabled. Metrics timers are never removed, so
+ * section ids must come from a fixed set and not include names of tokens or other data.
+ */
 public class CodeTimer {
   private final Map<String, Timer> timeMap = new HashMap<String, Timer>();
   private final Map<String, Integer> orderMap = new HashMap<String, Integer>();
+  private final Map<String, net.rptools.lib.metrics.Timer> metricMap = new HashMap<>();
   private final String name;
-  private final long created = System.currentTimeMillis();
   private boolean enabled;
   private int threshold = 1;
 
@@ -52,22 +60,29 @@ public void setEnabled(boolean enabled) {
     this.enabled = enabled;
   }
 
+  private boolean isActive() {
+    return enabled || Metrics.isEnabled();
+  }
+
   public void start(String id) {
-    if (!enabled) {
+    if (!isActive()) {
       return;
     }
     int count = orderMap.size();
     orderMap.putIfAbsent(id, count);
     Timer timer = timeMap.get(id);
     if (timer == null) {
-      timer = new Timer();
+      timer =
+          new Timer(
+              metricMap.computeIfAbsent(
+                  id, k -> Metrics.timer(name.isEmpty() ? k : name + "." + k)));
       timeMap.put(id, timer);
     }
     timer.start();
   }
 
   public void stop(String id) {
-    if (!enabled) {
+    if (!isActive()) {
       return;
     }
     if (!orderMap.containsKey(id)) {
@@ -130,24 +145,39 @@ public String toString() {
   }
 
   private static class Timer {
+    final net.rptools.lib.metrics.Timer metric;
     long elapsed;
     long start = -1;
 
+    Timer(net.rptools.lib.metrics.Timer metric) {
+      this.metric = metric;
+    }
+
     public void start() {
-      start = System.currentTimeMillis();
+      start = System.nanoTime();
     }
 
     public void stop() {
-      elapsed += (System.currentTimeMillis() - start);
+      if (start == -1) {
+        return;
+      }
+      long time = System.nanoTime() - start;
+      elapsed += time;
       start = -1;
+      if (Metrics.isEnabled()) {
+        metric.record(time);
+      }
     }
 
+    /**
+     * @return the elapsed time in milliseconds.
+     */
     public long getElapsed() {
       long time = elapsed;
-      if (start > 0) {
-        time += (System.currentTimeMillis() - start);
+      if (start != -1) {
+        time += (System.nanoTime() - start);
       }
-      return time;
+      return time / 1_000_000;
     }
   }
 }
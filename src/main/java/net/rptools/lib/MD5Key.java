@@ -14,15 +14,27 @@
  */
 package net.rptools.lib;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 /**
  * Represents the MD5 key for a certain set of data. Can be used in maps as keys.
  *
+ * <p>Keys that are the hexadecimal representation of an md5 sum (which is every key calculated from
+ * data) are held as two {@code long}s rather than as a {@link String}, other ids (for example
+ * {@code "bad-location"}) are kept as given.
+ *
  * <p>This class is thread safe if a couple of simple rules are followed.
  *
  * <ul>
@@ -35,24 +47,36 @@
  * If either of the above two rules are violated then the state of {@link MD5Key} will be
  * inconsistent for the same data.
  */
-@SuppressWarnings("serial")
 public final class MD5Key implements Serializable {
 
-  /** The {@link MessageDigest} used for calculation of the md5 sum. */
-  private transient ThreadLocal<MessageDigest> md5Digest =
-      ThreadLocal.withInitial(
-          () -> {
-            try {
-              return MessageDigest.getInstance("md5");
-            } catch (NoSuchAlgorithmException e) {
-              // Shouldn't happen, but if it does let it bubble up as its really bad mojo if it does
-              // happen
-              throw new AssertionError(e);
-            }
-          });
-
-  /** The {@code String} representation of the MD5key. */
-  private final String id;
+  private static final long serialVersionUID = 1L;
+
+  /** The number of hexadecimal characters in the {@code String} form of an md5 sum. */
+  private static final int HEX_LENGTH = 32;
+
+  /** The size of the buffer used when reading data from an {@link InputStream}. */
+  private static final int READ_BUFFER_SIZE = 16 * 1024;
+
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  /**
+   * {@link MessageDigest}s that are free to be used. Digests are borrowed for the duration of a
+   * single calculation and returned afterwards, if the pool is full the digest is dropped.
+   */
+  private static final BlockingQueue<MessageDigest> digestPool =
+      new ArrayBlockingQueue<>(Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+
+  /** The high 64 bits of the md5 sum, only valid if {@link #text} is {@code null}. */
+  private final long high;
+
+  /** The low 64 bits of the md5 sum, only valid if {@link #text} is {@code null}. */
+  private final long low;
+
+  /** The id of the key if it is not the hexadecimal form of an md5 sum, otherwise {@code null}. */
+  private final String text;
+
+  /** The cached hash code. */
+  private final int hash;
 
   /**
    * Creates a new {@code MD5Key} using the value in the {@code String} as the id.
@@ -60,7 +84,17 @@ public final class MD5Key implements Serializable {
    * @param id the id of the key.
    */
   public MD5Key(String id) {
-    this.id = id;
+    if (isHexSum(id)) {
+      high = Long.parseUnsignedLong(id, 0, HEX_LENGTH / 2, 16);
+      low = Long.parseUnsignedLong(id, HEX_LENGTH / 2, HEX_LENGTH, 16);
+      text = null;
+      hash = hashOf(high, low);
+    } else {
+      high = 0;
+      low = 0;
+      text = id;
+      hash = id.hashCode();
+    }
   }
 
   /**
@@ -71,11 +105,13 @@ public MD5Key(String id) {
    *     completes, doing so will result in an inconsistent state for the sale input data.
    */
   public MD5Key(byte[] data) {
-    id = encodeToHex(digestData(data));
+    this(digestData(data));
   }
 
   /**
-   * Creates an {@code MD5Key} representing the supplied data.
+   * Creates an {@code MD5Key} representing the supplied data. The data is read in blocks and is
+   * never held in memory as a whole, so this can be used to calculate the key of a file or zip
+   * entry without loading it first. The stream is not closed.
    *
    * @param data The data to perform an md5 sum over.
    * @throws IOException if an error occurs reading the data.
@@ -84,7 +120,71 @@ public MD5Key(byte[] data) {
    *     for the sale input data.
    */
   public MD5Key(InputStream data) throws IOException {
-    id = encodeToHex(digestData(data));
+    this(digestData(data));
+  }
+
+  /**
+   * Creates an {@code MD5Key} from the 16 bytes of an md5 sum.
+   *
+   * @param sum the md5 sum.
+   */
+  private MD5Key(long[] sum) {
+    high = sum[0];
+    low = sum[1];
+    text = null;
+    hash = hashOf(high, low);
+  }
+
+  /**
+   * Returns the {@code MD5Key} for the contents of a file. The file is read in blocks rather than
+   * loaded in to memory.
+   *
+   * @param file the file to calculate the key for.
+   * @return the {@code MD5Key} of the file contents.
+   * @throws IOException if an error occurs reading the file.
+   */
+  public static MD5Key fromFile(File file) throws IOException {
+    return fromFile(file.toPath());
+  }
+
+  /**
+   * Returns the {@code MD5Key} for the contents of a file. The file is read in blocks rather than
+   * loaded in to memory.
+   *
+   * @param path the path of the file to calculate the key for.
+   * @return the {@code MD5Key} of the file contents.
+   * @throws IOException if an error occurs reading the file.
+   */
+  public static MD5Key fromFile(Path path) throws IOException {
+    try (InputStream is = Files.newInputStream(path)) {
+      return new MD5Key(is);
+    }
+  }
+
+  /**
+   * Returns the {@code MD5Key} for the data read from a stream, copying the data to another stream
+   * as it is read. This lets the data of a file or zip entry be loaded and its key calculated in a
+   * single pass, rather than calculating the key over the loaded data afterwards. Neither stream is
+   * closed.
+   *
+   * @param data the stream to read the data from.
+   * @param copy the stream to copy the data to.
+   * @return the {@code MD5Key} of the data.
+   * @throws IOException if an error occurs reading or copying the data.
+   */
+  public static MD5Key fromStream(InputStream data, OutputStream copy) throws IOException {
+    MessageDigest digest = borrowDigest();
+    try {
+      byte[] buffer = new byte[READ_BUFFER_SIZE];
+      int read;
+      while ((read = data.read(buffer)) >= 0) {
+        digest.update(buffer, 0, read);
+        copy.write(buffer, 0, read);
+      }
+      return new MD5Key(toLongs(digest.digest()));
+    } finally {
+      returnDigest(digest);
+    }
   }
 
   /**
@@ -94,71 +194,158 @@ public MD5Key(InputStream data) throws IOException {
    * @return the {@code String} representation of the {@code MD5Key}.
    */
   public String toString() {
-    return id;
+    if (text != null) {
+      return text;
+    }
+    char[] chars = new char[HEX_LENGTH];
+    encodeToHex(high, chars, 0);
+    encodeToHex(low, chars, HEX_LENGTH / 2);
+    return new String(chars);
   }
 
   @Override
   public boolean equals(Object obj) {
-    if (!(obj instanceof MD5Key)) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof MD5Key other)) {
       return false;
     }
-
-    return id.equals(((MD5Key) obj).id);
+    if (hash != other.hash) {
+      return false;
+    }
+    if (text != null || other.text != null) {
+      return text != null && text.equals(other.text);
+    }
+    return high == other.high && low == other.low;
   }
 
   @Override
   public int hashCode() {
-    return id.hashCode();
+    return hash;
+  }
+
+  /**
+   * Returns the hash code for an md5 sum. The bits of an md5 sum are already well distributed so
+   * there is no need to mix them further.
+   */
+  private static int hashOf(long high, long low) {
+    return (int) (high ^ (high >>> 32) ^ low ^ (low >>> 32));
+  }
+
+  /**
+   * Returns if the id is the lower case hexadecimal representation of an md5 sum, which is the only
+   * form that can be converted to and from the compact representation without changing the value
+   * returned by {@link #toString()}.
+   */
+  private static boolean isHexSum(String id) {
+    if (id.length() != HEX_LENGTH) {
+      return false;
+    }
+    for (int i = 0; i < HEX_LENGTH; i++) {
+      char c = id.charAt(i);
+      if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+        return false;
+      }
+    }
+    return true;
   }
 
   /**
    * Returns the md5 sum of the provided data.
    *
    * @param data The data to calculate the md5 sum of.
-   * @return the md5 sum of the data.
+   * @return the md5 sum of the data as two longs.
    */
-  private byte[] digestData(byte[] data) {
-    MessageDigest digest = md5Digest.get();
-    digest.reset();
-    digest.update(data);
-    return digest.digest();
+  private static long[] digestData(byte[] data) {
+    MessageDigest digest = borrowDigest();
+    try {
+      digest.update(data);
+      return toLongs(digest.digest());
+    } finally {
+      returnDigest(digest);
+    }
   }
 
   /**
    * Returns the md5 sum of the data provided by the {@link InputStream}.
    *
    * @param is The {@code InputStream} providing the data to calculate the md5 sum of.
-   * @return the md5 sum of the data from the {@link InputStream}.
+   * @return the md5 sum of the data from the {@link InputStream} as two longs.
    */
-  private byte[] digestData(InputStream is) throws IOException {
-    MessageDigest digest = md5Digest.get();
+  private static long[] digestData(InputStream is) throws IOException {
+    MessageDigest digest = borrowDigest();
+    try {
+      byte[] buffer = new byte[READ_BUFFER_SIZE];
+      int read;
+      while ((read = is.read(buffer)) >= 0) {
+        digest.update(buffer, 0, read);
+      }
+      return toLongs(digest.digest());
+    } finally {
+      returnDigest(digest);
+    }
+  }
+
+  private static MessageDigest borrowDigest() {
+    MessageDigest digest = digestPool.poll();
+    if (digest != null) {
+      return digest;
+    }
+    try {
+      return MessageDigest.getInstance("md5");
+    } catch (NoSuchAlgorithmException e) {
+      // Shouldn't happen, but if it does let it bubble up as its really bad mojo if it does
+      // happen
+      throw new AssertionError(e);
+    }
+  }
+
+  private static void returnDigest(MessageDigest digest) {
     digest.reset();
+    digestPool.offer(digest);
+  }
 
-    int b;
-    while (((b = is.read()) >= 0)) {
-      digest.update((byte) b);
+  private static long[] toLongs(byte[] sum) {
+    long high = 0;
+    long low = 0;
+    for (int i = 0; i < 8; i++) {
+      high = (high << 8) | (sum[i] & 0xff);
+      low = (low << 8) | (sum[i + 8] & 0xff);
     }
-    return digest.digest();
+    return new long[] {high, low};
   }
 
   /**
-   * Encode a byte array into a hexadecimal string.
+   * Encode a long into 16 hexadecimal characters.
    *
-   * @param data the byte array to encode.
-   * @return a {@code String} containing the encoded hexadecimal value of the passed in data.
+   * @param value the value to encode.
+   * @param chars the array to write the characters to.
+   * @param offset the offset in the array of the first character.
    */
-  private String encodeToHex(byte[] data) {
-    StringBuilder strbuild = new StringBuilder();
-    for (byte datum : data) {
-      String hex = Integer.toHexString(datum);
-      if (hex.length() < 2) {
-        strbuild.append("0");
-      }
-      if (hex.length() > 2) {
-        hex = hex.substring(hex.length() - 2);
-      }
-      strbuild.append(hex);
+  private static void encodeToHex(long value, char[] chars, int offset) {
+    for (int i = HEX_LENGTH / 2 - 1; i >= 0; i--) {
+      chars[offset + i] = HEX_DIGITS[(int) (value & 0xf)];
+      value >>>= 4;
+    }
+  }
+
+  /**
+   * Serializes the key using its {@code String} form so that the serialized form does not depend on
+   * the in memory representation.
+   */
+  private Object writeReplace() {
+    return new SerializedForm(toString());
+  }
+
+  private void readObject(ObjectInputStream in) throws InvalidObjectException {
+    throw new InvalidObjectException("MD5Key must be deserialized from its serialized form");
+  }
+
+  /** The serialized form of an {@link MD5Key}. */
+  private record SerializedForm(String id) implements Serializable {
+    private Object readResolve() {
+      return new MD5Key(id);
     }
-    return strbuild.toString();
   }
 }
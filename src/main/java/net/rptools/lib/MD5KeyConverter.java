@@ -0,0 +1,59 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.lib;
+
+import com.thoughtworks.xstream.converters.ConversionException;
+import com.thoughtworks.xstream.converters.Converter;
+import com.thoughtworks.xstream.converters.MarshallingContext;
+import com.thoughtworks.xstream.converters.UnmarshallingContext;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+
+/**
+ * Reads and writes {@link MD5Key}s in the same XML format that was produced when the key was held
+ * as a single {@code id} field, i.e. {@code <md5Key><id>...</id></md5Key>}, so campaign files are
+ * unaffected by the in memory representation of the key.
+ */
+public class MD5KeyConverter implements Converter {
+  private static final String ID_NODE = "id";
+
+  @Override
+  public boolean canConvert(Class type) {
+    return MD5Key.class.equals(type);
+  }
+
+  @Override
+  public void marshal(Object source, HierarchicalStreamWriter writer, MarshallingContext context) {
+    writer.startNode(ID_NODE);
+    writer.setValue(source.toString());
+    writer.endNode();
+  }
+
+  @Override
+  public Object unmarshal(HierarchicalStreamReader reader, UnmarshallingContext context) {
+    String id = null;
+    while (reader.hasMoreChildren()) {
+      reader.moveDown();
+      if (ID_NODE.equals(reader.getNodeName())) {
+        id = reader.getValue();
+      }
+      reader.moveUp();
+    }
+    if (id == null) {
+      throw new ConversionException("MD5Key without an id");
+    }
+    return new MD5Key(id);
+  }
+}
@@ -14,12 +14,24 @@
  */
 package net.rptools.lib;
 
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.PipedReader;
+import java.io.PipedWriter;
+import java.io.Reader;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
 import net.rptools.lib.io.PackedFile;
 import net.rptools.maptool.util.PersistenceUtil;
 import org.apache.commons.lang.StringUtils;
@@ -38,18 +50,13 @@
  * performed as would version "1.3.53.1". Note that version numbers are cleaned (via {@link
  * #cleanVersionNumber(String)} prior to being compared.
  *
- * <p>The current implementation is less-than-ideal as it requires:
- *
- * <ul>
- *   <li>the entire XML passed in as a String
- *   <li>all XML is processed with transforms even if the version numbers indicate that it's not
- *       necessary
- * </ul>
- *
- * <p>Those can be mitigated somewhat by performing an upfront check of the file version number
- * against the version numbers stored in this object. If there are no transforms required then the
- * alternate code in {@link PackedFile} that uses InputStreams and Readers can be used instead,
- * significantly reducing the memory footprint of the import process.
+ * <p>The String based {@link #transform(String, String)} requires the entire XML to be held in
+ * memory (several times over, as each transform produces a new copy). This can be mitigated by
+ * performing an upfront check of the file version number against the version numbers stored in this
+ * object. If there are no transforms required then the alternate code in {@link PackedFile} that
+ * uses InputStreams and Readers can be used instead. If transforms are required and all of them are
+ * {@link StreamingModelVersionTransformation}s then {@link #transform(Reader, String)} can be used
+ * to apply them as a chain of StAX event filters without materializing the document.
  *
  * @author tcroft
  */
@@ -126,6 +133,119 @@ public synchronized String transform(String xml, String fileVersion) {
     return xml;
   }
 
+  /**
+   * Returns <code>true</code> if every transformation required for <code>fileVersion</code> can be
+   * applied by {@link #transform(Reader, String)}.
+   *
+   * @param fileVersion version number string read from file being imported
+   * @return true if the transforms can be streamed
+   */
+  public synchronized boolean isStreamingSupported(String fileVersion) {
+    return getRequiredTransforms(cleanVersionNumber(fileVersion)).stream()
+        .allMatch(t -> t instanceof StreamingModelVersionTransformation);
+  }
+
+  /**
+   * Same as {@link #transform(String, String)} except that the XML is read from <code>xml</code>
+   * and the result is returned as a {@link Reader}. The transformations are applied on a separate
+   * thread as the returned reader is consumed so the whole document is never held in memory. All
+   * required transformations must be {@link StreamingModelVersionTransformation}s, see {@link
+   * #isStreamingSupported(String)}. The <code>xml</code> reader is closed once it has been
+   * consumed.
+   *
+   * @param xml the XML to transform
+   * @param fileVersion typically of the form <b>a.b.c</b> but can have any number of components
+   * @return a reader for the resulting XML
+   * @throws IOException if the XML can not be read
+   * @throws IllegalStateException if a required transformation can not be streamed
+   */
+  public Reader transform(Reader xml, String fileVersion) throws IOException {
+    List<ModelVersionTransformation> transforms;
+    synchronized (this) {
+      transforms = getRequiredTransforms(cleanVersionNumber(fileVersion));
+    }
+
+    XMLEventReader events;
+    try {
+      XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+      inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+      inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+      inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+      events = inputFactory.createXMLEventReader(xml);
+    } catch (XMLStreamException e) {
+      throw new IOException(e);
+    }
+    for (ModelVersionTransformation transform : transforms) {
+      if (!(transform instanceof StreamingModelVersionTransformation streaming)) {
+        throw new IllegalStateException(
+            transform.getClass().getName() + " does not support streaming");
+      }
+      events = streaming.transform(events);
+    }
+
+    var failure = new AtomicReference<Throwable>();
+    var in = new PipedReader(STREAM_BUFFER_SIZE);
+    var out = new PipedWriter(in);
+    final XMLEventReader source = events;
+    Thread producer =
+        new Thread(
+            () -> {
+              try (xml;
+                  out) {
+                try {
+                  XMLEventWriter writer = XMLOutputFactory.newInstance().createXMLEventWriter(out);
+                  writer.add(source);
+                  writer.flush();
+                } catch (Exception e) {
+                  // Must be recorded before the pipe is closed so the reader sees it at EOF
+                  failure.set(e);
+                }
+              } catch (IOException e) {
+                failure.compareAndSet(null, e);
+              }
+            },
+            "ModelVersionTransform");
+    producer.setDaemon(true);
+    producer.start();
+
+    return new FilterReader(in) {
+      @Override
+      public int read() throws IOException {
+        int c = super.read();
+        if (c < 0) {
+          checkFailure();
+        }
+        return c;
+      }
+
+      @Override
+      public int read(char[] cbuf, int off, int len) throws IOException {
+        int n = super.read(cbuf, off, len);
+        if (n < 0) {
+          checkFailure();
+        }
+        return n;
+      }
+
+      private void checkFailure() throws IOException {
+        Throwable t = failure.get();
+        if (t != null) {
+          throw new IOException("Error transforming XML", t);
+        }
+      }
+    };
+  }
+
+  private List<ModelVersionTransformation> getRequiredTransforms(String fileVersion) {
+    List<ModelVersionTransformation> transforms = new ArrayList<>();
+    for (String entry : getTransforms()) {
+      if (isBefore(fileVersion, entry)) {
+        transforms.addAll(transformMap.get(entry));
+      }
+    }
+    return transforms;
+  }
+
   private String[] getTransforms() {
     Set<String> set = transformMap.keySet();
     String[] entries = new String[set.size()];
@@ -186,4 +306,7 @@ public static String cleanVersionNumber(String version) {
   }
 
   private static final String DEFAULT_EMPTY_VERSION = "0";
+
+  /** The number of characters buffered between the transforming thread and the reader. */
+  private static final int STREAM_BUFFER_SIZE = 64 * 1024;
 }
@@ -0,0 +1,36 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.lib;
+
+import javax.xml.stream.XMLEventReader;
+
+/**
+ * A {@link ModelVersionTransformation} that can also be applied to a stream of StAX events. When
+ * every transformation required for a file implements this interface the {@link
+ * ModelVersionManager} can transform the file without reading it into memory first.
+ *
+ * <p>The streaming form must produce XML that deserializes to the same objects as the output of
+ * {@link #transform(String)}.
+ */
+public interface StreamingModelVersionTransformation extends ModelVersionTransformation {
+
+  /**
+   * Returns a reader that applies this transformation to the events read from <code>events</code>.
+   *
+   * @param events the events to transform.
+   * @return the transformed events.
+   */
+  XMLEventReader transform(XMLEventReader events);
+}
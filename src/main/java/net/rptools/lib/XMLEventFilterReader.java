@@ -0,0 +1,192 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.lib;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.NoSuchElementException;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.EntityDeclaration;
+import javax.xml.stream.events.EntityReference;
+import javax.xml.stream.events.XMLEvent;
+import javax.xml.stream.util.EventReaderDelegate;
+
+/**
+ * Base class for StAX event filters used by {@link StreamingModelVersionTransformation}s. Each
+ * event read from the parent reader is passed to {@link #process(XMLEvent)} which can {@link
+ * #emit(XMLEvent)} zero or more events in its place.
+ */
+public abstract class XMLEventFilterReader extends EventReaderDelegate {
+
+  /** Factory used by subclasses to create replacement events. */
+  protected static final XMLEventFactory eventFactory = XMLEventFactory.newInstance();
+
+  /** Events that have been emitted but not read yet. */
+  private final Deque<XMLEvent> pending = new ArrayDeque<>();
+
+  /** The event read last, or {@code null} if none has been read yet. */
+  private XMLEvent current;
+
+  protected XMLEventFilterReader(XMLEventReader parent) {
+    super(parent);
+  }
+
+  /**
+   * Processes the next event from the parent reader.
+   *
+   * @param event the event to process.
+   * @throws XMLStreamException if an error occurs reading further events from the parent.
+   */
+  protected abstract void process(XMLEvent event) throws XMLStreamException;
+
+  /**
+   * Adds an event to the output of this reader.
+   *
+   * @param event the event to add.
+   */
+  protected void emit(XMLEvent event) {
+    pending.addLast(event);
+  }
+
+  private boolean fill() throws XMLStreamException {
+    var parent = getParent();
+    while (pending.isEmpty() && parent.hasNext()) {
+      process(parent.nextEvent());
+    }
+    return !pending.isEmpty();
+  }
+
+  @Override
+  public boolean hasNext() {
+    try {
+      return fill();
+    } catch (XMLStreamException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public XMLEvent nextEvent() throws XMLStreamException {
+    if (!fill()) {
+      throw new NoSuchElementException();
+    }
+    current = pending.removeFirst();
+    return current;
+  }
+
+  @Override
+  public Object next() {
+    try {
+      return nextEvent();
+    } catch (XMLStreamException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public XMLEvent peek() throws XMLStreamException {
+    return fill() ? pending.peekFirst() : null;
+  }
+
+  /**
+   * Reads the text of a text-only element from the filtered events. The last event read must be the
+   * start of the element, and the events up to and including its end are read.
+   *
+   * @return the text of the element.
+   * @throws XMLStreamException if the last event read isn't a start element, or the element
+   *     contains other elements.
+   */
+  @Override
+  public String getElementText() throws XMLStreamException {
+    if (current == null || !current.isStartElement()) {
+      throw new XMLStreamException(
+          "Not at the start of an element", current == null ? null : current.getLocation());
+    }
+    var text = new StringBuilder();
+    while (true) {
+      XMLEvent event = nextEvent();
+      switch (event.getEventType()) {
+        case XMLStreamConstants.CHARACTERS,
+            XMLStreamConstants.CDATA,
+            XMLStreamConstants.SPACE -> text.append(event.asCharacters().getData());
+        case XMLStreamConstants.ENTITY_REFERENCE -> {
+          EntityDeclaration declaration = ((EntityReference) event).getDeclaration();
+          if (declaration != null && declaration.getReplacementText() != null) {
+            text.append(declaration.getReplacementText());
+          }
+        }
+        case XMLStreamConstants.COMMENT, XMLStreamConstants.PROCESSING_INSTRUCTION -> {}
+        case XMLStreamConstants.END_ELEMENT -> {
+          return text.toString();
+        }
+        default -> throw new XMLStreamException(
+            "Expected text only in element but found event type " + event.getEventType(),
+            event.getLocation());
+      }
+    }
+  }
+
+  /**
+   * Skips white space, comments and processing instructions in the filtered events up to the next
+   * start or end element.
+   *
+   * @return the start or end element.
+   * @throws XMLStreamException if anything else is found first.
+   */
+  @Override
+  public XMLEvent nextTag() throws XMLStreamException {
+    while (true) {
+      XMLEvent event = nextEvent();
+      switch (event.getEventType()) {
+        case XMLStreamConstants.START_ELEMENT, XMLStreamConstants.END_ELEMENT -> {
+          return event;
+        }
+        case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE -> {
+          if (!event.asCharacters().isWhiteSpace()) {
+            throw new XMLStreamException(
+                "Expected a start or end element but found text", event.getLocation());
+          }
+        }
+        case XMLStreamConstants.COMMENT, XMLStreamConstants.PROCESSING_INSTRUCTION -> {}
+        default -> throw new XMLStreamException(
+            "Expected a start or end element but found event type " + event.getEventType(),
+            event.getLocation());
+      }
+    }
+  }
+
+  /**
+   * Returns the local name of the element if the event is a start element, otherwise {@code null}.
+   *
+   * @param event the event to check.
+   * @return the local name of the start element.
+   */
+  protected static String startName(XMLEvent event) {
+    return event.isStartElement() ? event.asStartElement().getName().getLocalPart() : null;
+  }
+
+  /**
+   * Returns the local name of the element if the event is an end element, otherwise {@code null}.
+   *
+   * @param event the event to check.
+   * @return the local name of the end element.
+   */
+  protected static String endName(XMLEvent event) {
+    return event.isEndElement() ? event.asEndElement().getName().getLocalPart() : null;
+  }
+}
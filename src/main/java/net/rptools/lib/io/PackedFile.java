@@ -16,10 +16,12 @@
 
 import com.google.common.io.CharStreams;
 import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.XStreamException;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -51,6 +53,7 @@
 import javax.xml.parsers.ParserConfigurationException;
 import net.rptools.lib.CodeTimer;
 import net.rptools.lib.FileUtil;
+import net.rptools.lib.MD5Key;
 import net.rptools.lib.ModelVersionManager;
 import net.rptools.maptool.client.AppState;
 import net.rptools.maptool.client.MapTool;
@@ -247,6 +250,18 @@ public Object getContent(String fileVersion) throws IOException {
    */
   public Object getContent(ModelVersionManager versionManager, String fileVersion)
       throws IOException {
+    if (versionManager != null
+        && versionManager.isTransformationRequired(fileVersion)
+        && versionManager.isStreamingSupported(fileVersion)) {
+      try (Reader r = versionManager.transform(getFileAsReader(CONTENT_FILE), fileVersion)) {
+        xstream.ignoreUnknownElements();
+        return xstream.fromXML(r);
+      } catch (XStreamException e) {
+        // The StAX parser is stricter than the one XStream uses, so fall back to transforming the
+        // content in memory.
+        log.warn("Unable to stream content file transformations, retrying in memory", e);
+      }
+    }
     try (Reader r = getFileAsReader(CONTENT_FILE)) {
       if (versionManager != null && versionManager.isTransformationRequired(fileVersion)) {
         String xml = IOUtils.toString(r);
@@ -659,8 +674,11 @@ public Asset getAsset(String path) throws IOException {
         }
 
         if (embeddedImage == null) {
-          byte[] image = getFileAsInputStream(path + "." + extension).readAllBytes();
-          return Asset.createImageAsset(name, image);
+          try (InputStream image = getFileAsInputStream(path + "." + extension)) {
+            var data = new ByteArrayOutputStream();
+            MD5Key key = MD5Key.fromStream(image, data);
+            return Asset.createAsset(name, data.toByteArray(), Asset.Type.IMAGE, key);
+          }
         } else {
           var asset = Asset.createImageAsset(name, embeddedImage);
           AssetManager.putAsset(asset);
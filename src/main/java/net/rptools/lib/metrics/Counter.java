@@ -0,0 +1,57 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.lib.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** A monotonically increasing count of events. */
+public final class Counter {
+  private final String name;
+  private final LongAdder count = new LongAdder();
+
+  Counter(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /** Increments the counter by one if metrics are enabled. */
+  public void increment() {
+    if (Metrics.isEnabled()) {
+      count.increment();
+    }
+  }
+
+  /**
+   * Increments the counter if metrics are enabled.
+   *
+   * @param amount the amount to increment by.
+   */
+  public void increment(long amount) {
+    if (Metrics.isEnabled()) {
+      count.add(amount);
+    }
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  void reset() {
+    count.reset();
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.lib.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Registry of the application's {@link Timer}s, {@link Counter}s and gauges. Metrics are looked up
+ * by name once (usually into a static field) and then recorded without any further lookups.
+ *
+ * <p>Collection is disabled by default. It can be enabled at start up with the {@value
+ * #ENABLED_PROPERTY} system property, or at runtime via {@link #setEnabled(boolean)} or the JMX
+ * bean registered by {@link #registerMBean()}. While disabled, recording a metric costs a single
+ * volatile read.
+ */
+public final class Metrics {
+  private static final Logger log = LogManager.getLogger(Metrics.class);
+
+  /** System property used to enable metrics collection at start up. */
+  public static final String ENABLED_PROPERTY = "maptool.metrics.enabled";
+
+  /** The name the JMX bean is registered under. */
+  public static final String MBEAN_NAME = "net.rptools.maptool:type=Metrics";
+
+  private static volatile boolean enabled = Boolean.getBoolean(ENABLED_PROPERTY);
+
+  private static final Map<String, Timer> timers = new ConcurrentHashMap<>();
+  private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+  private static final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+  /** Time taken to paint a frame of the map. */
+  public static final Timer RENDER_FRAME = timer("renderer.frame");
+
+  /** Time taken to decode and dispatch a message received from the server. */
+  public static final Timer NETWORK_CLIENT_MESSAGE = timer("network.client.message");
+
+  /** Number of messages received from the server. */
+  public static final Counter NETWORK_CLIENT_MESSAGES = counter("network.client.messages");
+
+  /** Time taken to run a macro. */
+  public static final Timer MACRO_RUN = timer("macro.run");
+
+  private Metrics() {}
+
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  public static void setEnabled(boolean enabled) {
+    Metrics.enabled = enabled;
+  }
+
+  /**
+   * Returns the timer with the specified name, creating it if needed.
+   *
+   * @param name the name of the timer.
+   * @return the timer.
+   */
+  public static Timer timer(String name) {
+    return timers.computeIfAbsent(name, Timer::new);
+  }
+
+  /**
+   * Returns the counter with the specified name, creating it if needed.
+   *
+   * @param name the name of the counter.
+   * @return the counter.
+   */
+  public static Counter counter(String name) {
+    return counters.computeIfAbsent(name, Counter::new);
+  }
+
+  /**
+   * Registers a gauge, replacing any existing gauge with the same name.
+   *
+   * @param name the name of the gauge.
+   * @param value supplies the current value of the gauge.
+   */
+  public static void gauge(String name, LongSupplier value) {
+    gauges.put(name, value);
+  }
+
+  /**
+   * Returns snapshots of all the timers, sorted by name.
+   *
+   * @return the timer snapshots.
+   */
+  public static List<TimerSnapshot> getTimerSnapshots() {
+    var snapshots = new ArrayList<TimerSnapshot>(timers.size());
+    for (Timer timer : timers.values()) {
+      snapshots.add(timer.snapshot());
+    }
+    snapshots.sort(Comparator.comparing(TimerSnapshot::name));
+    return snapshots;
+  }
+
+  /**
+   * Returns the current values of all the counters, sorted by name.
+   *
+   * @return the counter values.
+   */
+  public static Map<String, Long> getCounterValues() {
+    var values = new TreeMap<String, Long>();
+    counters.forEach((name, counter) -> values.put(name, counter.getCount()));
+    return values;
+  }
+
+  /**
+   * Returns the current values of all the gauges, sorted by name.
+   *
+   * @return the gauge values.
+   */
+  public static Map<String, Long> getGaugeValues() {
+    var values = new TreeMap<String, Long>();
+    gauges.forEach(
+        (name, gauge) -> {
+          try {
+            values.put(name, gauge.getAsLong());
+          } catch (RuntimeException e) {
+            log.debug("Unable to read gauge {}", name, e);
+          }
+        });
+    return values;
+  }
+
+  /** Clears all recorded timer durations and counter values. */
+  public static void reset() {
+    timers.values().forEach(Timer::reset);
+    counters.values().forEach(Counter::reset);
+  }
+
+  /** Registers the {@link MetricsMXBean} with the platform MBean server. */
+  public static void registerMBean() {
+    try {
+      var server = ManagementFactory.getPlatformMBeanServer();
+      var name = new ObjectName(MBEAN_NAME);
+      if (!server.isRegistered(name)) {
+        server.registerMBean(new MetricsMXBeanImpl(), name);
+      }
+    } catch (JMException e) {
+      log.warn("Unable to register metrics MBean", e);
+    }
+  }
+
+  private static class MetricsMXBeanImpl implements MetricsMXBean {
+    @Override
+    public boolean isEnabled() {
+      return Metrics.isEnabled();
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+      Metrics.setEnabled(enabled);
+    }
+
+    @Override
+    public List<TimerSnapshot> getTimers() {
+      return getTimerSnapshots();
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+      return getCounterValues();
+    }
+
+    @Override
+    public Map<String, Long> getGauges() {
+      return getGaugeValues();
+    }
+
+    @Override
+    public void reset() {
+      Metrics.reset();
+    }
+  }
+}
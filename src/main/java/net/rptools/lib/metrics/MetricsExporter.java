@@ -0,0 +1,85 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.lib.metrics;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Periodically writes the {@link Metrics} to the {@value #LOGGER_NAME} logger, which log4j2.xml
+ * sends to a rolling file in the log directory. Nothing is written while metrics are disabled.
+ */
+public class MetricsExporter {
+  /** The name of the logger the metrics are written to. */
+  public static final String LOGGER_NAME = "MapToolMetrics";
+
+  private static final Logger metricsLog = LogManager.getLogger(LOGGER_NAME);
+
+  private static final ScheduledExecutorService executor =
+      Executors.newSingleThreadScheduledExecutor(
+          r -> {
+            var thread = new Thread(r, "MetricsExporter");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  private static ScheduledFuture<?> task;
+
+  /**
+   * Starts exporting the metrics, replacing any previous schedule.
+   *
+   * @param period the time between exports.
+   * @param unit the unit of <code>period</code>.
+   */
+  public static synchronized void start(long period, TimeUnit unit) {
+    stop();
+    task = executor.scheduleAtFixedRate(MetricsExporter::export, period, period, unit);
+  }
+
+  /** Stops exporting the metrics. */
+  public static synchronized void stop() {
+    if (task != null) {
+      task.cancel(false);
+      task = null;
+    }
+  }
+
+  /** Writes the current values of all metrics. */
+  public static void export() {
+    if (!Metrics.isEnabled()) {
+      return;
+    }
+    for (TimerSnapshot timer : Metrics.getTimerSnapshots()) {
+      if (timer.count() > 0) {
+        metricsLog.info(
+            "timer {} count={} mean={}us p50={}us p99={}us max={}us",
+            timer.name(),
+            timer.count(),
+            timer.mean() / 1000,
+            timer.p50() / 1000,
+            timer.p99() / 1000,
+            timer.max() / 1000);
+      }
+    }
+    Metrics.getCounterValues()
+        .forEach((name, value) -> metricsLog.info("counter {} value={}", name, value));
+    Metrics.getGaugeValues()
+        .forEach((name, value) -> metricsLog.info("gauge {} value={}", name, value));
+  }
+}
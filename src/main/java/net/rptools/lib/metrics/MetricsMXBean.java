@@ -0,0 +1,33 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.lib.metrics;
+
+import java.util.List;
+import java.util.Map;
+
+/** JMX view of the {@link Metrics} registry. */
+public interface MetricsMXBean {
+  boolean isEnabled();
+
+  void setEnabled(boolean enabled);
+
+  List<TimerSnapshot> getTimers();
+
+  Map<String, Long> getCounters();
+
+  Map<String, Long> getGauges();
+
+  void reset();
+}
@@ -0,0 +1,157 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.lib.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A latency timer backed by a fixed size log-linear histogram. Recording is lock free and does not
+ * allocate, and when {@link Metrics#isEnabled()} is {@code false} {@link #start()} and {@link
+ * #stop(long)} do nothing beyond a volatile read.
+ *
+ * <p>Typical usage is:
+ *
+ * <pre>{@code
+ * long start = TIMER.start();
+ * ...
+ * TIMER.stop(start);
+ * }</pre>
+ */
+public final class Timer {
+  /** Number of bits of each value used to select the sub bucket within a power of two. */
+  private static final int SUB_BUCKET_BITS = 3;
+
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+  private final String name;
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder total = new LongAdder();
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  Timer(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns the start time to pass to {@link #stop(long)}.
+   *
+   * @return the current value of {@link System#nanoTime()}, or 0 if metrics are disabled.
+   */
+  public long start() {
+    return Metrics.isEnabled() ? System.nanoTime() : 0;
+  }
+
+  /**
+   * Records the time elapsed since <code>start</code>.
+   *
+   * @param start the value returned by {@link #start()}.
+   */
+  public void stop(long start) {
+    if (start != 0) {
+      record(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Records a duration.
+   *
+   * @param nanos the duration in nanoseconds.
+   */
+  public void record(long nanos) {
+    if (nanos < 0) {
+      nanos = 0;
+    }
+    buckets.incrementAndGet(bucketFor(nanos));
+    count.increment();
+    total.add(nanos);
+    max.accumulate(nanos);
+  }
+
+  /** Clears all recorded durations. */
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      buckets.set(i, 0);
+    }
+    count.reset();
+    total.reset();
+    max.reset();
+  }
+
+  /**
+   * Returns a snapshot of the recorded durations. Percentiles are accurate to within one sub bucket
+   * (1/8th of the power of two the value falls in).
+   *
+   * @return the snapshot.
+   */
+  public TimerSnapshot snapshot() {
+    long[] counts = new long[BUCKETS];
+    long n = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = buckets.get(i);
+      n += counts[i];
+    }
+    long sum = total.sum();
+    return new TimerSnapshot(
+        name,
+        n,
+        n == 0 ? 0 : sum / n,
+        percentile(counts, n, 0.5),
+        percentile(counts, n, 0.99),
+        max.get());
+  }
+
+  private static long percentile(long[] counts, long n, double percentile) {
+    if (n == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(percentile * n);
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return upperBound(i);
+      }
+    }
+    return upperBound(counts.length - 1);
+  }
+
+  static int bucketFor(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  static long upperBound(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    long subBucket = bucket % SUB_BUCKETS;
+    long lower = (1L << exponent) | (subBucket << (exponent - SUB_BUCKET_BITS));
+    return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+  }
+}
@@ -0,0 +1,27 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.lib.metrics;
+
+/**
+ * A point in time view of a {@link Timer}. All durations are in nanoseconds.
+ *
+ * @param name the name of the timer.
+ * @param count the number of recorded durations.
+ * @param mean the mean duration.
+ * @param p50 the median duration.
+ * @param p99 the 99th percentile duration.
+ * @param max the longest duration.
+ */
+public record TimerSnapshot(String name, long count, long mean, long p50, long p99, long max) {}
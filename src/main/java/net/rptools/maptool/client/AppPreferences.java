@@ -69,6 +69,9 @@ public class AppPreferences {
   private static final String DEFAULT_CHAT_FILENAME_FORMAT =
       "chatlog-%1$tF-%1$tR.html"; // http://download.oracle.com/javase/1.5.0/docs/api/java/util/Formatter.html
 
+  private static final String KEY_CHAT_TRANSCRIPT_WINDOW = "chatTranscriptWindow";
+  private static final int DEFAULT_CHAT_TRANSCRIPT_WINDOW = 500; // Messages kept in the chat panel
+
   private static final String KEY_DUPLICATE_TOKEN_NUMBER = "duplicateTokenNumber";
   private static final String DEFAULT_DUPLICATE_TOKEN_NUMBER = Token.NUM_INCREMENT;
 
@@ -93,6 +96,11 @@ public class AppPreferences {
   private static final String KEY_LUMENS_OVERLAY_BORDER_THICKNESS = "lumensOverlayBorderThickness";
   private static final int DEFAULT_LUMENS_OVERLAY_BORDER_THICKNESS = 5;
 
+  private static final String KEY_LUMENS_RASTER_RESOLUTION = "lumensRasterResolution";
+  private static final int DEFAULT_LUMENS_RASTER_RESOLUTION = 0; // Map pixels; zero=exact areas
+  /** The smallest lumens raster cells, in map pixels. Smaller cells take too much memory. */
+  public static final int MIN_LUMENS_RASTER_RESOLUTION = 4;
+
   private static final String KEY_LUMENS_OVERLAY_SHOW_BY_DEFAULT = "lumensOverlayShowByDefault";
   private static final boolean DEFAULT_LUMENS_OVERLAY_SHOW_BY_DEFAULT = false;
 
@@ -278,6 +286,16 @@ public static void clearChatFilenameFormat() {
     prefs.remove(KEY_CHAT_FILENAME_FORMAT);
   }
 
+  public static void setChatTranscriptWindow(int messages) {
+    if (messages > 0) {
+      prefs.putInt(KEY_CHAT_TRANSCRIPT_WINDOW, messages);
+    }
+  }
+
+  public static int getChatTranscriptWindow() {
+    return Math.max(1, prefs.getInt(KEY_CHAT_TRANSCRIPT_WINDOW, DEFAULT_CHAT_TRANSCRIPT_WINDOW));
+  }
+
   public static void setTokenNumberDisplay(String display) {
     prefs.put(KEY_TOKEN_NUMBER_DISPLAY, display);
   }
@@ -377,6 +395,20 @@ public static int getLumensOverlayBorderThickness() {
         KEY_LUMENS_OVERLAY_BORDER_THICKNESS, DEFAULT_LUMENS_OVERLAY_BORDER_THICKNESS);
   }
 
+  public static void setLumensRasterResolution(int resolution) {
+    prefs.putInt(KEY_LUMENS_RASTER_RESOLUTION, validLumensRasterResolution(resolution));
+  }
+
+  public static int getLumensRasterResolution() {
+    return validLumensRasterResolution(
+        prefs.getInt(KEY_LUMENS_RASTER_RESOLUTION, DEFAULT_LUMENS_RASTER_RESOLUTION));
+  }
+
+  /** Zero or less turns the lumens raster off, anything else is at least the minimum. */
+  private static int validLumensRasterResolution(int resolution) {
+    return resolution <= 0 ? 0 : Math.max(MIN_LUMENS_RASTER_RESOLUTION, resolution);
+  }
+
   public static void setLumensOverlayShowByDefault(boolean show) {
     prefs.putBoolean(KEY_LUMENS_OVERLAY_SHOW_BY_DEFAULT, show);
   }
@@ -24,6 +24,7 @@
 import javax.swing.SwingUtilities;
 import net.rptools.clientserver.simple.MessageHandler;
 import net.rptools.lib.MD5Key;
+import net.rptools.lib.metrics.Metrics;
 import net.rptools.maptool.client.events.PlayerStatusChanged;
 import net.rptools.maptool.client.functions.ExecFunction;
 import net.rptools.maptool.client.functions.MacroLinkFunction;
@@ -87,10 +88,13 @@ public ClientMessageHandler() {}
 
   @Override
   public void handleMessage(String id, byte[] message) {
+    long start = Metrics.NETWORK_CLIENT_MESSAGE.start();
+    Metrics.NETWORK_CLIENT_MESSAGES.increment();
     try {
       var msg = Message.parseFrom(message);
       var msgType = msg.getMessageTypeCase();
       log.debug(id + " got: " + msgType);
+      TokenDeltaTracker.getInstance().messageReceived(msg);
 
       switch (msgType) {
         case ADD_TOPOLOGY_MSG -> handle(msg.getAddTopologyMsg());
@@ -101,6 +105,7 @@ public void handleMessage(String id, byte[] message) {
         case DRAW_MSG -> handle(msg.getDrawMsg());
         case EDIT_TOKEN_MSG -> handle(msg.getEditTokenMsg());
         case PUT_TOKEN_MSG -> handle(msg.getPutTokenMsg());
+        case TOKEN_DELTA_MSG -> handle(msg.getTokenDeltaMsg());
         case ENFORCE_NOTIFICATION_MSG -> handle(msg.getEnforceNotificationMsg());
         case ENFORCE_ZONE_MSG -> handle(msg.getEnforceZoneMsg());
         case ENFORCE_ZONE_VIEW_MSG -> handle(msg.getEnforceZoneViewMsg());
@@ -156,6 +161,7 @@ public void handleMessage(String id, byte[] message) {
         case UPDATE_CAMPAIGN_MSG -> handle(msg.getUpdateCampaignMsg());
         case UPDATE_INITIATIVE_MSG -> handle(msg.getUpdateInitiativeMsg());
         case UPDATE_TOKEN_INITIATIVE_MSG -> handle(msg.getUpdateTokenInitiativeMsg());
+        case INITIATIVE_DELTA_MSG -> handle(msg.getInitiativeDeltaMsg());
         case UPDATE_CAMPAIGN_MACROS_MSG -> handle(msg.getUpdateCampaignMacrosMsg());
         case UPDATE_GM_MACROS_MSG -> handle(msg.getUpdateGmMacrosMsg());
         case UPDATE_EXPOSED_AREA_META_MSG -> handle(msg.getUpdateExposedAreaMetaMsg());
@@ -166,6 +172,8 @@ public void handleMessage(String id, byte[] message) {
       log.debug(id + " handled: " + msgType);
     } catch (Exception e) {
       log.error(e);
+    } finally {
+      Metrics.NETWORK_CLIENT_MESSAGE.stop(start);
     }
   }
 
@@ -237,6 +245,19 @@ private void handle(UpdateTokenInitiativeMsg msg) {
         });
   }
 
+  private void handle(InitiativeDeltaMsg msg) {
+    EventQueue.invokeLater(
+        () -> {
+          var zone = MapTool.getCampaign().getZone(GUID.valueOf(msg.getZoneGuid()));
+          if (zone == null) return;
+          if (!zone.getInitiativeList().applyChanges(msg.getChangesList())) {
+            // Nothing was applied, so ask for the full list to get back in step
+            log.warn("Initiative changes for zone " + zone.getName() + " did not match the list");
+            MapTool.serverCommand().resyncInitiative(zone.getId());
+          }
+        });
+  }
+
   private void handle(UpdateInitiativeMsg msg) {
     EventQueue.invokeLater(
         () -> {
@@ -916,6 +937,7 @@ private void handle(PutTokenMsg putTokenMsg) {
           var zone = MapTool.getCampaign().getZone(zoneGUID);
           var token = Token.fromDto(putTokenMsg.getToken());
           zone.putToken(token);
+          TokenDeltaTracker.getInstance().tokenReceived(putTokenMsg.getToken());
           MapTool.getFrame().refresh();
         });
   }
@@ -927,6 +949,21 @@ private void handle(EditTokenMsg editTokenMsg) {
           var zone = MapTool.getCampaign().getZone(zoneGUID);
           var token = Token.fromDto(editTokenMsg.getToken());
           zone.editToken(token);
+          TokenDeltaTracker.getInstance().tokenReceived(editTokenMsg.getToken());
+          MapTool.getFrame().refresh();
+        });
+  }
+
+  private void handle(TokenDeltaMsg tokenDeltaMsg) {
+    EventQueue.invokeLater(
+        () -> {
+          var zoneGUID = GUID.valueOf(tokenDeltaMsg.getZoneGuid());
+          var zone = MapTool.getCampaign().getZone(zoneGUID);
+          if (zone.applyTokenDelta(tokenDeltaMsg) != null) {
+            TokenDeltaTracker.getInstance().deltaReceived(tokenDeltaMsg);
+          } else {
+            TokenDeltaTracker.getInstance().forget(GUID.valueOf(tokenDeltaMsg.getTokenGuid()));
+          }
           MapTool.getFrame().refresh();
         });
   }
@@ -75,8 +75,19 @@ public DebounceExecutor(long delay, @Nonnull Runnable task) {
     this.task = task;
   }
 
+  /**
+   * Stops this {@link DebounceExecutor} instance and its thread. Tasks that have been dispatched
+   * but have not run yet are dropped, and later dispatches are ignored.
+   */
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
   /** Dispatches a task to be executed by this {@link DebounceExecutor} instance. */
   public void dispatch() {
+    if (this.executor.isShutdown()) {
+      return;
+    }
     if (this.delay < 1) {
       this.task.run();
       return;
@@ -46,6 +46,7 @@
 import java.text.MessageFormat;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import javax.imageio.ImageIO;
 import javax.imageio.spi.IIORegistry;
 import javax.swing.*;
@@ -55,6 +56,8 @@
 import net.rptools.lib.FileUtil;
 import net.rptools.lib.TaskBarFlasher;
 import net.rptools.lib.image.ThumbnailManager;
+import net.rptools.lib.metrics.Metrics;
+import net.rptools.lib.metrics.MetricsExporter;
 import net.rptools.lib.net.RPTURLStreamHandlerFactory;
 import net.rptools.lib.sound.SoundManager;
 import net.rptools.maptool.client.events.ChatMessageAdded;
@@ -87,6 +90,7 @@
 import net.rptools.maptool.model.TextMessage;
 import net.rptools.maptool.model.Zone;
 import net.rptools.maptool.model.ZoneFactory;
+import net.rptools.maptool.model.library.LibraryManager;
 import net.rptools.maptool.model.library.url.LibraryURLStreamHandler;
 import net.rptools.maptool.model.player.LocalPlayer;
 import net.rptools.maptool.model.player.Player;
@@ -686,6 +690,12 @@ private static void initialize() {
     ToolTipManager.sharedInstance().setDismissDelay(AppPreferences.getToolTipDismissDelay());
     ChatAutoSave.changeTimeout(AppPreferences.getChatAutosaveTime());
 
+    Metrics.gauge(
+        "jvm.heap.used",
+        () -> Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory());
+    Metrics.registerMBean();
+    MetricsExporter.start(1, TimeUnit.MINUTES);
+
     // TODO: make this more formal when we switch to mina
     new ServerHeartBeatThread().start();
   }
@@ -948,6 +958,9 @@ public static void setCampaign(Campaign campaign, GUID defaultRendererId) {
     clientFrame.clearZoneRendererList();
     clientFrame.getInitiativePanel().setZone(null);
     clientFrame.clearTokenTree();
+    // The old zones are never announced as removed, so drop their lib:tokens before the new zones
+    // are added.
+    new LibraryManager().clearLibraryTokens();
     if (campaign == null) {
       clientFrame.setCurrentZoneRenderer(null);
       return;
@@ -14,6 +14,8 @@
  */
 package net.rptools.maptool.client;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import java.math.BigDecimal;
@@ -22,6 +24,7 @@
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import net.rptools.dicelib.expression.Result;
+import net.rptools.lib.metrics.Metrics;
 import net.rptools.maptool.client.functions.*;
 import net.rptools.maptool.client.functions.exceptions.*;
 import net.rptools.maptool.client.functions.json.JSONMacroFunctions;
@@ -90,6 +93,32 @@ public class MapToolLineParser {
    */
   private List<Integer> newRolls = new LinkedList<>();
 
+  /** Characters used to mark rolls in the output, which untrusted macros may not produce. */
+  private static final Pattern ROLL_MARKERS =
+      Pattern.compile("\u00AB|\u00BB|&#171;|&#187;|&laquo;|&raquo;|\036|\037");
+
+  private static final Pattern LEADING_WHITESPACE = Pattern.compile("^\\s+");
+  private static final Pattern TRAILING_WHITESPACE = Pattern.compile("\\s+$");
+
+  /** Regexes for splitting the branches of rolls without the CODE option. */
+  private static final BranchPatterns EXPRESSION_BRANCHES =
+      // matches any text not containing a ";" (skipping over strings)
+      new BranchPatterns("((?:[^\";]|\"[^\"]*\"|'[^']*')*)");
+
+  /** Regexes for splitting the branches of rolls with the CODE option. */
+  private static final BranchPatterns CODE_BRANCHES =
+      // matches text inside braces "{...}", skipping over strings (one level of {} nesting allowed)
+      new BranchPatterns(
+          "\\{((?:[^{}\"]|\"[^\"]*\"|'[^']*'|\\{(?:[^}\"]|\"[^\"]*\"|'[^']*')*})*)}");
+
+  /** The inline rolls found in each line, so that lines run again don't have to be scanned. */
+  private static final Cache<String, List<InlineRollMatch>> INLINE_ROLL_CACHE =
+      CacheBuilder.newBuilder()
+          .maximumWeight(4_000_000)
+          .<String, List<InlineRollMatch>>weigher((line, matches) -> line.length())
+          .softValues()
+          .build();
+
   private enum Output { // Mutually exclusive output formats
     NONE,
     RESULT,
@@ -134,6 +163,47 @@ private enum ScanState {
     SKIP_NEXT_CHAR
   }
 
+  /**
+   * The compiled regexes used to extract the branches of a roll. Each branch regex defines one
+   * matcher group for the parseable content of the branch.
+   */
+  private static class BranchPatterns {
+    private static final String SEPARATOR = ";";
+    // The last clause doesn't have to end with a separator
+    private static final String LAST_SEPARATOR = ";?";
+    // Matches 'default', 'case 123:', 'case "123":', 'case "abc":', but not 'case abc:'
+    private static final String CASE_PREFIX =
+        "(?:case\\s*\"?((?<!\")(?:\\+|-)?[\\d]+(?!\")|(?<=\")[^\"]*(?=\"))\"?|(default))\\s*:\\s*";
+
+    /** There's only one branch. */
+    final Pattern single;
+
+    /** One or two branches. */
+    final Pattern ifElse;
+
+    /** Verifies that a switch body is well-formed. */
+    final Pattern switchBody;
+
+    /** Finds the cases of a switch one at a time. */
+    final Pattern switchCase;
+
+    BranchPatterns(String branchRegex) {
+      single = Pattern.compile(String.format("^\\s*%s\\s*$", branchRegex));
+      ifElse =
+          Pattern.compile(
+              String.format(
+                  "^\\s*%s\\s*(?:%s\\s*%s\\s*%s)?\\s*$",
+                  branchRegex, SEPARATOR, branchRegex, LAST_SEPARATOR));
+      String caseRegex = CASE_PREFIX + branchRegex;
+      switchBody =
+          Pattern.compile(
+              String.format(
+                  "^(?:\\s*%s\\s*%s\\s*)*\\s*%s\\s*%s\\s*$",
+                  caseRegex, SEPARATOR, caseRegex, LAST_SEPARATOR));
+      switchCase = Pattern.compile(String.format("\\s*%s\\s*(?:%s)?", caseRegex, SEPARATOR));
+    }
+  }
+
   public Map<String, String> listAllMacroFunctions() {
     Map<String, String> functionList = new HashMap<String, String>();
 
@@ -153,18 +223,18 @@ public Map<String, String> listAllMacroFunctions() {
   }
 
   // Class to hold the inline rolls and where they start and end.
+  // Instances are shared between runs of the same line, so they must not be changed.
   private static class InlineRollMatch {
     final int start;
     final int end;
     final String match;
     final int optEnd;
+    final String opt;
+    final String roll;
 
     @SuppressWarnings("unused")
     InlineRollMatch(int start, int end, String match) {
-      this.start = start;
-      this.end = end;
-      this.match = match;
-      this.optEnd = -1;
+      this(start, end, match, -1);
     }
 
     InlineRollMatch(int start, int end, String match, int optEnd) {
@@ -172,6 +242,13 @@ private static class InlineRollMatch {
       this.end = end;
       this.match = match;
       this.optEnd = optEnd;
+      if (optEnd > 0) {
+        opt = match.substring(1, optEnd - start);
+        roll = match.substring(optEnd + 1 - start, end - start);
+      } else {
+        opt = "";
+        roll = match.substring(1, end - start);
+      }
     }
 
     public int getStart() {
@@ -192,19 +269,11 @@ public int getOptEnd() {
     }
 
     public String getOpt() {
-      if (optEnd > 0) {
-        return match.substring(1, optEnd - start);
-      } else {
-        return "";
-      }
+      return opt;
     }
 
     public String getRoll() {
-      if (optEnd > 0) {
-        return match.substring(optEnd + 1 - start, end - start);
-      } else {
-        return match.substring(1, end - start);
-      }
+      return roll;
     }
   }
 
@@ -246,6 +315,8 @@ public String parseLine(
     }
     Stack<Token> contextTokenStack = new Stack<Token>();
     context = enterContext(context);
+    // Send the changes the macro makes to each token once, when the outermost macro ends
+    TokenDeltaTracker.getInstance().beginBatch();
     MapToolVariableResolver resolver = null;
     boolean resolverInitialized = false;
     String opts = null;
@@ -688,25 +759,10 @@ public String parseLine(
               }
             }
 
-            // Set up regexes for scanning through the branches.
-            // branchRegex then defines one matcher group for the parseable content of the branch.
+            // Pick the regexes for scanning through the branches.
             String rollBranch = roll;
-            String branchRegex, branchSepRegex, branchLastSepRegex;
-            if (codeType != CodeType.CODEBLOCK) {
-              // matches any text not containing a ";" (skipping over strings)
-              String noCodeRegex = "((?:[^\";]|\"[^\"]*\"|'[^']*')*)";
-              branchRegex = noCodeRegex;
-              branchSepRegex = ";";
-              branchLastSepRegex = ";?"; // The last clause doesn't have to end with a separator
-            } else {
-              // matches text inside braces "{...}", skipping over strings (one level of {} nesting
-              // allowed)
-              String codeRegex =
-                  "\\{((?:[^{}\"]|\"[^\"]*\"|'[^']*'|\\{(?:[^}\"]|\"[^\"]*\"|'[^']*')*})*)}";
-              branchRegex = codeRegex;
-              branchSepRegex = ";";
-              branchLastSepRegex = ";?"; // The last clause doesn't have to end with a separator
-            }
+            BranchPatterns branchPatterns =
+                codeType != CodeType.CODEBLOCK ? EXPRESSION_BRANCHES : CODE_BRANCHES;
 
             // Extract the branch to use
             switch (branchType) {
@@ -716,8 +772,7 @@ public String parseLine(
               case NO_BRANCH:
                 {
                   // There's only one branch, so our regex is very simple
-                  String testRegex = String.format("^\\s*%s\\s*$", branchRegex);
-                  Matcher testMatcher = Pattern.compile(testRegex).matcher(roll);
+                  Matcher testMatcher = branchPatterns.single.matcher(roll);
                   if (testMatcher.find()) {
                     rollBranch = testMatcher.group(1);
                   } else {
@@ -739,11 +794,7 @@ public String parseLine(
                         roll);
                   }
                   int whichBranch = (branchConditionValue != 0) ? 0 : 1;
-                  String testRegex =
-                      String.format(
-                          "^\\s*%s\\s*(?:%s\\s*%s\\s*%s)?\\s*$",
-                          branchRegex, branchSepRegex, branchRegex, branchLastSepRegex);
-                  Matcher testMatcher = Pattern.compile(testRegex).matcher(roll);
+                  Matcher testMatcher = branchPatterns.ifElse.matcher(roll);
                   if (testMatcher.find()) { // verifies that roll body is well-formed
                     rollBranch = testMatcher.group(1 + whichBranch);
                     if (rollBranch == null) {
@@ -760,22 +811,10 @@ public String parseLine(
                 {
                   // We augment the branch regex to detect the "case xxx:" or "default:" prefixes,
                   // and search for a match. An error is thrown if no case match is found.
-
-                  // Regex matches 'default', 'case 123:', 'case "123":', 'case "abc":', but not
-                  // 'case abc:'
-                  branchRegex =
-                      "(?:case\\s*\"?((?<!\")(?:\\+|-)?[\\d]+(?!\")|(?<=\")[^\"]*(?=\"))\"?|(default))\\s*:\\s*"
-                          + branchRegex;
                   String caseTarget = branchConditionParsed.toString();
-                  String testRegex =
-                      String.format(
-                          "^(?:\\s*%s\\s*%s\\s*)*\\s*%s\\s*%s\\s*$",
-                          branchRegex, branchSepRegex, branchRegex, branchLastSepRegex);
-                  Matcher testMatcher = Pattern.compile(testRegex).matcher(roll);
+                  Matcher testMatcher = branchPatterns.switchBody.matcher(roll);
                   if (testMatcher.find()) { // verifies that roll body is well-formed
-                    String scanRegex =
-                        String.format("\\s*%s\\s*(?:%s)?", branchRegex, branchSepRegex);
-                    Matcher scanMatcher = Pattern.compile(scanRegex).matcher(roll);
+                    Matcher scanMatcher = branchPatterns.switchCase.matcher(roll);
                     boolean foundMatch = false;
                     while (!foundMatch && scanMatcher.find()) {
                       String caseLabel = scanMatcher.group(1); // "case (xxx):"
@@ -824,9 +863,7 @@ public String parseLine(
                     result = parseExpression(resolver, tokenInContext, rollBranch, false);
                     output_text = result != null ? result.getValue().toString() : "";
                     if (!this.isMacroTrusted()) {
-                      output_text =
-                          output_text.replaceAll(
-                              "\u00AB|\u00BB|&#171;|&#187;|&laquo;|&raquo;|\036|\037", "");
+                      output_text = ROLL_MARKERS.matcher(output_text).replaceAll("");
                     }
                     if (outputOpts.isEmpty()) {
                       expressionBuilder.append(output_text);
@@ -969,10 +1006,7 @@ public String parseLine(
           } else {
             builder.append(
                 result != null
-                    ? result
-                        .getValue()
-                        .toString()
-                        .replaceAll("\u00AB|\u00BB|&#171;|&#187;|&laquo;|&raquo;|\036|\037", "")
+                    ? ROLL_MARKERS.matcher(result.getValue().toString()).replaceAll("")
                     : "");
           }
         }
@@ -989,9 +1023,14 @@ public String parseLine(
           "lineParser.errorBodyRoll", opts == null ? "" : opts, roll == null ? line : roll);
     } finally {
       exitContext();
-      if (resolverInitialized) {
-        // This is the top level call, time to clean up
-        resolver.flush();
+      try {
+        if (resolverInitialized) {
+          // This is the top level call, time to clean up
+          resolver.flush();
+        }
+      } finally {
+        // After the delayed actions, so that their token changes are in the batch too
+        TokenDeltaTracker.getInstance().endBatch();
       }
       if (MapTool.getFrame() != null) {
         // Repaint in case macros changed anything.
@@ -1260,6 +1299,7 @@ public String runMacro(
       macroRecurseDepth = 0;
       throw new ParserException(I18N.getText("lineParser.maxRecursion"));
     }
+    long start = Metrics.MACRO_RUN.start();
     try {
       String macroOutput = null;
 
@@ -1278,13 +1318,14 @@ public String runMacro(
         // Note! Its important that trim is not used to replace the following two lines.
         // If you use String.trim() you may inadvertnatly remove the special characters
         // used to mark rolls.
-        macroOutput = macroOutput.replaceAll("^\\s+", "");
-        macroOutput = macroOutput.replaceAll("\\s+$", "");
+        macroOutput = LEADING_WHITESPACE.matcher(macroOutput).replaceAll("");
+        macroOutput = TRAILING_WHITESPACE.matcher(macroOutput).replaceAll("");
       }
       return macroOutput;
     } finally {
       // exitContext();
       macroRecurseDepth--;
+      Metrics.MACRO_RUN.stop(start);
     }
   }
 
@@ -1608,6 +1649,16 @@ public boolean isMacroTrusted() {
    * @return A list of the rolls.
    */
   private List<InlineRollMatch> locateInlineRolls(String line) {
+    List<InlineRollMatch> matches = INLINE_ROLL_CACHE.getIfPresent(line);
+    if (matches == null) {
+      matches = List.copyOf(scanInlineRolls(line));
+      INLINE_ROLL_CACHE.put(line, matches);
+    }
+    return matches;
+  }
+
+  /** Scans the input line for the inline rolls, see {@link #locateInlineRolls(String)}. */
+  private List<InlineRollMatch> scanInlineRolls(String line) {
     List<InlineRollMatch> matches = new ArrayList<InlineRollMatch>();
     ScanState scanState = ScanState.SEARCHING_FOR_ROLL;
     int startMatch = 0;
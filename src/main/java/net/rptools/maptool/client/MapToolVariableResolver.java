@@ -298,9 +298,13 @@ public Object getVariable(String name, VariableModifiers mods) throws ParserExce
       value = result;
     } else {
 
-      // First we try convert it to a JSON object.
-      if (result.toString().trim().startsWith("[") || result.toString().trim().startsWith("{")) {
-        JsonElement json = JSONMacroFunctions.getInstance().asJsonElement(result.toString());
+      // First we try convert it to a JSON object. The parsed value is shared with other readers of
+      // the same json string so it is passed on as is, the json functions never modify their
+      // arguments.
+      String resultString = result.toString();
+      String trimmed = resultString.trim();
+      if (trimmed.startsWith("[") || trimmed.startsWith("{")) {
+        JsonElement json = JSONMacroFunctions.getInstance().asJsonElement(resultString);
         if (json.isJsonArray() || json.isJsonObject()) {
           return json;
         }
@@ -77,6 +77,7 @@ public void bootPlayer(String player) {
   }
 
   public void setCampaign(Campaign campaign) {
+    TokenDeltaTracker.getInstance().forgetAll();
     var msg = SetCampaignMsg.newBuilder();
     try {
       campaign.setBeingSerialized(true);
@@ -113,11 +114,13 @@ public void getZone(GUID zoneGUID) {
   }
 
   public void putZone(Zone zone) {
+    TokenDeltaTracker.getInstance().forgetAll();
     var msg = PutZoneMsg.newBuilder().setZone(zone.toDto());
     makeServerCall(Message.newBuilder().setPutZoneMsg(msg).build());
   }
 
   public void removeZone(GUID zoneGUID) {
+    TokenDeltaTracker.getInstance().forgetAll();
     var msg = RemoveZoneMsg.newBuilder().setZoneGuid(zoneGUID.toString());
     makeServerCall(Message.newBuilder().setRemoveZoneMsg(msg).build());
   }
@@ -167,8 +170,10 @@ public void restoreZoneView(GUID zoneGUID) {
 
   public void editToken(GUID zoneGUID, Token token) {
     MapTool.getCampaign().getZone(zoneGUID).editToken(token);
-    var msg = EditTokenMsg.newBuilder().setZoneGuid(zoneGUID.toString()).setToken(token.toDto());
-    makeServerCall(Message.newBuilder().setEditTokenMsg(msg).build());
+    var msg = TokenDeltaTracker.getInstance().tokenChanged(zoneGUID, token, true);
+    if (msg != null) {
+      makeServerCall(msg);
+    }
   }
 
   public void putToken(GUID zoneGUID, Token token) {
@@ -176,14 +181,19 @@ public void putToken(GUID zoneGUID, Token token) {
     // after changing the token. But they don't tell the zone about it so classes
     // waiting for the zone change event don't get it.
     MapTool.getCampaign().getZone(zoneGUID).putToken(token);
-    var msg = PutTokenMsg.newBuilder().setZoneGuid(zoneGUID.toString()).setToken(token.toDto());
-    makeServerCall(Message.newBuilder().setPutTokenMsg(msg).build());
+    // Only the changed fields are sent if the other clients already have the token, and
+    // during a macro run they are sent once the macro ends.
+    var msg = TokenDeltaTracker.getInstance().tokenChanged(zoneGUID, token, false);
+    if (msg != null) {
+      makeServerCall(msg);
+    }
   }
 
   @Override
   public void removeToken(GUID zoneGUID, GUID tokenGUID) {
     // delete local token immediately
     MapTool.getCampaign().getZone(zoneGUID).removeToken(tokenGUID);
+    TokenDeltaTracker.getInstance().forget(tokenGUID);
     var msg =
         RemoveTokenMsg.newBuilder()
             .setZoneGuid(zoneGUID.toString())
@@ -195,6 +205,7 @@ public void removeToken(GUID zoneGUID, GUID tokenGUID) {
   public void removeTokens(GUID zoneGUID, List<GUID> tokenGUIDs) {
     // delete local tokens immediately
     MapTool.getCampaign().getZone(zoneGUID).removeTokens(tokenGUIDs);
+    tokenGUIDs.forEach(TokenDeltaTracker.getInstance()::forget);
     var msg = RemoveTokensMsg.newBuilder().setZoneGuid(zoneGUID.toString());
     msg.addAllTokenGuid(tokenGUIDs.stream().map(t -> t.toString()).collect(Collectors.toList()));
     makeServerCall(Message.newBuilder().setRemoveTokensMsg(msg).build());
@@ -211,6 +222,9 @@ public void removeTokens(GUID zoneGUID, List<GUID> tokenGUIDs) {
    */
   public void updateTokenProperty(
       GUID zoneGUID, GUID tokenGUID, Token.Update update, List<TokenPropertyValueDto> parameters) {
+    // The other clients get the change from this message, so the next delta can't be worked out
+    // from the version they had before.
+    TokenDeltaTracker.getInstance().forget(tokenGUID);
     var msg =
         UpdateTokenPropertyMsg.newBuilder()
             .setTokenGuid(tokenGUID.toString())
@@ -234,6 +248,9 @@ public void updateTokenProperty(
     GUID zoneGUID = zone.getId();
 
     var parameterList = Arrays.stream(parameters).toList();
+    // The changes held back during a macro run must go out before this one is made, or the delta
+    // for the token would include it and the other clients would apply it twice.
+    TokenDeltaTracker.getInstance().flush();
     token.updateProperty(zone, update, parameterList); // update locally right away
     updateTokenProperty(zoneGUID, tokenGUID, update, parameterList);
   }
@@ -447,12 +464,14 @@ public void setZoneHasFoW(GUID zoneGUID, boolean hasFog) {
   }
 
   public void bringTokensToFront(GUID zoneGUID, Set<GUID> tokenList) {
+    tokenList.forEach(TokenDeltaTracker.getInstance()::forget);
     var msg = BringTokensToFrontMsg.newBuilder().setZoneGuid(zoneGUID.toString());
     msg.addAllTokenGuids(tokenList.stream().map(g -> g.toString()).collect(Collectors.toList()));
     makeServerCall(Message.newBuilder().setBringTokensToFrontMsg(msg).build());
   }
 
   public void sendTokensToBack(GUID zoneGUID, Set<GUID> tokenList) {
+    tokenList.forEach(TokenDeltaTracker.getInstance()::forget);
     var msg = SendTokensToBackMsg.newBuilder().setZoneGuid(zoneGUID.toString());
     msg.addAllTokenGuids(tokenList.stream().map(g -> g.toString()).collect(Collectors.toList()));
     makeServerCall(Message.newBuilder().setSendTokensToBackMsg(msg).build());
@@ -477,6 +496,7 @@ public void updateInitiative(InitiativeList list, Boolean ownerPermission) {
 
   public void updateTokenInitiative(
       GUID zone, GUID token, Boolean holding, String state, Integer index) {
+    TokenDeltaTracker.getInstance().forget(token);
     var msg =
         UpdateTokenInitiativeMsg.newBuilder()
             .setZoneGuid(zone.toString())
@@ -489,6 +509,16 @@ public void updateTokenInitiative(
     makeServerCall(Message.newBuilder().setUpdateTokenInitiativeMsg(msg).build());
   }
 
+  public void updateInitiativeChanges(GUID zone, List<InitiativeChangeDto> changes) {
+    var msg = InitiativeDeltaMsg.newBuilder().setZoneGuid(zone.toString()).addAllChanges(changes);
+    makeServerCall(Message.newBuilder().setInitiativeDeltaMsg(msg).build());
+  }
+
+  public void resyncInitiative(GUID zone) {
+    var msg = InitiativeDeltaMsg.newBuilder().setZoneGuid(zone.toString()).setResync(true);
+    makeServerCall(Message.newBuilder().setInitiativeDeltaMsg(msg).build());
+  }
+
   public void updateCampaignMacros(List<MacroButtonProperties> properties) {
     var msg =
         UpdateCampaignMacrosMsg.newBuilder()
@@ -518,7 +548,11 @@ public void clearExposedArea(GUID zoneGUID, boolean globalOnly) {
     makeServerCall(Message.newBuilder().setClearExposedAreaMsg(msg).build());
   }
 
-  private static void makeServerCall(Message msg) {
+  static void makeServerCall(Message msg) {
+    if (msg.getMessageTypeCase() != Message.MessageTypeCase.HEARTBEAT_MSG) {
+      // Token changes held back during a macro run go first, this message may depend on them
+      TokenDeltaTracker.getInstance().flush();
+    }
     if (MapTool.getConnection() != null) {
       MapTool.getConnection().sendMessage(msg);
     }
@@ -0,0 +1,223 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import net.rptools.maptool.model.GUID;
+import net.rptools.maptool.model.Token;
+import net.rptools.maptool.model.Zone;
+import net.rptools.maptool.server.TokenDelta;
+import net.rptools.maptool.server.proto.EditTokenMsg;
+import net.rptools.maptool.server.proto.Message;
+import net.rptools.maptool.server.proto.PutTokenMsg;
+import net.rptools.maptool.server.proto.TokenDeltaMsg;
+import net.rptools.maptool.server.proto.TokenDto;
+
+/**
+ * Keeps track of the last version of each token that all clients have, so that changed tokens can
+ * be sent as a {@link TokenDeltaMsg} with only the changed fields instead of the whole token.
+ *
+ * <p>While a batch is open (for the duration of a macro run) changes to tokens that the other
+ * clients already have are held back, and a single delta is sent for each token when the outermost
+ * batch ends, or before any other message is sent. New tokens are always sent straight away so that
+ * later messages can refer to them. Changes sent with {@code updateTokenProperty()} are not held
+ * back, they flush the batch and go out as their own message.
+ */
+class TokenDeltaTracker {
+
+  private static final TokenDeltaTracker instance = new TokenDeltaTracker();
+
+  /** The version of each token that was last sent to or received from the server. */
+  private final Map<GUID, TokenDto> sharedTokens = new HashMap<>();
+
+  /** The tokens changed during the current batch, and whether they were edited. */
+  private final Map<GUID, PendingChange> pendingChanges = new LinkedHashMap<>();
+
+  private int batchDepth;
+
+  private record PendingChange(GUID zoneGUID, boolean edit) {}
+
+  static TokenDeltaTracker getInstance() {
+    return instance;
+  }
+
+  /** Starts holding back token changes until the matching {@link #endBatch()}. */
+  synchronized void beginBatch() {
+    batchDepth++;
+  }
+
+  /** Ends a batch, sending the changes held back if this was the outermost batch. */
+  void endBatch() {
+    synchronized (this) {
+      if (batchDepth == 0 || --batchDepth > 0) {
+        return;
+      }
+    }
+    flush();
+  }
+
+  /**
+   * Sends the changes held back so far. This is called before any other message is sent, so that
+   * the other clients get the messages in the order the changes were made. An open batch keeps
+   * holding back the changes made after this.
+   */
+  void flush() {
+    takePending().forEach(ServerCommandClientImpl::makeServerCall);
+  }
+
+  /**
+   * Returns the messages for the changes held back so far, and stops holding them back.
+   *
+   * @return the messages to send.
+   */
+  synchronized List<Message> takePending() {
+    if (pendingChanges.isEmpty()) {
+      return List.of();
+    }
+    List<Message> messages = new ArrayList<>();
+    pendingChanges.forEach(
+        (tokenGUID, change) -> {
+          Zone zone = MapTool.getCampaign().getZone(change.zoneGUID());
+          Token token = zone == null ? null : zone.getToken(tokenGUID);
+          if (token != null) {
+            Message message = deltaMessage(change.zoneGUID(), token, change.edit());
+            if (message != null) {
+              messages.add(message);
+            }
+          }
+        });
+    pendingChanges.clear();
+    return messages;
+  }
+
+  /**
+   * Records that a token was changed locally.
+   *
+   * @param zoneGUID the zone the token is on.
+   * @param token the changed token.
+   * @param edit whether the token was edited, rather than just put.
+   * @return the message to send now, or null if there is nothing to send yet.
+   */
+  synchronized Message tokenChanged(GUID zoneGUID, Token token, boolean edit) {
+    if (!sharedTokens.containsKey(token.getId())) {
+      return deltaMessage(zoneGUID, token, edit);
+    }
+    if (batchDepth > 0) {
+      pendingChanges.merge(
+          token.getId(),
+          new PendingChange(zoneGUID, edit),
+          (old, change) -> new PendingChange(change.zoneGUID(), old.edit() || change.edit()));
+      return null;
+    }
+    return deltaMessage(zoneGUID, token, edit);
+  }
+
+  private Message deltaMessage(GUID zoneGUID, Token token, boolean edit) {
+    TokenDto dto = token.toDto();
+    TokenDto shared = sharedTokens.put(token.getId(), dto);
+    if (shared == null) {
+      // The other clients may have an older version, so send all of it
+      return edit
+          ? Message.newBuilder()
+              .setEditTokenMsg(
+                  EditTokenMsg.newBuilder().setZoneGuid(zoneGUID.toString()).setToken(dto))
+              .build()
+          : Message.newBuilder()
+              .setPutTokenMsg(
+                  PutTokenMsg.newBuilder().setZoneGuid(zoneGUID.toString()).setToken(dto))
+              .build();
+    }
+    TokenDeltaMsg.Builder delta = TokenDelta.diff(shared, dto);
+    if (delta == null) {
+      return null;
+    }
+    return Message.newBuilder()
+        .setTokenDeltaMsg(delta.setZoneGuid(zoneGUID.toString()).setEdit(edit))
+        .build();
+  }
+
+  /**
+   * Records a whole token received from the server. This must be called when the token is put on
+   * the zone so that local changes are compared against the same version.
+   *
+   * @param dto the token received.
+   */
+  synchronized void tokenReceived(TokenDto dto) {
+    sharedTokens.put(GUID.valueOf(dto.getId()), dto);
+  }
+
+  /**
+   * Records changes to a token received from the server, at the time they are applied to the zone.
+   *
+   * @param delta the changes received.
+   */
+  synchronized void deltaReceived(TokenDeltaMsg delta) {
+    sharedTokens.computeIfPresent(
+        GUID.valueOf(delta.getTokenGuid()), (id, dto) -> TokenDelta.apply(dto, delta));
+  }
+
+  /**
+   * Forgets the shared version of tokens that other messages change or remove, so that the next
+   * change to them is sent in full. Forgetting a token too early is always safe.
+   *
+   * @param message the message received from the server.
+   */
+  void messageReceived(Message message) {
+    switch (message.getMessageTypeCase()) {
+      case UPDATE_TOKEN_PROPERTY_MSG -> forget(message.getUpdateTokenPropertyMsg().getTokenGuid());
+      case UPDATE_TOKEN_INITIATIVE_MSG -> forget(
+          message.getUpdateTokenInitiativeMsg().getTokenGuid());
+      case SET_TOKEN_LOCATION_MSG -> forget(message.getSetTokenLocationMsg().getTokenGuid());
+      case BRING_TOKENS_TO_FRONT_MSG -> message
+          .getBringTokensToFrontMsg()
+          .getTokenGuidsList()
+          .forEach(this::forget);
+      case SEND_TOKENS_TO_BACK_MSG -> message
+          .getSendTokensToBackMsg()
+          .getTokenGuidsList()
+          .forEach(this::forget);
+      case REMOVE_TOKEN_MSG -> forget(message.getRemoveTokenMsg().getTokenGuid());
+      case REMOVE_TOKENS_MSG -> message
+          .getRemoveTokensMsg()
+          .getTokenGuidList()
+          .forEach(this::forget);
+      case PUT_ZONE_MSG, REMOVE_ZONE_MSG, SET_CAMPAIGN_MSG -> forgetAll();
+      default -> {}
+    }
+  }
+
+  /**
+   * Forgets the shared version of a token. This must be called whenever a token is changed by a
+   * message other than the ones built here, whichever way the message goes, as the other clients
+   * then no longer have the version the next delta would be worked out from.
+   *
+   * @param tokenGUID the id of the token.
+   */
+  synchronized void forget(GUID tokenGUID) {
+    sharedTokens.remove(tokenGUID);
+  }
+
+  private void forget(String tokenGUID) {
+    forget(GUID.valueOf(tokenGUID));
+  }
+
+  synchronized void forgetAll() {
+    sharedTokens.clear();
+  }
+}
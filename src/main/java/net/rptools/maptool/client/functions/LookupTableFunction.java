@@ -15,6 +15,7 @@
 package net.rptools.maptool.client.functions;
 
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import java.math.BigDecimal;
 import java.util.ArrayList;
@@ -48,6 +49,7 @@ public LookupTableFunction() {
         "setTableRoll",
         "clearTable",
         "addTableEntry",
+        "addTableEntries",
         "deleteTableEntry",
         "createTable",
         "deleteTable",
@@ -59,6 +61,7 @@ public LookupTableFunction() {
         "setTableImage",
         "copyTable",
         "getTableEntry",
+        "getTableEntries",
         "setTableEntry",
         "resetTablePicks",
         "getTablePickOnce",
@@ -180,6 +183,22 @@ public Object childEvaluate(
       MapTool.serverCommand().updateCampaign(MapTool.getCampaign().getCampaignProperties());
       return "";
 
+    } else if ("addTableEntries".equalsIgnoreCase(function)) {
+
+      checkTrusted(function);
+      FunctionUtil.checkNumberParam(function, params, 2, 2);
+      String name = params.get(0).toString();
+      JsonArray rows = FunctionUtil.paramAsJsonArray(function, params, 1);
+      LookupTable lookupTable = getMaptoolTable(name, function);
+      List<LookupEntry> entries = new ArrayList<>(rows.size());
+      for (JsonElement row : rows) {
+        entries.add(entryFromJson(function, row));
+      }
+      // All the rows are sent to the server at once rather than one update per row.
+      lookupTable.addEntries(entries);
+      MapTool.serverCommand().updateCampaign(MapTool.getCampaign().getCampaignProperties());
+      return BigDecimal.valueOf(entries.size());
+
     } else if ("deleteTableEntry".equalsIgnoreCase(function)) {
 
       checkTrusted(function);
@@ -305,19 +324,17 @@ public Object childEvaluate(
       if (rollInt < entry.getMin() || rollInt > entry.getMax())
         return ""; // entry was found but doesn't match
 
-      JsonObject entryDetails = new JsonObject();
-      entryDetails.addProperty("min", entry.getMin());
-      entryDetails.addProperty("max", entry.getMax());
-      entryDetails.addProperty("value", entry.getValue());
-      entryDetails.addProperty("picked", entry.getPicked());
+      return entryToJson(entry);
+    } else if ("getTableEntries".equalsIgnoreCase(function)) {
 
-      MD5Key imageId = entry.getImageId();
-      if (imageId != null) {
-        entryDetails.addProperty("assetid", "asset://" + imageId.toString());
-      } else {
-        entryDetails.addProperty("assetid", "");
+      FunctionUtil.checkNumberParam(function, params, 1, 1);
+      String name = params.get(0).toString();
+      LookupTable lookupTable = getMaptoolTable(name, function);
+      JsonArray rows = new JsonArray(lookupTable.getEntryList().size());
+      for (LookupEntry entry : lookupTable.getEntryList()) {
+        rows.add(entryToJson(entry));
       }
-      return entryDetails;
+      return rows;
     } else if ("resetTablePicks".equalsIgnoreCase(function)) {
       /*
        * resetTablePicks(tblName) - reset all entries on a table
@@ -509,6 +526,91 @@ private LookupTable getMaptoolTable(String tableName, String functionName)
     return lookupTable;
   }
 
+  /**
+   * Converts a table entry to the json object returned by getTableEntry() and getTableEntries().
+   *
+   * @param entry the table entry.
+   * @return the json object with the details of the entry.
+   */
+  private JsonObject entryToJson(LookupEntry entry) {
+    JsonObject entryDetails = new JsonObject();
+    entryDetails.addProperty("min", entry.getMin());
+    entryDetails.addProperty("max", entry.getMax());
+    entryDetails.addProperty("value", entry.getValue());
+    entryDetails.addProperty("picked", entry.getPicked());
+
+    MD5Key imageId = entry.getImageId();
+    if (imageId != null) {
+      entryDetails.addProperty("assetid", "asset://" + imageId.toString());
+    } else {
+      entryDetails.addProperty("assetid", "");
+    }
+    return entryDetails;
+  }
+
+  /**
+   * Converts a json object in the form returned by getTableEntry() to a table entry. The "max",
+   * "assetid" and "picked" fields are optional.
+   *
+   * @param functionName the name of the calling function, used by the error messages.
+   * @param row the json object to convert.
+   * @return the table entry.
+   * @throws ParserException if the row is not a json object or has an invalid range or field.
+   */
+  private LookupEntry entryFromJson(String functionName, JsonElement row) throws ParserException {
+    if (!row.isJsonObject()) {
+      throw new ParserException(
+          I18N.getText("macro.function.general.argumentTypeO", functionName, 2));
+    }
+    JsonObject details = row.getAsJsonObject();
+    int min = entryRangeFromJson(functionName, details, "min");
+    int max = details.has("max") ? entryRangeFromJson(functionName, details, "max") : min;
+    String value = entryStringFromJson(functionName, details, "value");
+    MD5Key imageId = getAssetFromString(entryStringFromJson(functionName, details, "assetid"));
+    LookupEntry entry = new LookupEntry(min, max, value, imageId);
+    if (details.has("picked")) {
+      entry.setPicked(
+          FunctionUtil.getBooleanValue(entryStringFromJson(functionName, details, "picked")));
+    }
+    return entry;
+  }
+
+  private int entryRangeFromJson(String functionName, JsonObject details, String key)
+      throws ParserException {
+    JsonElement element = details.get(key);
+    if (element != null && element.isJsonPrimitive()) {
+      try {
+        return element.getAsBigDecimal().intValueExact();
+      } catch (NumberFormatException | ArithmeticException e) {
+        // Handled below.
+      }
+    }
+    throw new ParserException(
+        I18N.getText("macro.function.general.argumentKeyTypeI", functionName, key));
+  }
+
+  /**
+   * Returns a string field of a table entry json object.
+   *
+   * @param functionName the name of the calling function, used by the error messages.
+   * @param details the json object of the table entry.
+   * @param key the key of the field.
+   * @return the value of the field, or an empty string if it is missing or null.
+   * @throws ParserException if the field is a json object or array.
+   */
+  private String entryStringFromJson(String functionName, JsonObject details, String key)
+      throws ParserException {
+    JsonElement element = details.get(key);
+    if (element == null || element.isJsonNull()) {
+      return "";
+    }
+    if (!element.isJsonPrimitive()) {
+      throw new ParserException(
+          I18N.getText("macro.function.general.argumentKeyTypeS", functionName, key));
+    }
+    return element.getAsString();
+  }
+
   /**
    * Provide more consistent handling of assets. Allow assets to be passed as 32 digit numbers or
    * "asset://" urls.
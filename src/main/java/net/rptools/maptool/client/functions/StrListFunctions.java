@@ -14,10 +14,15 @@
  */
 package net.rptools.maptool.client.functions;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import net.rptools.maptool.language.I18N;
@@ -27,7 +32,6 @@
 import net.rptools.parser.function.AbstractFunction;
 import net.rptools.parser.function.ParameterException;
 import org.apache.commons.lang.StringUtils;
-import org.apache.commons.lang3.mutable.MutableInt;
 
 /**
  * Implements various string utility functions. <br>
@@ -91,8 +95,128 @@ public boolean visit(int pos, int start, int end) {
   private static Pattern PATTERN_FOR_SEMICOLON_SEPARATOR =
       Pattern.compile("\\s*(.*?)\\s*\\;|\\s*(.*?)\\s*$", Pattern.DOTALL);
 
+  /** The total number of characters of list strings to keep the item boundaries of. */
+  private static final long LIST_CACHE_CHARS = 8 * 1024 * 1024;
+
+  /** The item boundaries of recently parsed lists, keyed by the list string and delimiter. */
+  private static final Cache<ListKey, ListIndex> listCache =
+      CacheBuilder.newBuilder()
+          .maximumWeight(LIST_CACHE_CHARS)
+          .weigher((ListKey key, ListIndex value) -> key.listStr().length())
+          .softValues()
+          .build();
+
+  /** Key for the list cache. */
+  private record ListKey(String listStr, String delim) {}
+
+  /** The boundaries of the items in a list string. */
+  private static final class ListIndex {
+    /** The start and end offset of each item, two entries per item. */
+    private final int[] bounds;
+
+    /** The number of times the list has been searched for an item. */
+    private int searches;
+
+    /**
+     * The case folded items mapped to the position of their first occurrence and their number of
+     * occurrences. This is only built once the list has been searched more than once.
+     */
+    private Map<String, int[]> items;
+
+    private ListIndex(int[] bounds) {
+      this.bounds = bounds;
+    }
+
+    private int size() {
+      return bounds.length / 2;
+    }
+
+    private String get(String listStr, int pos) {
+      return listStr.substring(bounds[2 * pos], bounds[2 * pos + 1]);
+    }
+
+    /**
+     * Returns the position of the first item that is equal to the target ignoring case and the
+     * number of items that are.
+     *
+     * @param listStr the list string the index was created from.
+     * @param target the item to find.
+     * @return the position of the first match, or -1, and the number of matches.
+     */
+    private synchronized int[] find(String listStr, String target) {
+      if (items == null && ++searches > 1 && foldable(target)) {
+        items = new HashMap<>();
+        for (int pos = 0; pos < size(); pos++) {
+          int[] found = items.computeIfAbsent(fold(get(listStr, pos)), k -> new int[] {-1, 0});
+          if (found[0] < 0) {
+            found[0] = pos;
+          }
+          found[1]++;
+        }
+      }
+      if (items != null && foldable(target)) {
+        return items.getOrDefault(fold(target), new int[] {-1, 0});
+      }
+
+      int[] found = {-1, 0};
+      for (int pos = 0; pos < size(); pos++) {
+        if (target.equalsIgnoreCase(get(listStr, pos))) {
+          if (found[0] < 0) {
+            found[0] = pos;
+          }
+          found[1]++;
+        }
+      }
+      return found;
+    }
+
+    /**
+     * Folds the case of each character the same way {@link String#equalsIgnoreCase(String)}
+     * compares them.
+     */
+    private static String fold(String s) {
+      StringBuilder sb = new StringBuilder(s.length());
+      for (int i = 0; i < s.length(); i++) {
+        sb.append(Character.toLowerCase(Character.toUpperCase(s.charAt(i))));
+      }
+      return sb.toString();
+    }
+
+    /** Returns if {@link #fold(String)} can be used to look up the target. */
+    private static boolean foldable(String target) {
+      for (int i = 0; i < target.length(); i++) {
+        if (Character.isSurrogate(target.charAt(i))) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
   /**
-   * Parses a list.
+   * Returns the boundaries of the items in the list, parsing the list if it has not been parsed
+   * recently.
+   *
+   * @param listStr has the form "item1, item2, ..."
+   * @param delim is the list delimiter to use.
+   * @return the boundaries of the items in the list.
+   */
+  private static ListIndex index(String listStr, String delim) {
+    if (StringUtils.isBlank(listStr)) {
+      return new ListIndex(new int[0]); // null strings have zero entries
+    }
+    ListKey key = new ListKey(listStr, delim);
+    ListIndex index = listCache.getIfPresent(key);
+    if (index == null) {
+      index = new ListIndex(scan(listStr, delim));
+      listCache.put(key, index);
+    }
+    return index;
+  }
+
+  /**
+   * Parses a list. The item boundaries of recently parsed lists are cached so visiting the same
+   * list again does not parse it again.
    *
    * @param listStr has the form "item1, item2, ..."
    * @param delim is the list delimiter to use.
@@ -100,9 +224,24 @@ public boolean visit(int pos, int start, int end) {
    * @return number of visits performed
    */
   public static int parse(String listStr, String delim, ListVisitor visitor) {
+    int[] bounds = index(listStr, delim).bounds;
+    int size = bounds.length / 2;
+    for (int pos = 0; pos < size; pos++) {
+      if (!visitor.visit(pos, bounds[2 * pos], bounds[2 * pos + 1])) {
+        return pos + 1;
+      }
+    }
+    return size;
+  }
 
-    if (StringUtils.isBlank(listStr)) return 0; // null strings have zero entries
-
+  /**
+   * Scans a list for the boundaries of its items.
+   *
+   * @param listStr has the form "item1, item2, ..."
+   * @param delim is the list delimiter to use.
+   * @return the start and end offset of each item, two entries per item.
+   */
+  private static int[] scan(String listStr, String delim) {
     Pattern pattern;
     if (delim.isEmpty()) {
       pattern = PATTERN_FOR_EMPTY_SEPARATOR;
@@ -119,6 +258,7 @@ public static int parse(String listStr, String delim, ListVisitor visitor) {
 
     Matcher matcher = pattern.matcher(listStr);
     boolean lastItem = false;
+    int[] bounds = new int[16];
     int index = 0;
     while (matcher.find()) {
       if (!lastItem) {
@@ -132,10 +272,15 @@ public static int parse(String listStr, String delim, ListVisitor visitor) {
           // This flag will prevent that.
           lastItem = true;
         }
-        if (!visitor.visit(index++, from, to)) break;
+        if (2 * index + 2 > bounds.length) {
+          bounds = Arrays.copyOf(bounds, bounds.length * 2);
+        }
+        bounds[2 * index] = from;
+        bounds[2 * index + 1] = to;
+        index++;
       }
     }
-    return index;
+    return Arrays.copyOf(bounds, 2 * index);
   }
 
   /**
@@ -210,27 +355,17 @@ public Object listGet(List<Object> parameters, String listStr, String lastParam)
     String delim = parameters.size() == maxParams ? lastParam : ",";
 
     int index = ((BigDecimal) parameters.get(1)).intValue();
-    final StringBuffer retval = new StringBuffer();
-
-    parse(
-        listStr,
-        delim,
-        new ListVisitor() {
-          @Override
-          public boolean visit(int pos, int from, int to) {
-            if (pos == index) {
-              retval.append(listStr, from, to);
-              return false;
-            }
-            return true;
-          }
-        });
+    ListIndex items = index(listStr, delim);
+    if (index < 0 || index >= items.size()) {
+      return "";
+    }
 
+    String retval = items.get(listStr, index);
     if (retval.length() > 0) {
-      Integer intval = strToInt(retval.toString());
+      Integer intval = strToInt(retval);
       if (intval != null) return new BigDecimal(intval);
     }
-    return retval.toString();
+    return retval;
   }
 
   /**
@@ -301,20 +436,7 @@ public Object listCount(List<Object> parameters, String listStr, String lastPara
         "listCount()", minParams, maxParams, parameters, new Class[] {null, String.class});
     String delim = (parameters.size() == maxParams) ? lastParam : ",";
 
-    MutableInt count = new MutableInt(0);
-
-    parse(
-        listStr,
-        delim,
-        new ListVisitor() {
-          @Override
-          public boolean visit(int pos, int from, int to) {
-            count.increment();
-            return true;
-          }
-        });
-
-    return new BigDecimal(count.intValue());
+    return new BigDecimal(index(listStr, delim).size());
   }
 
   /**
@@ -337,23 +459,7 @@ public Object listFind(List<Object> parameters, String listStr, String lastParam
 
     String target = parameters.get(1).toString().trim();
 
-    MutableInt retVal = new MutableInt(-1);
-
-    parse(
-        listStr,
-        delim,
-        new ListVisitor() {
-          @Override
-          public boolean visit(int pos, int from, int to) {
-            if (target.equalsIgnoreCase(listStr.substring(from, to))) {
-              retVal.setValue(pos);
-              return false;
-            }
-            return true;
-          }
-        });
-
-    return new BigDecimal(retVal.intValue());
+    return new BigDecimal(index(listStr, delim).find(listStr, target)[0]);
   }
 
   /**
@@ -376,22 +482,7 @@ public Object listContains(List<Object> parameters, String listStr, String lastP
 
     String target = parameters.get(1).toString().trim();
 
-    MutableInt retval = new MutableInt(0);
-
-    parse(
-        listStr,
-        delim,
-        new ListVisitor() {
-          @Override
-          public boolean visit(int pos, int from, int to) {
-            if (target.equalsIgnoreCase(listStr.substring(from, to))) {
-              retval.increment();
-            }
-            return true;
-          }
-        });
-
-    return new BigDecimal(retval.intValue());
+    return new BigDecimal(index(listStr, delim).find(listStr, target)[1]);
   }
 
   /**
@@ -14,8 +14,12 @@
  */
 package net.rptools.maptool.client.functions;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -41,6 +45,7 @@ public class StrPropFunctions extends AbstractFunction {
   // Added "." to allowed key names since variable names can contain dots.
   private static final String keyValuePatt = "\\s*([\\w .]+)\\s*=\\s*(.*)";
   private static final Pattern keyValueParser = Pattern.compile(keyValuePatt);
+  private static final Pattern VALID_KEY = Pattern.compile("[\\w .]+");
 
   public StrPropFunctions() {
     super(
@@ -69,6 +74,112 @@ public static StrPropFunctions getInstance() {
     return instance;
   }
 
+  /** The total number of characters of property strings to keep parsed in the cache. */
+  private static final long PROPS_CACHE_CHARS = 8 * 1024 * 1024;
+
+  /** Recently parsed property strings, keyed by the property string and delimiter. */
+  private static final Cache<PropsKey, Props> propsCache =
+      CacheBuilder.newBuilder()
+          .maximumWeight(PROPS_CACHE_CHARS)
+          .weigher((PropsKey key, Props value) -> key.props().length())
+          .softValues()
+          .build();
+
+  /** Key for the property string cache. */
+  private record PropsKey(String props, String delim) {}
+
+  /**
+   * A parsed property string. Instances are shared through the cache so they are never modified,
+   * changes create a new instance.
+   *
+   * @param keys the un-normalized keys, in their original order. A key that appears more than once
+   *     in the property string appears more than once in this list.
+   * @param values the values mapped by the keys normalized to upper case.
+   */
+  private record Props(List<String> keys, Map<String, String> values) {
+    private String get(String key) {
+      return values.get(key.toUpperCase());
+    }
+
+    /** Returns a copy of the properties with the value of the key added or replaced. */
+    private Props with(String key, String value) {
+      String normalized = key.toUpperCase();
+      List<String> newKeys = keys;
+      if (!values.containsKey(normalized)) {
+        newKeys = new ArrayList<>(keys.size() + 1);
+        newKeys.addAll(keys);
+        newKeys.add(key);
+      }
+      Map<String, String> newValues = new HashMap<>(values);
+      newValues.put(normalized, value);
+      return new Props(
+          Collections.unmodifiableList(newKeys), Collections.unmodifiableMap(newValues));
+    }
+
+    /**
+     * Returns if {@link #parse(String, Map, List, List, String)} would give back these properties
+     * from the string built from them, after the key has been set to the value. The properties that
+     * came from parsing are always given back, so only the new key and value and the delimiter need
+     * to be checked.
+     *
+     * @param delim the delimiter used to build the string.
+     * @param key the key that was set.
+     * @param value the value the key was set to.
+     * @return <code>true</code> if parsing the string gives back these properties.
+     */
+    private boolean survivesParse(String delim, String key, String value) {
+      if (delim.isEmpty()) {
+        return false;
+      }
+      for (int i = 0; i < delim.length(); i++) {
+        char c = delim.charAt(i);
+        // The delimiter must not be able to appear in a key or next to the "=" sign
+        if (Character.isWhitespace(c) || Character.isLetterOrDigit(c) || "_.=".indexOf(c) >= 0) {
+          return false;
+        }
+      }
+      if (!key.equals(key.trim()) || !VALID_KEY.matcher(key).matches()) {
+        return false;
+      }
+      if (!value.equals(value.trim()) || value.contains(delim) || hasLineTerminator(value)) {
+        return false;
+      }
+      // A key made only of spaces is parsed as an empty key, which can't be parsed back
+      return !values.containsKey("");
+    }
+
+    private static boolean hasLineTerminator(String s) {
+      for (int i = 0; i < s.length(); i++) {
+        char c = s.charAt(i);
+        if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Returns the parsed form of the property string, parsing it only if it has not been parsed
+   * recently.
+   *
+   * @param props has the form "key1=val1 ; key2=val2 ; ..."
+   * @param delim is the setting delimiter to use
+   * @return the parsed property string.
+   */
+  private static Props parsed(String props, String delim) {
+    PropsKey key = new PropsKey(props, delim);
+    Props parsed = propsCache.getIfPresent(key);
+    if (parsed == null) {
+      Map<String, String> map = new HashMap<>();
+      List<String> oldKeys = new ArrayList<>();
+      scan(props, map, oldKeys, delim);
+      parsed = new Props(Collections.unmodifiableList(oldKeys), Collections.unmodifiableMap(map));
+      propsCache.put(key, parsed);
+    }
+    return parsed;
+  }
+
   /**
    * Parses a property string.
    *
@@ -84,6 +195,24 @@ public static void parse(
       List<String> oldKeys,
       List<String> oldKeysNormalized,
       String delim) {
+    Props parsed = parsed(props, delim);
+    map.putAll(parsed.values());
+    oldKeys.addAll(parsed.keys());
+    for (String key : parsed.keys()) {
+      oldKeysNormalized.add(key.toUpperCase());
+    }
+  }
+
+  /**
+   * Scans a property string for its settings.
+   *
+   * @param props has the form "key1=val1 ; key2=val2 ; ..."
+   * @param map is populated with the settings. The keys are normalized to upper case.
+   * @param oldKeys holds the un-normalized keys, in their original order.
+   * @param delim is the setting delimiter to use
+   */
+  @VisibleForTesting
+  static void scan(String props, Map<String, String> map, List<String> oldKeys, String delim) {
     String delimPatt;
     if (delim.equals("")) {
       delimPatt = ";";
@@ -119,7 +248,6 @@ public static void parse(
           String propValue = keyValueMatcher.group(2).trim();
           map.put(propKey.toUpperCase(), propValue);
           oldKeys.add(propKey);
-          oldKeysNormalized.add(propKey.toUpperCase());
         }
       }
     }
@@ -151,32 +279,24 @@ public Object childEvaluate(
     String props = parameters.get(0).toString(); // contains property settings
     String lastParam = parameters.get(parameters.size() - 1).toString();
 
-    // Extract the keys and values already in the props string.
-    // Save the old keys so we can rebuild the props string in the same order.
-    HashMap<String, String> map = new HashMap<String, String>();
-    ArrayList<String> oldKeys = new ArrayList<String>();
-    ArrayList<String> oldKeysNormalized = new ArrayList<String>();
-
     if ("getStrProp".equalsIgnoreCase(functionName))
-      retval = getStrProp(parameters, lastParam, props, map, oldKeys, oldKeysNormalized);
+      retval = getStrProp(parameters, lastParam, props);
     else if ("setStrProp".equalsIgnoreCase(functionName))
-      retval = setStrProp(parameters, lastParam, props, map, oldKeys, oldKeysNormalized);
+      retval = setStrProp(parameters, lastParam, props);
     else if ("deleteStrProp".equalsIgnoreCase(functionName))
-      retval = deleteStrProp(parameters, lastParam, props, map, oldKeys, oldKeysNormalized);
+      retval = deleteStrProp(parameters, lastParam, props);
     else if ("varsFromStrProp".equalsIgnoreCase(functionName))
-      retval =
-          varsFromStrProp(parameters, lastParam, props, map, oldKeys, oldKeysNormalized, resolver);
+      retval = varsFromStrProp(parameters, lastParam, props, resolver);
     else if ("strPropFromVars".equalsIgnoreCase(functionName))
-      retval =
-          strPropFromVars(parameters, lastParam, props, map, oldKeys, oldKeysNormalized, resolver);
+      retval = strPropFromVars(parameters, lastParam, props, resolver);
     else if ("countStrProp".equalsIgnoreCase(functionName))
-      retval = countStrProp(parameters, lastParam, props, map, oldKeys, oldKeysNormalized);
+      retval = countStrProp(parameters, lastParam, props);
     else if ("indexKeyStrProp".equalsIgnoreCase(functionName))
-      retval = indexKeyStrProp(parameters, lastParam, props, map, oldKeys, oldKeysNormalized);
+      retval = indexKeyStrProp(parameters, lastParam, props);
     else if ("indexValueStrProp".equalsIgnoreCase(functionName))
-      retval = indexValueStrProp(parameters, lastParam, props, map, oldKeys, oldKeysNormalized);
+      retval = indexValueStrProp(parameters, lastParam, props);
     else if ("formatStrProp".equalsIgnoreCase(functionName))
-      retval = formatStrProp(parameters, lastParam, props, map, oldKeys, oldKeysNormalized);
+      retval = formatStrProp(parameters, lastParam, props);
 
     return retval;
   }
@@ -187,20 +307,11 @@ else if ("formatStrProp".equalsIgnoreCase(functionName))
    * @param parameters the function parameters
    * @param lastParam the last parameter
    * @param props has the form "key1=val1 ; key2=val2 ; ..."
-   * @param map is populated with the settings. The keys are normalized to upper case.
-   * @param oldKeys holds the un-normalized keys, in their original order.
-   * @param oldKeysNormalized an empty array that will contain the normalized keys.
    * @return The matching value for <code>key</code>, or <code>""</code> if not found. The value is
    *     converted to a number if possible.
    * @throws ParserException when an error occurs.
    */
-  public Object getStrProp(
-      List<Object> parameters,
-      String lastParam,
-      String props,
-      Map<String, String> map,
-      List<String> oldKeys,
-      List<String> oldKeysNormalized)
+  public Object getStrProp(List<Object> parameters, String lastParam, String props)
       throws ParserException {
     Object retval = "";
     String delim = ";";
@@ -218,10 +329,9 @@ public Object getStrProp(
       retval = parameters.get(2); // this third parameter is returned if the key is not found
     }
     if (parameters.size() == maxParams) delim = lastParam;
-    parse(props, map, oldKeys, oldKeysNormalized, delim);
 
     userKey = parameters.get(1).toString(); // the key being passed in
-    String value = map.get(userKey.toUpperCase());
+    String value = parsed(props, delim).get(userKey);
     if (value != null) {
       Integer intval = strToInt(value);
       retval = (intval == null) ? value : new BigDecimal(intval);
@@ -236,19 +346,10 @@ public Object getStrProp(
    * @param parameters the function parameters
    * @param lastParam the last parameter
    * @param props has the form "key1=val1 ; key2=val2 ; ..."
-   * @param map is populated with the settings. The keys are normalized to upper case.
-   * @param oldKeys holds the un-normalized keys, in their original order.
-   * @param oldKeysNormalized an empty array that will contain the normalized keys.
    * @return The new property string.
    * @throws ParserException when an error occurs.
    */
-  public Object setStrProp(
-      List<Object> parameters,
-      String lastParam,
-      String props,
-      Map<String, String> map,
-      List<String> oldKeys,
-      List<String> oldKeysNormalized)
+  public Object setStrProp(List<Object> parameters, String lastParam, String props)
       throws ParserException {
     Object retval = "";
     String delim = ";";
@@ -263,27 +364,27 @@ public Object setStrProp(
         parameters,
         new Class[] {String.class, String.class, null, null, String.class});
     if (parameters.size() == maxParams) delim = lastParam;
-    parse(props, map, oldKeys, oldKeysNormalized, delim);
 
     userKey = parameters.get(1).toString(); // the key being passed in
     userValue = parameters.get(2).toString();
-    map.put(userKey.toUpperCase(), userValue);
     // Reconstruct the property string, in the same order as the original.
     // If the key already existed, preserve the case of the original key string.
+    Props newProps = parsed(props, delim).with(userKey, userValue);
     StringBuilder sb = new StringBuilder();
-    if (!oldKeysNormalized.contains(userKey.toUpperCase())) {
-      oldKeys.add(userKey);
-    }
-    int size = oldKeys.size();
-    delim = " " + delim + " ";
-    for (String k : oldKeys) {
-      String v = map.get(k.toUpperCase());
+    int size = newProps.keys().size();
+    String separator = " " + delim + " ";
+    for (String k : newProps.keys()) {
+      String v = newProps.get(k);
       sb.append(k);
       sb.append("=");
       sb.append(v);
-      if (--size != 0) sb.append(delim);
+      if (--size != 0) sb.append(separator);
     }
     retval = sb.toString();
+    // The result is usually passed straight back in, so save parsing it again.
+    if (newProps.survivesParse(delim, userKey, userValue)) {
+      propsCache.put(new PropsKey((String) retval, delim), newProps);
+    }
     return retval;
   }
 
@@ -294,19 +395,10 @@ public Object setStrProp(
    * @param parameters the function parameters
    * @param lastParam the last parameter
    * @param props has the form "key1=val1 ; key2=val2 ; ..."
-   * @param map is populated with the settings. The keys are normalized to upper case.
-   * @param oldKeys holds the un-normalized keys, in their original order.
-   * @param oldKeysNormalized an empty array that will contain the normalized keys.
    * @return The new property string. (If <code>key</code> is not found, no changes are made.)
    * @throws ParserException when an error occurs.
    */
-  public Object deleteStrProp(
-      List<Object> parameters,
-      String lastParam,
-      String props,
-      Map<String, String> map,
-      List<String> oldKeys,
-      List<String> oldKeysNormalized)
+  public Object deleteStrProp(List<Object> parameters, String lastParam, String props)
       throws ParserException {
     Object retval = "";
     String delim = ";";
@@ -321,16 +413,16 @@ public Object deleteStrProp(
         parameters,
         new Class[] {String.class, String.class});
     if (parameters.size() == maxParams) delim = lastParam;
-    parse(props, map, oldKeys, oldKeysNormalized, delim);
+    Props parsed = parsed(props, delim);
 
     userKey = parameters.get(1).toString(); // the key being passed in
     // reconstruct the property string, without the specified key
     StringBuilder sb = new StringBuilder();
-    int size = oldKeys.size();
+    int size = parsed.keys().size();
     delim = " " + delim + " ";
-    for (String k : oldKeys) {
+    for (String k : parsed.keys()) {
       if (k.compareToIgnoreCase(userKey) == 0) continue;
-      String v = map.get(k.toUpperCase());
+      String v = parsed.get(k);
       sb.append(k);
       sb.append("=");
       sb.append(v);
@@ -369,21 +461,13 @@ public Object deleteStrProp(
    * @param parameters list of parameters from the macro call
    * @param lastParam last parameter passed from the macro call (convenience variable)
    * @param props the StrProp string to parse
-   * @param map where the normalized {@code <key,value>} pairs are stored (return value)
-   * @param oldKeys list of the original keys from {@code props}
-   * @param oldKeysNormalized list of the original keys (converted to uppercase) from {@code props}
+   * @param resolver the variable resolver used to set the variables
    * @return The number of assignments made (keys with spaces in their names are ignored and don't
    *     appear in the count)
    * @throws ParserException when an error occurs.
    */
   public Object varsFromStrProp(
-      List<Object> parameters,
-      String lastParam,
-      String props,
-      Map<String, String> map,
-      List<String> oldKeys,
-      List<String> oldKeysNormalized,
-      VariableResolver resolver)
+      List<Object> parameters, String lastParam, String props, VariableResolver resolver)
       throws ParserException {
     Object retval = "";
     String delim = ";";
@@ -424,14 +508,14 @@ public Object varsFromStrProp(
         }
       }
     }
-    parse(props, map, oldKeys, oldKeysNormalized, delim);
+    Props parsed = parsed(props, delim);
     int count = 0;
-    for (String k : oldKeys) {
+    for (String k : parsed.keys()) {
       // As of 1.3b90, parse() supports spaces in the key string. We can't create variables
       // with spaces in their names though (well, we could, but the script could never access them)
       // so filter out names with spaces.
       if (!k.contains(" ")) {
-        String v = map.get(k.toUpperCase());
+        String v = parsed.get(k);
         if (v != null) {
           count++;
           switch (option) {
@@ -459,20 +543,11 @@ public Object varsFromStrProp(
    * @param lastParam the last parameter
    * @param props Either "SUFFIXED" or "UNSUFFIXED", indicating how to decorate the variable names
    *     when fetching values.
-   * @param map is populated with the settings. The keys are normalized to upper case.
-   * @param oldKeys holds the un-normalized keys, in their original order.
-   * @param oldKeysNormalized an empty array that will contain the normalized keys.
    * @return A property string containing the settings of all the variables.
    * @throws ParserException when an error occurs.
    */
   public Object strPropFromVars(
-      List<Object> parameters,
-      String lastParam,
-      String props,
-      Map<String, String> map,
-      List<String> oldKeys,
-      List<String> oldKeysNormalized,
-      VariableResolver resolver)
+      List<Object> parameters, String lastParam, String props, VariableResolver resolver)
       throws ParserException {
     Object retval = null;
     String delim = ";";
@@ -522,19 +597,10 @@ public Object strPropFromVars(
    * @param parameters the function parameters
    * @param lastParam the last parameter
    * @param props has the form "key1=val1 ; key2=val2 ; ..."
-   * @param map is populated with the settings. The keys are normalized to upper case.
-   * @param oldKeys holds the un-normalized keys, in their original order.
-   * @param oldKeysNormalized an empty array that will contain the normalized keys.
    * @return The number of property entries in the string.
    * @throws ParserException when an error occurs.
    */
-  public Object countStrProp(
-      List<Object> parameters,
-      String lastParam,
-      String props,
-      Map<String, String> map,
-      List<String> oldKeys,
-      List<String> oldKeysNormalized)
+  public Object countStrProp(List<Object> parameters, String lastParam, String props)
       throws ParserException {
     Object retval = "";
     String delim = ";";
@@ -544,9 +610,8 @@ public Object countStrProp(
     checkVaryingParameters(
         "countStrProp()", minParams, maxParams, parameters, new Class[] {String.class});
     if (parameters.size() == maxParams) delim = lastParam;
-    parse(props, map, oldKeys, oldKeysNormalized, delim);
 
-    retval = new BigDecimal(oldKeys.size());
+    retval = new BigDecimal(parsed(props, delim).keys().size());
     return retval;
   }
 
@@ -557,19 +622,10 @@ public Object countStrProp(
    * @param parameters the function parameters
    * @param lastParam the last parameter
    * @param props has the form "key1=val1 ; key2=val2 ; ..."
-   * @param map is populated with the settings. The keys are normalized to upper case.
-   * @param oldKeys holds the un-normalized keys, in their original order.
-   * @param oldKeysNormalized an empty array that will contain the normalized keys.
    * @return The key for the setting at position <code>index</code>
    * @throws ParserException when an error occurs.
    */
-  public Object indexKeyStrProp(
-      List<Object> parameters,
-      String lastParam,
-      String props,
-      Map<String, String> map,
-      List<String> oldKeys,
-      List<String> oldKeysNormalized)
+  public Object indexKeyStrProp(List<Object> parameters, String lastParam, String props)
       throws ParserException {
     Object retval = "";
     String delim = ";";
@@ -583,13 +639,13 @@ public Object indexKeyStrProp(
         parameters,
         new Class[] {String.class, BigDecimal.class});
     if (parameters.size() == maxParams) delim = lastParam;
-    parse(props, map, oldKeys, oldKeysNormalized, delim);
+    List<String> keys = parsed(props, delim).keys();
 
     int index = ((BigDecimal) parameters.get(1)).intValue();
-    if (index < 0 || index >= oldKeys.size()) {
+    if (index < 0 || index >= keys.size()) {
       retval = "";
     } else {
-      retval = oldKeys.get(index);
+      retval = keys.get(index);
     }
     return retval;
   }
@@ -601,20 +657,11 @@ public Object indexKeyStrProp(
    * @param parameters the function parameters
    * @param lastParam the last parameter
    * @param props has the form "key1=val1 ; key2=val2 ; ..."
-   * @param map is populated with the settings. The keys are normalized to upper case.
-   * @param oldKeys holds the un-normalized keys, in their original order.
-   * @param oldKeysNormalized an empty array that will contain the normalized keys.
    * @return The value (converted to a number if possible) for the setting at position <code>index
    *     </code>
    * @throws ParserException when an error occurs.
    */
-  public Object indexValueStrProp(
-      List<Object> parameters,
-      String lastParam,
-      String props,
-      Map<String, String> map,
-      List<String> oldKeys,
-      List<String> oldKeysNormalized)
+  public Object indexValueStrProp(List<Object> parameters, String lastParam, String props)
       throws ParserException {
     String value = "";
     Object retval = null;
@@ -629,13 +676,13 @@ public Object indexValueStrProp(
         parameters,
         new Class[] {String.class, BigDecimal.class});
     if (parameters.size() == maxParams) delim = lastParam;
-    parse(props, map, oldKeys, oldKeysNormalized, delim);
+    Props parsed = parsed(props, delim);
 
     int index = ((BigDecimal) parameters.get(1)).intValue();
-    if (index < 0 || index >= oldKeys.size()) {
+    if (index < 0 || index >= parsed.keys().size()) {
       value = "";
     } else {
-      value = map.get(oldKeys.get(index).toUpperCase());
+      value = parsed.get(parsed.keys().get(index));
     }
 
     if (value != null) {
@@ -657,19 +704,10 @@ public Object indexValueStrProp(
    * @param parameters the function parameters
    * @param lastParam the last parameter
    * @param props has the form "key1=val1 ; key2=val2 ; ..."
-   * @param map is populated with the settings. The keys are normalized to upper case.
-   * @param oldKeys holds the un-normalized keys, in their original order.
-   * @param oldKeysNormalized an empty array that will contain the normalized keys.
    * @return A string containing the formatted property string.
    * @throws ParserException when an error occurs.
    */
-  public Object formatStrProp(
-      List<Object> parameters,
-      String lastParam,
-      String props,
-      Map<String, String> map,
-      List<String> oldKeys,
-      List<String> oldKeysNormalized)
+  public Object formatStrProp(List<Object> parameters, String lastParam, String props)
       throws ParserException {
     Object retval = null;
     String delim = ";";
@@ -683,7 +721,7 @@ public Object formatStrProp(
         parameters,
         new Class[] {String.class, String.class, String.class, String.class, String.class});
     if (parameters.size() == maxParams) delim = lastParam;
-    parse(props, map, oldKeys, oldKeysNormalized, delim);
+    Props parsed = parsed(props, delim);
 
     String listFormat = parameters.get(1).toString();
     String entryFormat = parameters.get(2).toString();
@@ -691,7 +729,7 @@ public Object formatStrProp(
 
     StringBuilder sb = new StringBuilder();
     boolean firstEntry = true;
-    for (String key : oldKeys) {
+    for (String key : parsed.keys()) {
       if (firstEntry) {
         firstEntry = false;
       } else {
@@ -699,7 +737,7 @@ public Object formatStrProp(
       }
       String entry = entryFormat;
       entry = entry.replaceAll("\\%key", key);
-      String value = map.get(key.toUpperCase());
+      String value = parsed.get(key);
       value = fullyQuoteString(value);
       entry = entry.replaceAll("\\%value", value);
       sb.append(entry);
@@ -22,6 +22,8 @@
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import net.rptools.dicelib.expression.ExpressionParser;
 import net.rptools.dicelib.expression.Result;
 import net.rptools.maptool.client.MapToolVariableResolver;
@@ -77,6 +79,10 @@ public static JSONMacroFunctions getInstance() {
   private static final Configuration jaywayConfig =
       Configuration.builder().jsonProvider(new GsonJsonProvider()).build();
 
+  /** Matches a single member or index segment of a JSONPath that selects exactly one child. */
+  private static final Pattern SINGLE_PATH_SEGMENT =
+      Pattern.compile("\\.[A-Za-z_][\\w]*|\\['[^'*]*'\\]|\\[\\d+\\]");
+
   /** The parser used to parse Json strings into an internal representation. */
   private static final JsonParser jsonParser = new JsonParser();
 
@@ -858,6 +864,49 @@ private JsonElement shallowCopy(JsonElement jsonElement) {
     }
   }
 
+  /**
+   * Returns the number of levels below the root that a JSONPath descends to, if the path only
+   * selects a single child at each level.
+   *
+   * @param path the JSONPath.
+   * @return the number of levels, or {@link Integer#MAX_VALUE} if the path uses wildcards, filters,
+   *     deep scans or any other feature that may select more than one child.
+   */
+  private int pathDepth(String path) {
+    String p = path.trim();
+    if (!p.startsWith("$")) {
+      p = "$." + p;
+    }
+    Matcher matcher = SINGLE_PATH_SEGMENT.matcher(p);
+    matcher.region(1, p.length());
+    int depth = 0;
+    while (matcher.regionStart() < p.length() && matcher.lookingAt()) {
+      depth++;
+      matcher.region(matcher.end(), p.length());
+    }
+    return matcher.regionStart() == p.length() ? depth : Integer.MAX_VALUE;
+  }
+
+  /**
+   * Returns a copy of the json that can be modified by a JSONPath operation without changing the
+   * passed in value. If the operation only modifies the top level element then a shallow copy that
+   * shares its children with the original is returned, otherwise a deep copy is made.
+   *
+   * @param json The {@link JsonElement} to copy.
+   * @param path The path that the operation will modify.
+   * @param modifiesParent <code>true</code> if the operation modifies the parent of the element
+   *     selected by the path, <code>false</code> if it modifies the element itself.
+   * @return The copy of the json.
+   */
+  private JsonElement copyForPath(JsonElement json, String path, boolean modifiesParent) {
+    int depth = pathDepth(path);
+    if (depth == 0 || (modifiesParent && depth == 1)) {
+      return shallowCopy(json);
+    } else {
+      return typeConversion.asClonedJsonElement(json);
+    }
+  }
+
   /**
    * Returns a copy of the passed in json with the specified path removed.
    *
@@ -866,7 +915,7 @@ private JsonElement shallowCopy(JsonElement jsonElement) {
    * @return The resulting json data.
    */
   private JsonElement jsonPathDelete(JsonElement json, String path) {
-    return JsonPath.using(jaywayConfig).parse(shallowCopy(json)).delete(path).json();
+    return JsonPath.using(jaywayConfig).parse(copyForPath(json, path, true)).delete(path).json();
   }
 
   /**
@@ -881,7 +930,10 @@ private JsonElement jsonPathDelete(JsonElement json, String path) {
   private JsonElement jsonPathPut(JsonElement json, String path, String key, Object info) {
     Object value = asJsonElement(info);
 
-    return JsonPath.using(jaywayConfig).parse(shallowCopy(json)).put(path, key, value).json();
+    return JsonPath.using(jaywayConfig)
+        .parse(copyForPath(json, path, false))
+        .put(path, key, value)
+        .json();
   }
 
   /**
@@ -895,7 +947,10 @@ private JsonElement jsonPathPut(JsonElement json, String path, String key, Objec
   private JsonElement jsonPathSet(JsonElement json, String path, Object info) {
     Object value = asJsonElement(info);
 
-    return JsonPath.using(jaywayConfig).parse(shallowCopy(json)).set(path, value).json();
+    return JsonPath.using(jaywayConfig)
+        .parse(copyForPath(json, path, true))
+        .set(path, value)
+        .json();
   }
 
   /**
@@ -908,10 +963,12 @@ private JsonElement jsonPathSet(JsonElement json, String path, Object info) {
    */
   private JsonElement jsonPathAdd(JsonElement json, String path, Object info)
       throws ParserException {
-    JsonElement jsonElement = typeConversion.asClonedJsonElement(json);
     Object value = asJsonElement(info);
 
-    return JsonPath.using(jaywayConfig).parse(jsonElement).add(path, value).json();
+    return JsonPath.using(jaywayConfig)
+        .parse(copyForPath(json, path, false))
+        .add(path, value)
+        .json();
   }
 
   /**
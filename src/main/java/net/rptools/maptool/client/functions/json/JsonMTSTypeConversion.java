@@ -14,15 +14,38 @@
  */
 package net.rptools.maptool.client.functions.json;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
 import com.google.gson.JsonPrimitive;
 import com.google.gson.JsonSyntaxException;
 import java.math.BigDecimal;
 
-/** Class used to convert between json and MT Script types. */
+/**
+ * Class used to convert between json and MT Script types.
+ *
+ * <p>Json values are passed between MT Script functions as {@link JsonElement}s that are never
+ * modified once created; functions that "modify" json return a copy that shares all unchanged
+ * children with the original. This allows the elements parsed from json strings to be cached and
+ * shared between calls, see {@link #asJsonElement(Object)}.
+ */
 class JsonMTSTypeConversion {
 
+  /** The total number of characters of json strings to keep parsed in the cache. */
+  private static final long PARSE_CACHE_CHARS = 4 * 1024 * 1024;
+
+  /** Json strings longer than this are not cached so that one large value can't flush the cache. */
+  private static final int MAX_CACHED_LENGTH = 256 * 1024;
+
+  /** Cache of json strings to their parsed value, these values must never be modified. */
+  private static final Cache<String, JsonElement> parseCache =
+      CacheBuilder.newBuilder()
+          .maximumWeight(PARSE_CACHE_CHARS)
+          .weigher((String key, JsonElement value) -> key.length())
+          .softValues()
+          .build();
+
   /** parser used to parse strings into {@link JsonElement} */
   private final JsonParser parser;
 
@@ -90,6 +113,10 @@ public String jsonToScriptString(JsonElement element) {
   /**
    * Returns a {@link JsonElement} version of the passed in object.
    *
+   * <p>The returned value may be shared with the passed in object or with other callers that
+   * converted the same json string, so it must not be modified. Use {@link
+   * #asClonedJsonElement(Object)} if a modifiable copy is required.
+   *
    * @param o the object tp convert to a {@link JsonElement}.
    * @return a {@link JsonElement} version of the object.
    */
@@ -103,8 +130,16 @@ JsonElement asJsonElement(Object o) {
       if (s.startsWith("[") || s.startsWith("{")) {
         // if it could be a json object try parse it, if we want to try convert strings to numbers
         // parsing it will do this
+        JsonElement json = parseCache.getIfPresent(s);
+        if (json != null) {
+          return json;
+        }
         try {
-          return JsonParser.parseString(o.toString());
+          json = JsonParser.parseString(s);
+          if (s.length() <= MAX_CACHED_LENGTH) {
+            parseCache.put(s, json);
+          }
+          return json;
         } catch (JsonSyntaxException e) {
           // Do nothing as we will return a JsonPrimitive of the string
         }
@@ -119,20 +154,14 @@ JsonElement asJsonElement(Object o) {
   }
 
   /**
-   * Returns a {@link JsonElement} version of the passed in object. If the object is already a
-   * {@link JsonElement} then it will return a cloned copy. As {@link JsonPrimitive}s are immutable
-   * they may not be cloned.
+   * Returns a {@link JsonElement} version of the passed in object that is not shared with anything
+   * else and so may be modified. As {@link JsonPrimitive}s are immutable they may not be cloned.
    *
    * @param json the object tp convert to a {@link JsonElement}.
    * @return a {@link JsonElement} version of the object.
    */
   JsonElement asClonedJsonElement(Object json) {
-    if (json instanceof JsonElement) {
-      JsonElement jsonElement = (JsonElement) json;
-      return jsonElement.deepCopy();
-    } else {
-      return asJsonElement(json);
-    }
+    return asJsonElement(json).deepCopy();
   }
 
   /**
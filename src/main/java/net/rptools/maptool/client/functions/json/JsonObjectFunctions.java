@@ -187,7 +187,7 @@ public JsonObject set(JsonObject jsonObject, List<Object> list) throws ParserExc
     if ((list.size() & 1) != 0) {
       throw new ParserException(I18N.getText("macro.function.json.setNoMatchingValue", "json.set"));
     }
-    JsonObject newJsonObject = jsonObject.deepCopy();
+    JsonObject newJsonObject = shallowCopy(jsonObject);
 
     for (int i = 0; i < list.size(); i += 2) {
       Object value = list.get(i + 1);
@@ -0,0 +1,246 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.commandpanel;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Holds the rendered chat messages for a {@link MessagePanel}. Only the most recent messages are
+ * kept in memory (and in the panel's document); older messages are appended to a spill file on disk
+ * so that the full transcript can still be exported by {@link
+ * net.rptools.maptool.client.ChatAutoSave} or the "Save Message History" action.
+ *
+ * <p>The spill file is only touched by a background thread, so adding a message never waits on the
+ * disk. Reads of the spill file are queued behind any pending writes and so always see every
+ * message that was evicted before the read was requested.
+ */
+public class ChatTranscript {
+  private static final Logger log = LogManager.getLogger(ChatTranscript.class);
+
+  /** The thread that reads and writes the spill files. */
+  private static final ExecutorService SPILL_EXECUTOR =
+      Executors.newSingleThreadExecutor(
+          new ThreadFactoryBuilder().setNameFormat("chat-spill-%d").setDaemon(true).build());
+
+  /**
+   * A single rendered message.
+   *
+   * @param id the id of the message, used to find its element in the document.
+   * @param html the rendered html of the message.
+   */
+  public record Entry(long id, String html) {}
+
+  private final Deque<Entry> window = new ArrayDeque<>();
+  private final File spillDir;
+  private int windowSize;
+  private int spilledCount;
+
+  /** The spill file, only accessed from the spill thread. */
+  private File spillFile;
+
+  /**
+   * Creates a new transcript.
+   *
+   * @param windowSize the number of messages to keep in memory.
+   * @param spillDir the directory used for the spill file, may be {@code null} in which case
+   *     evicted messages are discarded.
+   */
+  public ChatTranscript(int windowSize, File spillDir) {
+    this.windowSize = Math.max(1, windowSize);
+    this.spillDir = spillDir;
+  }
+
+  /**
+   * Adds a message to the transcript, evicting the oldest messages if the in-memory window is full.
+   *
+   * @param id the id of the message.
+   * @param html the rendered html of the message.
+   * @return the ids of the messages that were evicted and should be removed from the document.
+   */
+  public synchronized List<Long> add(long id, String html) {
+    window.addLast(new Entry(id, html));
+    return trim();
+  }
+
+  /**
+   * Changes the number of messages kept in memory.
+   *
+   * @param windowSize the new window size.
+   * @return the ids of the messages that were evicted and should be removed from the document.
+   */
+  public synchronized List<Long> setWindowSize(int windowSize) {
+    this.windowSize = Math.max(1, windowSize);
+    return trim();
+  }
+
+  public synchronized int getWindowSize() {
+    return windowSize;
+  }
+
+  /**
+   * @return the number of messages that have been moved out of memory into the spill file.
+   */
+  public synchronized int getSpilledCount() {
+    return spilledCount;
+  }
+
+  /**
+   * @return the total number of messages in the transcript.
+   */
+  public synchronized int size() {
+    return spilledCount + window.size();
+  }
+
+  /**
+   * Writes the html of all messages that are no longer held in memory to the writer, oldest first.
+   *
+   * @param writer the writer to write to.
+   * @throws IOException if the spill file can not be read.
+   */
+  public void writeSpilled(Writer writer) throws IOException {
+    Future<String> spilled;
+    synchronized (this) {
+      spilled = readSpilled();
+    }
+    writer.write(await(spilled));
+  }
+
+  /**
+   * Writes the html of all messages in the transcript to the writer, oldest first.
+   *
+   * @param writer the writer to write to.
+   * @throws IOException if the spill file can not be read.
+   */
+  public void writeAll(Writer writer) throws IOException {
+    Future<String> spilled;
+    List<Entry> entries;
+    synchronized (this) {
+      spilled = readSpilled();
+      entries = new ArrayList<>(window);
+    }
+    writer.write(await(spilled));
+    for (Entry entry : entries) {
+      writer.write(entry.html());
+      writer.write('\n');
+    }
+  }
+
+  /** Removes all messages from the transcript and deletes the spill file. */
+  public synchronized void clear() {
+    window.clear();
+    spilledCount = 0;
+    SPILL_EXECUTOR.execute(this::deleteSpillFile);
+  }
+
+  private List<Long> trim() {
+    if (window.size() <= windowSize) {
+      return List.of();
+    }
+    List<Long> evictedIds = new ArrayList<>(window.size() - windowSize);
+    List<String> evictedHtml = new ArrayList<>(window.size() - windowSize);
+    while (window.size() > windowSize) {
+      Entry entry = window.removeFirst();
+      evictedIds.add(entry.id());
+      evictedHtml.add(entry.html());
+    }
+    spilledCount += evictedIds.size();
+
+    if (spillDir != null) {
+      SPILL_EXECUTOR.execute(() -> appendSpilled(evictedHtml));
+    }
+    return evictedIds;
+  }
+
+  /**
+   * Queues a read of the spill file. Must be called holding the lock so the read sees exactly the
+   * messages that have been evicted so far.
+   */
+  private Future<String> readSpilled() {
+    return SPILL_EXECUTOR.submit(
+        () -> {
+          if (spillFile == null || !spillFile.exists()) {
+            return "";
+          }
+          var text = new StringWriter();
+          try (var reader = Files.newBufferedReader(spillFile.toPath(), StandardCharsets.UTF_8)) {
+            reader.transferTo(text);
+          }
+          return text.toString();
+        });
+  }
+
+  private static String await(Future<String> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException ioe) {
+        throw ioe;
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  private void appendSpilled(List<String> evicted) {
+    try {
+      if (spillFile == null) {
+        spillDir.mkdirs();
+        spillFile = File.createTempFile("chat-", ".html", spillDir);
+        spillFile.deleteOnExit();
+      }
+      try (Writer writer =
+          Files.newBufferedWriter(
+              spillFile.toPath(),
+              StandardCharsets.UTF_8,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.APPEND)) {
+        for (String html : evicted) {
+          writer.write(html);
+          writer.write('\n');
+        }
+      }
+    } catch (IOException e) {
+      log.error("Unable to write chat messages to spill file {}", spillFile, e);
+    }
+  }
+
+  private void deleteSpillFile() {
+    if (spillFile != null) {
+      if (!spillFile.delete() && spillFile.exists()) {
+        log.warn("Unable to delete chat spill file {}", spillFile);
+      }
+      spillFile = null;
+    }
+  }
+}
@@ -826,6 +826,10 @@ public void setTrustedMacroPrefixColors(Color foreground, Color background) {
     getMessagePanel().setTrustedMacroPrefixColors(foreground, background);
   }
 
+  public void setTranscriptWindow(int messages) {
+    getMessagePanel().setTranscriptWindow(messages);
+  }
+
   public static class TextColorWell extends JPanel {
     private static final long serialVersionUID = -9006587537198176935L;
 
@@ -24,8 +24,10 @@
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.swing.JEditorPane;
@@ -40,6 +42,7 @@
 import javax.swing.text.html.StyleSheet;
 import net.rptools.lib.sound.SoundManager;
 import net.rptools.maptool.client.AppPreferences;
+import net.rptools.maptool.client.AppUtil;
 import net.rptools.maptool.client.MapTool;
 import net.rptools.maptool.client.functions.MacroLinkFunction;
 import net.rptools.maptool.client.swing.MessagePanelEditorKit;
@@ -48,13 +51,26 @@
 import net.rptools.maptool.events.MapToolEventBus;
 import net.rptools.maptool.model.TextMessage;
 import net.rptools.maptool.util.MessageUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 public class MessagePanel extends JPanel {
+  private static final Logger log = LogManager.getLogger(MessagePanel.class);
 
   private final JScrollPane scrollPane;
   private final HTMLDocument document;
   private final JEditorPane textPane;
 
+  /**
+   * The messages shown in the panel. Only the most recent messages are kept in the document so that
+   * layout cost does not grow with the length of the session.
+   */
+  private final ChatTranscript transcript =
+      new ChatTranscript(AppPreferences.getChatTranscriptWindow(), AppUtil.getTmpDir());
+
+  /** The id of the next message, used to mark its element in the document. */
+  private long nextMessageId;
+
   private static final String SND_MESSAGE_RECEIVED = "messageReceived";
 
   /** From ImageView */
@@ -162,6 +178,7 @@ public void refreshRenderer() {
 
     style.addRule(mainCss);
     style.addRule("div {margin-bottom: 5px}");
+    style.addRule("div.message {margin-bottom: 0}");
     style.addRule(".roll {background:#efefef}");
     setTrustedMacroPrefixColors(
         AppPreferences.getTrustedPrefixFG(), AppPreferences.getTrustedPrefixBG());
@@ -185,14 +202,37 @@ public void setTrustedMacroPrefixColors(Color foreground, Color background) {
     repaint();
   }
 
+  /**
+   * Returns the html of the full message history, including messages that are no longer shown in
+   * the panel.
+   *
+   * @return the message history as html.
+   */
   public String getMessagesText() {
+    String text = textPane.getText();
+    if (transcript.getSpilledCount() == 0) {
+      return text;
+    }
 
-    return textPane.getText();
+    StringWriter spilled = new StringWriter();
+    try {
+      transcript.writeSpilled(spilled);
+    } catch (IOException e) {
+      log.error("Unable to read older chat messages", e);
+      return text;
+    }
+    int bodyStart = text.indexOf("<body");
+    int insertAt = bodyStart < 0 ? -1 : text.indexOf('>', bodyStart) + 1;
+    if (insertAt <= 0) {
+      return text;
+    }
+    return text.substring(0, insertAt) + spilled + text.substring(insertAt);
   }
 
   public void clearMessages() {
     EventQueue.invokeLater(
         () -> {
+          transcript.clear();
           textPane.setText("<html><body id=\"body\"></body></html>");
           ((MessagePanelEditorKit) textPane.getEditorKit()).flush();
         });
@@ -202,9 +242,24 @@ public void clearMessages() {
    * We use ASCII control characters to mark off the rolls so that there's no limitation on what (printable) characters the output can include Rolls look like "\036roll output\036" or
    * "\036tooltip\037roll output\036" or "\036\001format info\002roll output\036" or "\036\001format info\002tooltip\037roll output\036"
    */
-  private static Pattern roll_pattern =
+  private static final Pattern roll_pattern =
       Pattern.compile("\036(?:\001([^\002]*)\002)?([^\036\037]*)(?:\037([^\036]*))?\036");
 
+  /** Auto inline expansion for {HTTP|HTTPS} URLs. */
+  private static final Pattern HTTP_URL_PATTERN =
+      Pattern.compile("(^|\\s|>|\002)(https?://[^<>\002\003\\s]+)");
+
+  // TODO change this so 'macro' is case-insensitive
+  private static final Pattern MACRO_LINK_PATTERN =
+      Pattern.compile(
+          "href=([\"'])\\s*(macro://(?:[^/]*)/(?:[^?]*)(?:\\?(?:.*?))?)\\1\\s*",
+          Pattern.CASE_INSENSITIVE);
+
+  // TODO The leading and trailing '.*' are probably not needed -- test this before removing them
+  private static final Pattern EMPTY_OUTPUT_PATTERN = Pattern.compile(".*\002\\s*\003.*");
+
+  private static final Pattern OUTPUT_MARKER_PATTERN = Pattern.compile("\002|\003");
+
   public void addMessage(final TextMessage message) {
     EventQueue.invokeLater(
         () -> {
@@ -250,37 +305,28 @@ else if (options.contains("s")
             m.appendTail(text);
             output = text.toString();
           }
-          // Auto inline expansion for {HTTP|HTTPS} URLs
-          // output = output.replaceAll("(^|\\s|>|\002)(https?://[\\w.%-/~?&+#=]+)", "$1<a
-          // href='$2'>$2</a>");
-          output =
-              output.replaceAll(
-                  "(^|\\s|>|\002)(https?://[^<>\002\003\\s]+)", "$1<a href='$2'>$2</a>");
+          output = HTTP_URL_PATTERN.matcher(output).replaceAll("$1<a href='$2'>$2</a>");
 
           if (!message.getSource().equals(MapTool.getPlayer().getName())) {
-            // TODO change this so 'macro' is case-insensitive
-            Matcher m =
-                Pattern.compile(
-                        "href=([\"'])\\s*(macro://(?:[^/]*)/(?:[^?]*)(?:\\?(?:.*?))?)\\1\\s*",
-                        Pattern.CASE_INSENSITIVE)
-                    .matcher(output);
+            Matcher m = MACRO_LINK_PATTERN.matcher(output);
             while (m.find()) {
               MacroLinkFunction.getInstance().processMacroLink(m.group(2));
             }
           }
           // if rolls not being visible to this user result in an empty message, display nothing
-          // TODO The leading and trailing '.*' are probably not needed -- test this before
-          // removing them
-          if (!output.matches(".*\002\\s*\003.*")) {
-            output = output.replaceAll("\002|\003", "");
+          if (!EMPTY_OUTPUT_PATTERN.matcher(output).matches()) {
+            output = OUTPUT_MARKER_PATTERN.matcher(output).replaceAll("");
 
             try {
               Element element = document.getElement("body");
               if (!output.toLowerCase().startsWith("<div") || !output.endsWith("</div>")) {
-                document.insertBeforeEnd(element, "<div>" + output + "</div>");
-              } else {
-                document.insertBeforeEnd(element, output);
+                output = "<div>" + output + "</div>";
               }
+              long id = nextMessageId++;
+              document.insertBeforeEnd(
+                  element,
+                  "<div class=\"message\" id=\"" + messageId(id) + "\">" + output + "</div>");
+              removeMessages(transcript.add(id, output));
               if (!message.getSource().equals(MapTool.getPlayer().getName())) {
                 MapTool.playSound(SND_MESSAGE_RECEIVED);
               }
@@ -290,4 +336,34 @@ else if (options.contains("s")
           }
         });
   }
+
+  /**
+   * Changes the number of messages kept in the panel, removing the oldest messages from the panel
+   * if it is reduced. The removed messages are still included in {@link #getMessagesText()}.
+   *
+   * @param windowSize the number of messages to keep in the panel.
+   */
+  public void setTranscriptWindow(int windowSize) {
+    EventQueue.invokeLater(() -> removeMessages(transcript.setWindowSize(windowSize)));
+  }
+
+  private static String messageId(long id) {
+    return "msg-" + id;
+  }
+
+  /**
+   * Removes the elements of messages that have been moved out of the in-memory transcript from the
+   * document. Each message is wrapped in a single element marked with its id, so the message is
+   * removed whole no matter how many elements its html produced.
+   *
+   * @param ids the ids of the messages to remove.
+   */
+  private void removeMessages(List<Long> ids) {
+    for (long id : ids) {
+      Element message = document.getElement(messageId(id));
+      if (message != null) {
+        document.removeElement(message);
+      }
+    }
+  }
 }
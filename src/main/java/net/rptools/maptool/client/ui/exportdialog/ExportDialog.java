@@ -22,9 +22,14 @@
 import java.awt.event.ActionListener;
 import java.awt.image.BufferedImage;
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.Map;
 import javax.imageio.ImageIO;
@@ -35,6 +40,7 @@
 import javax.swing.JFileChooser;
 import javax.swing.JLabel;
 import javax.swing.JToggleButton;
+import javax.swing.SwingUtilities;
 import net.rptools.lib.net.FTPLocation;
 import net.rptools.lib.net.LocalLocation;
 import net.rptools.lib.net.Location;
@@ -44,6 +50,7 @@
 import net.rptools.maptool.client.ui.Scale;
 import net.rptools.maptool.client.ui.ZoneImageGenerator;
 import net.rptools.maptool.client.ui.zone.PlayerView;
+import net.rptools.maptool.client.ui.zone.ZoneRasterizer;
 import net.rptools.maptool.client.ui.zone.ZoneRenderer;
 import net.rptools.maptool.language.I18N;
 import net.rptools.maptool.model.Zone;
@@ -66,6 +73,13 @@ public class ExportDialog extends JDialog implements IIOWriteProgressListener {
   //
   private static final Logger log = LogManager.getLogger(ExportDialog.class);
 
+  /**
+   * The number of threads the map is painted on by a background export. Each thread has its own
+   * renderer with its own caches, so only a few are used.
+   */
+  private static final int EXPORT_THREADS =
+      Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
   private static final ExportDialog instance = new ExportDialog();
 
   /** the modal panel the user uses to select the screenshot options */
@@ -592,45 +606,7 @@ public void screenCapture() throws Exception {
                   .setStatusMessage(I18N.getString("dialog.screenshot.msg.screenshotSaved"));
             }
           } else if (interactPanel.getRadioButton("METHOD_BACKGROUND").isSelected()) {
-            // We must call preScreenshot before creating the ZoneImageGenerator, because
-            // ZoneImageGenerator uses the ZoneRenderer's bounds to set itself up
-
-            MapTool.showError("This doesn't work! Try one of the other methods.", null);
-            if (false) {
-              //
-              // Note: this implementation is the obvious way, which doesn't work, since
-              // ZoneRenderer is part of the Swing component chain, and the threads get deadlocked.
-              //
-              // The suggested implementation by
-              // "Reiger" at http://ubuntuforums.org/archive/index.php/t-1455270.html
-              // might work... except that it would have to be part of ZoneRenderer
-              //
-              // The only way to make this really work is to pull the renderZone function
-              // out of ZoneRenderer into a new class: call it ZoneRasterizer. Then make
-              // ZoneRenderer create an instance of it, and patch up the code to make it
-              // compatible. Then we can create an instance of ZoneRasterizer, and run it
-              // in a separate thread, since it won't lock in any of the functions that
-              // Swing uses.
-              //
-              class backscreenRender implements Runnable {
-                public void run() {
-                  try {
-                    PlayerView view = preScreenshot();
-                    final ZoneImageGenerator zoneImageGenerator =
-                        new ZoneImageGenerator(renderer, view);
-                    final ImageWriter pngWriter = ImageIO.getImageWritersByFormatName("png").next();
-                    exportLocation.putContent(pngWriter, zoneImageGenerator);
-                    // postScreenshot is called by the callback imageComplete()
-                  } catch (Exception e) {
-                    assert false
-                        : "Unhandled Exception in renderOffScreen: '" + e.getMessage() + "'";
-                  }
-                }
-              }
-              backscreenRender p = new backscreenRender();
-              new Thread(p).start();
-              repaint();
-            }
+            exportInBackground();
           } else {
             throw new Exception("Unknown rendering method!");
           }
@@ -643,6 +619,90 @@ public void run() {
     }
   }
 
+  /**
+   * Exports the entire map on a background thread with a {@link ZoneRasterizer}, so that maps of
+   * any size can be exported while MapTool stays usable. The image is rendered in tiles from copies
+   * of the zone taken with the export settings applied, and written out as it goes. The zone and
+   * the renderer on screen are put back as soon as the copies have been taken.
+   *
+   * @throws Exception if the export can't be started.
+   */
+  private void exportInBackground() throws Exception {
+    final Rectangle exportBounds;
+    final ZoneRasterizer.TilePainter painter;
+    try {
+      final PlayerView view = preScreenshot();
+      exportBounds = renderer.getBounds();
+      painter =
+          ZoneRasterizer.rendererPainter(
+              renderer, view, new Scale(renderer.getZoneScale()), EXPORT_THREADS);
+    } finally {
+      if (waitingForPostScreenshot) {
+        postScreenshot();
+      }
+    }
+
+    final Location location = exportLocation;
+    final ZoneRasterizer rasterizer =
+        new ZoneRasterizer(
+            exportBounds.width,
+            exportBounds.height,
+            ZoneRasterizer.DEFAULT_TILE_SIZE,
+            EXPORT_THREADS,
+            painter);
+    MapTool.getFrame()
+        .setStatusMessage(I18N.getString("dialog.screenshot.msg.screenshotStreaming"));
+
+    Thread exportThread =
+        new Thread(
+            () -> {
+              Exception failure = null;
+              File imageFile = null;
+              try (painter) {
+                imageFile = File.createTempFile("export", ".png");
+                try (OutputStream out = new BufferedOutputStream(new FileOutputStream(imageFile))) {
+                  rasterizer.writePng(out);
+                }
+                try (InputStream in = new BufferedInputStream(new FileInputStream(imageFile))) {
+                  location.putContent(in);
+                }
+              } catch (Exception e) {
+                log.error("Unable to export map", e);
+                failure = e;
+              } catch (OutOfMemoryError e) {
+                log.error("Unable to export map", e);
+                failure = new Exception(e);
+              } finally {
+                if (imageFile != null && !imageFile.delete()) {
+                  imageFile.deleteOnExit();
+                }
+              }
+
+              final Exception error = failure;
+              SwingUtilities.invokeLater(
+                  () -> {
+                    if (error == null) {
+                      MapTool.getFrame()
+                          .setStatusMessage(
+                              I18N.getString("dialog.screenshot.msg.screenshotSaved"));
+                    } else {
+                      MapTool.getFrame()
+                          .setStatusMessage(
+                              I18N.getString("dialog.screenshot.error.failedImageGeneration"));
+                      MapTool.showError(
+                          I18N.getString("dialog.screenshot.error.failedExportingImage"), error);
+                    }
+                  });
+            },
+            "ZoneExport");
+    try {
+      exportThread.start();
+    } catch (RuntimeException e) {
+      painter.close();
+      throw e;
+    }
+  }
+
   public Map<String, Boolean> getExportSettings() {
     Map<String, Boolean> settings = new HashMap<>(16);
     for (var component : interactPanel.getAllCompoments()) {
@@ -208,7 +208,7 @@ public void initAcceptButton() {
           lookupTable.setTableImage(tableImageAssetPanel.getImageId());
           lookupTable.setVisible(getVisibleCheckbox().isSelected());
           lookupTable.setAllowLookup(getAllowLookupCheckbox().isSelected());
-          lookupTable.clearEntries();
+          List<LookupEntry> entries = new ArrayList<>(tableModel.getRowCount());
           for (int i = 0; i < tableModel.getRowCount(); i++) {
             String range = ((String) tableModel.getValueAt(i, 0)).trim();
             if (range.length() == 0) {
@@ -240,8 +240,10 @@ public void initAcceptButton() {
               image = new MD5Key(imageId);
               MapToolUtil.uploadAsset(AssetManager.getAsset(image));
             }
-            lookupTable.addEntry(min, max, value, image);
+            entries.add(new LookupEntry(min, max, value, image));
           }
+          lookupTable.clearEntries();
+          lookupTable.addEntries(entries);
           if (!name.equals(origname)) {
             // New name is not the same as the existing name
             MapTool.getCampaign().getLookupTableMap().remove(origname);
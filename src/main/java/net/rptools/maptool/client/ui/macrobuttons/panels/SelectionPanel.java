@@ -16,20 +16,26 @@
 
 import com.google.common.eventbus.Subscribe;
 import com.jidesoft.docking.DockableFrame;
+import java.awt.Component;
+import java.awt.FlowLayout;
 import java.util.*;
+import javax.swing.Icon;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import net.rptools.lib.CodeTimer;
 import net.rptools.maptool.client.AppState;
 import net.rptools.maptool.client.AppUtil;
 import net.rptools.maptool.client.MapTool;
 import net.rptools.maptool.client.ui.MapToolFrame;
 import net.rptools.maptool.client.ui.MapToolFrame.MTFrame;
+import net.rptools.maptool.client.ui.macrobuttons.buttongroups.AreaGroup;
 import net.rptools.maptool.client.ui.theme.Icons;
 import net.rptools.maptool.client.ui.theme.RessourceManager;
 import net.rptools.maptool.client.ui.zone.SelectionModel;
 import net.rptools.maptool.client.ui.zone.ZoneRenderer;
 import net.rptools.maptool.events.MapToolEventBus;
 import net.rptools.maptool.language.I18N;
+import net.rptools.maptool.model.GUID;
 import net.rptools.maptool.model.MacroButtonProperties;
 import net.rptools.maptool.model.Token;
 import net.rptools.maptool.model.tokens.TokenMacroChanged;
@@ -42,12 +48,66 @@
 public class SelectionPanel extends AbstractMacroPanel {
   private static final Logger log = LogManager.getLogger(SelectionPanel.class);
 
+  /**
+   * How long to wait after a change before rebuilding the panel, in milliseconds. Changes that
+   * arrive in quick succession, such as the selection changing during a drag, only rebuild once.
+   */
+  private static final int REFRESH_DELAY = 100;
+
   private List<MacroButtonProperties> commonMacros = new ArrayList<MacroButtonProperties>();
   private CodeTimer timer;
 
+  /**
+   * The area of a selected token, kept while the token stays selected so its buttons don't have to
+   * be created again when the rest of the selection changes.
+   *
+   * @param token the token the area was built for.
+   * @param name the name of the token when the area was built.
+   * @param gmName the GM name of the token when the area was built.
+   * @param macros the macros of the token when the area was built.
+   * @param macroHashes the hash codes of the macros when the area was built, to notice macros that
+   *     have been changed in place.
+   * @param area the area holding the buttons of the token.
+   */
+  private record TokenArea(
+      Token token,
+      String name,
+      String gmName,
+      List<MacroButtonProperties> macros,
+      int[] macroHashes,
+      AreaGroup area) {
+
+    private boolean isCurrent(Token token, List<MacroButtonProperties> macros) {
+      if (this.token != token
+          || !Objects.equals(name, token.getName())
+          || !Objects.equals(gmName, token.getGMName())
+          || this.macros.size() != macros.size()) {
+        return false;
+      }
+      for (int i = 0; i < macros.size(); i++) {
+        if (this.macros.get(i) != macros.get(i) || macroHashes[i] != macros.get(i).hashCode()) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /** The areas of the selected tokens, by token id. */
+  private final Map<GUID, TokenArea> tokenAreas = new HashMap<>();
+
+  /** The area holding the common macros, or null if it has to be built again. */
+  private AreaGroup commonArea;
+
+  /** The tokens the common macros were found for. */
+  private List<Token> commonAreaTokens = List.of();
+
+  private final Timer refreshTimer = new Timer(REFRESH_DELAY, e -> init());
+
   public SelectionPanel() {
     // TODO: refactoring reminder
     setPanelClass("SelectionPanel");
+    refreshTimer.setRepeats(false);
     // when initially loading MT, the CurrentZoneRenderer isn't ready yet; just send an empty list
     init(new ArrayList<Token>());
     new MapToolEventBus().getMainEventBus().register(this);
@@ -67,6 +127,12 @@ public void init() {
     if (zr != null) init(zr.getSelectedTokensList());
   }
 
+  /**
+   * Shows the macros of the selected tokens. Areas of tokens that were already shown are reused if
+   * the token and its macros have not changed.
+   *
+   * @param selectedTokenList the selected tokens.
+   */
   public void init(List<Token> selectedTokenList) {
     boolean panelVisible = true;
 
@@ -84,28 +150,76 @@ public void init(List<Token> selectedTokenList) {
 
     timer.start("painting");
 
+    List<Component> areas = new ArrayList<>();
+    Map<GUID, TokenArea> shownAreas = new HashMap<>();
+    Icon frameIcon = null;
     // paint panel only when it's visible or active
     if (panelVisible) {
-
-      // draw common group only when there is more than one token selected
-      if (selectedTokenList.size() > 1) {
-        populateCommonButtons(selectedTokenList);
-        addArea(commonMacros, I18N.getText("component.areaGroup.macro.commonMacros"));
-        // add(new ButtonGroup(selectedTokenList, commonMacros, this));
-      }
+      List<Token> ownedTokens = new ArrayList<>();
+      boolean macrosChanged = false;
       for (Token token : selectedTokenList) {
         if (!AppUtil.playerOwns(token)) {
           continue;
         }
-        addArea(token.getId());
+        ownedTokens.add(token);
+        List<MacroButtonProperties> macros = token.getMacroList(true);
+        TokenArea tokenArea = tokenAreas.get(token.getId());
+        if (tokenArea == null || !tokenArea.isCurrent(token, macros)) {
+          int[] macroHashes = new int[macros.size()];
+          for (int i = 0; i < macroHashes.length; i++) {
+            macroHashes[i] = macros.get(i).hashCode();
+          }
+          AreaGroup area = new AreaGroup(token.getId(), this);
+          tokenArea =
+              new TokenArea(token, token.getName(), token.getGMName(), macros, macroHashes, area);
+          macrosChanged = true;
+        }
+        shownAreas.put(token.getId(), tokenArea);
+        areas.add(tokenArea.area());
+      }
+
+      // draw common group only when there is more than one token selected
+      if (selectedTokenList.size() > 1) {
+        if (commonArea == null || macrosChanged || !ownedTokens.equals(commonAreaTokens)) {
+          populateCommonButtons(ownedTokens);
+          commonArea =
+              new AreaGroup(
+                  commonMacros, I18N.getText("component.areaGroup.macro.commonMacros"), this);
+          commonAreaTokens = ownedTokens;
+        }
+        areas.add(0, commonArea);
       }
       if (selectedTokenList.size() == 1 && AppUtil.playerOwns(selectedTokenList.get(0))) {
         // if only one token selected, show its image as tab icon
-        MapTool.getFrame()
-            .getFrame(MTFrame.SELECTION)
-            .setFrameIcon(selectedTokenList.get(0).getIcon(16, 16));
+        frameIcon = selectedTokenList.get(0).getIcon(16, 16);
       }
     }
+    if (selectedTokenList.size() <= 1 || !panelVisible) {
+      commonMacros = new ArrayList<MacroButtonProperties>();
+      commonArea = null;
+      commonAreaTokens = List.of();
+    }
+    // Areas of tokens that are no longer selected are dropped
+    tokenAreas.clear();
+    tokenAreas.putAll(shownAreas);
+
+    if (!areas.equals(Arrays.asList(getComponents()))) {
+      removeAll();
+      for (Component area : areas) {
+        add(area);
+      }
+      setLayout(new FlowLayout(FlowLayout.LEFT));
+      revalidate();
+      repaint();
+    }
+    if (MapTool.getFrame() != null) {
+      MapTool.getFrame()
+          .getFrame(MTFrame.SELECTION)
+          .setFrameIcon(
+              frameIcon != null
+                  ? frameIcon
+                  : RessourceManager.getSmallIcon(Icons.WINDOW_SELECTED_TOKEN));
+    }
     timer.stop("painting");
 
     if (timer.isEnabled()) {
@@ -113,12 +227,14 @@ public void init(List<Token> selectedTokenList) {
     }
   }
 
+  /** Refreshes the panel once no more changes have arrived for a short while. */
+  private void scheduleRefresh() {
+    SwingUtilities.invokeLater(refreshTimer::restart);
+  }
+
   @Subscribe
   private void onSelectionChanged(SelectionModel.SelectionChanged event) {
-    SwingUtilities.invokeLater(
-        () -> {
-          reset();
-        });
+    scheduleRefresh();
   }
 
   @Subscribe
@@ -157,52 +273,69 @@ private void resetIfSelected(List<Token> tokenList) {
     // Only resets if one of the selected tokens is among those changed/deleted.
     ZoneRenderer zr = MapTool.getFrame().getCurrentZoneRenderer();
     if (zr != null && !zr.getSelectedTokenSet().isEmpty()) {
+      boolean selected = false;
       for (Token token : tokenList) {
-        if (zr.getSelectedTokenSet().contains(token.getId())) {
-          reset();
-          break;
+        // The token may have changed in a way the refresh can't see, so rebuild its area.
+        if (tokenAreas.remove(token.getId()) != null) {
+          commonArea = null;
         }
+        selected |= zr.getSelectedTokenSet().contains(token.getId());
+      }
+      if (selected) {
+        scheduleRefresh();
       }
     }
   }
 
+  /**
+   * The parts of a macro that {@link MacroButtonProperties#hashCodeForComparison()} compares, used
+   * to find the macros that are common to the selected tokens.
+   */
+  private record MacroSignature(
+      String label,
+      boolean autoExecute,
+      boolean includeLabel,
+      boolean applyToTokens,
+      String group,
+      String sortby,
+      String command) {
+
+    private static MacroSignature of(MacroButtonProperties macro) {
+      return new MacroSignature(
+          macro.getLabel(),
+          macro.getCompareAutoExecute() && macro.getAutoExecute(),
+          macro.getCompareIncludeLabel() && macro.getIncludeLabel(),
+          macro.getCompareApplyToSelectedTokens() && macro.getApplyToTokens(),
+          macro.getCompareGroup() ? macro.getGroup() : "",
+          macro.getCompareSortPrefix() ? macro.getSortby() : "",
+          macro.getCompareCommand() ? macro.getCommand() : "");
+    }
+  }
+
   private void populateCommonButtons(List<Token> tokenList) {
-    Map<Integer, MacroButtonProperties> uniqueMacros =
-        new HashMap<Integer, MacroButtonProperties>();
-    Map<Integer, MacroButtonProperties> commonMacros =
-        new HashMap<Integer, MacroButtonProperties>();
+    // A macro is common once a second macro with the same signature is found.
+    Set<MacroSignature> seenMacros = new HashSet<>();
+    Map<MacroSignature, MacroButtonProperties> commonMacros = new LinkedHashMap<>();
+    boolean allowPlayerEdits = true;
     for (Token nextToken : tokenList) {
       if (!AppUtil.playerOwns(nextToken)) {
         continue;
       }
       for (MacroButtonProperties nextMacro : nextToken.getMacroList(true)) {
-        MacroButtonProperties copiedMacro =
-            new MacroButtonProperties(nextMacro.getIndex(), nextMacro);
-        int macroKey = copiedMacro.hashCodeForComparison();
-        Boolean macroIsInUnique = uniqueMacros.containsKey(copiedMacro.hashCodeForComparison());
-        Boolean macroIsInCommon = commonMacros.containsKey(copiedMacro.hashCodeForComparison());
-        if (!macroIsInUnique && !macroIsInCommon) {
-          uniqueMacros.put(macroKey, copiedMacro);
-        } else if (macroIsInUnique && !macroIsInCommon) {
-          uniqueMacros.remove(macroKey);
-          commonMacros.put(macroKey, copiedMacro);
-        } else if (macroIsInUnique && macroIsInCommon) {
-          uniqueMacros.remove(macroKey);
+        if (!nextMacro.getAllowPlayerEdits()) {
+          allowPlayerEdits = false;
         }
-      }
-    }
-    for (MacroButtonProperties nextMacro : commonMacros.values()) {
-      nextMacro.setAllowPlayerEdits(true);
-      for (Token nextToken : tokenList) {
-        if (!AppUtil.playerOwns(nextToken)) {
-          continue;
-        }
-        for (MacroButtonProperties nextTokenMacro : nextToken.getMacroList(true)) {
-          if (!nextTokenMacro.getAllowPlayerEdits()) {
-            nextMacro.setAllowPlayerEdits(false);
-          }
+        MacroSignature signature = MacroSignature.of(nextMacro);
+        if (!seenMacros.add(signature)) {
+          commonMacros.putIfAbsent(signature, nextMacro);
         }
       }
+    }
+    this.commonMacros = new ArrayList<MacroButtonProperties>(commonMacros.size());
+    for (MacroButtonProperties commonMacro : commonMacros.values()) {
+      MacroButtonProperties nextMacro =
+          new MacroButtonProperties(commonMacro.getIndex(), commonMacro);
+      nextMacro.setAllowPlayerEdits(allowPlayerEdits);
       if (!nextMacro.getCompareApplyToSelectedTokens()) {
         nextMacro.setCompareApplyToSelectedTokens(false);
       }
@@ -221,12 +354,8 @@ private void populateCommonButtons(List<Token> tokenList) {
       if (!nextMacro.getCompareSortPrefix()) {
         nextMacro.setSortby("");
       }
-    }
-    this.commonMacros = new ArrayList<MacroButtonProperties>(commonMacros.values());
-    int indexCount = 0;
-    for (MacroButtonProperties nextMacro : this.commonMacros) {
-      nextMacro.setIndex(indexCount);
-      indexCount++;
+      nextMacro.setIndex(this.commonMacros.size());
+      this.commonMacros.add(nextMacro);
     }
     Collections.sort(this.commonMacros);
   }
@@ -237,11 +366,14 @@ protected void clear() {
     MapTool.getFrame()
         .getFrame(MTFrame.SELECTION)
         .setFrameIcon(RessourceManager.getSmallIcon(Icons.WINDOW_SELECTED_TOKEN));
+    tokenAreas.clear();
+    commonArea = null;
     super.clear();
   }
 
   @Override
   public void reset() {
+    refreshTimer.stop();
     clear();
     init();
   }
@@ -52,6 +52,7 @@
 import net.rptools.maptool.client.ui.theme.RessourceManager;
 import net.rptools.maptool.client.ui.theme.ThemeSupport;
 import net.rptools.maptool.client.ui.theme.ThemeSupport.ThemeDetails;
+import net.rptools.maptool.client.ui.zone.ZoneRenderer;
 import net.rptools.maptool.client.walker.WalkerMetric;
 import net.rptools.maptool.events.MapToolEventBus;
 import net.rptools.maptool.language.I18N;
@@ -103,6 +104,7 @@ public class PreferencesDialog extends JDialog {
   private final JSpinner lightOverlayOpacitySpinner;
   private final JSpinner lumensOverlayOpacitySpinner;
   private final JSpinner lumensOverlayBorderThicknessSpinner;
+  private final JSpinner lumensRasterResolutionSpinner;
   private final JCheckBox lumensOverlayShowByDefaultCheckBox;
   private final JCheckBox lightsShowByDefaultCheckBox;
   private final JSpinner fogOverlayOpacitySpinner;
@@ -124,6 +126,7 @@ public class PreferencesDialog extends JDialog {
   private final JSpinner chatAutosaveTime;
   private final JTextField chatFilenameFormat;
   private final JSpinner typingNotificationDuration;
+  private final JSpinner chatTranscriptWindow;
   private final JComboBox<String> macroEditorThemeCombo;
   private final JComboBox<String> iconThemeCombo;
   // Chat Notification
@@ -343,6 +346,7 @@ public PreferencesDialog() {
     lightOverlayOpacitySpinner = panel.getSpinner("lightOverlayOpacitySpinner");
     lumensOverlayOpacitySpinner = panel.getSpinner("lumensOverlayOpacitySpinner");
     lumensOverlayBorderThicknessSpinner = panel.getSpinner("lumensOverlayBorderThicknessSpinner");
+    lumensRasterResolutionSpinner = panel.getSpinner("lumensRasterResolutionSpinner");
     lumensOverlayShowByDefaultCheckBox = panel.getCheckBox("lumensOverlayShowByDefaultCheckBox");
     lightsShowByDefaultCheckBox = panel.getCheckBox("lightsShowByDefaultCheckBox");
     fogOverlayOpacitySpinner = panel.getSpinner("fogOverlayOpacitySpinner");
@@ -386,6 +390,7 @@ public PreferencesDialog() {
     showInitGainMessage = panel.getCheckBox("showInitGainMessage");
     upnpDiscoveryTimeoutTextField = panel.getTextField("upnpDiscoveryTimeoutTextField");
     typingNotificationDuration = panel.getSpinner("typingNotificationDuration");
+    chatTranscriptWindow = panel.getSpinner("chatTranscriptWindow");
     allowExternalMacroAccessCheckBox = panel.getCheckBox("allowExternalMacroAccessCheckBox");
     fileSyncPath = panel.getTextField("fileSyncPath");
     fileSyncPathButton = (JButton) panel.getButton("fileSyncPathButton");
@@ -566,6 +571,16 @@ protected void storeSpinnerValue(int value) {
             AppPreferences.setTypingNotificationDuration(value);
           }
         });
+    chatTranscriptWindow.addChangeListener(
+        new ChangeListenerProxy() {
+          @Override
+          protected void storeSpinnerValue(int value) {
+            AppPreferences.setChatTranscriptWindow(value);
+            MapTool.getFrame()
+                .getCommandPanel()
+                .setTranscriptWindow(AppPreferences.getChatTranscriptWindow());
+          }
+        });
 
     chatFilenameFormat.addFocusListener(
         new FocusAdapter() {
@@ -783,6 +798,30 @@ protected void storeSpinnerValue(int value) {
             MapTool.getFrame().refresh();
           }
         });
+    lumensRasterResolutionSpinner.addChangeListener(
+        new ChangeListenerProxy() {
+          @Override
+          protected void storeSpinnerValue(int value) {
+            // Cells below the minimum size go up to it, unless stepping down from it to turn the
+            // raster off.
+            if (value > 0 && value < AppPreferences.MIN_LUMENS_RASTER_RESOLUTION) {
+              value =
+                  AppPreferences.getLumensRasterResolution()
+                          == AppPreferences.MIN_LUMENS_RASTER_RESOLUTION
+                      ? 0
+                      : AppPreferences.MIN_LUMENS_RASTER_RESOLUTION;
+              lumensRasterResolutionSpinner.setValue(value);
+              return;
+            }
+            AppPreferences.setLumensRasterResolution(value);
+            // The lit areas have to be worked out again at the new resolution.
+            ZoneRenderer zr = MapTool.getFrame().getCurrentZoneRenderer();
+            if (zr != null) {
+              zr.flushLight();
+            }
+            MapTool.getFrame().refresh();
+          }
+        });
     lumensOverlayShowByDefaultCheckBox.addActionListener(
         e ->
             AppPreferences.setLumensOverlayShowByDefault(
@@ -1164,6 +1203,8 @@ private void setInitialState() {
     lumensOverlayBorderThicknessSpinner.setModel(
         new SpinnerNumberModel(
             AppPreferences.getLumensOverlayBorderThickness(), 0, Integer.MAX_VALUE, 1));
+    lumensRasterResolutionSpinner.setModel(
+        new SpinnerNumberModel(AppPreferences.getLumensRasterResolution(), 0, 1000, 1));
     lumensOverlayShowByDefaultCheckBox.setSelected(AppPreferences.getLumensOverlayShowByDefault());
     lightsShowByDefaultCheckBox.setSelected(AppPreferences.getLightsShowByDefault());
     fogOverlayOpacitySpinner.setModel(
@@ -1192,6 +1233,8 @@ private void setInitialState() {
     chatAutosaveTime.setModel(
         new SpinnerNumberModel(AppPreferences.getChatAutosaveTime(), 0, 24 * 60, 1));
     chatFilenameFormat.setText(AppPreferences.getChatFilenameFormat());
+    chatTranscriptWindow.setModel(
+        new SpinnerNumberModel(AppPreferences.getChatTranscriptWindow(), 1, 100000, 50));
 
     fitGMView.setSelected(AppPreferences.getFitGMView());
     hideNPCs.setSelected(AppPreferences.getInitHideNpcs());
@@ -515,7 +515,8 @@ public static void exposeLastPath(final ZoneRenderer renderer, final Set<GUID> t
 
     for (final GUID tokenGUID : tokenSet) {
       final Token token = zone.getToken(tokenGUID);
-      timer.start("exposeLastPath-" + token.getName());
+      // The section is shared by all tokens, as each id becomes a metric that is kept for good.
+      timer.start("token");
 
       Path<? extends AbstractPoint> lastPath = token.getLastPath();
 
@@ -535,7 +536,7 @@ public static void exposeLastPath(final ZoneRenderer renderer, final Set<GUID> t
           zone.getWaypointExposureToggle() ? lastPath.getWayPointList() : lastPath.getCellPath();
 
       int stepCount = processPath.size();
-      log.debug("Path size = " + stepCount);
+      log.debug("Path size for " + token.getName() + " = " + stepCount);
 
       Consumer<ZonePoint> revealAt =
           zp -> {
@@ -563,7 +564,7 @@ public static void exposeLastPath(final ZoneRenderer renderer, final Set<GUID> t
         revealAt.accept((ZonePoint) finalCell);
       }
 
-      timer.stop("exposeLastPath-" + token.getName());
+      timer.stop("token");
       renderer.flush(tokenClone);
 
       filteredToks.clear();
@@ -43,6 +43,11 @@
  *       light from weak light and strong darkness from weak darkness so that any given point is
  *       represented only in the strongest lumens level.
  * </ol>
+ *
+ * <p>The derivative results are normally calculated exactly using {@link Area} operations. If a
+ * raster resolution is given, they are instead resolved on a {@link LumensRaster}, which is much
+ * cheaper when many lights and darknesses overlap, at the cost of following the raster cells. The
+ * cells are made larger when the lit part of the map is too big for the raster.
  */
 public final class Illumination {
   /**
@@ -73,6 +78,12 @@ public LumensLevel copy() {
    */
   private final List<LumensLevel> lumensLevels;
 
+  /**
+   * The size in map units of the raster cells used to resolve obscurement, or 0 to use exact {@link
+   * Area} operations.
+   */
+  private final double rasterResolution;
+
   // region Cached fields. These are results that derive from {@link #lumensLevels}.
 
   /**
@@ -107,6 +118,9 @@ public LumensLevel copy() {
    */
   private Area visibleArea = null;
 
+  /** The raster used to resolve the other cached fields if {@link #rasterResolution} is set. */
+  private LumensRaster lumensRaster = null;
+
   // endregion
 
   /**
@@ -119,9 +133,29 @@ public LumensLevel copy() {
    * @param lumensLevels The base areas covered by each level of lumens.
    */
   public Illumination(List<LumensLevel> lumensLevels) {
+    this(lumensLevels, 0);
+  }
+
+  /**
+   * Create a new {@code Illumination} from a set of base lumens levels, resolving obscurement on a
+   * raster.
+   *
+   * @param lumensLevels The base areas covered by each level of lumens.
+   * @param rasterResolution The size in map units of each raster cell. If not positive, exact
+   *     {@link Area} operations are used instead.
+   */
+  public Illumination(List<LumensLevel> lumensLevels, double rasterResolution) {
     this.lumensLevels = new ArrayList<>(lumensLevels);
     this.lumensLevels.sort(
         Comparator.<LumensLevel>comparingInt(lhs -> lhs.lumensStrength).reversed());
+    this.rasterResolution = rasterResolution > 0 ? rasterResolution : 0;
+  }
+
+  private @Nonnull LumensRaster getLumensRaster() {
+    if (lumensRaster == null) {
+      lumensRaster = new LumensRaster(lumensLevels, rasterResolution);
+    }
+    return lumensRaster;
   }
 
   /**
@@ -135,6 +169,9 @@ public Illumination(List<LumensLevel> lumensLevels) {
    *     an empty optional is returned.
    */
   public Optional<LumensLevel> getObscuredLumensLevel(int lumensStrength) {
+    if (rasterResolution > 0) {
+      return getLumensRaster().getObscuredLumensLevel(lumensStrength);
+    }
     return getObscuredLumensLevels().stream()
         .filter(level -> level.lumensStrength() == lumensStrength)
         .findFirst();
@@ -178,6 +215,9 @@ public Optional<LumensLevel> getObscuredLumensLevel(int lumensStrength) {
    * @return The obscured lumens levels.
    */
   public @Nonnull List<LumensLevel> getDisjointObscuredLumensLevels() {
+    if (disjointObscuredLumensLevels == null && rasterResolution > 0) {
+      disjointObscuredLumensLevels = getLumensRaster().getDisjointObscuredLumensLevels();
+    }
     if (disjointObscuredLumensLevels == null) {
       final var obscuredLumensLevels = this.getObscuredLumensLevels();
       final var disjointObscuredLumensLevels = new ArrayList<LumensLevel>();
@@ -215,6 +255,9 @@ public Optional<LumensLevel> getObscuredLumensLevel(int lumensStrength) {
    * @return The lit area.
    */
   public @Nonnull Area getVisibleArea() {
+    if (visibleArea == null && rasterResolution > 0) {
+      visibleArea = getLumensRaster().getVisibleArea();
+    }
     if (visibleArea == null) {
       final var result = new Area();
       getObscuredLumensLevels().forEach(level -> result.add(level.lightArea()));
@@ -259,6 +302,6 @@ public Optional<LumensLevel> getObscuredLumensLevel(int lumensStrength) {
       (isDarkness ? level.darknessArea() : level.lightArea()).add(area);
     }
 
-    return new Illumination(newLevels);
+    return new Illumination(newLevels, rasterResolution);
   }
 }
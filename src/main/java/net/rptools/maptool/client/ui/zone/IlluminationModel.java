@@ -98,4 +98,8 @@ public Stream<ContributedLight> getContributions() {
   public Illumination getIllumination() {
     return illuminator.getIllumination();
   }
+
+  public Illumination getIllumination(double rasterResolution) {
+    return illuminator.getIllumination(rasterResolution);
+  }
 }
@@ -120,6 +120,18 @@ private void revalidateAggregations() {
   }
 
   public Illumination getIllumination() {
+    return getIllumination(0);
+  }
+
+  /**
+   * Builds the illumination of all lit areas.
+   *
+   * @param rasterResolution The size in map units of the raster cells used to resolve obscurement,
+   *     or 0 to resolve it exactly.
+   * @return The illumination.
+   * @see Illumination#Illumination(List, double)
+   */
+  public Illumination getIllumination(double rasterResolution) {
     // Lumens will be sorted from weak to strong, with darkness coming after equal lights. Note
     // that the order is the same as {@link #nodes}.
     final var lumensLevels = new ArrayList<LumensLevel>();
@@ -140,7 +152,7 @@ public Illumination getIllumination() {
       lumensLevels.add(new LumensLevel(node.lumensStrength, currentLitArea, currentDarknessArea));
     }
 
-    return new Illumination(lumensLevels);
+    return new Illumination(lumensLevels, rasterResolution);
   }
 
   /**
@@ -14,6 +14,7 @@
  */
 package net.rptools.maptool.client.ui.zone;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.awt.Composite;
 import java.awt.CompositeContext;
 import java.awt.RenderingHints;
@@ -23,6 +24,12 @@
 import java.awt.image.Raster;
 import java.awt.image.RasterFormatException;
 import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * A custom Composite class to replace AlphaComposite for the purposes of mixing lights, auras, and
@@ -77,13 +84,31 @@ public CompositeContext createContext(
   }
 
   private static final class BlenderContext implements CompositeContext {
-    // Technically contexts can be multithreaded, but not in practice. If need be, the buffers could
-    // be made thread-local. A length of 4K was chosen as the size since it is larger than most
-    // screen widths (a little more than 4K resolution) while not be too high for this sort of use.
-    // So this should support typical cases without needing to blend rows in chunks.
+    // A length of 4K was chosen as the size since it is larger than most screen widths (a little
+    // more than 4K resolution) while not be too high for this sort of use. So this should support
+    // typical cases without needing to blend rows in chunks. Each thread gets its own buffers so
+    // that bands can be blended concurrently.
     private static final int BUFFER_LENGTH = 4 * 1024;
-    private static final int[] SRC_BUFFER = new int[BUFFER_LENGTH];
-    private static final int[] DST_BUFFER = new int[BUFFER_LENGTH];
+    private static final ThreadLocal<RowBuffers> ROW_BUFFERS =
+        ThreadLocal.withInitial(RowBuffers::new);
+
+    /** Rasters smaller than this many pixels are blended on the calling thread. */
+    private static final int MIN_PARALLEL_PIXELS = 256 * 256;
+
+    /** The fewest rows that are worth handing to another thread. */
+    private static final int MIN_BAND_ROWS = 32;
+
+    private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    private static final ExecutorService BAND_EXECUTOR =
+        PARALLELISM > 1
+            ? Executors.newFixedThreadPool(
+                PARALLELISM - 1,
+                new ThreadFactoryBuilder()
+                    .setNameFormat("lighting-composite-%d")
+                    .setDaemon(true)
+                    .build())
+            : null;
 
     private final Blender blender;
 
@@ -96,10 +121,47 @@ public void compose(Raster src, Raster dstIn, WritableRaster dstOut) {
       final int w = Math.min(src.getWidth(), dstIn.getWidth());
       final int h = Math.min(src.getHeight(), dstIn.getHeight());
 
-      final int[] srcPixels = SRC_BUFFER;
-      final int[] dstPixels = DST_BUFFER;
+      final int bands =
+          BAND_EXECUTOR == null || (long) w * h < MIN_PARALLEL_PIXELS
+              ? 1
+              : Math.min(PARALLELISM, h / MIN_BAND_ROWS);
+      if (bands <= 1) {
+        blendRows(src, dstIn, dstOut, w, 0, h);
+        return;
+      }
+
+      // Each band covers a distinct set of rows, so the bands never write to the same pixels. The
+      // calling thread blends the first band itself rather than sitting idle.
+      final List<Future<?>> pending = new ArrayList<>(bands - 1);
+      for (int band = 1; band < bands; band++) {
+        final int startY = (int) ((long) h * band / bands);
+        final int endY = (int) ((long) h * (band + 1) / bands);
+        pending.add(BAND_EXECUTOR.submit(() -> blendRows(src, dstIn, dstOut, w, startY, endY)));
+      }
+      blendRows(src, dstIn, dstOut, w, 0, h / bands);
+
+      for (Future<?> future : pending) {
+        try {
+          future.get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("Interrupted while blending lights", e);
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof RuntimeException re) {
+            throw re;
+          }
+          throw new IllegalStateException("Unable to blend lights", e.getCause());
+        }
+      }
+    }
 
-      for (int y = 0; y < h; y++) {
+    private void blendRows(
+        Raster src, Raster dstIn, WritableRaster dstOut, int w, int startY, int endY) {
+      final RowBuffers buffers = ROW_BUFFERS.get();
+      final int[] srcPixels = buffers.src;
+      final int[] dstPixels = buffers.dst;
+
+      for (int y = startY; y < endY; y++) {
         // region "Fast path". If w < BUFFER_LENGTH, this just blends in one go.
         final var firstChunkLength = (w - 1) % BUFFER_LENGTH + 1;
         src.getDataElements(src.getMinX(), y + src.getMinY(), firstChunkLength, 1, srcPixels);
@@ -124,6 +186,11 @@ public void compose(Raster src, Raster dstIn, WritableRaster dstOut) {
 
     @Override
     public void dispose() {}
+
+    private static final class RowBuffers {
+      private final int[] src = new int[BUFFER_LENGTH];
+      private final int[] dst = new int[BUFFER_LENGTH];
+    }
   }
 
   /**
@@ -0,0 +1,518 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.zone;
+
+import java.awt.Rectangle;
+import java.awt.geom.Area;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import javax.annotation.Nonnull;
+import net.rptools.maptool.client.ui.zone.Illumination.LumensLevel;
+
+/**
+ * Resolves obscured lumens levels on a raster instead of with {@link Area} arithmetic.
+ *
+ * <p>Each light and darkness area is scan converted once into a grid of square cells, {@link
+ * #resolution} map units on a side. A cell is covered by an area if the area contains the center of
+ * the cell. For every cell we only keep the strongest light and the strongest darkness covering it,
+ * which is all that is needed to decide which lumens level wins there. The result areas are then
+ * built back from runs of cells, so they agree with the {@link Area} pipeline of {@link
+ * Illumination} at every cell center.
+ *
+ * <p>The grid is anchored at the map origin and split into tiles of {@link #TILE_SIZE} cells, which
+ * are only allocated where some light or darkness falls. If the lights and darknesses cover more
+ * than {@link #MAX_CELLS} cells at the requested resolution, the cells are made larger until they
+ * fit, so that the memory used stays bounded.
+ */
+final class LumensRaster {
+  /** The number of cells along each side of a tile. */
+  private static final int TILE_SIZE = 64;
+
+  /** The most cells the raster may span, which keeps the tiles under about 32 MB. */
+  static final long MAX_CELLS = 1L << 22;
+
+  /**
+   * The per-cell strongest light and darkness of one tile.
+   *
+   * <p>Values are stored as the index of the lumens level + 1, so that zero means the cell isn't
+   * covered.
+   */
+  private static final class Tile {
+    final int[] light = new int[TILE_SIZE * TILE_SIZE];
+    final int[] darkness = new int[TILE_SIZE * TILE_SIZE];
+  }
+
+  /** Receives the cells {@code [startColumn, endColumn)} of a row covered by an area. */
+  private interface SpanConsumer {
+    void accept(int row, int startColumn, int endColumn);
+  }
+
+  private final List<LumensLevel> lumensLevels;
+  private final int[] strengths;
+  private final double resolution;
+
+  /** The tile coordinates of the first tile in {@link #tiles}. */
+  private final int firstTileColumn, firstTileRow;
+
+  private final int tileColumns, tileRows;
+  private final Tile[] tiles;
+
+  private final Map<Integer, LumensLevel> obscuredLumensLevels = new HashMap<>();
+
+  /**
+   * Rasterizes the base lumens levels.
+   *
+   * @param lumensLevels The base lumens levels, ordered from strong to weak.
+   * @param resolution The size of each raster cell in map units.
+   */
+  LumensRaster(List<LumensLevel> lumensLevels, double resolution) {
+    if (!(resolution > 0)) {
+      throw new IllegalArgumentException("Raster resolution must be positive: " + resolution);
+    }
+    this.lumensLevels = lumensLevels;
+    this.strengths = lumensLevels.stream().mapToInt(LumensLevel::lumensStrength).toArray();
+
+    Rectangle bounds = null;
+    for (final var level : lumensLevels) {
+      for (final var area : List.of(level.lightArea(), level.darknessArea())) {
+        if (!area.isEmpty()) {
+          bounds = bounds == null ? area.getBounds() : bounds.union(area.getBounds());
+        }
+      }
+    }
+    if (bounds == null) {
+      bounds = new Rectangle();
+    }
+    while (cellCount(bounds, resolution) > MAX_CELLS) {
+      resolution *= 2;
+    }
+    this.resolution = resolution;
+
+    firstTileColumn = Math.floorDiv((int) Math.floor(bounds.x / resolution), TILE_SIZE);
+    firstTileRow = Math.floorDiv((int) Math.floor(bounds.y / resolution), TILE_SIZE);
+    tileColumns =
+        Math.floorDiv((int) Math.ceil(bounds.getMaxX() / resolution), TILE_SIZE)
+            - firstTileColumn
+            + 1;
+    tileRows =
+        Math.floorDiv((int) Math.ceil(bounds.getMaxY() / resolution), TILE_SIZE) - firstTileRow + 1;
+    tiles = new Tile[tileColumns * tileRows];
+
+    // Levels come strong to weak, so the first value written to a cell is the strongest.
+    for (int i = 0; i < lumensLevels.size(); ++i) {
+      final var level = lumensLevels.get(i);
+      final int value = i + 1;
+      scan(level.lightArea(), (row, start, end) -> fill(row, start, end, value, false));
+      scan(level.darknessArea(), (row, start, end) -> fill(row, start, end, value, true));
+    }
+  }
+
+  /**
+   * Returns an upper bound on the number of cells of the tiles that cover some bounds.
+   *
+   * @param bounds The bounds in map units.
+   * @param resolution The size of each raster cell in map units.
+   * @return The number of cells.
+   */
+  private static long cellCount(Rectangle bounds, double resolution) {
+    // The bounds can start and end part way through a tile.
+    final double columns = bounds.width / resolution + 2 * TILE_SIZE;
+    final double rows = bounds.height / resolution + 2 * TILE_SIZE;
+    return (long) Math.min(Long.MAX_VALUE, columns * rows);
+  }
+
+  /**
+   * Gets the size of the raster cells, which is larger than requested if the lights and darknesses
+   * cover too many cells.
+   *
+   * @return The size of each raster cell in map units.
+   */
+  double getResolution() {
+    return resolution;
+  }
+
+  /**
+   * Gets the obscured light and darkness of one lumens level.
+   *
+   * @param lumensStrength The strength of lumens to find.
+   * @return The obscured lumens level, or an empty optional if there is no such level.
+   * @see Illumination#getObscuredLumensLevel(int)
+   */
+  Optional<LumensLevel> getObscuredLumensLevel(int lumensStrength) {
+    var obscured = obscuredLumensLevels.get(lumensStrength);
+    if (obscured == null) {
+      final var level =
+          lumensLevels.stream()
+              .filter(l -> l.lumensStrength() == lumensStrength)
+              .findFirst()
+              .orElse(null);
+      if (level == null) {
+        return Optional.empty();
+      }
+
+      // Light is obscured by darkness at least as strong, darkness only by stronger light.
+      final var light = new RunMerger();
+      scan(
+          level.lightArea(),
+          (row, start, end) ->
+              collect(row, start, end, light, (l, d) -> strength(d) < lumensStrength));
+      final var darkness = new RunMerger();
+      scan(
+          level.darknessArea(),
+          (row, start, end) ->
+              collect(row, start, end, darkness, (l, d) -> strength(l) <= lumensStrength));
+      obscured = new LumensLevel(lumensStrength, light.toArea(), darkness.toArea());
+      obscuredLumensLevels.put(lumensStrength, obscured);
+    }
+    return Optional.of(obscured);
+  }
+
+  /**
+   * Gets the disjoint obscured lumens levels, in the same order as the base levels.
+   *
+   * <p>Each cell belongs to the strongest light if it is stronger than the strongest darkness, and
+   * to the strongest darkness otherwise. All levels are built in a single sweep over the raster.
+   *
+   * @return The disjoint obscured lumens levels.
+   * @see Illumination#getDisjointObscuredLumensLevels()
+   */
+  @Nonnull
+  List<LumensLevel> getDisjointObscuredLumensLevels() {
+    final var lightMergers = new RunMerger[lumensLevels.size()];
+    final var darknessMergers = new RunMerger[lumensLevels.size()];
+    for (int i = 0; i < lumensLevels.size(); ++i) {
+      lightMergers[i] = new RunMerger();
+      darknessMergers[i] = new RunMerger();
+    }
+
+    final int columns = tileColumns * TILE_SIZE;
+    final int firstColumn = firstTileColumn * TILE_SIZE;
+    // Positive owners are lights, negative owners are darkness, as index + 1.
+    final var owners = new int[columns];
+    for (int row = firstTileRow * TILE_SIZE; row < (firstTileRow + tileRows) * TILE_SIZE; ++row) {
+      Arrays.fill(owners, 0);
+      for (int tileColumn = 0; tileColumn < tileColumns; ++tileColumn) {
+        final var tile = getTile(tileColumn + firstTileColumn, Math.floorDiv(row, TILE_SIZE));
+        if (tile == null) {
+          continue;
+        }
+        final int offset = Math.floorMod(row, TILE_SIZE) * TILE_SIZE;
+        for (int i = 0; i < TILE_SIZE; ++i) {
+          final int light = tile.light[offset + i];
+          final int darkness = tile.darkness[offset + i];
+          if (strength(light) > strength(darkness)) {
+            owners[tileColumn * TILE_SIZE + i] = light;
+          } else if (darkness > 0) {
+            owners[tileColumn * TILE_SIZE + i] = -darkness;
+          }
+        }
+      }
+
+      int start = 0;
+      while (start < columns) {
+        int end = start + 1;
+        while (end < columns && owners[end] == owners[start]) {
+          ++end;
+        }
+        final int owner = owners[start];
+        if (owner != 0) {
+          final var merger = owner > 0 ? lightMergers[owner - 1] : darknessMergers[-owner - 1];
+          merger.add(row, firstColumn + start, firstColumn + end);
+        }
+        start = end;
+      }
+    }
+
+    final var result = new ArrayList<LumensLevel>(lumensLevels.size());
+    for (int i = 0; i < lumensLevels.size(); ++i) {
+      result.add(
+          new LumensLevel(
+              lumensLevels.get(i).lumensStrength(),
+              lightMergers[i].toArea(),
+              darknessMergers[i].toArea()));
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  /**
+   * Gets the area where some light is stronger than any darkness.
+   *
+   * @return The lit area.
+   * @see Illumination#getVisibleArea()
+   */
+  @Nonnull
+  Area getVisibleArea() {
+    final var visible = new RunMerger();
+    final int firstColumn = firstTileColumn * TILE_SIZE;
+    for (int row = firstTileRow * TILE_SIZE; row < (firstTileRow + tileRows) * TILE_SIZE; ++row) {
+      int runStart = -1;
+      for (int column = 0; column <= tileColumns * TILE_SIZE; ++column) {
+        boolean lit = false;
+        if (column < tileColumns * TILE_SIZE) {
+          final var tile =
+              getTile(firstTileColumn + column / TILE_SIZE, Math.floorDiv(row, TILE_SIZE));
+          if (tile != null) {
+            final int index = Math.floorMod(row, TILE_SIZE) * TILE_SIZE + column % TILE_SIZE;
+            lit = strength(tile.light[index]) > strength(tile.darkness[index]);
+          }
+        }
+        if (lit && runStart < 0) {
+          runStart = column;
+        } else if (!lit && runStart >= 0) {
+          visible.add(row, firstColumn + runStart, firstColumn + column);
+          runStart = -1;
+        }
+      }
+    }
+    return visible.toArea();
+  }
+
+  /** The lumens strength of a stored cell value, or -1 if the cell isn't covered. */
+  private int strength(int value) {
+    return value == 0 ? -1 : strengths[value - 1];
+  }
+
+  private Tile getTile(int tileColumn, int tileRow) {
+    return tiles[(tileRow - firstTileRow) * tileColumns + (tileColumn - firstTileColumn)];
+  }
+
+  /** Records {@code value} in the cells of a span that aren't yet covered by a stronger value. */
+  private void fill(int row, int start, int end, int value, boolean isDarkness) {
+    final int tileRow = Math.floorDiv(row, TILE_SIZE);
+    final int offset = Math.floorMod(row, TILE_SIZE) * TILE_SIZE;
+    int column = start;
+    while (column < end) {
+      final int tileColumn = Math.floorDiv(column, TILE_SIZE);
+      final int tileEnd = Math.min(end, (tileColumn + 1) * TILE_SIZE);
+      final int index = (tileRow - firstTileRow) * tileColumns + (tileColumn - firstTileColumn);
+      var tile = tiles[index];
+      if (tile == null) {
+        tile = new Tile();
+        tiles[index] = tile;
+      }
+      final var values = isDarkness ? tile.darkness : tile.light;
+      for (int i = offset + Math.floorMod(column, TILE_SIZE); column < tileEnd; ++i, ++column) {
+        if (values[i] == 0) {
+          values[i] = value;
+        }
+      }
+    }
+  }
+
+  private interface CellPredicate {
+    /** Test a cell by the stored values of its strongest light and darkness. */
+    boolean test(int light, int darkness);
+  }
+
+  /** Adds the cells of a span that pass {@code predicate} to {@code merger}. */
+  private void collect(int row, int start, int end, RunMerger merger, CellPredicate predicate) {
+    final int tileRow = Math.floorDiv(row, TILE_SIZE);
+    final int offset = Math.floorMod(row, TILE_SIZE) * TILE_SIZE;
+    // Columns can be negative, so track whether a run is open separately.
+    boolean inRun = false;
+    int runStart = start;
+    for (int column = start; column < end; ++column) {
+      // Every cell of the span was filled by the constructor, so the tile exists.
+      final var tile = getTile(Math.floorDiv(column, TILE_SIZE), tileRow);
+      final int index = offset + Math.floorMod(column, TILE_SIZE);
+      final boolean keep = predicate.test(tile.light[index], tile.darkness[index]);
+      if (keep && !inRun) {
+        runStart = column;
+        inRun = true;
+      } else if (!keep && inRun) {
+        merger.add(row, runStart, column);
+        inRun = false;
+      }
+    }
+    if (inRun) {
+      merger.add(row, runStart, end);
+    }
+  }
+
+  /**
+   * Scan converts an area, passing each run of cells whose centers are inside it to {@code
+   * consumer}, row by row from top to bottom.
+   */
+  private void scan(Area area, SpanConsumer consumer) {
+    if (area.isEmpty()) {
+      return;
+    }
+
+    // Flattened edges as (x0, y0, x1, y1) with y0 < y1, plus the direction they were drawn in.
+    final var edges = new ArrayList<double[]>();
+    final var iterator = area.getPathIterator(null, resolution / 4);
+    final boolean evenOdd = iterator.getWindingRule() == PathIterator.WIND_EVEN_ODD;
+    final var coords = new double[6];
+    double startX = 0, startY = 0, lastX = 0, lastY = 0;
+    for (; !iterator.isDone(); iterator.next()) {
+      switch (iterator.currentSegment(coords)) {
+        case PathIterator.SEG_MOVETO -> {
+          addEdge(edges, lastX, lastY, startX, startY);
+          startX = lastX = coords[0];
+          startY = lastY = coords[1];
+        }
+        case PathIterator.SEG_LINETO -> {
+          addEdge(edges, lastX, lastY, coords[0], coords[1]);
+          lastX = coords[0];
+          lastY = coords[1];
+        }
+        case PathIterator.SEG_CLOSE -> {
+          addEdge(edges, lastX, lastY, startX, startY);
+          lastX = startX;
+          lastY = startY;
+        }
+      }
+    }
+    addEdge(edges, lastX, lastY, startX, startY);
+    edges.sort((lhs, rhs) -> Double.compare(lhs[1], rhs[1]));
+
+    final var bounds = area.getBounds2D();
+    final int firstRow = (int) Math.ceil(bounds.getMinY() / resolution - 0.5);
+    final int lastRow = (int) Math.floor(bounds.getMaxY() / resolution - 0.5);
+
+    final var active = new ArrayList<double[]>();
+    var crossings = new double[16];
+    int nextEdge = 0;
+    for (int row = firstRow; row <= lastRow; ++row) {
+      final double y = (row + 0.5) * resolution;
+      while (nextEdge < edges.size() && edges.get(nextEdge)[1] <= y) {
+        active.add(edges.get(nextEdge++));
+      }
+      active.removeIf(edge -> edge[3] <= y);
+
+      // Crossings are stored as pairs of (x, winding direction), sorted by x.
+      if (crossings.length < active.size() * 2) {
+        crossings = new double[active.size() * 4];
+      }
+      int count = 0;
+      for (final var edge : active) {
+        final double x = edge[0] + (y - edge[1]) * (edge[2] - edge[0]) / (edge[3] - edge[1]);
+        int i = count++;
+        while (i > 0 && crossings[2 * (i - 1)] > x) {
+          crossings[2 * i] = crossings[2 * (i - 1)];
+          crossings[2 * i + 1] = crossings[2 * (i - 1) + 1];
+          --i;
+        }
+        crossings[2 * i] = x;
+        crossings[2 * i + 1] = edge[4];
+      }
+
+      int winding = 0;
+      for (int i = 0; i < count - 1; ++i) {
+        winding += evenOdd ? 1 : (int) crossings[2 * i + 1];
+        final boolean inside = evenOdd ? (winding & 1) != 0 : winding != 0;
+        if (inside) {
+          final int start = (int) Math.ceil(crossings[2 * i] / resolution - 0.5);
+          final int end = (int) Math.ceil(crossings[2 * (i + 1)] / resolution - 0.5);
+          if (start < end) {
+            consumer.accept(row, start, end);
+          }
+        }
+      }
+    }
+  }
+
+  private static void addEdge(List<double[]> edges, double x0, double y0, double x1, double y1) {
+    if (y0 < y1) {
+      edges.add(new double[] {x0, y0, x1, y1, 1});
+    } else if (y1 < y0) {
+      edges.add(new double[] {x1, y1, x0, y0, -1});
+    }
+  }
+
+  /**
+   * Builds an area out of rows of cell runs, merging identical runs in consecutive rows into a
+   * single rectangle. Runs must be added row by row, from left to right.
+   */
+  private final class RunMerger {
+    /** Open rectangles as (start column, end column, first row), ordered by start column. */
+    private List<int[]> open = new ArrayList<>();
+
+    private List<int[]> current = new ArrayList<>();
+    private int currentRow = Integer.MIN_VALUE;
+    private final Path2D path = new Path2D.Double(Path2D.WIND_NON_ZERO);
+
+    void add(int row, int start, int end) {
+      if (row != currentRow) {
+        finishRow();
+        // A gap between rows ends every open rectangle.
+        if (row != currentRow + 1) {
+          closeAll();
+        }
+        currentRow = row;
+      }
+      // Adjacent runs from different spans of the same row are joined.
+      if (!current.isEmpty() && current.get(current.size() - 1)[1] == start) {
+        current.get(current.size() - 1)[1] = end;
+      } else {
+        current.add(new int[] {start, end, row});
+      }
+    }
+
+    /** Continues the open rectangles whose runs repeat exactly in the current row. */
+    private void finishRow() {
+      final var next = new ArrayList<int[]>(current.size());
+      int o = 0;
+      for (final var run : current) {
+        while (o < open.size() && open.get(o)[0] < run[0]) {
+          close(open.get(o++), currentRow);
+        }
+        if (o < open.size() && open.get(o)[0] == run[0] && open.get(o)[1] == run[1]) {
+          next.add(open.get(o++));
+        } else {
+          next.add(run);
+        }
+      }
+      while (o < open.size()) {
+        close(open.get(o++), currentRow);
+      }
+      open = next;
+      current = new ArrayList<>();
+    }
+
+    private void closeAll() {
+      for (final var rect : open) {
+        close(rect, currentRow + 1);
+      }
+      open = new ArrayList<>();
+    }
+
+    /** Emits an open rectangle that ends before {@code endRow}. */
+    private void close(int[] rect, int endRow) {
+      final double x0 = rect[0] * resolution;
+      final double x1 = rect[1] * resolution;
+      final double y0 = rect[2] * resolution;
+      final double y1 = endRow * resolution;
+      path.moveTo(x0, y0);
+      path.lineTo(x1, y0);
+      path.lineTo(x1, y1);
+      path.lineTo(x0, y1);
+      path.closePath();
+    }
+
+    Area toArea() {
+      finishRow();
+      closeAll();
+      return new Area(path);
+    }
+  }
+}
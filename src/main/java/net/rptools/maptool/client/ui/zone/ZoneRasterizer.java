@@ -0,0 +1,457 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.zone;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Vector;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import net.rptools.maptool.client.ui.Scale;
+import net.rptools.maptool.model.Token;
+import net.rptools.maptool.model.Zone;
+import net.rptools.maptool.server.proto.ZoneDto;
+
+/**
+ * Rasterizes a zone into a PNG image of any size, without ever holding the whole image in memory.
+ *
+ * <p>The image is split into bands of fixed-size tiles. The tiles of a band are painted in parallel
+ * on worker threads, and the bands are handed to the PNG writer in order as it asks for rows, with
+ * only a couple of bands rendered ahead of it. Memory use therefore depends on the width of the
+ * image and the tile size, but not on its height.
+ *
+ * <p>What goes in the tiles is up to the {@link TilePainter}. {@link #rendererPainter} paints the
+ * tiles with off-screen renderers for copies of a zone.
+ */
+public class ZoneRasterizer {
+
+  /** Paints a tile of the image. */
+  @FunctionalInterface
+  public interface TilePainter extends AutoCloseable {
+    /**
+     * Paints a tile of the image. This is called on a worker thread, and may be called for several
+     * tiles at once.
+     *
+     * @param g the graphics to paint with, which are translated so that image coordinates can be
+     *     used and are clipped to the tile.
+     * @param tile the bounds of the tile in the image.
+     * @throws Exception if the tile can't be painted.
+     */
+    void paint(Graphics2D g, Rectangle tile) throws Exception;
+
+    /** Releases anything held for painting the tiles, once the image has been written. */
+    @Override
+    default void close() {}
+  }
+
+  /** The default width and height of the tiles. */
+  public static final int DEFAULT_TILE_SIZE = 512;
+
+  /** The number of bands rendered ahead of the one the PNG writer is reading. */
+  static final int BANDS_AHEAD = 2;
+
+  /** The width of the image. */
+  private final int width;
+
+  /** The height of the image. */
+  private final int height;
+
+  /** The width and height of the tiles, and the height of the bands. */
+  private final int tileSize;
+
+  /** The number of worker threads the tiles are painted on. */
+  private final int threads;
+
+  /** Paints the tiles. */
+  private final TilePainter painter;
+
+  /**
+   * Creates a new rasterizer.
+   *
+   * @param width the width of the image.
+   * @param height the height of the image.
+   * @param tileSize the width and height of the tiles.
+   * @param threads the number of worker threads to paint the tiles on.
+   * @param painter paints the tiles.
+   */
+  public ZoneRasterizer(int width, int height, int tileSize, int threads, TilePainter painter) {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Image size must be positive: " + width + "x" + height);
+    }
+    if (tileSize <= 0 || threads <= 0) {
+      throw new IllegalArgumentException("Tile size and threads must be positive");
+    }
+    this.width = width;
+    this.height = height;
+    this.tileSize = tileSize;
+    this.threads = threads;
+    this.painter = painter;
+  }
+
+  /**
+   * Returns a painter that paints the tiles with a {@link ZoneRenderer}, as {@link
+   * ZoneRenderer#renderZone} would paint them if the renderer covered the whole image.
+   *
+   * <p>The tiles are painted by off-screen renderers, one for each thread. Each of them renders its
+   * own copy of the zone as it is now, with the layers that are enabled now, so the tiles can be
+   * painted on several threads at once while the zone on screen carries on changing. The painter
+   * must be closed when done with.
+   *
+   * <p>This must be called on the Swing thread.
+   *
+   * @param renderer the renderer of the zone to paint.
+   * @param view the view to render the zone for.
+   * @param scale the scale of the image, with the offset of the zone in the image.
+   * @param threads the number of threads the tiles will be painted on.
+   * @return the painter.
+   */
+  public static TilePainter rendererPainter(
+      ZoneRenderer renderer, PlayerView view, Scale scale, int threads) {
+    ZoneDto zone = renderer.getZone().toDto();
+    BlockingQueue<ZoneRenderer> renderers = new ArrayBlockingQueue<>(threads);
+    Map<ZoneRenderer, PlayerView> views = new HashMap<>();
+    for (int i = 0; i < threads; i++) {
+      Zone copy = Zone.fromDto(zone);
+      ZoneRenderer tileRenderer = renderer.createOffscreenRenderer(copy);
+      renderers.add(tileRenderer);
+      // The view has to refer to the tokens of the copy.
+      List<Token> tokens =
+          view.isUsingTokenView()
+              ? view.getTokens().stream()
+                  .map(t -> copy.getToken(t.getId()))
+                  .filter(Objects::nonNull)
+                  .toList()
+              : null;
+      views.put(tileRenderer, new PlayerView(view.getRole(), tokens));
+    }
+
+    return new TilePainter() {
+      @Override
+      public void paint(Graphics2D g, Rectangle tile) throws Exception {
+        ZoneRenderer tileRenderer = renderers.take();
+        try {
+          Scale tileScale = new Scale(scale);
+          tileScale.setOffset(scale.getOffsetX() - tile.x, scale.getOffsetY() - tile.y);
+          tileRenderer.setZoneScale(tileScale);
+          tileRenderer.setBounds(0, 0, tile.width, tile.height);
+
+          // The renderer paints at its own origin, which is the top left of the tile.
+          Graphics2D tileGraphics = (Graphics2D) g.create();
+          try {
+            tileGraphics.translate(tile.x, tile.y);
+            tileRenderer.renderZone(tileGraphics, views.get(tileRenderer));
+          } finally {
+            tileGraphics.dispose();
+          }
+        } finally {
+          renderers.add(tileRenderer);
+        }
+      }
+
+      @Override
+      public void close() {
+        renderers.forEach(ZoneRenderer::disposeOffscreenRenderer);
+      }
+    };
+  }
+
+  /**
+   * Rasterizes the image and writes it as a PNG. This blocks until the image has been written.
+   *
+   * @param out the stream to write the PNG to, which is not closed.
+   * @throws IOException if the image can't be written, or a tile can't be painted.
+   */
+  public void writePng(OutputStream out) throws IOException {
+    var threadCount = new AtomicInteger();
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            threads,
+            r -> {
+              var thread = new Thread(r, "ZoneRasterizer-" + threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+    try (ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+      writer.setOutput(imageOut);
+      writer.write(new BandedImage(executor));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } finally {
+      writer.dispose();
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Paints a single tile into its own image.
+   *
+   * @param tile the bounds of the tile in the image.
+   * @return the painted tile.
+   */
+  private BufferedImage paintTile(Rectangle tile) {
+    var image = new BufferedImage(tile.width, tile.height, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = image.createGraphics();
+    try {
+      g.translate(-tile.x, -tile.y);
+      g.setClip(tile);
+      painter.paint(g, tile);
+    } catch (Exception e) {
+      throw new UncheckedIOException(new IOException("Unable to paint tile " + tile, e));
+    } finally {
+      g.dispose();
+    }
+    return image;
+  }
+
+  /**
+   * A read only image of the whole zone that renders its bands as the PNG writer reads through it,
+   * and lets go of each band once the writer has moved past it. The writer must read the rows in
+   * order, which the PNG writer does when it isn't interlacing.
+   */
+  private class BandedImage implements RenderedImage {
+    /** The executor the tiles are painted on. */
+    private final ExecutorService executor;
+
+    /** The number of bands in the image. */
+    private final int bandCount;
+
+    /** The bands that have been started and not yet read, in order. */
+    private final Deque<CompletableFuture<BufferedImage>> pending = new ArrayDeque<>();
+
+    /** The prototype the color and sample models are taken from. */
+    private final BufferedImage prototype = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+
+    /** The index of the next band to start. */
+    private int nextBand;
+
+    /** The index of the band being read. */
+    private int currentBand = -1;
+
+    /** The band being read. */
+    private BufferedImage current;
+
+    private BandedImage(ExecutorService executor) {
+      this.executor = executor;
+      bandCount = (height + tileSize - 1) / tileSize;
+      for (int i = 0; i <= BANDS_AHEAD; i++) {
+        startNextBand();
+      }
+    }
+
+    /** Starts painting the tiles of the next band, if there is one. */
+    private void startNextBand() {
+      if (nextBand >= bandCount) {
+        return;
+      }
+      int y = nextBand * tileSize;
+      int bandHeight = Math.min(tileSize, height - y);
+      List<CompletableFuture<BufferedImage>> tiles = new ArrayList<>();
+      for (int x = 0; x < width; x += tileSize) {
+        var tile = new Rectangle(x, y, Math.min(tileSize, width - x), bandHeight);
+        tiles.add(CompletableFuture.supplyAsync(() -> paintTile(tile), executor));
+      }
+      pending.add(
+          CompletableFuture.allOf(tiles.toArray(CompletableFuture[]::new))
+              .thenApply(
+                  v -> {
+                    var band = new BufferedImage(width, bandHeight, BufferedImage.TYPE_INT_RGB);
+                    WritableRaster raster = band.getRaster();
+                    for (int i = 0; i < tiles.size(); i++) {
+                      raster.setRect(i * tileSize, 0, tiles.get(i).join().getRaster());
+                    }
+                    return band;
+                  }));
+      nextBand++;
+    }
+
+    /**
+     * Returns a band of the image, waiting for it to be painted if needed.
+     *
+     * @param index the index of the band.
+     * @return the band.
+     */
+    private BufferedImage band(int index) {
+      if (index < currentBand) {
+        throw new IllegalStateException("Rows of the image must be read in order");
+      }
+      while (currentBand < index) {
+        current = null; // let go of the previous band before waiting for the next
+        try {
+          current = pending.remove().join();
+        } catch (CompletionException e) {
+          if (e.getCause() instanceof UncheckedIOException uioe) {
+            throw uioe;
+          }
+          throw new UncheckedIOException(new IOException("Unable to rasterize zone", e.getCause()));
+        }
+        currentBand++;
+        startNextBand();
+      }
+      return current;
+    }
+
+    @Override
+    public Raster getData(Rectangle rect) {
+      Rectangle bounds = rect.intersection(new Rectangle(width, height));
+      WritableRaster raster =
+          Raster.createWritableRaster(
+              prototype.getSampleModel().createCompatibleSampleModel(bounds.width, bounds.height),
+              new Point(bounds.x, bounds.y));
+      int y = bounds.y;
+      while (y < bounds.y + bounds.height) {
+        int index = y / tileSize;
+        int bandY = index * tileSize;
+        BufferedImage band = band(index);
+        int rows = Math.min(bounds.y + bounds.height, bandY + band.getHeight()) - y;
+        raster.setRect(
+            band.getRaster()
+                .createChild(bounds.x, y - bandY, bounds.width, rows, bounds.x, y, null));
+        y += rows;
+      }
+      return raster;
+    }
+
+    @Override
+    public Raster getData() {
+      return getData(new Rectangle(width, height));
+    }
+
+    @Override
+    public WritableRaster copyData(WritableRaster raster) {
+      if (raster == null) {
+        return (WritableRaster) getData();
+      }
+      raster.setRect(getData(raster.getBounds()));
+      return raster;
+    }
+
+    @Override
+    public Raster getTile(int tileX, int tileY) {
+      return getData(new Rectangle(0, tileY * tileSize, width, tileSize));
+    }
+
+    @Override
+    public Vector<RenderedImage> getSources() {
+      return null;
+    }
+
+    @Override
+    public Object getProperty(String name) {
+      return Image.UndefinedProperty;
+    }
+
+    @Override
+    public String[] getPropertyNames() {
+      return null;
+    }
+
+    @Override
+    public ColorModel getColorModel() {
+      return prototype.getColorModel();
+    }
+
+    @Override
+    public SampleModel getSampleModel() {
+      return prototype.getSampleModel().createCompatibleSampleModel(width, tileSize);
+    }
+
+    @Override
+    public int getWidth() {
+      return width;
+    }
+
+    @Override
+    public int getHeight() {
+      return height;
+    }
+
+    @Override
+    public int getMinX() {
+      return 0;
+    }
+
+    @Override
+    public int getMinY() {
+      return 0;
+    }
+
+    @Override
+    public int getNumXTiles() {
+      return 1;
+    }
+
+    @Override
+    public int getNumYTiles() {
+      return bandCount;
+    }
+
+    @Override
+    public int getMinTileX() {
+      return 0;
+    }
+
+    @Override
+    public int getMinTileY() {
+      return 0;
+    }
+
+    @Override
+    public int getTileWidth() {
+      return width;
+    }
+
+    @Override
+    public int getTileHeight() {
+      return tileSize;
+    }
+
+    @Override
+    public int getTileGridXOffset() {
+      return 0;
+    }
+
+    @Override
+    public int getTileGridYOffset() {
+      return 0;
+    }
+  }
+}
@@ -39,6 +39,7 @@
 import javax.swing.*;
 import net.rptools.lib.CodeTimer;
 import net.rptools.lib.MD5Key;
+import net.rptools.lib.metrics.Metrics;
 import net.rptools.maptool.client.*;
 import net.rptools.maptool.client.events.ZoneLoaded;
 import net.rptools.maptool.client.functions.TokenMoveFunctions;
@@ -136,6 +137,9 @@ public class ZoneRenderer extends JComponent
   private String loadingProgress;
   private boolean isLoaded;
 
+  /** The layers shown by an off-screen renderer, or null to show the enabled layers. */
+  private Set<Zone.Layer> enabledLayers;
+
   /** In screen space */
   private Area exposedFogArea;
 
@@ -665,6 +669,50 @@ public void flush() {
     isLoaded = false;
   }
 
+  /**
+   * Creates a renderer for a copy of the zone of this renderer that isn't part of the component
+   * tree, for painting the zone into images while this renderer carries on showing it. The new
+   * renderer doesn't listen to events, and keeps the layers that are enabled now, so changes made
+   * after it is created don't show up in it. It must only be used by one thread at a time, and be
+   * disposed of with {@link #disposeOffscreenRenderer()} once done with.
+   *
+   * <p>This must be called on the Swing thread.
+   *
+   * @param copy the copy of the zone to render, which nothing else may change.
+   * @return the new renderer.
+   */
+  ZoneRenderer createOffscreenRenderer(Zone copy) {
+    ZoneRenderer renderer = new ZoneRenderer(copy);
+    var eventBus = new MapToolEventBus().getMainEventBus();
+    eventBus.unregister(renderer);
+    eventBus.unregister(renderer.zoneView);
+    // Otherwise it would announce the zone as loaded again when it checks the assets.
+    renderer.isLoaded = isLoaded;
+    renderer.enabledLayers = EnumSet.noneOf(Zone.Layer.class);
+    for (Zone.Layer layer : Zone.Layer.values()) {
+      if (layer.isEnabled()) {
+        renderer.enabledLayers.add(layer);
+      }
+    }
+    return renderer;
+  }
+
+  /**
+   * Is the layer shown by this renderer? Off-screen renderers show the layers that were enabled
+   * when they were created.
+   *
+   * @param layer the layer.
+   * @return true if the layer is shown.
+   */
+  private boolean isLayerEnabled(Zone.Layer layer) {
+    return enabledLayers == null ? layer.isEnabled() : enabledLayers.contains(layer);
+  }
+
+  /** Releases the resources of a renderer created by {@link #createOffscreenRenderer(Zone)}. */
+  void disposeOffscreenRenderer() {
+    repaintDebouncer.shutdown();
+  }
+
   /** Flush the {@link #zoneView} and repaint. */
   public void flushLight() {
     zoneView.flush();
@@ -787,6 +835,7 @@ public BufferedImage getMiniImage(int size) {
 
   @Override
   public void paintComponent(Graphics g) {
+    long frameStart = Metrics.RENDER_FRAME.start();
     if (timer == null) {
       timer = new CodeTimer("ZoneRenderer.renderZone");
     }
@@ -838,6 +887,7 @@ public void paintComponent(Graphics g) {
       MapTool.getProfilingNoteFrame().addText(timer.toString());
       timer.clear();
     }
+    Metrics.RENDER_FRAME.stop(frameStart);
   }
 
   public PlayerView getPlayerView() {
@@ -1149,7 +1199,7 @@ public void renderZone(Graphics2D g2d, PlayerView view) {
       renderBoard(g2d, view);
       timer.stop("board");
     }
-    if (Zone.Layer.BACKGROUND.isEnabled()) {
+    if (isLayerEnabled(Zone.Layer.BACKGROUND)) {
       List<DrawnElement> drawables = zone.getBackgroundDrawnElements();
       // if (!drawables.isEmpty()) {
       timer.start("drawableBackground");
@@ -1163,7 +1213,7 @@ public void renderZone(Graphics2D g2d, PlayerView view) {
         timer.stop("tokensBackground");
       }
     }
-    if (Zone.Layer.OBJECT.isEnabled()) {
+    if (isLayerEnabled(Zone.Layer.OBJECT)) {
       // Drawables on the object layer are always below the grid, and...
       List<DrawnElement> drawables = zone.getObjectDrawnElements();
       // if (!drawables.isEmpty()) {
@@ -1176,7 +1226,7 @@ public void renderZone(Graphics2D g2d, PlayerView view) {
     renderGrid(g2d, view);
     timer.stop("grid");
 
-    if (Zone.Layer.OBJECT.isEnabled()) {
+    if (isLayerEnabled(Zone.Layer.OBJECT)) {
       // ... Images on the object layer are always ABOVE the grid.
       List<Token> stamps = zone.getStampTokens(false);
       if (!stamps.isEmpty()) {
@@ -1185,7 +1235,7 @@ public void renderZone(Graphics2D g2d, PlayerView view) {
         timer.stop("tokensStamp");
       }
     }
-    if (Zone.Layer.TOKEN.isEnabled()) {
+    if (isLayerEnabled(Zone.Layer.TOKEN)) {
       timer.start("lights");
       renderLights(g2d, view);
       timer.stop("lights");
@@ -1216,7 +1266,7 @@ public void renderZone(Graphics2D g2d, PlayerView view) {
      *   <li>Render Token-layer tokens
      * </ol>
      */
-    if (Zone.Layer.TOKEN.isEnabled()) {
+    if (isLayerEnabled(Zone.Layer.TOKEN)) {
       List<DrawnElement> drawables = zone.getDrawnElements();
       // if (!drawables.isEmpty()) {
       timer.start("drawableTokens");
@@ -1224,7 +1274,7 @@ public void renderZone(Graphics2D g2d, PlayerView view) {
       timer.stop("drawableTokens");
       // }
 
-      if (view.isGMView() && Zone.Layer.GM.isEnabled()) {
+      if (view.isGMView() && isLayerEnabled(Zone.Layer.GM)) {
         drawables = zone.getGMDrawnElements();
         // if (!drawables.isEmpty()) {
         timer.start("drawableGM");
@@ -1282,7 +1332,7 @@ public void renderZone(Graphics2D g2d, PlayerView view) {
       renderFog(g2d, view);
     }
 
-    if (Zone.Layer.TOKEN.isEnabled()) {
+    if (isLayerEnabled(Zone.Layer.TOKEN)) {
       // Jamz: If there is fog or vision we may need to re-render vision-blocking type tokens
       // For example. this allows a "door" stamp to block vision but still allow you to see the
       // door.
@@ -1348,7 +1398,7 @@ public void renderZone(Graphics2D g2d, PlayerView view) {
     timer.stop("renderCoordinates");
 
     timer.start("lightSourceIconOverlay.paintOverlay");
-    if (Zone.Layer.TOKEN.isEnabled() && view.isGMView() && AppState.isShowLightSources()) {
+    if (isLayerEnabled(Zone.Layer.TOKEN) && view.isGMView() && AppState.isShowLightSources()) {
       lightSourceIconOverlay.paintOverlay(this, g2d);
     }
     timer.stop("lightSourceIconOverlay.paintOverlay");
@@ -1842,13 +1892,9 @@ private void renderFog(Graphics2D g, PlayerView view) {
       Area visibleArea = zoneView.getVisibleArea(view);
       timer.stop("renderFog-visibleArea");
 
-      String msg = null;
-      if (timer.isEnabled()) {
-        msg = "renderFog-combined(" + (view.isUsingTokenView() ? view.getTokens().size() : 0) + ")";
-      }
-      timer.start(msg);
+      timer.start("renderFog-combined");
       Area combined = zoneView.getExposedArea(view);
-      timer.stop(msg);
+      timer.stop("renderFog-combined");
 
       timer.start("renderFogArea");
       buffG.fill(combined);
@@ -25,6 +25,7 @@
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.annotation.Nonnull;
+import net.rptools.maptool.client.AppPreferences;
 import net.rptools.maptool.client.AppUtil;
 import net.rptools.maptool.client.MapTool;
 import net.rptools.maptool.client.ui.zone.Illumination.LumensLevel;
@@ -226,8 +227,7 @@ public synchronized Area getTopology(Zone.TopologyType topologyType) {
       log.debug("ZoneView topology area for {} is null, generating...", topologyType.name());
 
       topology = new Area(zone.getTopology(topologyType));
-      List<Token> topologyTokens =
-          MapTool.getFrame().getCurrentZoneRenderer().getZone().getTokensWithTopology(topologyType);
+      List<Token> topologyTokens = zone.getTokensWithTopology(topologyType);
       for (Token topologyToken : topologyTokens) {
         topology.add(topologyToken.getTransformedTopology(topologyType));
       }
@@ -461,7 +461,8 @@ private ZoneView.IlluminationKey illuminationKeyFromView(PlayerView view) {
   }
 
   private Illumination getIllumination(IlluminationKey illuminationKey) {
-    return getIlluminationModel(illuminationKey).getIllumination();
+    return getIlluminationModel(illuminationKey)
+        .getIllumination(AppPreferences.getLumensRasterResolution());
   }
 
   private @Nonnull ContributedLight createDaylightContribution(Area visibleArea) {
@@ -19,6 +19,7 @@
 import java.util.List;
 import javax.annotation.Nullable;
 import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.prep.PreparedGeometry;
@@ -26,6 +27,11 @@
 public interface AreaContainer {
   public Area getBounds();
 
+  /**
+   * @return the envelope of the container's boundary, or {@code null} if it is unbounded.
+   */
+  public @Nullable Envelope getEnvelope();
+
   /**
    * Get the smallest child container containing `point`.
    *
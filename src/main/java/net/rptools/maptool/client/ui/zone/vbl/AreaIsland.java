@@ -21,6 +21,7 @@
 import java.util.Set;
 import javax.annotation.Nullable;
 import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.prep.PreparedGeometry;
@@ -80,6 +81,16 @@ public void addOcean(AreaOcean ocean) {
     oceanSet.add(ocean);
   }
 
+  @Override
+  public Envelope getEnvelope() {
+    return meta.getEnvelope();
+  }
+
+  /** Builds the spatial index for this island's boundary. */
+  void buildIndex() {
+    meta.buildIndex();
+  }
+
   ////
   // AREA CONTAINER
   public Area getBounds() {
@@ -18,19 +18,34 @@
 import java.awt.geom.GeneralPath;
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
+import javax.annotation.Nullable;
 import net.rptools.lib.GeometryUtil;
 import org.locationtech.jts.algorithm.Orientation;
 import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.LineSegment;
 import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.index.strtree.STRtree;
 
 /** Represents the boundary of a piece of topology. */
 public class AreaMeta {
+  /** Boundaries with fewer edges than this are cheaper to scan than to query through an index. */
+  private static final int MIN_INDEXED_EDGES = 16;
+
   private Area area;
   private List<Coordinate> vertices = new ArrayList<>();
+  private Envelope envelope;
+
+  /** Set once {@link #buildIndex()} has been called, after which envelopes are used to cull. */
+  private boolean indexed;
+
+  /** Index of edge numbers by edge envelope, only built for boundaries with many edges. */
+  private @Nullable STRtree edgeIndex;
 
   // Only used during construction
   private boolean isHole;
@@ -46,6 +61,32 @@ public Area getBounds() {
     return new Area(area);
   }
 
+  /**
+   * @return the envelope of the boundary.
+   */
+  public Envelope getEnvelope() {
+    return envelope;
+  }
+
+  /**
+   * Builds the spatial index used by {@link #getFacingSegments(GeometryFactory, Coordinate,
+   * boolean, PreparedGeometry)}. Must only be called once the boundary has been closed.
+   */
+  void buildIndex() {
+    indexed = true;
+    final int edgeCount = vertices.size() - 1;
+    if (edgeCount < MIN_INDEXED_EDGES) {
+      return;
+    }
+
+    final var index = new STRtree();
+    for (int i = 0; i < edgeCount; ++i) {
+      index.insert(new Envelope(vertices.get(i), vertices.get(i + 1)), i);
+    }
+    index.build();
+    edgeIndex = index;
+  }
+
   /**
    * @return true if this object does not have any edges.
    */
@@ -66,20 +107,39 @@ public List<LineString> getFacingSegments(
       boolean faceAway,
       PreparedGeometry vision) {
     final var requiredOrientation = faceAway ? Orientation.CLOCKWISE : Orientation.COUNTERCLOCKWISE;
+    final var visionEnvelope = vision.getGeometry().getEnvelopeInternal();
+    if (indexed && !envelope.intersects(visionEnvelope)) {
+      return Collections.emptyList();
+    }
+
+    // Only edges whose envelope touches the vision can intersect it, so any others are skipped.
+    final var candidateEdges = new BitSet(vertices.size());
+    if (edgeIndex == null) {
+      candidateEdges.set(0, Math.max(0, vertices.size() - 1));
+    } else {
+      for (Object edge : edgeIndex.query(visionEnvelope)) {
+        candidateEdges.set((Integer) edge);
+      }
+    }
+
     List<LineString> segments = new ArrayList<>();
     List<Coordinate> currentSegmentPoints = new ArrayList<>();
 
-    Coordinate current = null;
-    for (Coordinate coordinate : vertices) {
+    int previousEdge = -1;
+    for (int edge = candidateEdges.nextSetBit(0);
+        edge >= 0;
+        edge = candidateEdges.nextSetBit(edge + 1)) {
       assert currentSegmentPoints.size() == 0 || currentSegmentPoints.size() >= 2;
 
-      final var previous = current;
-      current = coordinate;
-      if (previous == null) {
-        continue;
+      if (edge != previousEdge + 1 && !currentSegmentPoints.isEmpty()) {
+        // The skipped edges are not included, so the segment is broken.
+        segments.add(
+            geometryFactory.createLineString(currentSegmentPoints.toArray(Coordinate[]::new)));
+        currentSegmentPoints.clear();
       }
+      previousEdge = edge;
 
-      final var faceLineSegment = new LineSegment(previous, coordinate);
+      final var faceLineSegment = new LineSegment(vertices.get(edge), vertices.get(edge + 1));
       final var orientation = faceLineSegment.orientationIndex(origin);
       final var shouldIncludeFace =
           (orientation == requiredOrientation)
@@ -148,6 +208,11 @@ public void close() {
 
     isHole = vertices.size() >= 4 && Orientation.isCCW(vertices.toArray(Coordinate[]::new));
 
+    envelope = new Envelope();
+    for (Coordinate vertex : vertices) {
+      envelope.expandToInclude(vertex);
+    }
+
     // Don't need this anymore
     path = null;
     // System.out.println("AreaMeta.skippedPoints: " + skippedPoints + " h:" + isHole + " f:" +
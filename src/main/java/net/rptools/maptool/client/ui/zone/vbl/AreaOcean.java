@@ -16,15 +16,18 @@
 
 import java.awt.geom.Area;
 import java.awt.geom.Point2D;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import javax.annotation.Nullable;
 import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.index.strtree.STRtree;
 
 /**
  * Represents a hole in the topology.
@@ -33,11 +36,19 @@
  * island.
  */
 public class AreaOcean implements AreaContainer {
+  /** Oceans with fewer islands than this are cheaper to scan than to query through an index. */
+  private static final int MIN_INDEXED_ISLANDS = 8;
 
   private AreaMeta meta;
   private AreaIsland parentIsland = null;
   private Set<AreaIsland> islandSet = new HashSet<AreaIsland>();
 
+  /** Set once {@link #buildIndex()} has been called, after which envelopes are used to cull. */
+  private boolean indexed;
+
+  /** Index of the islands by envelope, only built for oceans with many islands. */
+  private @Nullable STRtree islandIndex;
+
   /**
    * Creates a new ocean with a given boundary.
    *
@@ -77,7 +88,8 @@ public List<LineString> getVisionBlockingBoundarySegments(
     }
 
     // If the point is in an island, then let the island figure it out
-    for (AreaIsland island : islandSet) {
+    final var pointEnvelope = new Envelope(point.getX(), point.getX(), point.getY(), point.getY());
+    for (AreaIsland island : getIslands(pointEnvelope)) {
       AreaContainer ocean = island.getDeepestContainerAt(point);
       if (ocean != null) {
         return ocean;
@@ -91,12 +103,56 @@ public Set<AreaIsland> getIslands() {
     return new HashSet<AreaIsland>(islandSet);
   }
 
+  /**
+   * Returns the islands whose envelope intersects the given envelope. Before the index is built
+   * this is every island.
+   *
+   * @param envelope the envelope to look for islands in.
+   * @return the islands that may intersect the envelope.
+   */
+  @SuppressWarnings("unchecked")
+  public List<AreaIsland> getIslands(Envelope envelope) {
+    if (islandIndex != null) {
+      return (List<AreaIsland>) islandIndex.query(envelope);
+    }
+    List<AreaIsland> islands = new ArrayList<>(islandSet.size());
+    for (AreaIsland island : islandSet) {
+      if (!indexed || island.getEnvelope().intersects(envelope)) {
+        islands.add(island);
+      }
+    }
+    return islands;
+  }
+
   public void addIsland(AreaIsland island) {
     islandSet.add(island);
   }
 
+  /** Builds the spatial indexes for this ocean's boundary and for its islands. */
+  void buildIndex() {
+    if (meta != null) {
+      meta.buildIndex();
+    }
+    indexed = true;
+    if (islandSet.size() < MIN_INDEXED_ISLANDS) {
+      return;
+    }
+
+    final var index = new STRtree();
+    for (AreaIsland island : islandSet) {
+      index.insert(island.getEnvelope(), island);
+    }
+    index.build();
+    islandIndex = index;
+  }
+
   @Override
   public Area getBounds() {
     return meta != null ? meta.getBounds() : null;
   }
+
+  @Override
+  public @Nullable Envelope getEnvelope() {
+    return meta != null ? meta.getEnvelope() : null;
+  }
 }
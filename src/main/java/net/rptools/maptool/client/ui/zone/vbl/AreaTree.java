@@ -18,10 +18,13 @@
 import java.awt.geom.PathIterator;
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
+import javax.annotation.Nullable;
 import net.rptools.maptool.util.GraphicsUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.locationtech.jts.index.strtree.STRtree;
 
 /** Class digesting a VBL area into an AreaOcean. */
 public class AreaTree {
@@ -37,7 +40,18 @@ public class AreaTree {
    * @param area the area to digest.
    */
   public AreaTree(Area area) {
-    digest(area);
+    this(area, true);
+  }
+
+  /**
+   * Digest the area and store it in theOcean.
+   *
+   * @param area the area to digest.
+   * @param indexed if {@code true} spatial indexes of the edges and islands are built so that
+   *     vision and containment queries only look at nearby topology.
+   */
+  AreaTree(Area area, boolean indexed) {
+    digest(area, indexed);
   }
 
   /**
@@ -54,7 +68,7 @@ public Area getArea() {
     return theArea;
   }
 
-  private void digest(Area area) {
+  private void digest(Area area, boolean indexed) {
     if (area == null) {
       return;
     }
@@ -95,8 +109,9 @@ private void digest(Area area) {
     // Start by putting each ocean into the containing island
     // Every ocean should have a containing island. There is only one ocean that doesn't
     // have an explicit island and that's the global scope ocean container
+    final var islandIndex = indexed ? indexContainers(islandList) : null;
     for (AreaOcean ocean : oceanList) {
-      AreaIsland island = findSmallestContainer(ocean, islandList);
+      AreaIsland island = findSmallestContainer(ocean, islandList, islandIndex);
       if (island == null) {
         log.warn("Weird, I couldn't find an island for an ocean.  Bad/overlapping VBL?");
         continue;
@@ -106,8 +121,9 @@ private void digest(Area area) {
     }
     // Now put each island into the containing ocean
     List<AreaIsland> globalIslandList = new ArrayList<AreaIsland>();
+    final var oceanIndex = indexed ? indexContainers(oceanList) : null;
     for (AreaIsland island : islandList) {
-      AreaOcean ocean = findSmallestContainer(island, oceanList);
+      AreaOcean ocean = findSmallestContainer(island, oceanList, oceanIndex);
       if (ocean == null) {
         globalIslandList.add(island);
         continue;
@@ -122,12 +138,45 @@ private void digest(Area area) {
       theOcean.addIsland(island);
       island.setParentOcean(theOcean);
     }
+
+    if (indexed) {
+      theOcean.buildIndex();
+      oceanList.forEach(AreaOcean::buildIndex);
+      islandList.forEach(AreaIsland::buildIndex);
+    }
   }
 
-  private <T extends AreaContainer> T findSmallestContainer(AreaContainer item, List<T> list) {
+  /**
+   * Builds an index of the list positions of the containers by envelope, so that finding the
+   * containers of an item only needs to check the containers around it.
+   */
+  private STRtree indexContainers(List<? extends AreaContainer> list) {
+    final var index = new STRtree();
+    for (int i = 0; i < list.size(); ++i) {
+      index.insert(list.get(i).getEnvelope(), i);
+    }
+    index.build();
+    return index;
+  }
+
+  private <T extends AreaContainer> T findSmallestContainer(
+      AreaContainer item, List<T> list, @Nullable STRtree index) {
+    final var itemBounds = item.getBounds();
+
+    // Visit the candidates in list order so that ties are resolved as they would be by a scan.
+    final var candidates = new BitSet(list.size());
+    if (index == null) {
+      candidates.set(0, list.size());
+    } else {
+      for (Object candidate : index.query(item.getEnvelope())) {
+        candidates.set((Integer) candidate);
+      }
+    }
+
     T smallest = null;
-    for (T container : list) {
-      if (!GraphicsUtil.contains(container.getBounds(), item.getBounds())) {
+    for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+      T container = list.get(i);
+      if (!GraphicsUtil.contains(container.getBounds(), itemBounds)) {
         continue;
       }
       smallest = getSmallest(smallest, container);
@@ -0,0 +1,384 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.zone.vbl;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * Traces the outlines of the selected pixels of an image, producing one outer ring per 4-connected
+ * group of pixels together with the rings of the holes inside it.
+ *
+ * <p>The outlines follow the pixel edges (a marching squares walk over the pixel corners) and only
+ * the corners of each outline are kept, so a solid rectangle of any size becomes four points. Where
+ * two selected pixels only touch diagonally they are kept apart, which matches the column
+ * rectangles that were previously unioned to build token topology.
+ *
+ * <p>Coordinates are in pixels with the origin at the top left of the image. Outer rings run
+ * clockwise on screen (i.e. with y pointing down) and holes run anti-clockwise.
+ *
+ * <p>Tracing stops early if the calling thread is interrupted. Nothing is traced in that case and
+ * the interrupt status is left set for the caller to see.
+ */
+class PixelContourTracer {
+
+  /** A traced outline and the holes inside it, as {@code x0, y0, x1, y1, ...} without closing. */
+  record Contour(int[] shell, List<int[]> holes) {}
+
+  private static final int RIGHT = 1;
+  private static final int DOWN = 2;
+  private static final int LEFT = 4;
+  private static final int UP = 8;
+
+  private final int width;
+  private final int height;
+  private final boolean[] mask;
+  private final boolean parallel;
+
+  /** The thread that asked for the trace, which is checked for interrupts. */
+  private final Thread caller = Thread.currentThread();
+
+  /** The edges leaving each pixel corner, as a combination of the direction bits. */
+  private byte[] edges;
+
+  private PixelContourTracer(int width, int height, boolean[] mask, boolean parallel) {
+    this.width = width;
+    this.height = height;
+    this.mask = mask;
+    this.parallel = parallel;
+  }
+
+  /**
+   * Traces the pixels of the image whose ARGB value is accepted by the filter.
+   *
+   * @param image the image to trace.
+   * @param pixelFilter decides which (non-premultiplied) ARGB pixel values are traced.
+   * @param parallel if {@code true} the pixels and corners are classified in parallel row bands.
+   * @return the traced contours, or an empty list if the calling thread was interrupted.
+   */
+  static List<Contour> trace(BufferedImage image, IntPredicate pixelFilter, boolean parallel) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    boolean[] mask = new boolean[width * height];
+    Thread caller = Thread.currentThread();
+    rows(height, parallel)
+        .forEach(
+            y -> {
+              // Once interrupted the rest of the rows are skipped, as nothing will be traced.
+              if (!caller.isInterrupted()) {
+                classifyRow(image, pixelFilter, y, mask);
+              }
+            });
+    if (caller.isInterrupted()) {
+      return List.of();
+    }
+    return trace(width, height, mask, parallel);
+  }
+
+  /**
+   * Traces the selected pixels of a mask.
+   *
+   * @param width the width of the mask.
+   * @param height the height of the mask.
+   * @param mask the selected pixels, in row major order.
+   * @param parallel if {@code true} the corners are classified in parallel row bands.
+   * @return the traced contours, or an empty list if the calling thread was interrupted.
+   */
+  static List<Contour> trace(int width, int height, boolean[] mask, boolean parallel) {
+    return new PixelContourTracer(width, height, mask, parallel).trace();
+  }
+
+  private static IntStream rows(int count, boolean parallel) {
+    IntStream rows = IntStream.range(0, count);
+    return parallel ? rows.parallel() : rows;
+  }
+
+  private static void classifyRow(
+      BufferedImage image, IntPredicate pixelFilter, int y, boolean[] mask) {
+    int width = image.getWidth();
+    int offset = y * width;
+    int[] data = directData(image);
+    if (data != null) {
+      // The raster data is already packed ARGB (or RGB), so read it in place.
+      WritableRaster raster = image.getRaster();
+      var sampleModel = (SinglePixelPackedSampleModel) raster.getSampleModel();
+      int dataOffset =
+          ((DataBufferInt) raster.getDataBuffer()).getOffset()
+              + sampleModel.getOffset(
+                  -raster.getSampleModelTranslateX(), y - raster.getSampleModelTranslateY());
+      int alpha = image.getType() == BufferedImage.TYPE_INT_RGB ? 0xFF000000 : 0;
+      for (int x = 0; x < width; x++) {
+        mask[offset + x] = pixelFilter.test(data[dataOffset + x] | alpha);
+      }
+    } else {
+      int[] row = image.getRGB(0, y, width, 1, null, 0, width);
+      for (int x = 0; x < width; x++) {
+        mask[offset + x] = pixelFilter.test(row[x]);
+      }
+    }
+  }
+
+  /**
+   * Returns the backing array of the image if its pixels are stored one non-premultiplied ARGB (or
+   * RGB) int per pixel, otherwise {@code null}.
+   */
+  private static int[] directData(BufferedImage image) {
+    int type = image.getType();
+    if (type != BufferedImage.TYPE_INT_ARGB && type != BufferedImage.TYPE_INT_RGB) {
+      return null;
+    }
+    WritableRaster raster = image.getRaster();
+    if (!(raster.getDataBuffer() instanceof DataBufferInt dataBuffer)
+        || !(raster.getSampleModel() instanceof SinglePixelPackedSampleModel sampleModel)
+        || sampleModel.getScanlineStride() < image.getWidth()) {
+      return null;
+    }
+    return dataBuffer.getData();
+  }
+
+  private boolean isSet(int x, int y) {
+    return x >= 0 && y >= 0 && x < width && y < height && mask[y * width + x];
+  }
+
+  private List<Contour> trace() {
+    edges = new byte[(width + 1) * (height + 1)];
+    rows(height + 1, parallel)
+        .forEach(
+            y -> {
+              if (!caller.isInterrupted()) {
+                classifyCorners(y);
+              }
+            });
+    if (caller.isInterrupted()) {
+      return List.of();
+    }
+
+    byte[] remaining = edges.clone();
+    List<Ring> shells = new ArrayList<>();
+    List<Ring> holes = new ArrayList<>();
+    for (int corner = 0; corner < remaining.length; corner++) {
+      if (corner % (width + 1) == 0 && caller.isInterrupted()) {
+        return List.of();
+      }
+      while (remaining[corner] != 0) {
+        Ring ring = traceRing(corner, Integer.lowestOneBit(remaining[corner]), remaining);
+        (ring.doubleArea > 0 ? shells : holes).add(ring);
+      }
+    }
+
+    List<List<int[]>> shellHoles = new ArrayList<>(shells.size());
+    for (int i = 0; i < shells.size(); i++) {
+      shellHoles.add(new ArrayList<>());
+    }
+    for (Ring hole : holes) {
+      if (caller.isInterrupted()) {
+        return List.of();
+      }
+      int shell = findShell(shells, hole.insideX + 0.5, hole.insideY + 0.5);
+      if (shell >= 0) {
+        shellHoles.get(shell).add(hole.xy);
+      }
+    }
+
+    List<Contour> contours = new ArrayList<>(shells.size());
+    for (int i = 0; i < shells.size(); i++) {
+      contours.add(new Contour(shells.get(i).xy, shellHoles.get(i)));
+    }
+    return contours;
+  }
+
+  /**
+   * Works out which pixel edges leave the corners on row {@code y}. Edges run with the selected
+   * pixel on their right (on screen), so the edges at a corner only depend on the four pixels
+   * around it.
+   */
+  private void classifyCorners(int y) {
+    int rowStart = y * (width + 1);
+    for (int x = 0; x <= width; x++) {
+      boolean topLeft = isSet(x - 1, y - 1);
+      boolean topRight = isSet(x, y - 1);
+      boolean bottomLeft = isSet(x - 1, y);
+      boolean bottomRight = isSet(x, y);
+
+      int bits = 0;
+      if (bottomRight && !topRight) {
+        bits |= RIGHT; // Top edge of the bottom right pixel.
+      }
+      if (bottomLeft && !bottomRight) {
+        bits |= DOWN; // Right edge of the bottom left pixel.
+      }
+      if (topLeft && !bottomLeft) {
+        bits |= LEFT; // Bottom edge of the top left pixel.
+      }
+      if (topRight && !topLeft) {
+        bits |= UP; // Left edge of the top right pixel.
+      }
+      edges[rowStart + x] = (byte) bits;
+    }
+  }
+
+  /**
+   * Walks the edges from the starting corner until the ring closes.
+   *
+   * <p>A corner with two outgoing edges is a saddle, where two selected pixels touch diagonally.
+   * Turning right at a saddle keeps following the pixel we arrived along, so diagonal neighbours
+   * end up in separate rings.
+   */
+  private Ring traceRing(int start, int startDirection, byte[] remaining) {
+    int[] xy = new int[16];
+    int points = 0;
+
+    int corner = start;
+    int direction = startDirection;
+    remaining[corner] &= (byte) ~direction;
+    while (true) {
+      corner = step(corner, direction);
+      int outgoing = edges[corner];
+      int next = Integer.bitCount(outgoing) == 2 ? turnRight(direction) : outgoing;
+      if (corner == start && next == startDirection) {
+        if (direction != startDirection) {
+          xy = addPoint(xy, points++, corner);
+        }
+        break;
+      }
+      remaining[corner] &= (byte) ~next;
+      if (next != direction) {
+        xy = addPoint(xy, points++, corner);
+      }
+      direction = next;
+    }
+
+    int startX = start % (width + 1);
+    int startY = start / (width + 1);
+    // The pixel on the right of the first edge is inside the ring's pixel group.
+    int insideX =
+        switch (startDirection) {
+          case DOWN, LEFT -> startX - 1;
+          default -> startX;
+        };
+    int insideY =
+        switch (startDirection) {
+          case LEFT, UP -> startY - 1;
+          default -> startY;
+        };
+    return new Ring(Arrays.copyOf(xy, points * 2), insideX, insideY);
+  }
+
+  private int[] addPoint(int[] xy, int index, int corner) {
+    if (xy.length < index * 2 + 2) {
+      xy = Arrays.copyOf(xy, xy.length * 2);
+    }
+    xy[index * 2] = corner % (width + 1);
+    xy[index * 2 + 1] = corner / (width + 1);
+    return xy;
+  }
+
+  private int step(int corner, int direction) {
+    return switch (direction) {
+      case RIGHT -> corner + 1;
+      case DOWN -> corner + width + 1;
+      case LEFT -> corner - 1;
+      default -> corner - width - 1;
+    };
+  }
+
+  private static int turnRight(int direction) {
+    return ((direction << 1) & 0xF) | (direction >>> 3);
+  }
+
+  /**
+   * Returns the index of the smallest shell that contains the point, or -1 if there is none. The
+   * smallest containing shell is the outline of the pixel group the point belongs to, the larger
+   * ones surround that group.
+   */
+  private static int findShell(List<Ring> shells, double x, double y) {
+    int best = -1;
+    long bestArea = Long.MAX_VALUE;
+    for (int i = 0; i < shells.size(); i++) {
+      Ring shell = shells.get(i);
+      if (shell.doubleArea < bestArea && shell.contains(x, y)) {
+        best = i;
+        bestArea = shell.doubleArea;
+      }
+    }
+    return best;
+  }
+
+  /** A traced ring together with a pixel that lies on its inner side. */
+  private static final class Ring {
+    private final int[] xy;
+    private final int insideX;
+    private final int insideY;
+    private final long doubleArea;
+    private final int minX;
+    private final int minY;
+    private final int maxX;
+    private final int maxY;
+
+    private Ring(int[] xy, int insideX, int insideY) {
+      this.xy = xy;
+      this.insideX = insideX;
+      this.insideY = insideY;
+
+      long area = 0;
+      int minX = Integer.MAX_VALUE;
+      int minY = Integer.MAX_VALUE;
+      int maxX = Integer.MIN_VALUE;
+      int maxY = Integer.MIN_VALUE;
+      for (int i = 0; i < xy.length; i += 2) {
+        int x = xy[i];
+        int y = xy[i + 1];
+        int nextX = xy[(i + 2) % xy.length];
+        int nextY = xy[(i + 3) % xy.length];
+        area += (long) x * nextY - (long) nextX * y;
+        minX = Math.min(minX, x);
+        minY = Math.min(minY, y);
+        maxX = Math.max(maxX, x);
+        maxY = Math.max(maxY, y);
+      }
+      this.doubleArea = area;
+      this.minX = minX;
+      this.minY = minY;
+      this.maxX = maxX;
+      this.maxY = maxY;
+    }
+
+    /** Even-odd point in ring test. The point must not lie on a pixel edge. */
+    private boolean contains(double x, double y) {
+      if (x < minX || x > maxX || y < minY || y > maxY) {
+        return false;
+      }
+      boolean inside = false;
+      for (int i = 0; i < xy.length; i += 2) {
+        int x1 = xy[i];
+        int y1 = xy[i + 1];
+        int x2 = xy[(i + 2) % xy.length];
+        int y2 = xy[(i + 3) % xy.length];
+        // Only vertical edges can be crossed by a horizontal ray.
+        if (x1 == x2 && x1 > x && (y1 > y) != (y2 > y)) {
+          inside = !inside;
+        }
+      }
+      return inside;
+    }
+  }
+}
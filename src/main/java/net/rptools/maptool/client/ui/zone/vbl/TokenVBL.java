@@ -39,12 +39,11 @@
 import org.locationtech.jts.awt.ShapeWriter;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Geometry;
-import org.locationtech.jts.geom.GeometryCollection;
 import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LinearRing;
 import org.locationtech.jts.simplify.DouglasPeuckerSimplifier;
 import org.locationtech.jts.simplify.TopologyPreservingSimplifier;
 import org.locationtech.jts.simplify.VWSimplifier;
-import org.locationtech.jts.util.GeometricShapeFactory;
 
 /**
  * A utility class that creates and returns an Area based on image pixels. A few convenience methods
@@ -57,6 +56,9 @@ public class TokenVBL {
   private static final Logger log = LogManager.getLogger();
   private static int sliceSize = 100;
 
+  /** Images with at least this many pixels are traced using parallel row bands. */
+  private static final int PARALLEL_TRACE_PIXELS = 512 * 512;
+
   /**
    * A passed token will have it's image asset rendered into an Area based on pixels that have an
    * Alpha transparency level greater than or equal to the alphaSensitivity parameter.
@@ -78,11 +80,19 @@ public static Area createOptimizedTopologyArea(
       Color ignoreColor,
       int distanceTolerance,
       String method) {
-    final Area topologyArea =
-        createTopologyAreaFromToken(token, alphaSensitivity, inverseTopology, ignoreColor);
     final JTS_SimplifyMethodType jtsMethod = JTS_SimplifyMethodType.fromString(method);
+    BufferedImage image = ImageManager.getImageAndWait(token.getImageAssetId());
 
-    return simplifyArea(topologyArea, distanceTolerance, jtsMethod);
+    // Simplify the traced polygons directly rather than reading them back from an Area.
+    List<Geometry> geometryList =
+        createTopologyGeometry(image, alphaSensitivity, inverseTopology, ignoreColor);
+    if (geometryList.isEmpty()) {
+      return new Area();
+    }
+    Geometry topologyGeometry = new GeometryFactory().buildGeometry(geometryList);
+    return new Area(
+        new ShapeWriter()
+            .toShape(simplifyGeometry(topologyGeometry, distanceTolerance, jtsMethod)));
   }
 
   public static Area createTopologyAreaFromToken(
@@ -107,10 +117,10 @@ private static Area createAreaFromGeometries(List<Geometry> geometryList) {
       return new Area();
     } else {
       Stopwatch stopwatch = Stopwatch.createStarted();
-      GeometryCollection geometryCollection =
-          (GeometryCollection) new GeometryFactory().buildGeometry(geometryList);
+      // A single polygon is not built as a collection.
+      Geometry geometry = new GeometryFactory().buildGeometry(geometryList);
 
-      final Area area = new Area(new ShapeWriter().toShape(geometryCollection));
+      final Area area = new Area(new ShapeWriter().toShape(geometry));
       log.debug("Time to complete convert to Area: {}", stopwatch.elapsed(TimeUnit.MILLISECONDS));
       return area;
     }
@@ -142,10 +152,27 @@ public static Area simplifyArea(
       return topologyArea;
     }
 
-    ShapeWriter sw = new ShapeWriter();
+    Geometry simplifiedGeometry =
+        simplifyGeometry(topologyGeometry, distanceTolerance, simplifyMethod);
+    return new Area(new ShapeWriter().toShape(simplifiedGeometry));
+  }
+
+  /**
+   * Simplifies topology geometry, keeping every vertex within distanceTolerance of the original
+   * outline.
+   *
+   * @param topologyGeometry the geometry to simplify.
+   * @param distanceTolerance JTS distance tolerance.
+   * @param simplifyMethod JTS method to use for the simplification.
+   * @return the simplified geometry.
+   */
+  public static Geometry simplifyGeometry(
+      Geometry topologyGeometry, double distanceTolerance, JTS_SimplifyMethodType simplifyMethod) {
     Geometry simplifiedGeometry;
 
     switch (simplifyMethod) {
+      case NONE:
+        return topologyGeometry;
       case DOUGLAS_PEUCKER_SIMPLIFIER:
         DouglasPeuckerSimplifier dps = new DouglasPeuckerSimplifier(topologyGeometry);
         dps.setDistanceTolerance(distanceTolerance);
@@ -167,14 +194,12 @@ public static Area simplifyArea(
         throw new IllegalStateException("Unexpected value: " + simplifyMethod);
     }
 
-    final Area simplifiedArea = new Area(sw.toShape(simplifiedGeometry));
-
     if (!simplifiedGeometry.isValid()) {
       log.debug(
           "simplifiedGeometry is invalid! May cause issues. Check for self-intersecting polygons.");
     }
 
-    return simplifiedArea;
+    return simplifiedGeometry;
   }
 
   /**
@@ -320,10 +345,9 @@ public static Area getTopology_underToken(
   }
 
   /**
-   * Create a topology area from a bufferedImage and alphaSensitity. The area is created by
-   * combining topology rectangle where the alpha of the image is greater or equal to the
-   * sensitivity. Assumes all colors form the topology area, everything except transparent pixels
-   * with alpha >= alphaSensitivity
+   * Create a topology area from a bufferedImage and alphaSensitity. The area is created by tracing
+   * the outlines of the pixels whose color is within the tolerance of the pick color (or outside of
+   * it if inversePickColor is set), giving one polygon with holes per group of pixels.
    *
    * @param image the buffered image.
    * @param colorTolerance the alphaSensitivity.
@@ -338,59 +362,46 @@ private static List<Geometry> createTopologyGeometry(
       return Collections.emptyList();
     }
 
-    ArrayList<Geometry> geometryList = new ArrayList<>();
-    GeometricShapeFactory gsf = new GeometricShapeFactory();
-    gsf.setNumPoints(4);
-    gsf.setWidth(1);
-
-    int y1, y2;
-    boolean addArea = false;
-
-    for (int x = 0; x < image.getWidth(); x++) {
-      y1 = 99;
-      y2 = -1;
-      for (int y = 0; y < image.getHeight(); y++) {
-        if (Thread.interrupted()) {
-          log.info("Thread interrupted!");
-          return geometryList;
-        }
-
-        Color pixelColor = new Color(image.getRGB(x, y), true);
-
-        if (colorWithinTolerance(pickColor, pixelColor, colorTolerance, inversePickColor)) {
-          if (y1 == 99) {
-            y1 = y;
-            y2 = y;
-          }
-          if (y > (y2 + 1)) {
-            gsf.setHeight(y2 - y1);
-            gsf.setBase(new Coordinate(x, y1));
-            geometryList.add(gsf.createRectangle());
-            y1 = y;
-            y2 = y;
-          }
-          y2 = y;
-        }
-      }
+    final int pickRGB = pickColor.getRGB();
+    final boolean parallel = (long) image.getWidth() * image.getHeight() >= PARALLEL_TRACE_PIXELS;
+    List<PixelContourTracer.Contour> contours =
+        PixelContourTracer.trace(
+            image,
+            rgb -> colorWithinTolerance(pickRGB, rgb, colorTolerance, inversePickColor),
+            parallel);
+    // The tracer gives up as soon as it sees the interrupt, so check it whatever it returned.
+    if (Thread.interrupted()) {
+      log.info("Thread interrupted!");
+      return Collections.emptyList();
+    }
 
-      if ((y2 - y1) >= 0) {
-        gsf.setHeight(y2 - y1 + 1);
-        gsf.setBase(new Coordinate(x, y1));
-        geometryList.add(gsf.createRectangle());
-      }
+    final GeometryFactory geometryFactory = new GeometryFactory();
+    List<Geometry> geometryList = new ArrayList<>(contours.size());
+    for (PixelContourTracer.Contour contour : contours) {
+      LinearRing shell = toLinearRing(geometryFactory, contour.shell());
+      LinearRing[] holes =
+          contour.holes().stream()
+              .map(hole -> toLinearRing(geometryFactory, hole))
+              .toArray(LinearRing[]::new);
+      geometryList.add(geometryFactory.createPolygon(shell, holes));
     }
 
     return geometryList;
   }
 
-  private static boolean colorWithinTolerance(
-      Color pick, Color pixel, int tolerance, boolean inversePick) {
+  private static LinearRing toLinearRing(GeometryFactory geometryFactory, int[] xy) {
+    Coordinate[] coordinates = new Coordinate[xy.length / 2 + 1];
+    for (int i = 0; i < xy.length; i += 2) {
+      coordinates[i / 2] = new Coordinate(xy[i], xy[i + 1]);
+    }
+    coordinates[coordinates.length - 1] = coordinates[0].copy();
+    return geometryFactory.createLinearRing(coordinates);
+  }
 
-    double distance = distanceSquared(pick, pixel);
+  private static boolean colorWithinTolerance(
+      int pickRGB, int pixelRGB, int tolerance, boolean inversePick) {
 
-    if (distance > tolerance) {
-      log.trace("Color Distance: {}", distance);
-    }
+    double distance = distanceSquared(pickRGB, pixelRGB);
 
     if (distance <= tolerance) {
       return !inversePick;
@@ -399,17 +410,19 @@ private static boolean colorWithinTolerance(
     }
   }
 
-  private static double distanceSquared(Color a, Color b) {
-    int deltaR = a.getRed() - b.getRed();
-    int deltaG = a.getGreen() - b.getGreen();
-    int deltaB = a.getBlue() - b.getBlue();
-    int deltaAlpha = a.getAlpha() - b.getAlpha();
+  private static double distanceSquared(int a, int b) {
+    int alphaA = a >>> 24;
+    int alphaB = b >>> 24;
+    int deltaR = ((a >> 16) & 0xFF) - ((b >> 16) & 0xFF);
+    int deltaG = ((a >> 8) & 0xFF) - ((b >> 8) & 0xFF);
+    int deltaB = (a & 0xFF) - (b & 0xFF);
+    int deltaAlpha = alphaA - alphaB;
 
     double rgbDistanceSquared = (deltaR * deltaR + deltaG * deltaG + deltaB * deltaB) / 3;
 
     double result =
         deltaAlpha * deltaAlpha / 2.0
-            + rgbDistanceSquared * a.getAlpha() * b.getAlpha() / 65025; // 255^2 = 65025
+            + rgbDistanceSquared * alphaA * alphaB / 65025; // 255^2 = 65025
 
     return Math.sqrt(result);
   }
@@ -42,6 +42,9 @@ public class VisibilityInspector extends JPanel {
   private static final Logger log = LogManager.getLogger(VisibilityInspector.class);
   private static final double VISION_RANGE_CHANGE_RATE = 15.;
 
+  /** Wall, hill and pit topology for the inspector to display. */
+  record Topology(Area wallVbl, Area hillVbl, Area pitVbl) {}
+
   private AreaTree wallVblTree, hillVblTree, pitVblTree;
   private AffineTransform affineTransform;
   private Point2D point;
@@ -82,6 +85,10 @@ public void mouseWheelMoved(MouseWheelEvent e) {
         });
   }
 
+  void setTopology(Topology topology) {
+    setTopology(topology.wallVbl(), topology.hillVbl(), topology.pitVbl());
+  }
+
   public void setTopology(Area wallVbl, Area hillVbl, Area pitVbl) {
     wallVbl = new Area(wallVbl);
     hillVbl = new Area(hillVbl);
@@ -186,10 +193,10 @@ public static void main(String[] args) {
     f.add(panel);
     f.setVisible(true);
 
-    SwingUtilities.invokeLater(() -> buildRepeatedSquaredTopology(panel));
+    SwingUtilities.invokeLater(() -> panel.setTopology(buildRepeatedSquaredTopology()));
   }
 
-  private static void buildRepeatedSquaredTopology(VisibilityInspector visibilityInspector) {
+  static Topology buildRepeatedSquaredTopology() {
     Area wallArea = new Area();
     Area hillArea = new Area();
     Area pitArea = new Area();
@@ -211,10 +218,10 @@ private static void buildRepeatedSquaredTopology(VisibilityInspector visibilityI
         }
       }
     }
-    visibilityInspector.setTopology(wallArea, hillArea, pitArea);
+    return new Topology(wallArea, hillArea, pitArea);
   }
 
-  private static void buildTripleIntersectionTopology(VisibilityInspector visibilityInspector) {
+  static Topology buildTripleIntersectionTopology() {
     Area wallArea = new Area();
     Area hillArea = new Area();
     Area pitArea = new Area();
@@ -225,10 +232,10 @@ private static void buildTripleIntersectionTopology(VisibilityInspector visibili
     hillArea.add(new Area(new Polygon(new int[] {250, 450, 450}, new int[] {450, 450, 250}, 3)));
     pitArea.add(new Area(new Polygon(new int[] {275, 325, 325}, new int[] {350, 150, 550}, 3)));
 
-    visibilityInspector.setTopology(wallArea, hillArea, pitArea);
+    return new Topology(wallArea, hillArea, pitArea);
   }
 
-  private static void buildSinglePillarTopology(VisibilityInspector visibilityInspector) {
+  static Topology buildSinglePillarTopology() {
     Area wallArea = new Area();
     Area hillArea = new Area();
     Area pitArea = new Area();
@@ -238,6 +245,34 @@ private static void buildSinglePillarTopology(VisibilityInspector visibilityInsp
     final var pillar = new Area(new Rectangle(300, 300, 50, 50));
     wallArea.add(pillar);
 
-    visibilityInspector.setTopology(wallArea, hillArea, pitArea);
+    return new Topology(wallArea, hillArea, pitArea);
+  }
+
+  static Topology buildRoundPillarsTopology() {
+    Area wallArea = new Area();
+    Area hillArea = new Area();
+    Area pitArea = new Area();
+    wallArea.add(GraphicsUtil.createLineSegmentEllipse(0, 0, 750, 750, 120));
+    wallArea.subtract(GraphicsUtil.createLineSegmentEllipse(50, 50, 700, 700, 120));
+    for (int x = 1; x < 7; ++x) {
+      for (int y = 1; y < 7; ++y) {
+        final var pillar =
+            GraphicsUtil.createLineSegmentEllipse(
+                100 * x, 100 * y, 100 * x + 40 + 5 * y, 100 * y + 40 + 5 * x, 24 + 4 * x);
+        // Hollow out some of the pillars so that they contain oceans of their own.
+        if ((x * y) % 3 == 0) {
+          pillar.subtract(
+              GraphicsUtil.createLineSegmentEllipse(
+                  100 * x + 10, 100 * y + 10, 100 * x + 30, 100 * y + 30, 16));
+        }
+
+        switch ((x + 2 * y) % 3) {
+          case 0 -> wallArea.add(pillar);
+          case 1 -> hillArea.add(pillar);
+          default -> pitArea.add(pillar);
+        }
+      }
+    }
+    return new Topology(wallArea, hillArea, pitArea);
   }
 }
@@ -19,6 +19,7 @@
 import java.util.List;
 import javax.annotation.Nullable;
 import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.prep.PreparedGeometry;
@@ -28,6 +29,7 @@ public final class VisionBlockingAccumulator {
   private final Point origin;
   private final Coordinate originCoordinate;
   private final PreparedGeometry vision;
+  private final Envelope visionEnvelope;
   private final List<LineString> visionBlockingSegments;
 
   public VisionBlockingAccumulator(
@@ -37,6 +39,8 @@ public VisionBlockingAccumulator(
     this.originCoordinate = new Coordinate(origin.getX(), origin.getY());
 
     this.vision = vision;
+    // Islands outside of this can't contribute any segments, so they need not be visited at all.
+    this.visionEnvelope = vision.getGeometry().getEnvelopeInternal();
 
     this.visionBlockingSegments = new ArrayList<>();
   }
@@ -97,7 +101,7 @@ public boolean addWallBlocking(AreaTree topology) {
       }
 
       // Check each contained island.
-      for (var containedIsland : ocean.getIslands()) {
+      for (var containedIsland : ocean.getIslands(visionEnvelope)) {
         // The front side of wall VBL blocks vision.
         addVisionBlockingSegments(containedIsland, true);
       }
@@ -143,7 +147,7 @@ public boolean addHillBlocking(AreaTree topology) {
         addIslandForHillBlocking(grandparentIsland, parentOcean);
       }
 
-      for (final var siblingIsland : parentOcean.getIslands()) {
+      for (final var siblingIsland : parentOcean.getIslands(visionEnvelope)) {
         if (siblingIsland == island) {
           // We don't want to block vision for the hill we're currently in.
           // TODO Ideally we could block the second occurence of the current island, but we need
@@ -155,7 +159,7 @@ public boolean addHillBlocking(AreaTree topology) {
       }
 
       for (final var childOcean : island.getOceans()) {
-        for (final var grandchildIsland : childOcean.getIslands()) {
+        for (final var grandchildIsland : childOcean.getIslands(visionEnvelope)) {
           addIslandForHillBlocking(grandchildIsland, null);
         }
       }
@@ -171,7 +175,7 @@ public boolean addHillBlocking(AreaTree topology) {
         addIslandForHillBlocking(parentIsland, null);
       }
       // Check each contained island.
-      for (var containedIsland : ocean.getIslands()) {
+      for (var containedIsland : ocean.getIslands(visionEnvelope)) {
         addIslandForHillBlocking(containedIsland, null);
       }
     }
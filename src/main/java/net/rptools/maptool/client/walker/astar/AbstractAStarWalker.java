@@ -190,7 +190,8 @@ protected List<CellPoint> calculatePath(CellPoint start, CellPoint goal) {
     // Note: zoneRenderer will be null if map is not visible to players.
     Area newVbl = new Area();
     Area newFowExposedArea = new Area();
-    final var zoneRenderer = MapTool.getFrame().getCurrentZoneRenderer();
+    final var frame = MapTool.getFrame();
+    final var zoneRenderer = frame == null ? null : frame.getCurrentZoneRenderer();
     if (zoneRenderer != null) {
       final var zoneView = zoneRenderer.getZoneView();
 
@@ -306,7 +307,8 @@ protected List<CellPoint> calculatePath(CellPoint start, CellPoint goal) {
         });
 
     // Timeout quicker for GM cause reasons
-    if (MapTool.getPlayer().isGM()) {
+    final var player = MapTool.getPlayer();
+    if (player != null && player.isGM()) {
       estimatedTimeoutNeeded = estimatedTimeoutNeeded / 2;
     }
 
@@ -638,11 +640,11 @@ private boolean vblBlocksMovement(CellPoint start, CellPoint goal) {
   }
 
   private boolean fowBlocksMovement(CellPoint start, CellPoint goal) {
-    if (MapTool.getPlayer().isEffectiveGM()) {
+    if (fowExposedAreaGeometry == null) {
       return false;
     }
 
-    if (fowExposedAreaGeometry == null) {
+    if (MapTool.getPlayer().isEffectiveGM()) {
       return false;
     }
 
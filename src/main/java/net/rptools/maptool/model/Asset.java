@@ -402,6 +402,22 @@ public static Asset createAssetDetectType(String name, byte[] data, File file)
     return factory.apply(name, data);
   }
 
+  /**
+   * Creates an Asset detecting the type, using an md5 sum that has already been calculated for the
+   * data, for example while it was read.
+   *
+   * @param name the name of the asset.
+   * @param data the data for the asset.
+   * @param key the md5 sum of the data.
+   * @return the newly created asset.
+   * @throws IOException if there is an error.
+   */
+  public static Asset createAssetDetectType(String name, byte[] data, MD5Key key)
+      throws IOException {
+    MediaType mediaType = getMediaType(name, data);
+    return createAsset(name, data, Type.fromMediaType(mediaType), key);
+  }
+
   /**
    * Creates a HTML {@code Asset}.
    *
@@ -437,6 +453,34 @@ public static Asset createAsset(String name, byte[] data, Type type) {
     return assetType.getFactory().apply(name, data);
   }
 
+  /**
+   * Creates a new {@code Asset} of the specified type, using an md5 sum that has already been
+   * calculated for the data.
+   *
+   * @param name The name of the {@code Asset}.
+   * @param data The data for the {@code Asset}.
+   * @param type The {@link Type} of the {@code Asset}.
+   * @param key the md5 sum of the data, if {@code null} it will be calculated.
+   * @return the new {@code Asset}.
+   */
+  public static Asset createAsset(String name, byte[] data, Type type, MD5Key key) {
+    Type assetType = type != null ? type : Type.DATA;
+    if (key == null) {
+      return assetType.getFactory().apply(name, data);
+    }
+    if (assetType == Type.INVALID) {
+      return createBrokenImageAsset(name, key);
+    }
+    // The factories of all the other types only differ by the type they pass on.
+    return new Asset(
+        key,
+        name,
+        data != null ? data : new byte[] {},
+        assetType,
+        assetType.getDefaultExtension(),
+        false);
+  }
+
   /**
    * Creates a new {@code Asset}.
    *
@@ -305,7 +305,7 @@ public void run() {
           }
           // System.out.println("Got " + id + " from " + repo);
           ref = FileUtil.getNameWithoutExtension(ref);
-          AssetManager.putAsset(Asset.createAssetDetectType(ref, data));
+          AssetManager.putAsset(Asset.createAssetDetectType(ref, data, sum));
 
           completeRequest(id);
           return;
@@ -14,7 +14,7 @@
  */
 package net.rptools.maptool.model;
 
-import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -27,7 +27,6 @@
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -64,9 +63,15 @@ public class AssetManager {
 
   private static final Logger log = LogManager.getLogger(AssetManager.class);
 
+  /**
+   * The most bytes of asset data to keep in memory for assets that can be loaded again from the
+   * persistent cache. Assets that are only in memory don't count towards it.
+   */
+  private static final long MAX_ASSET_BYTES_IN_MEMORY = Runtime.getRuntime().maxMemory() / 4;
+
   /** Assets are associated with the MD5 sum of their raw data */
-  private static final Map<MD5Key, Asset> assetMap =
-      Collections.synchronizedMap(new HashMap<MD5Key, Asset>());
+  private static final AssetStore assets =
+      new AssetStore(MAX_ASSET_BYTES_IN_MEMORY, AssetManager::getFromPersistentCache);
 
   /** Location of the cache on the filesystem */
   private static File cacheDir;
@@ -212,9 +217,7 @@ public static boolean hasAsset(Asset asset) {
    * @return true if the asset manager has the key
    */
   public static boolean hasAsset(MD5Key key) {
-    return assetMap.containsKey(key)
-        || assetIsInPersistentCache(key)
-        || assetHasLocalReference(key);
+    return assets.isInMemory(key) || assetIsInPersistentCache(key) || assetHasLocalReference(key);
   }
 
   /**
@@ -224,7 +227,7 @@ public static boolean hasAsset(MD5Key key) {
    * @return True if the asset is loaded, false otherwise
    */
   public static boolean hasAssetInMemory(MD5Key key) {
-    return assetMap.containsKey(key);
+    return assets.isInMemory(key);
   }
 
   /**
@@ -249,12 +252,8 @@ public static void putAsset(Asset asset) {
       }
     }
 
-    synchronized (assetMap) {
-      var oldAsset = assetMap.get(asset.getMD5Key());
-      if (oldAsset == null || oldAsset.getData() == null || oldAsset.getData().length == 0) {
-        assetMap.put(asset.getMD5Key(), asset);
-      }
-    }
+    // Until it has been written to the persistent cache the asset can't be dropped from memory.
+    assets.put(asset, usePersistentCache && assetIsInPersistentCache(asset));
 
     // Invalid images are represented by empty assets.
     // Don't persist those
@@ -327,13 +326,13 @@ public static Asset getAsset(MD5Key id) {
       log.error(I18N.getText("msg.error.errorResolvingCacheDir", id, e));
     }
 
-    Asset asset = assetMap.get(assetId);
-
-    if (asset == null && usePersistentCache && assetIsInPersistentCache(assetId)) {
-      // Guaranteed that asset is in the cache.
-      asset = getFromPersistentCache(assetId);
+    if (assetId == null) {
+      return null;
     }
 
+    // Loads it from the persistent cache if it has been dropped from memory.
+    Asset asset = assets.get(assetId);
+
     if (asset == null && assetHasLocalReference(assetId)) {
 
       File imageFile = getLocalReference(assetId);
@@ -342,9 +341,7 @@ public static Asset getAsset(MD5Key id) {
 
         try {
           String name = FileUtil.getNameWithoutExtension(imageFile);
-          byte[] data = FileUtils.readFileToByteArray(imageFile);
-
-          asset = Asset.createAssetDetectType(name, data);
+          asset = readAsset(name, imageFile, null);
 
           // Just to be sure the image didn't change
           if (!asset.getMD5Key().equals(assetId)) {
@@ -393,7 +390,7 @@ private static MD5Key sanitizeAssetId(MD5Key md5Key) throws IOException {
    */
   public static void removeAsset(MD5Key id) {
     if (!REQUIRED_ASSETS.contains(id)) {
-      assetMap.remove(id);
+      assets.remove(id);
     }
   }
 
@@ -441,8 +438,8 @@ public static Asset requestAssetFromServer(MD5Key id) {
   }
 
   /**
-   * Retrieve the asset from the persistent cache. If the asset is not in the cache, or loading from
-   * the cache failed then this function returns null.
+   * Retrieve the asset from the persistent cache. If the persistent cache isn't used, the asset is
+   * not in the cache, or loading from the cache failed then this function returns null.
    *
    * @param id MD5 of the requested asset
    * @return Asset from the cache
@@ -453,26 +450,19 @@ private static Asset getFromPersistentCache(MD5Key id) {
       return null;
     }
 
-    if (!assetIsInPersistentCache(id)) {
+    if (!usePersistentCache || !assetIsInPersistentCache(id)) {
       return null;
     }
 
     File assetFile = getAssetCacheFile(id);
 
     try {
-      byte[] data = FileUtils.readFileToByteArray(assetFile);
       Properties props = getAssetInfo(id);
 
       String name = props.getProperty(NAME);
       String type = props.getProperty(TYPE);
 
-      Asset asset;
-
-      if (type != null) {
-        asset = Asset.Type.valueOf(type).getFactory().apply(name, data);
-      } else {
-        asset = Asset.createAssetDetectType(props.getProperty(NAME), data);
-      }
+      Asset asset = readAsset(name, assetFile, type != null ? Asset.Type.valueOf(type) : null);
 
       if (!asset.getMD5Key().equals(id)) {
         log.error("MD5 for asset " + asset.getName() + " corrupted; purging corrupted file");
@@ -480,13 +470,6 @@ private static Asset getFromPersistentCache(MD5Key id) {
         return null;
       }
 
-      synchronized (assetMap) {
-        var oldAsset = assetMap.get(id);
-        if (oldAsset == null || oldAsset.getData() == null || oldAsset.getData().length == 0) {
-          assetMap.put(id, asset);
-        }
-      }
-
       return asset;
     } catch (IOException ioe) {
       log.error("Could not load asset from persistent cache", ioe);
@@ -502,8 +485,7 @@ private static Asset getFromPersistentCache(MD5Key id) {
    * @throws IOException in case of an I/O error
    */
   public static Asset createAsset(File file) throws IOException {
-    return Asset.createAssetDetectType(
-        FileUtil.getNameWithoutExtension(file), FileUtils.readFileToByteArray(file));
+    return readAsset(FileUtil.getNameWithoutExtension(file), file, null);
   }
 
   /**
@@ -523,20 +505,35 @@ public static Asset createAsset(URL url, Asset.Type assetType) throws IOExceptio
     try {
       FileUtils.copyURLToFile(url, newFile);
       if (!newFile.exists() || newFile.length() < 20) return null;
-      if (assetType != null) {
-        return Asset.createAsset(
-            FileUtil.getNameWithoutExtension(url),
-            FileUtils.readFileToByteArray(newFile),
-            assetType);
-      } else {
-        return Asset.createAssetDetectType(
-            FileUtil.getNameWithoutExtension(url), FileUtils.readFileToByteArray(newFile));
-      }
+      return readAsset(FileUtil.getNameWithoutExtension(url), newFile, assetType);
     } finally {
       newFile.delete();
     }
   }
 
+  /**
+   * Creates an asset from the contents of a file. The md5 sum is calculated as the file is read, so
+   * the data is only gone over once.
+   *
+   * @param name the name of the asset.
+   * @param file the file to read.
+   * @param type the type of the asset, or {@code null} to detect it from the data.
+   * @return the asset.
+   * @throws IOException in case of an I/O error
+   */
+  private static Asset readAsset(String name, File file, Asset.Type type) throws IOException {
+    var data = new ByteArrayOutputStream((int) Math.min(file.length(), Integer.MAX_VALUE - 8));
+    MD5Key id;
+    try (InputStream is = Files.newInputStream(file.toPath())) {
+      id = MD5Key.fromStream(is, data);
+    }
+    if (type != null) {
+      return Asset.createAsset(name, data.toByteArray(), type, id);
+    } else {
+      return Asset.createAssetDetectType(name, data.toByteArray(), id);
+    }
+  }
+
   /**
    * Return a set of properties associated with the asset.
    *
@@ -580,6 +577,9 @@ private static void putInPersistentCache(final Asset asset) {
 
               // Now that the data is in a file, we move it to its final resting place.
               operation.commit();
+
+              // It can be loaded again now, so it no longer has to be kept in memory.
+              assets.setReloadable(asset.getMD5Key());
             } catch (IOException ioe) {
               log.error("Could not persist asset while writing image data", ioe);
             } catch (NullPointerException npe) {
@@ -644,7 +644,7 @@ private static File getLocalReference(MD5Key id) {
    */
   public static void rememberLocalImageReference(File image) throws IOException {
 
-    MD5Key id = new MD5Key(new BufferedInputStream(new FileInputStream(image)));
+    MD5Key id = MD5Key.fromFile(image);
     File lnkFile = getAssetLinkFile(id);
 
     // See if we know about this one already
@@ -882,18 +882,23 @@ public static Map<MD5Key, Asset> findAllAssetsNotInRepositories(List<String> rep
     }
 
     /*
-     * The 'aggregate' now holds the sum total of all asset keys that are in repositories. Now we go through the 'assetMap' and copy over <K,V> pairs that are NOT in 'aggregate' to our 'missing'
+     * The 'aggregate' now holds the sum total of all asset keys that are in repositories. Now we go through the known assets and copy over <K,V> pairs that are NOT in 'aggregate' to our 'missing'
      * Map.
      *
      * Unfortunately, the repository is a Map<String, String> while the return value is going to be a Map<MD5Key, Asset>, which means each individual entry needs to be checked and references
      * copied. If both were the same data type, converting both to Set<String> would allow for an addAll() and removeAll() and be done with it!
      */
-    Map<MD5Key, Asset> missing =
-        new HashMap<MD5Key, Asset>(Math.min(assetMap.size(), aggregate.size()));
-
-    for (var entry : assetMap.entrySet()) {
-      if (aggregate.contains(entry.getKey()) == false) // Not in any repository so add it.
-      missing.put(entry.getKey(), entry.getValue());
+    Set<MD5Key> ids = assets.getIds();
+    Map<MD5Key, Asset> missing = new HashMap<MD5Key, Asset>(Math.min(ids.size(), aggregate.size()));
+
+    for (MD5Key id : ids) {
+      if (aggregate.contains(id) == false) { // Not in any repository so add it.
+        // Assets that are no longer in memory are loaded again.
+        Asset asset = assets.get(id);
+        if (asset != null) {
+          missing.put(id, asset);
+        }
+      }
     }
     return missing;
   }
@@ -0,0 +1,197 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import net.rptools.lib.MD5Key;
+
+/**
+ * Holds the {@link Asset}s in memory for {@link AssetManager}, within a budget of bytes.
+ *
+ * <p>Assets that can be loaded again, for example from the persistent asset cache, are kept in a
+ * cache weighed by the size of their data. When the cache goes over the budget the assets used
+ * least recently are dropped, and are loaded again the next time they are asked for. Assets that
+ * can't be loaded again are never dropped, until they are marked as reloadable.
+ *
+ * <p>All methods are thread safe.
+ */
+final class AssetStore {
+
+  /** The assets that can't be loaded again if they are dropped. */
+  private final Map<MD5Key, Asset> pinned = new ConcurrentHashMap<>();
+
+  /** The assets that can be loaded again, weighed by the size of their data. */
+  private final Cache<MD5Key, Asset> reloadable;
+
+  /** The ids of all the assets in the store, including those that have been dropped. */
+  private final Set<MD5Key> ids = ConcurrentHashMap.newKeySet();
+
+  /** Loads an asset that has been dropped, or returns {@code null} if it can't. */
+  private final Function<MD5Key, Asset> loader;
+
+  /**
+   * Creates a new store.
+   *
+   * @param maxBytes the most bytes of reloadable assets to keep in memory.
+   * @param loader loads a reloadable asset again, or returns {@code null} if it can't.
+   */
+  AssetStore(long maxBytes, Function<MD5Key, Asset> loader) {
+    this.loader = loader;
+    // A single segment so the whole budget is shared, as a map can be a good part of it.
+    reloadable =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .maximumWeight(maxBytes)
+            .<MD5Key, Asset>weigher((id, asset) -> sizeOf(asset))
+            .build();
+  }
+
+  /**
+   * Returns an asset, loading it again if it has been dropped from memory.
+   *
+   * @param id the id of the asset.
+   * @return the asset, or {@code null} if it isn't in the store and can't be loaded.
+   */
+  Asset get(MD5Key id) {
+    Asset asset = getIfPresent(id);
+    if (asset != null) {
+      return asset;
+    }
+
+    asset = loader.apply(id);
+    if (asset == null) {
+      return null;
+    }
+    synchronized (this) {
+      Asset current = getIfPresent(id);
+      if (current != null && sizeOf(current) > 0) {
+        return current;
+      }
+      reloadable.put(id, asset);
+      pinned.remove(id);
+      ids.add(id);
+      return asset;
+    }
+  }
+
+  /**
+   * Returns an asset if it is in memory.
+   *
+   * @param id the id of the asset.
+   * @return the asset, or {@code null} if it isn't in memory.
+   */
+  Asset getIfPresent(MD5Key id) {
+    Asset asset = pinned.get(id);
+    return asset != null ? asset : reloadable.getIfPresent(id);
+  }
+
+  /**
+   * Returns whether an asset is in memory.
+   *
+   * @param id the id of the asset.
+   * @return {@code true} if the asset is in memory.
+   */
+  boolean isInMemory(MD5Key id) {
+    return getIfPresent(id) != null;
+  }
+
+  /**
+   * Adds an asset, unless there already is one with data for the same id.
+   *
+   * @param asset the asset.
+   * @param canReload {@code true} if the asset can be loaded again if it is dropped.
+   */
+  synchronized void put(Asset asset, boolean canReload) {
+    MD5Key id = asset.getMD5Key();
+    Asset current = getIfPresent(id);
+    if (current != null && sizeOf(current) > 0) {
+      return;
+    }
+    if (canReload) {
+      reloadable.put(id, asset);
+      pinned.remove(id);
+    } else {
+      pinned.put(id, asset);
+      reloadable.invalidate(id);
+    }
+    ids.add(id);
+  }
+
+  /**
+   * Marks an asset as one that can be loaded again, so it can be dropped from memory.
+   *
+   * @param id the id of the asset.
+   */
+  synchronized void setReloadable(MD5Key id) {
+    Asset asset = pinned.get(id);
+    if (asset != null) {
+      // Put it in the cache first so that it can always be found.
+      reloadable.put(id, asset);
+      pinned.remove(id);
+    }
+  }
+
+  /**
+   * Removes an asset from the store.
+   *
+   * @param id the id of the asset.
+   */
+  synchronized void remove(MD5Key id) {
+    pinned.remove(id);
+    reloadable.invalidate(id);
+    ids.remove(id);
+  }
+
+  /**
+   * Returns the ids of all the assets in the store, including those that are not in memory.
+   *
+   * @return the ids of the assets.
+   */
+  Set<MD5Key> getIds() {
+    return Set.copyOf(ids);
+  }
+
+  /**
+   * Returns the number of bytes of asset data in memory.
+   *
+   * @return the number of bytes.
+   */
+  long getBytesInMemory() {
+    long bytes = 0;
+    for (Asset asset : pinned.values()) {
+      bytes += sizeOf(asset);
+    }
+    for (Asset asset : reloadable.asMap().values()) {
+      bytes += sizeOf(asset);
+    }
+    return bytes;
+  }
+
+  /**
+   * Returns the number of bytes of data an asset holds.
+   *
+   * @param asset the asset.
+   * @return the size of the data, or 0 if the asset has none.
+   */
+  private static int sizeOf(Asset asset) {
+    byte[] data = asset.getData();
+    return data != null ? data.length : 0;
+  }
+}
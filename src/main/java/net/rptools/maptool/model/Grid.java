@@ -15,6 +15,8 @@
 package net.rptools.maptool.model;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import java.awt.Dimension;
 import java.awt.Graphics2D;
 import java.awt.Point;
@@ -31,7 +33,6 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import javax.swing.Action;
 import javax.swing.KeyStroke;
@@ -73,7 +74,22 @@ public abstract class Grid implements Cloneable {
 
   private static final Dimension NO_DIM = new Dimension();
   private static final DirectionCalculator calculator = new DirectionCalculator();
-  private static Map<Integer, Area> gridShapeCache = new ConcurrentHashMap<>();
+
+  /** The number of light and vision shapes, and of grid conformed areas, to keep. */
+  private static final int SHAPE_CACHE_SIZE = 1000;
+
+  /**
+   * Light and vision shapes built by {@link #getShapedArea}, centered on the origin. They are keyed
+   * by everything they were built from, so grids of different type, size or offset never share
+   * them.
+   */
+  private static final Cache<ShapeKey, Area> shapeCache =
+      CacheBuilder.newBuilder().maximumSize(SHAPE_CACHE_SIZE).softValues().build();
+
+  /** Grid conformed areas built by {@link #createGridArea}, keyed by grid, metric and radius. */
+  private static final Cache<GridAreaKey, Area> gridShapeCache =
+      CacheBuilder.newBuilder().maximumSize(SHAPE_CACHE_SIZE).softValues().build();
+
   protected Map<KeyStroke, Action> movementKeys = null;
   private int offsetX = 0;
   private int offsetY = 0;
@@ -90,16 +106,61 @@ public Grid(Grid grid) {
     setOffset(grid.offsetX, grid.offsetY);
   }
 
-  protected synchronized Map<Integer, Area> getGridShapeCache() {
-    return gridShapeCache;
-  }
+  /**
+   * Everything about a grid that the shapes it builds depend on.
+   *
+   * @param gridType the class of the grid.
+   * @param size the size of the grid.
+   * @param cellWidth the width of a cell, for grids with non-square cells.
+   * @param cellHeight the height of a cell, for grids with non-square cells.
+   * @param offsetX the horizontal offset of the grid.
+   * @param offsetY the vertical offset of the grid.
+   */
+  private record GridKey(
+      Class<? extends Grid> gridType,
+      int size,
+      double cellWidth,
+      double cellHeight,
+      int offsetX,
+      int offsetY) {}
 
-  protected synchronized void setGridShapeCache(int gridRadius, Area newGridArea) {
-    final AffineTransform at = new AffineTransform();
-    final double gridScale = (double) MAX_GRID_SIZE / getSize();
-    at.scale(gridScale, gridScale);
+  /**
+   * Key for a grid conformed area.
+   *
+   * @param grid the grid the area is conformed to.
+   * @param metric the metric used to measure the radius.
+   * @param gridRadius the radius in cells.
+   */
+  private record GridAreaKey(GridKey grid, WalkerMetric metric, int gridRadius) {}
 
-    getGridShapeCache().put(gridRadius, newGridArea.createTransformedArea(at));
+  /**
+   * Key for a light or vision shape. Values a shape does not depend on are left at zero or null, so
+   * that shapes are shared between tokens wherever possible.
+   *
+   * @param grid the grid the shape is built for.
+   * @param shape the type of shape.
+   * @param range the range of the shape in pixels, or in cells for grid conformed shapes.
+   * @param arcAngle the angle of a cone.
+   * @param offsetAngle the offset of a cone from the token's facing.
+   * @param footprint the bounds of the token's footprint.
+   * @param metric the metric used to measure grid conformed shapes.
+   */
+  private record ShapeKey(
+      GridKey grid,
+      ShapeType shape,
+      double range,
+      double arcAngle,
+      int offsetAngle,
+      Rectangle footprint,
+      WalkerMetric metric) {}
+
+  private GridKey getGridKey() {
+    return new GridKey(
+        getClass(), getSize(), getCellWidth(), getCellHeight(), getOffsetX(), getOffsetY());
+  }
+
+  protected void setGridShapeCache(int gridRadius, Area newGridArea) {
+    gridShapeCache.put(new GridAreaKey(getGridKey(), getCurrentMetric(), gridRadius), newGridArea);
 
     // Verify combined Area is a single union of polygons
     if (!newGridArea.isSingular()) {
@@ -388,6 +449,120 @@ public Area getShapedArea(
       }
     }
 
+    if (shape == ShapeType.CONE && token.getFacing() == null) {
+      token.setFacing(0);
+    }
+
+    ShapeKey key =
+        getShapeKey(shape, token, range, visionRange, arcAngle, offsetAngle, scaleWithToken);
+    if (key == null) {
+      return createShapedArea(
+          shape, token, range, visionRange, arcAngle, offsetAngle, scaleWithToken);
+    }
+    Area visibleArea = shapeCache.getIfPresent(key);
+    if (visibleArea == null) {
+      visibleArea =
+          createShapedArea(shape, token, range, visionRange, arcAngle, offsetAngle, scaleWithToken);
+      shapeCache.put(key, visibleArea);
+    }
+    if (shape == ShapeType.CONE) {
+      return orientCone(token, visibleArea);
+    }
+    // Callers are free to transform or combine the area they are given
+    return new Area(visibleArea);
+  }
+
+  /**
+   * Turn a cone built by {@link #createShapedArea} to the token's facing and add the token's
+   * footprint to it, which is not turned with the cone.
+   *
+   * @param token the token the cone is for
+   * @param cone the cone, pointing in the direction of a facing of zero
+   * @return a new area with the cone and footprint
+   */
+  private Area orientCone(Token token, Area cone) {
+    Area visibleArea =
+        cone.createTransformedArea(
+            AffineTransform.getRotateInstance(-Math.toRadians(token.getFacing())));
+
+    Rectangle footprint = token.getFootprint(this).getBounds(this);
+    footprint.x = -footprint.width / 2;
+    footprint.y = -footprint.height / 2;
+    visibleArea.add(new Area(footprint));
+    return visibleArea;
+  }
+
+  /**
+   * Get the key the shape built by {@link #createShapedArea} for these arguments is cached under.
+   *
+   * @param shape the type of shape
+   * @param token the token the shape is for
+   * @param range the range as specified in the vision or light definition
+   * @param visionRange the range in pixels, including the token's footprint if scaled
+   * @param arcAngle the angle of a cone
+   * @param offsetAngle the offset of a cone from the token's facing
+   * @param scaleWithToken whether the shape is scaled with the token's footprint
+   * @return the key, or null if the shape can't be cached and has to be built every time
+   */
+  private ShapeKey getShapeKey(
+      ShapeType shape,
+      Token token,
+      double range,
+      double visionRange,
+      double arcAngle,
+      int offsetAngle,
+      boolean scaleWithToken) {
+    GridKey grid = getGridKey();
+    switch (shape) {
+      case CONE:
+        // Cones are cached before they are turned to the token's facing
+        return new ShapeKey(grid, shape, visionRange, arcAngle, offsetAngle, null, null);
+      case GRID:
+        if (range <= 0) {
+          // Grid shapes fall back to a circle
+          return new ShapeKey(grid, ShapeType.CIRCLE, visionRange, 0, 0, null, null);
+        }
+        if (scaleWithToken || DeveloperOptions.Toggle.IgnoreGridShapeCache.isEnabled()) {
+          // Areas scaled with the token depend on which cells the token occupies
+          return null;
+        }
+        return new ShapeKey(
+            grid,
+            shape,
+            (int) (range / zone.getUnitsPerCell()),
+            0,
+            0,
+            token.getFootprint(this).getBounds(this),
+            getCurrentMetric());
+      case HEX:
+        return new ShapeKey(
+            grid, shape, visionRange, 0, 0, token.getFootprint(this).getBounds(this), null);
+      default:
+        return new ShapeKey(grid, shape, visionRange, 0, 0, null, null);
+    }
+  }
+
+  /**
+   * Build the shape for {@link #getShapedArea}, centered on the origin. Cones are built pointing in
+   * the direction of a facing of zero and without the token's footprint, see {@link #orientCone}.
+   *
+   * @param shape the type of shape
+   * @param token the token the shape is for
+   * @param range the range as specified in the vision or light definition
+   * @param visionRange the range in pixels, including the token's footprint if scaled
+   * @param arcAngle the angle of a cone
+   * @param offsetAngle the offset of a cone from the token's facing
+   * @param scaleWithToken whether the shape is scaled with the token's footprint
+   * @return the shape
+   */
+  private Area createShapedArea(
+      ShapeType shape,
+      Token token,
+      double range,
+      double visionRange,
+      double arcAngle,
+      int offsetAngle,
+      boolean scaleWithToken) {
     Area visibleArea = new Area();
     switch (shape) {
       case CIRCLE:
@@ -405,10 +580,6 @@ public Area getShapedArea(
                     -visionRange, -visionRange, visionRange * 2, visionRange * 2));
         break;
       case CONE:
-        if (token.getFacing() == null) {
-          token.setFacing(0);
-        }
-
         Arc2D cone =
             new Arc2D.Double(
                 -visionRange,
@@ -422,22 +593,10 @@ public Area getShapedArea(
         // Flatten the cone to remove 'curves'
         GeneralPath path = new GeneralPath();
         path.append(cone.getPathIterator(null, 1), false);
-        Area tempvisibleArea = new Area(path);
-
-        // Rotate
-        tempvisibleArea =
-            tempvisibleArea.createTransformedArea(
-                AffineTransform.getRotateInstance(-Math.toRadians(token.getFacing())));
-
-        Rectangle footprint = token.getFootprint(this).getBounds(this);
-        footprint.x = -footprint.width / 2;
-        footprint.y = -footprint.height / 2;
-
-        visibleArea.add(new Area(footprint));
-        visibleArea.add(tempvisibleArea);
+        visibleArea = new Area(path);
         break;
       case HEX:
-        footprint = token.getFootprint(this).getBounds(this);
+        Rectangle footprint = token.getFootprint(this).getBounds(this);
         double x = footprint.getCenterX();
         double y = footprint.getCenterY();
 
@@ -507,7 +666,6 @@ protected Area createHex(double x, double y, double radius, double rotation) {
   }
 
   private void fireGridChanged() {
-    gridShapeCache.clear();
     new MapToolEventBus().getMainEventBus().post(new GridChanged(this.zone));
   }
 
@@ -910,16 +1068,16 @@ protected WalkerMetric getCurrentMetric() {
   protected Area getGridAreaFromCache(int gridRadius) {
     // If not already in cache, create and cache it
     // Or if the flag is enabled, recreate cache
-    if (DeveloperOptions.Toggle.IgnoreGridShapeCache.isEnabled()
-        || !getGridShapeCache().containsKey(gridRadius)) {
-      createGridArea(gridRadius);
+    Area gridArea = null;
+    if (!DeveloperOptions.Toggle.IgnoreGridShapeCache.isEnabled()) {
+      gridArea =
+          gridShapeCache.getIfPresent(
+              new GridAreaKey(getGridKey(), getCurrentMetric(), gridRadius));
     }
-
-    double rescale = getSize() / (double) MAX_GRID_SIZE;
-    final AffineTransform at = new AffineTransform();
-    at.scale(rescale, rescale);
-
-    return getGridShapeCache().get(gridRadius).createTransformedArea(at);
+    if (gridArea == null) {
+      gridArea = createGridArea(gridRadius);
+    }
+    return new Area(gridArea);
   }
 
   public static Grid fromDto(GridDto dto) {
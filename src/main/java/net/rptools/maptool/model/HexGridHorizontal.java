@@ -18,7 +18,6 @@
 import java.awt.Graphics2D;
 import java.awt.event.KeyEvent;
 import java.awt.geom.AffineTransform;
-import java.awt.geom.Area;
 import java.awt.geom.GeneralPath;
 import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
@@ -26,7 +25,6 @@
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import javax.swing.Action;
 import javax.swing.KeyStroke;
 import net.rptools.maptool.client.AppPreferences;
@@ -66,7 +64,6 @@ public class HexGridHorizontal extends HexGrid {
   private static int[]
       FACING_ANGLES; // = new int[] {-150, -120, -90, -60, -30, 0, 30, 60, 90, 120, 150, 180};
   private static List<TokenFootprint> footprintList;
-  private static Map<Integer, Area> gridShapeCache = new ConcurrentHashMap<>();
 
   public HexGridHorizontal() {
     super();
@@ -87,11 +84,6 @@ public boolean isHexHorizontal() {
     return true;
   }
 
-  @Override
-  protected synchronized Map<Integer, Area> getGridShapeCache() {
-    return gridShapeCache;
-  }
-
   /**
    * Set available facings based on the passed parameters.
    *
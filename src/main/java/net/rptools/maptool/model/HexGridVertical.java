@@ -19,13 +19,11 @@
 import java.awt.Rectangle;
 import java.awt.event.KeyEvent;
 import java.awt.geom.AffineTransform;
-import java.awt.geom.Area;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import javax.swing.Action;
 import javax.swing.KeyStroke;
 import net.rptools.maptool.client.AppPreferences;
@@ -62,7 +60,6 @@ public class HexGridVertical extends HexGrid {
   private static int[]
       FACING_ANGLES; // = new int[] {-150, -120, -90, -60, -30, 0, 30, 60, 90, 120, 150, 180};
   private static List<TokenFootprint> footprintList;
-  private static Map<Integer, Area> gridShapeCache = new ConcurrentHashMap<>();
 
   public HexGridVertical() {
     super();
@@ -83,11 +80,6 @@ public boolean isHexVertical() {
     return true;
   }
 
-  @Override
-  protected synchronized Map<Integer, Area> getGridShapeCache() {
-    return gridShapeCache;
-  }
-
   @Override
   public double cellDistance(CellPoint cellA, CellPoint cellB, WalkerMetric wmetric) {
     int x1 = cellA.x;
@@ -29,7 +29,11 @@
 import net.rptools.maptool.language.I18N;
 import net.rptools.maptool.model.library.Library;
 import net.rptools.maptool.model.library.LibraryManager;
+import net.rptools.maptool.server.proto.InitiativeChangeDto;
+import net.rptools.maptool.server.proto.InitiativeEntryDto;
 import net.rptools.maptool.server.proto.InitiativeListDto;
+import net.rptools.maptool.server.proto.InitiativeMoveDto;
+import net.rptools.maptool.server.proto.InitiativeTurnDto;
 import net.rptools.maptool.server.proto.TokenInitiativeDto;
 import net.rptools.maptool.util.EventMacroUtil;
 import org.apache.logging.log4j.LogManager;
@@ -78,6 +82,18 @@ public class InitiativeList implements Serializable {
   /** Flag indicating that a full update is needed. */
   private boolean fullUpdate;
 
+  /** The changes made in the current unit of work, sent to the server when it finishes. */
+  private transient List<InitiativeChangeDto> changes;
+
+  /** The current token and round when the current unit of work started. */
+  private transient int startCurrent, startRound;
+
+  /**
+   * Flag indicating that {@link TokenInitiative#position} is up to date for every token. Cleared
+   * whenever tokens are added, removed or reordered.
+   */
+  private transient boolean positionsValid;
+
   /** Hide all of the NPC's from the players. */
   private boolean hideNPC = AppPreferences.getInitHideNpcs();
 
@@ -178,6 +194,8 @@ public TokenInitiative insertToken(int index, Token token) {
     }
     TokenInitiative ti = new TokenInitiative(token);
     tokens.add(index, ti);
+    positionsValid = false;
+    recordChange(InitiativeChangeDto.newBuilder().setInsert(entryDto(index, ti)));
     getPCS().fireIndexedPropertyChange(TOKENS_PROP, index, null, ti);
     setCurrent(indexOf(currentInitiative)); // Restore current initiative
     finishUnitOfWork();
@@ -215,8 +233,13 @@ public List<Integer> indexOf(Token token) {
    *     found;
    */
   public int indexOf(TokenInitiative ti) {
-    for (int i = 0; i < tokens.size(); i++) if (tokens.get(i).equals(ti)) return i;
-    return -1;
+    if (ti == null) return -1;
+    if (!positionsValid) {
+      for (int i = 0; i < tokens.size(); i++) tokens.get(i).position = i;
+      positionsValid = true;
+    } // endif
+    int index = ti.position;
+    return index >= 0 && index < tokens.size() && tokens.get(index) == ti ? index : -1;
   }
 
   /**
@@ -246,6 +269,8 @@ public Token removeToken(int index) {
     } // endif
 
     TokenInitiative ti = tokens.remove(index);
+    positionsValid = false;
+    recordChange(InitiativeChangeDto.newBuilder().setRemove(entryDto(index, ti)));
     Token old = ti.getToken();
     getPCS().fireIndexedPropertyChange(TOKENS_PROP, index, ti, null);
     setCurrent(indexOf(currentInitiative)); // Restore current initiative
@@ -393,20 +418,28 @@ public void removePropertyChangeListener(String propertyName, PropertyChangeList
   /** Start a new unit of work. */
   public void startUnitOfWork() {
     holdUpdate += 1;
-    if (holdUpdate == 1) fullUpdate = false;
+    if (holdUpdate == 1) {
+      fullUpdate = false;
+      getChanges().clear();
+      startCurrent = current;
+      startRound = round;
+    } // endif
     LOGGER.debug("startUnitOfWork(): " + holdUpdate + " full: " + fullUpdate);
   }
 
-  /** Finish the current unit of work and update the server. */
+  /** Finish the current unit of work and send its changes to the server. */
   public void finishUnitOfWork() {
-    fullUpdate = true;
     finishUnitOfWork(null);
   }
 
   /**
-   * Finish the current unit of work on a single initiative item and update the server.
+   * Finish the current unit of work and send its changes to the server.
    *
-   * @param ti Only need to update this token initiative.
+   * <p>The changes are sent as a single delta, unless the unit of work replaced or reordered the
+   * whole list, in which case the full list is sent.
+   *
+   * @param ti The token initiative that changed. Not needed since changes are recorded as they are
+   *     made.
    */
   public void finishUnitOfWork(TokenInitiative ti) {
     assert holdUpdate > 0 : "Trying to close unit of work when one is not open.";
@@ -419,14 +452,32 @@ public void finishUnitOfWork(TokenInitiative ti) {
             + " full: "
             + fullUpdate);
     if (holdUpdate == 0) {
-      if (fullUpdate || ti == null) {
+      if (fullUpdate) {
         updateServer();
-      } else {
-        updateServer(ti);
+      } else if (!getChanges().isEmpty() || current != startCurrent || round != startRound) {
+        // Always finish with the turn so receivers don't need to track current through the changes
+        recordChange(
+            InitiativeChangeDto.newBuilder()
+                .setTurn(InitiativeTurnDto.newBuilder().setCurrent(current).setRound(round)));
+        updateServer(getChanges());
       } // endif
+      getChanges().clear();
     } // endif
   }
 
+  private List<InitiativeChangeDto> getChanges() {
+    if (changes == null) changes = new ArrayList<>();
+    return changes;
+  }
+
+  private void recordChange(InitiativeChangeDto.Builder change) {
+    getChanges().add(change.build());
+  }
+
+  private static InitiativeEntryDto entryDto(int index, TokenInitiative ti) {
+    return InitiativeEntryDto.newBuilder().setIndex(index).setToken(ti.toDto()).build();
+  }
+
   /** Remove all of the tokens from the model and clear round and current */
   public void clearModel() {
     if (current == -1 && round == -1 && tokens.isEmpty()) return;
@@ -436,6 +487,8 @@ public void clearModel() {
     if (!tokens.isEmpty()) {
       List<TokenInitiative> old = tokens;
       tokens = new ArrayList<TokenInitiative>();
+      positionsValid = false;
+      fullUpdate = true;
       getPCS().firePropertyChange(TOKENS_PROP, old, tokens);
     } // endif
     finishUnitOfWork();
@@ -450,27 +503,22 @@ public void update() {
       return;
     } // endif
 
-    // Remove deleted tokens
+    // Remove deleted tokens. The server is only updated if an actual change was made.
     startUnitOfWork();
-    boolean updateNeeded = false;
-    ListIterator<TokenInitiative> i = tokens.listIterator();
-    while (i.hasNext()) {
-      TokenInitiative ti = i.next();
+    int index = 0;
+    while (index < tokens.size()) {
+      TokenInitiative ti = tokens.get(index);
       if (getZone().getToken(ti.getId()) == null) {
-        int index = tokens.indexOf(ti);
         if (index <= current) setCurrent(current - 1);
-        i.remove();
-        updateNeeded = true;
+        tokens.remove(index);
+        positionsValid = false;
+        recordChange(InitiativeChangeDto.newBuilder().setRemove(entryDto(index, ti)));
         getPCS().fireIndexedPropertyChange(TOKENS_PROP, index, ti, null);
+      } else {
+        index++;
       } // endif
     } // endwhile
-    // update the server if any actual change was made, otherwise just decrement holdUpdate
-    if (updateNeeded) {
-      finishUnitOfWork();
-    } else {
-      holdUpdate -= 1; // Do no updates.
-      LOGGER.debug("finishUnitOfWork() - no update");
-    } // endif
+    finishUnitOfWork();
   }
 
   /**
@@ -528,6 +576,8 @@ public void sort(boolean ascendingOrder) {
           if (one instanceof Double) return -1 * DIRECTION; // Integers are bigger than strings
           return 1 * DIRECTION;
         });
+    positionsValid = false;
+    fullUpdate = true;
     getPCS().firePropertyChange(TOKENS_PROP, null, tokens);
     setCurrent(indexOf(currentInitiative)); // Restore current initiative
     finishUnitOfWork();
@@ -576,11 +626,19 @@ public void moveToken(int oldIndex, int index) {
     startUnitOfWork();
     current = -1;
     TokenInitiative ti = tokens.remove(oldIndex);
+    positionsValid = false;
     getPCS().fireIndexedPropertyChange(TOKENS_PROP, oldIndex, ti, null);
 
     // Add it at it's new position
     index -= index > oldIndex ? 1 : 0;
     tokens.add(index, ti);
+    recordChange(
+        InitiativeChangeDto.newBuilder()
+            .setMove(
+                InitiativeMoveDto.newBuilder()
+                    .setFromIndex(oldIndex)
+                    .setToIndex(index)
+                    .setTokenId(ti.getId().toString())));
     getPCS().fireIndexedPropertyChange(TOKENS_PROP, index, null, ti);
 
     // Set/restore proper initiative
@@ -597,6 +655,126 @@ public void updateServer() {
     MapTool.serverCommand().updateInitiative(this, null);
   }
 
+  /**
+   * Update the server with the changes made to the list.
+   *
+   * @param changes The changes, in the order they were made.
+   */
+  private void updateServer(List<InitiativeChangeDto> changes) {
+    if (zoneId == null) return;
+    LOGGER.debug("Delta update: " + changes.size() + " changes");
+    MapTool.serverCommand().updateInitiativeChanges(zoneId, changes);
+  }
+
+  /**
+   * Apply the changes made to another copy of this list, as sent by {@link
+   * #finishUnitOfWork(TokenInitiative)}. The same events are fired as for local changes, so
+   * listeners can update incrementally, but nothing is sent to the server.
+   *
+   * <p>Every change names the index and token it applies to. If any of them don't match this list,
+   * the copies have diverged and none of the changes are applied.
+   *
+   * @param changes The changes to apply.
+   * @return <code>true</code> if the changes were applied.
+   */
+  public boolean applyChanges(List<InitiativeChangeDto> changes) {
+    if (!matches(changes)) return false;
+    for (InitiativeChangeDto change : changes) {
+      switch (change.getChangeCase()) {
+        case INSERT -> {
+          int index = change.getInsert().getIndex();
+          TokenInitiative ti = fromDto(change.getInsert().getToken());
+          tokens.add(index, ti);
+          positionsValid = false;
+          getPCS().fireIndexedPropertyChange(TOKENS_PROP, index, null, ti);
+        }
+        case REMOVE -> {
+          int index = change.getRemove().getIndex();
+          TokenInitiative ti = tokens.remove(index);
+          positionsValid = false;
+          // Keep current valid until the turn that ends the changes arrives.
+          if (current >= tokens.size()) current = tokens.size() - 1;
+          getPCS().fireIndexedPropertyChange(TOKENS_PROP, index, ti, null);
+        }
+        case MOVE -> {
+          int from = change.getMove().getFromIndex();
+          int to = change.getMove().getToIndex();
+          TokenInitiative ti = tokens.remove(from);
+          positionsValid = false;
+          getPCS().fireIndexedPropertyChange(TOKENS_PROP, from, ti, null);
+          tokens.add(to, ti);
+          getPCS().fireIndexedPropertyChange(TOKENS_PROP, to, null, ti);
+        }
+        case UPDATE -> {
+          int index = change.getUpdate().getIndex();
+          TokenInitiativeDto dto = change.getUpdate().getToken();
+          tokens
+              .get(index)
+              .update(dto.getHolding(), dto.hasState() ? dto.getState().getValue() : null);
+        }
+        case TURN -> {
+          int oldCurrent = current;
+          int oldRound = round;
+          current = change.getTurn().getCurrent();
+          if (current < -1 || current >= tokens.size()) current = -1;
+          round = change.getTurn().getRound();
+          getPCS().firePropertyChange(CURRENT_PROP, oldCurrent, current);
+          getPCS().firePropertyChange(ROUND_PROP, oldRound, round);
+        }
+        case HIDE_NPC -> {
+          boolean old = hideNPC;
+          hideNPC = change.getHideNpc();
+          getPCS().firePropertyChange(HIDE_NPCS_PROP, old, hideNPC);
+        }
+        case CHANGE_NOT_SET -> {}
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Do all of the changes match this list? They are played through on the token ids only, so that
+   * the list is left alone if a later change doesn't match.
+   */
+  private boolean matches(List<InitiativeChangeDto> changes) {
+    List<String> ids = new ArrayList<>(tokens.size());
+    for (TokenInitiative ti : tokens) {
+      ids.add(ti.getId().toString());
+    }
+    for (InitiativeChangeDto change : changes) {
+      switch (change.getChangeCase()) {
+        case INSERT -> {
+          int index = change.getInsert().getIndex();
+          if (index < 0 || index > ids.size()) return false;
+          ids.add(index, change.getInsert().getToken().getTokenId());
+        }
+        case REMOVE -> {
+          int index = change.getRemove().getIndex();
+          if (!matches(ids, index, change.getRemove().getToken().getTokenId())) return false;
+          ids.remove(index);
+        }
+        case MOVE -> {
+          InitiativeMoveDto move = change.getMove();
+          int from = move.getFromIndex();
+          int to = move.getToIndex();
+          if (!matches(ids, from, move.getTokenId()) || to < 0 || to >= ids.size()) return false;
+          ids.add(to, ids.remove(from));
+        }
+        case UPDATE -> {
+          int index = change.getUpdate().getIndex();
+          if (!matches(ids, index, change.getUpdate().getToken().getTokenId())) return false;
+        }
+        default -> {}
+      }
+    }
+    return true;
+  }
+
+  /** Is the token at the passed index the one with the passed id? */
+  private static boolean matches(List<String> ids, int index, String tokenId) {
+    return index >= 0 && index < ids.size() && ids.get(index).equals(tokenId);
+  }
+
   /**
    * Update the server with the new Token Initiative
    *
@@ -637,6 +815,7 @@ public void setHideNPC(boolean hide) {
     startUnitOfWork();
     boolean old = hideNPC;
     hideNPC = hide;
+    recordChange(InitiativeChangeDto.newBuilder().setHideNpc(hide));
     getPCS().firePropertyChange(HIDE_NPCS_PROP, old, hide);
     finishUnitOfWork();
   }
@@ -846,6 +1025,12 @@ public class TokenInitiative {
     /** Optional state that can be displayed in the initiative panel. */
     private String state;
 
+    /**
+     * The index of this token initiative in the list, valid while {@link #positionsValid} is set.
+     * Use {@link #indexOf(TokenInitiative)} to read it.
+     */
+    private transient int position;
+
     /** Save off the icon so that it can be displayed as needed. */
     private transient Icon displayIcon;
 
@@ -912,7 +1097,9 @@ public void setHolding(boolean isHolding) {
       startUnitOfWork();
       boolean old = holding;
       holding = isHolding;
-      getPCS().fireIndexedPropertyChange(TOKENS_PROP, tokens.indexOf(this), old, isHolding);
+      int index = indexOf(this);
+      recordChange(InitiativeChangeDto.newBuilder().setUpdate(entryDto(index, this)));
+      getPCS().fireIndexedPropertyChange(TOKENS_PROP, index, old, isHolding);
       finishUnitOfWork(this);
     }
 
@@ -933,7 +1120,9 @@ public void setState(String aState) {
       startUnitOfWork();
       String old = state;
       state = aState;
-      getPCS().fireIndexedPropertyChange(TOKENS_PROP, tokens.indexOf(this), old, aState);
+      int index = indexOf(this);
+      recordChange(InitiativeChangeDto.newBuilder().setUpdate(entryDto(index, this)));
+      getPCS().fireIndexedPropertyChange(TOKENS_PROP, index, old, aState);
       finishUnitOfWork(this);
     }
 
@@ -985,8 +1174,9 @@ public void update(boolean isHolding, String aState) {
       holding = isHolding;
       String oldState = state;
       state = aState;
-      getPCS().fireIndexedPropertyChange(TOKENS_PROP, tokens.indexOf(this), old, isHolding);
-      getPCS().fireIndexedPropertyChange(TOKENS_PROP, tokens.indexOf(this), oldState, aState);
+      int index = indexOf(this);
+      getPCS().fireIndexedPropertyChange(TOKENS_PROP, index, old, isHolding);
+      getPCS().fireIndexedPropertyChange(TOKENS_PROP, index, oldState, aState);
     }
 
     public TokenInitiativeDto toDto() {
@@ -41,6 +41,12 @@ public class LookupTable {
   // table must be reset().
   private @Nonnull Boolean pickOnce = false;
 
+  /** Index of the entries by roll, built when first needed after the entries change. */
+  private transient @Nullable RollIndex rollIndex;
+
+  /** The entries that have not been picked, built when first needed after the entries change. */
+  private transient @Nullable UnpickedEntries unpickedEntries;
+
   public static final String NO_PICKS_LEFT = "NO_PICKS_LEFT";
 
   public LookupTable() {}
@@ -52,7 +58,12 @@ public LookupTable(LookupTable table) {
     pickOnce = table.pickOnce;
     visible = table.visible;
     allowLookup = table.allowLookup;
-    entryList.addAll(table.entryList);
+    // The entries are copied so picking from one table doesn't pick from the other.
+    for (LookupEntry entry : table.entryList) {
+      LookupEntry copy = new LookupEntry(entry.min, entry.max, entry.value, entry.imageId);
+      copy.picked = entry.picked;
+      entryList.add(copy);
+    }
   }
 
   public void setRoll(String roll) {
@@ -61,10 +72,43 @@ public void setRoll(String roll) {
 
   public void clearEntries() {
     entryList.clear();
+    entriesChanged();
   }
 
   public void addEntry(int min, int max, String result, MD5Key imageId) {
     entryList.add(new LookupEntry(min, max, result, imageId));
+    entriesChanged();
+  }
+
+  /**
+   * Adds entries to the end of the table. This is the same as adding each of the entries in turn,
+   * but the table is only indexed again once.
+   *
+   * @param entries the entries to add.
+   */
+  public void addEntries(Collection<LookupEntry> entries) {
+    entryList.addAll(entries);
+    entriesChanged();
+  }
+
+  /** Drops the indexes of the entries, they are built again when next needed. */
+  private void entriesChanged() {
+    rollIndex = null;
+    unpickedEntries = null;
+  }
+
+  private RollIndex getRollIndex() {
+    if (rollIndex == null) {
+      rollIndex = new RollIndex(entryList);
+    }
+    return rollIndex;
+  }
+
+  private UnpickedEntries getUnpickedEntries() {
+    if (unpickedEntries == null) {
+      unpickedEntries = new UnpickedEntries(entryList);
+    }
+    return unpickedEntries;
   }
 
   public LookupEntry getLookup() throws ParserException {
@@ -141,10 +185,9 @@ private LookupEntry getStandardLookup(String roll) throws ParserException {
 
       tableResult = constrainRoll(tableResult);
 
-      for (LookupEntry entry : entryList) {
-        if (tableResult >= entry.min && tableResult <= entry.max) {
-          retEntry = entry;
-        }
+      int index = getRollIndex().lookup(tableResult);
+      if (index >= 0) {
+        retEntry = entryList.get(index);
       }
 
     } catch (NumberFormatException nfe) {
@@ -160,8 +203,12 @@ private LookupEntry getPickOnceLookup(String roll) throws ParserException {
 
       if (entryNum < entryList.size()) {
         LookupEntry entry = entryList.get(entryNum);
-        entry.setPicked(true);
-        entryList.set(entryNum, entry);
+        if (!entry.picked) {
+          entry.setPicked(true);
+          if (unpickedEntries != null) {
+            unpickedEntries.picked(entryNum);
+          }
+        }
 
         return entry;
       } else {
@@ -174,17 +221,9 @@ private LookupEntry getPickOnceLookup(String roll) throws ParserException {
   }
 
   private int constrainRoll(int val) {
-    int minmin = Integer.MAX_VALUE;
-    int maxmax = Integer.MIN_VALUE;
+    int minmin = getRollIndex().minRoll;
+    int maxmax = getRollIndex().maxRoll;
 
-    for (LookupEntry entry : entryList) {
-      if (entry.min < minmin) {
-        minmin = entry.min;
-      }
-      if (entry.max > maxmax) {
-        maxmax = entry.max;
-      }
-    }
     if (val > maxmax) {
       val = maxmax;
     }
@@ -198,23 +237,14 @@ private String getDefaultRoll() {
     if (getPickOnce()) {
       // For Pick Once tables this returns a random pick from those entries in the list that
       // have not been picked.
-      List<LookupEntry> le = entryList;
-      LookupEntry entry;
-      int len = le.size();
-      List unpicked = new ArrayList<Integer>();
-      for (int i = 0; i < len; i++) {
-        entry = le.get(i);
-        if (!entry.picked) {
-          unpicked.add(i);
-        }
-      }
-      if (unpicked.isEmpty()) {
+      UnpickedEntries unpicked = getUnpickedEntries();
+      if (unpicked.size() == 0) {
         return (NO_PICKS_LEFT);
       }
       try {
         Result result = expressionParser.evaluate("d" + unpicked.size());
         int index = Integer.parseInt(result.getValue().toString()) - 1;
-        return unpicked.get(index).toString();
+        return Integer.toString(unpicked.get(index));
       } catch (ParserException e) {
         MapTool.showError("Error getting default roll for Pick Once table ", e);
         return (NO_PICKS_LEFT);
@@ -225,31 +255,22 @@ private String getDefaultRoll() {
       }
 
       // Find the min and max range
-      Integer min = null;
-      Integer max = null;
-
-      for (LookupEntry entry : entryList) {
-        if (min == null || entry.min < min) {
-          min = entry.min;
-        }
-        if (max == null || entry.max > max) {
-          max = entry.max;
-        }
+      if (entryList.isEmpty()) {
+        return "";
       }
+      int min = getRollIndex().minRoll;
+      int max = getRollIndex().maxRoll;
 
-      return min != null ? "d" + (max - min + 1) + (min - 1 != 0 ? "+" + (min - 1) : "") : "";
+      return "d" + (max - min + 1) + (min - 1 != 0 ? "+" + (min - 1) : "");
     }
   }
 
   /** Sets the picked flag on each table entry to false. */
   public void reset() {
-    List<LookupEntry> curList = entryList;
-    List<LookupEntry> newList = new ArrayList<>();
-    for (LookupEntry entry : curList) {
+    for (LookupEntry entry : entryList) {
       entry.setPicked(false);
-      newList.add(entry);
     }
-    entryList = newList;
+    unpickedEntries = null;
   }
 
   /**
@@ -266,16 +287,14 @@ public void reset(List<String> entriesToReset) {
         entriesToReset.stream()
             .map(Integer::parseInt)
             .collect(Collectors.toCollection(HashSet::new));
-    List<LookupEntry> curList = entryList;
-    List<LookupEntry> newList = new ArrayList<>();
-    for (int i = 0; i < curList.size(); i++) {
-      LookupEntry entry = curList.get(i);
-      if (indicesToReset.contains(i)) {
-        entry.setPicked(false);
+    for (int i : indicesToReset) {
+      if (i >= 0 && i < entryList.size() && entryList.get(i).picked) {
+        entryList.get(i).setPicked(false);
+        if (unpickedEntries != null) {
+          unpickedEntries.unpicked(i);
+        }
       }
-      newList.add(entry);
     }
-    entryList = newList;
   }
 
   /**
@@ -338,13 +357,7 @@ public void setPickOnce(boolean pickOnce) {
    * @return count of the entries in the table that have not been picked.
    */
   public int getPicksLeft() {
-    int count = 0;
-    for (LookupEntry entry : entryList) {
-      if (!entry.picked) {
-        count++;
-      }
-    }
-    return count;
+    return getUnpickedEntries().size();
   }
 
   @Override
@@ -364,6 +377,151 @@ public String toString() {
     return builder.toString();
   }
 
+  /**
+   * Finds the entry for a roll with a binary search. The range of rolls covered by the entries is
+   * split into segments at the start and after the end of every entry, and each segment is mapped
+   * to the entry that a linear search would find for it, the last entry in the list that covers it.
+   */
+  private static final class RollIndex {
+    /** The lowest minimum of the entries, or {@link Integer#MAX_VALUE} if there are none. */
+    private final int minRoll;
+
+    /** The highest maximum of the entries, or {@link Integer#MIN_VALUE} if there are none. */
+    private final int maxRoll;
+
+    /** The first roll of each segment, in ascending order. */
+    private final long[] segmentStarts;
+
+    /** The index of the entry for each segment, or -1 if no entry covers the segment. */
+    private final int[] segmentEntries;
+
+    private RollIndex(List<LookupEntry> entries) {
+      int min = Integer.MAX_VALUE;
+      int max = Integer.MIN_VALUE;
+      List<Integer> byMin = new ArrayList<>(entries.size());
+      long[] starts = new long[entries.size() * 2];
+      int count = 0;
+      for (int i = 0; i < entries.size(); i++) {
+        LookupEntry entry = entries.get(i);
+        min = Math.min(min, entry.min);
+        max = Math.max(max, entry.max);
+        if (entry.min <= entry.max) {
+          byMin.add(i);
+          starts[count++] = entry.min;
+          starts[count++] = entry.max + 1L;
+        }
+      }
+      minRoll = min;
+      maxRoll = max;
+
+      Arrays.sort(starts, 0, count);
+      int segments = 0;
+      for (int i = 0; i < count; i++) {
+        if (segments == 0 || starts[segments - 1] != starts[i]) {
+          starts[segments++] = starts[i];
+        }
+      }
+      segmentStarts = Arrays.copyOf(starts, segments);
+      segmentEntries = new int[segments];
+
+      // Sweep through the segments keeping the entries that cover them, latest entry first.
+      byMin.sort(Comparator.comparingInt(i -> entries.get(i).min));
+      PriorityQueue<Integer> covering = new PriorityQueue<>(Comparator.reverseOrder());
+      int next = 0;
+      for (int s = 0; s < segments; s++) {
+        long start = segmentStarts[s];
+        while (next < byMin.size() && entries.get(byMin.get(next)).min <= start) {
+          covering.add(byMin.get(next++));
+        }
+        while (!covering.isEmpty() && entries.get(covering.peek()).max < start) {
+          covering.poll();
+        }
+        segmentEntries[s] = covering.isEmpty() ? -1 : covering.peek();
+      }
+    }
+
+    /**
+     * Returns the index of the last entry that covers the roll.
+     *
+     * @param roll the roll to look up.
+     * @return the index of the entry, or -1 if no entry covers the roll.
+     */
+    private int lookup(int roll) {
+      int segment = Arrays.binarySearch(segmentStarts, roll);
+      if (segment < 0) {
+        segment = -segment - 2; // the segment starting before the roll
+      }
+      return segment < 0 ? -1 : segmentEntries[segment];
+    }
+  }
+
+  /**
+   * Keeps track of the entries that have not been picked, so that picks left can be counted and the
+   * n-th unpicked entry found without going through the whole table.
+   */
+  private static final class UnpickedEntries {
+    /** Fenwick tree over the entries, counting 1 for every entry that has not been picked. */
+    private final int[] tree;
+
+    private int size;
+
+    private UnpickedEntries(List<LookupEntry> entries) {
+      tree = new int[entries.size() + 1];
+      for (int i = 1; i < tree.length; i++) {
+        if (!entries.get(i - 1).picked) {
+          tree[i]++;
+          size++;
+        }
+        int parent = i + (i & -i);
+        if (parent < tree.length) {
+          tree[parent] += tree[i];
+        }
+      }
+    }
+
+    /** Returns the number of entries that have not been picked. */
+    private int size() {
+      return size;
+    }
+
+    /** Records that the entry at the index, which had not been picked, has been picked. */
+    private void picked(int index) {
+      add(index, -1);
+    }
+
+    /** Records that the entry at the index, which had been picked, can be picked again. */
+    private void unpicked(int index) {
+      add(index, 1);
+    }
+
+    private void add(int index, int delta) {
+      size += delta;
+      for (int i = index + 1; i < tree.length; i += i & -i) {
+        tree[i] += delta;
+      }
+    }
+
+    /**
+     * Returns the index in the table of an entry that has not been picked.
+     *
+     * @param n the position of the entry among the entries that have not been picked, starting at
+     *     0.
+     * @return the index of the entry in the table.
+     */
+    private int get(int n) {
+      int index = 0;
+      int remaining = n + 1;
+      for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+        int next = index + step;
+        if (next < tree.length && tree[next] < remaining) {
+          index = next;
+          remaining -= tree[next];
+        }
+      }
+      return index; // the tree is 1-based, so this is the 0-based index of the entry
+    }
+  }
+
   public static class LookupEntry {
 
     private int min;
@@ -62,6 +62,8 @@
 import net.rptools.maptool.model.zones.TokensRemoved;
 import net.rptools.maptool.model.zones.TopologyChanged;
 import net.rptools.maptool.server.Mapper;
+import net.rptools.maptool.server.TokenDelta;
+import net.rptools.maptool.server.proto.TokenDeltaMsg;
 import net.rptools.maptool.server.proto.TopologyTypeDto;
 import net.rptools.maptool.server.proto.ZoneDto;
 import net.rptools.maptool.util.StringUtil;
@@ -1510,6 +1512,27 @@ public void editToken(Token token) {
     putToken(token);
     new MapToolEventBus().getMainEventBus().post(new TokenEdited(this, token));
   }
+
+  /**
+   * Applies the changes to one of the tokens on this zone that were sent instead of the whole
+   * token, and fires the same events as {@link #putToken(Token)} or {@link #editToken(Token)}.
+   *
+   * @param delta the changed fields of the token
+   * @return the changed token, or null if the token is not on this zone
+   */
+  public Token applyTokenDelta(TokenDeltaMsg delta) {
+    Token token = getToken(GUID.valueOf(delta.getTokenGuid()));
+    if (token == null) {
+      return null;
+    }
+    token = Token.fromDto(TokenDelta.apply(token.toDto(), delta));
+    if (delta.getEdit()) {
+      editToken(token);
+    } else {
+      putToken(token);
+    }
+    return token;
+  }
   /**
    * Same as {@link #putToken(Token)} but optimizes map updates by accepting a list of Tokens. Note
    * that this method fires a single <code>ModelChangeEvent</code> using <code> Event.TOKEN_ADDED
@@ -18,9 +18,10 @@
 import java.awt.Composite;
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
-import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
 import net.rptools.maptool.client.MapTool;
 import net.rptools.maptool.model.GUID;
+import net.rptools.maptool.model.Grid;
 import net.rptools.maptool.model.Zone;
 import net.rptools.maptool.model.ZonePoint;
 
@@ -45,6 +46,9 @@ public abstract class AbstractTemplate extends AbstractDrawing {
   /** The id of the zone where this drawable is painted. */
   private GUID zoneId;
 
+  /** The border and area last built for this template, reused until its shape changes. */
+  private transient TemplateGeometry geometry;
+
   protected AbstractTemplate() {}
 
   protected AbstractTemplate(GUID id) {
@@ -122,6 +126,27 @@ public enum Quadrant {
     SOUTH_WEST
   }
 
+  /**
+   * The border and area of a template, with the vertex at the origin.
+   *
+   * @param key What the geometry was built from.
+   * @param border All of the border lines of the template.
+   * @param area All of the cells covered by the template.
+   */
+  record TemplateGeometry(GeometryKey key, Path2D border, Path2D area) {}
+
+  /**
+   * Everything a template's geometry depends on. The vertex is not part of it, since the geometry
+   * is relative to the vertex and is translated when painted.
+   *
+   * @param radius The radius of the template in cells.
+   * @param gridSize The size of a cell.
+   * @param gridType The type of grid the template is painted on.
+   * @param shapeKey What else the template's shape depends on, see {@link #getShapeKey()}.
+   */
+  private record GeometryKey(
+      int radius, int gridSize, Class<? extends Grid> gridType, Object shapeKey) {}
+
   /*---------------------------------------------------------------------------------------------
    * Instance Methods
    *-------------------------------------------------------------------------------------------*/
@@ -188,7 +213,7 @@ public void setZoneId(GUID zoneId) {
    * @param area Paint the area?
    */
   protected void paint(Graphics2D g, boolean border, boolean area) {
-    if (radius == 0) {
+    if (getRadius() == 0) {
       return;
     }
     Zone zone = MapTool.getCampaign().getZone(zoneId);
@@ -196,8 +221,60 @@ protected void paint(Graphics2D g, boolean border, boolean area) {
       return;
     }
 
-    // Find the proper distance
-    int gridSize = zone.getGrid().getSize();
+    TemplateGeometry geometry = getGeometry(zone.getGrid());
+    int x = vertex.x;
+    int y = vertex.y;
+    g.translate(x, y);
+    try {
+      if (area) g.fill(geometry.area());
+      if (border) g.draw(geometry.border());
+    } finally {
+      g.translate(-x, -y);
+    }
+  }
+
+  /**
+   * Get the border and area of the template with the vertex at the origin. They are only rebuilt
+   * when the radius, grid or {@link #getShapeKey() shape} of the template has changed since the
+   * last call.
+   *
+   * @param grid The grid the template is painted on.
+   * @return The geometry of the template.
+   */
+  TemplateGeometry getGeometry(Grid grid) {
+    var key = new GeometryKey(getRadius(), grid.getSize(), grid.getClass(), getShapeKey());
+    TemplateGeometry cached = geometry;
+    if (cached == null || !cached.key().equals(key)) {
+      var border = new Path2D.Double();
+      var area = new Path2D.Double();
+      if (key.radius() != 0) {
+        buildGeometry(border, area, grid.getSize());
+      }
+      cached = new TemplateGeometry(key, border, area);
+      geometry = cached;
+    }
+    return cached;
+  }
+
+  /**
+   * Get whatever else, besides the radius and grid, the shape of the template depends on. The
+   * geometry is rebuilt whenever this changes, so it must implement {@link Object#equals(Object)}.
+   *
+   * @return The key for the shape, or <code>null</code> if the shape only depends on the radius.
+   */
+  protected Object getShapeKey() {
+    return null;
+  }
+
+  /**
+   * Add the border and area of every cell of the template to the geometry, with the vertex at the
+   * origin.
+   *
+   * @param border The path the border lines are added to.
+   * @param area The path the cells are added to.
+   * @param gridSize The size of a cell.
+   */
+  protected void buildGeometry(Path2D border, Path2D area, int gridSize) {
     for (int y = 0; y < radius; y++) {
       for (int x = 0; x < radius; x++) {
 
@@ -206,8 +283,8 @@ protected void paint(Graphics2D g, boolean border, boolean area) {
         int yOff = y * gridSize;
 
         // Template specific painting
-        if (border) paintBorder(g, x, y, xOff, yOff, gridSize, getDistance(x, y));
-        if (area) paintArea(g, x, y, xOff, yOff, gridSize, getDistance(x, y));
+        paintBorder(border, x, y, xOff, yOff, gridSize, getDistance(x, y));
+        paintArea(area, x, y, xOff, yOff, gridSize, getDistance(x, y));
       } // endfor
     } // endfor
   }
@@ -215,84 +292,84 @@ protected void paint(Graphics2D g, boolean border, boolean area) {
   /**
    * Paint the close horizontal line of a cell's border. All directions are relevant to the vertex.
    *
-   * @param g The painter.
+   * @param border The path the line is added to.
    * @param xOff X Offset to cell from vertex in screen coordinates.
    * @param yOff Y Offset to cell from vertex in screen coordinates.
    * @param gridSize Size of a cell in screen coordinates.
    * @param q The quadrant the cell is in relative to the vertex.
    */
   protected void paintCloseHorizontalBorder(
-      Graphics2D g, int xOff, int yOff, int gridSize, Quadrant q) {
-    int x = vertex.x + getXMult(q) * xOff;
-    int y = vertex.y + getYMult(q) * yOff;
-    Line2D l = new Line2D.Double(x, y, x + getXMult(q) * gridSize, y);
-    g.draw(l);
+      Path2D border, int xOff, int yOff, int gridSize, Quadrant q) {
+    int x = getXMult(q) * xOff;
+    int y = getYMult(q) * yOff;
+    border.moveTo(x, y);
+    border.lineTo(x + getXMult(q) * gridSize, y);
   }
 
   /**
    * Paint the close vertical line of a cell's border. All directions are relevant to the vertex.
    *
-   * @param g The painter.
+   * @param border The path the line is added to.
    * @param xOff X Offset to cell from vertex in screen coordinates.
    * @param yOff Y Offset to cell from vertex in screen coordinates.
    * @param gridSize Size of a cell in screen coordinates.
    * @param q The quadrant the cell is in relative to the vertex.
    */
   protected void paintCloseVerticalBorder(
-      Graphics2D g, int xOff, int yOff, int gridSize, Quadrant q) {
-    int x = vertex.x + getXMult(q) * xOff;
-    int y = vertex.y + getYMult(q) * yOff;
-    Line2D l = new Line2D.Double(x, y, x, y + getYMult(q) * gridSize);
-    g.draw(l);
+      Path2D border, int xOff, int yOff, int gridSize, Quadrant q) {
+    int x = getXMult(q) * xOff;
+    int y = getYMult(q) * yOff;
+    border.moveTo(x, y);
+    border.lineTo(x, y + getYMult(q) * gridSize);
   }
 
   /**
    * Fill the area of a cell.
    *
-   * @param g The painter.
+   * @param area The path the cell is added to.
    * @param xOff X Offset to cell from vertex in screen coordinates.
    * @param yOff Y Offset to cell from vertex in screen coordinates.
    * @param gridSize Size of a cell in screen coordinates.
    * @param q The quadrant the cell is in relative to the vertex.
    */
-  protected void paintArea(Graphics2D g, int xOff, int yOff, int gridSize, Quadrant q) {
-    int x = vertex.x + getXMult(q) * xOff + ((getXMult(q) - 1) / 2) * gridSize;
-    int y = vertex.y + getYMult(q) * yOff + ((getYMult(q) - 1) / 2) * gridSize;
-    g.fill(new Rectangle(x, y, gridSize, gridSize));
+  protected void paintArea(Path2D area, int xOff, int yOff, int gridSize, Quadrant q) {
+    int x = getXMult(q) * xOff + ((getXMult(q) - 1) / 2) * gridSize;
+    int y = getYMult(q) * yOff + ((getYMult(q) - 1) / 2) * gridSize;
+    area.append(new Rectangle(x, y, gridSize, gridSize), false);
   }
 
   /**
    * Paint the far horizontal line of a cell's border. All directions are relevant to the vertex.
    *
-   * @param g The painter.
+   * @param border The path the line is added to.
    * @param xOff X Offset to cell from vertex in screen coordinates.
    * @param yOff Y Offset to cell from vertex in screen coordinates.
    * @param gridSize Size of a cell in screen coordinates.
    * @param q The quadrant the cell is in relative to the vertex.
    */
   protected void paintFarHorizontalBorder(
-      Graphics2D g, int xOff, int yOff, int gridSize, Quadrant q) {
-    int x = vertex.x + getXMult(q) * xOff;
-    int y = vertex.y + getYMult(q) * yOff + getYMult(q) * gridSize;
-    Line2D l = new Line2D.Double(x, y, x + getXMult(q) * gridSize, y);
-    g.draw(l);
+      Path2D border, int xOff, int yOff, int gridSize, Quadrant q) {
+    int x = getXMult(q) * xOff;
+    int y = getYMult(q) * yOff + getYMult(q) * gridSize;
+    border.moveTo(x, y);
+    border.lineTo(x + getXMult(q) * gridSize, y);
   }
 
   /**
    * Paint the far vertical line of a cell's border. All directions are relevant to the vertex.
    *
-   * @param g The painter.
+   * @param border The path the line is added to.
    * @param xOff X Offset to cell from vertex in screen coordinates.
    * @param yOff Y Offset to cell from vertex in screen coordinates.
    * @param gridSize Size of a cell in screen coordinates.
    * @param q The quadrant the cell is in relative to the vertex.
    */
   protected void paintFarVerticalBorder(
-      Graphics2D g, int xOff, int yOff, int gridSize, Quadrant q) {
-    int x = vertex.x + getXMult(q) * xOff + getXMult(q) * gridSize;
-    int y = vertex.y + getYMult(q) * yOff;
-    Line2D l = new Line2D.Double(x, y, x, y + getYMult(q) * gridSize);
-    g.draw(l);
+      Path2D border, int xOff, int yOff, int gridSize, Quadrant q) {
+    int x = getXMult(q) * xOff + getXMult(q) * gridSize;
+    int y = getYMult(q) * yOff;
+    border.moveTo(x, y);
+    border.lineTo(x, y + getYMult(q) * gridSize);
   }
 
   /**
@@ -361,7 +438,7 @@ protected void drawBackground(Graphics2D g) {
    * Paint the border of the template. Note that all coordinates are for the south east quadrant,
    * just change the signs of the x/y and xOff/yOff offsets to get to the other quadrants.
    *
-   * @param g Where to paint
+   * @param border The path the border lines are added to.
    * @param x Distance from vertex along X axis in cell coordinates.
    * @param y Distance from vertex along Y axis in cell coordinates.
    * @param xOff Distance from vertex along X axis in screen coordinates.
@@ -371,13 +448,13 @@ protected void drawBackground(Graphics2D g) {
    *     vertex by <code>x</code> &amp; <code>y</code>.
    */
   protected abstract void paintBorder(
-      Graphics2D g, int x, int y, int xOff, int yOff, int gridSize, int distance);
+      Path2D border, int x, int y, int xOff, int yOff, int gridSize, int distance);
 
   /**
-   * Paint the border of the template. Note that all coordinates are for the south east quadrant,
-   * just change the signs of the x/y and xOff/yOff offsets to get to the other quadrants.
+   * Paint the area of the template. Note that all coordinates are for the south east quadrant, just
+   * change the signs of the x/y and xOff/yOff offsets to get to the other quadrants.
    *
-   * @param g Where to paint
+   * @param area The path the cells are added to.
    * @param x Distance from vertex along X axis in cell coordinates.
    * @param y Distance from vertex along Y axis in cell coordinates.
    * @param xOff Distance from vertex along X axis in screen coordinates.
@@ -387,5 +464,5 @@ protected abstract void paintBorder(
    *     vertex by <code>x</code> &amp; <code>y</code>.
    */
   protected abstract void paintArea(
-      Graphics2D g, int x, int y, int xOff, int yOff, int gridSize, int distance);
+      Path2D area, int x, int y, int xOff, int yOff, int gridSize, int distance);
 }
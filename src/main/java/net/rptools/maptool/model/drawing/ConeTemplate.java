@@ -15,9 +15,9 @@
 package net.rptools.maptool.model.drawing;
 
 import com.google.protobuf.StringValue;
-import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.awt.geom.Area;
+import java.awt.geom.Path2D;
 import net.rptools.maptool.client.MapTool;
 import net.rptools.maptool.model.GUID;
 import net.rptools.maptool.model.Zone;
@@ -78,7 +78,7 @@ public void setDirection(Direction direction) {
   /**
    * Paint the border at a specific radius.
    *
-   * @param g Where to paint
+   * @param border The path the border lines are added to.
    * @param x Distance from vertex along X axis in cell coordinates.
    * @param y Distance from vertex along Y axis in cell coordinates.
    * @param xOff Distance from vertex along X axis in screen coordinates.
@@ -87,11 +87,11 @@ public void setDirection(Direction direction) {
    * @param distance The distance in cells from the vertex to the cell which is offset from the
    *     vertex by {@code x & y}.
    * @param radius The radius where the border is painted.
-   * @see net.rptools.maptool.model.drawing.AbstractTemplate#paintBorder(java.awt.Graphics2D, int,
+   * @see net.rptools.maptool.model.drawing.AbstractTemplate#paintBorder(java.awt.geom.Path2D, int,
    *     int, int, int, int, int)
    */
   protected void paintBorderAtRadius(
-      Graphics2D g, int x, int y, int xOff, int yOff, int gridSize, int distance, int radius) {
+      Path2D border, int x, int y, int xOff, int yOff, int gridSize, int distance, int radius) {
     // At the border?
     if (distance == radius) {
 
@@ -100,19 +100,19 @@ protected void paintBorderAtRadius(
         if (getDirection() == Direction.SOUTH_EAST
             || (getDirection() == Direction.SOUTH && y >= x)
             || (getDirection() == Direction.EAST && x >= y))
-          paintFarVerticalBorder(g, xOff, yOff, gridSize, Quadrant.SOUTH_EAST);
+          paintFarVerticalBorder(border, xOff, yOff, gridSize, Quadrant.SOUTH_EAST);
         if (getDirection() == Direction.NORTH_EAST
             || (getDirection() == Direction.NORTH && y >= x)
             || (getDirection() == Direction.EAST && x >= y))
-          paintFarVerticalBorder(g, xOff, yOff, gridSize, Quadrant.NORTH_EAST);
+          paintFarVerticalBorder(border, xOff, yOff, gridSize, Quadrant.NORTH_EAST);
         if (getDirection() == Direction.SOUTH_WEST
             || (getDirection() == Direction.SOUTH && y >= x)
             || (getDirection() == Direction.WEST && x >= y))
-          paintFarVerticalBorder(g, xOff, yOff, gridSize, Quadrant.SOUTH_WEST);
+          paintFarVerticalBorder(border, xOff, yOff, gridSize, Quadrant.SOUTH_WEST);
         if (getDirection() == Direction.NORTH_WEST
             || (getDirection() == Direction.NORTH && y >= x)
             || (getDirection() == Direction.WEST && x >= y))
-          paintFarVerticalBorder(g, xOff, yOff, gridSize, Quadrant.NORTH_WEST);
+          paintFarVerticalBorder(border, xOff, yOff, gridSize, Quadrant.NORTH_WEST);
       } // endif
 
       // Paint lines between horizontal boundaries if needed
@@ -120,19 +120,19 @@ protected void paintBorderAtRadius(
         if (getDirection() == Direction.SOUTH_EAST
             || (getDirection() == Direction.SOUTH && y >= x)
             || (getDirection() == Direction.EAST && x >= y))
-          paintFarHorizontalBorder(g, xOff, yOff, gridSize, Quadrant.SOUTH_EAST);
+          paintFarHorizontalBorder(border, xOff, yOff, gridSize, Quadrant.SOUTH_EAST);
         if (getDirection() == Direction.SOUTH_WEST
             || (getDirection() == Direction.SOUTH && y >= x)
             || (getDirection() == Direction.WEST && x >= y))
-          paintFarHorizontalBorder(g, xOff, yOff, gridSize, Quadrant.SOUTH_WEST);
+          paintFarHorizontalBorder(border, xOff, yOff, gridSize, Quadrant.SOUTH_WEST);
         if (getDirection() == Direction.NORTH_EAST
             || (getDirection() == Direction.NORTH && y >= x)
             || (getDirection() == Direction.EAST && x >= y))
-          paintFarHorizontalBorder(g, xOff, yOff, gridSize, Quadrant.NORTH_EAST);
+          paintFarHorizontalBorder(border, xOff, yOff, gridSize, Quadrant.NORTH_EAST);
         if (getDirection() == Direction.NORTH_WEST
             || (getDirection() == Direction.NORTH && y >= x)
             || (getDirection() == Direction.WEST && x >= y))
-          paintFarHorizontalBorder(g, xOff, yOff, gridSize, Quadrant.NORTH_WEST);
+          paintFarHorizontalBorder(border, xOff, yOff, gridSize, Quadrant.NORTH_WEST);
       } // endif
     } // endif
   }
@@ -140,7 +140,7 @@ protected void paintBorderAtRadius(
   /**
    * Paint the border at a specific radius.
    *
-   * @param g Where to paint
+   * @param border The path the border lines are added to.
    * @param x Distance from vertex along X axis in cell coordinates.
    * @param y Distance from vertex along Y axis in cell coordinates.
    * @param xOff Distance from vertex along X axis in screen coordinates.
@@ -148,51 +148,51 @@ protected void paintBorderAtRadius(
    * @param gridSize The size of one side of the grid in screen coordinates.
    * @param distance The distance in cells from the vertex to the cell which is offset from the
    *     vertex by {@code x & y}.
-   * @see net.rptools.maptool.model.drawing.AbstractTemplate#paintBorder(java.awt.Graphics2D, int,
+   * @see net.rptools.maptool.model.drawing.AbstractTemplate#paintBorder(java.awt.geom.Path2D, int,
    *     int, int, int, int, int)
    */
   protected void paintEdges(
-      Graphics2D g, int x, int y, int xOff, int yOff, int gridSize, int distance) {
+      Path2D border, int x, int y, int xOff, int yOff, int gridSize, int distance) {
 
     // Handle the edges
     int radius = getRadius();
     if (getDirection().ordinal() % 2 == 0) {
       if (x == 0) {
         if (getDirection() == Direction.SOUTH_EAST || getDirection() == Direction.SOUTH_WEST)
-          paintCloseVerticalBorder(g, xOff, yOff, gridSize, Quadrant.SOUTH_EAST);
+          paintCloseVerticalBorder(border, xOff, yOff, gridSize, Quadrant.SOUTH_EAST);
         if (getDirection() == Direction.NORTH_EAST || getDirection() == Direction.NORTH_WEST)
-          paintCloseVerticalBorder(g, xOff, yOff, gridSize, Quadrant.NORTH_EAST);
+          paintCloseVerticalBorder(border, xOff, yOff, gridSize, Quadrant.NORTH_EAST);
       } // endif
       if (y == 0) {
         if (getDirection() == Direction.SOUTH_EAST || getDirection() == Direction.NORTH_EAST)
-          paintCloseHorizontalBorder(g, xOff, yOff, gridSize, Quadrant.NORTH_EAST);
+          paintCloseHorizontalBorder(border, xOff, yOff, gridSize, Quadrant.NORTH_EAST);
         if (getDirection() == Direction.SOUTH_WEST || getDirection() == Direction.NORTH_WEST)
-          paintCloseHorizontalBorder(g, xOff, yOff, gridSize, Quadrant.NORTH_WEST);
+          paintCloseHorizontalBorder(border, xOff, yOff, gridSize, Quadrant.NORTH_WEST);
       } // endif
     } else if (getDirection().ordinal() % 2 == 1 && x == y && distance <= radius) {
       if (getDirection() == Direction.SOUTH) {
-        paintFarVerticalBorder(g, xOff, yOff, gridSize, Quadrant.SOUTH_EAST);
-        paintFarVerticalBorder(g, xOff, yOff, gridSize, Quadrant.SOUTH_WEST);
-        paintCloseHorizontalBorder(g, xOff, yOff, gridSize, Quadrant.SOUTH_EAST);
-        paintCloseHorizontalBorder(g, xOff, yOff, gridSize, Quadrant.SOUTH_WEST);
+        paintFarVerticalBorder(border, xOff, yOff, gridSize, Quadrant.SOUTH_EAST);
+        paintFarVerticalBorder(border, xOff, yOff, gridSize, Quadrant.SOUTH_WEST);
+        paintCloseHorizontalBorder(border, xOff, yOff, gridSize, Quadrant.SOUTH_EAST);
+        paintCloseHorizontalBorder(border, xOff, yOff, gridSize, Quadrant.SOUTH_WEST);
       } // endif
       if (getDirection() == Direction.NORTH) {
-        paintFarVerticalBorder(g, xOff, yOff, gridSize, Quadrant.NORTH_EAST);
-        paintFarVerticalBorder(g, xOff, yOff, gridSize, Quadrant.NORTH_WEST);
-        paintCloseHorizontalBorder(g, xOff, yOff, gridSize, Quadrant.NORTH_EAST);
-        paintCloseHorizontalBorder(g, xOff, yOff, gridSize, Quadrant.NORTH_WEST);
+        paintFarVerticalBorder(border, xOff, yOff, gridSize, Quadrant.NORTH_EAST);
+        paintFarVerticalBorder(border, xOff, yOff, gridSize, Quadrant.NORTH_WEST);
+        paintCloseHorizontalBorder(border, xOff, yOff, gridSize, Quadrant.NORTH_EAST);
+        paintCloseHorizontalBorder(border, xOff, yOff, gridSize, Quadrant.NORTH_WEST);
       } // endif
       if (getDirection() == Direction.EAST) {
-        paintCloseVerticalBorder(g, xOff, yOff, gridSize, Quadrant.SOUTH_EAST);
-        paintCloseVerticalBorder(g, xOff, yOff, gridSize, Quadrant.NORTH_EAST);
-        paintFarHorizontalBorder(g, xOff, yOff, gridSize, Quadrant.SOUTH_EAST);
-        paintFarHorizontalBorder(g, xOff, yOff, gridSize, Quadrant.NORTH_EAST);
+        paintCloseVerticalBorder(border, xOff, yOff, gridSize, Quadrant.SOUTH_EAST);
+        paintCloseVerticalBorder(border, xOff, yOff, gridSize, Quadrant.NORTH_EAST);
+        paintFarHorizontalBorder(border, xOff, yOff, gridSize, Quadrant.SOUTH_EAST);
+        paintFarHorizontalBorder(border, xOff, yOff, gridSize, Quadrant.NORTH_EAST);
       } // endif
       if (getDirection() == Direction.WEST) {
-        paintCloseVerticalBorder(g, xOff, yOff, gridSize, Quadrant.SOUTH_WEST);
-        paintCloseVerticalBorder(g, xOff, yOff, gridSize, Quadrant.NORTH_WEST);
-        paintFarHorizontalBorder(g, xOff, yOff, gridSize, Quadrant.SOUTH_WEST);
-        paintFarHorizontalBorder(g, xOff, yOff, gridSize, Quadrant.NORTH_WEST);
+        paintCloseVerticalBorder(border, xOff, yOff, gridSize, Quadrant.SOUTH_WEST);
+        paintCloseVerticalBorder(border, xOff, yOff, gridSize, Quadrant.NORTH_WEST);
+        paintFarHorizontalBorder(border, xOff, yOff, gridSize, Quadrant.SOUTH_WEST);
+        paintFarHorizontalBorder(border, xOff, yOff, gridSize, Quadrant.NORTH_WEST);
       } // endif
     } // endif
   }
@@ -202,23 +202,31 @@ protected void paintEdges(
    *-------------------------------------------------------------------------------------------*/
 
   /**
-   * @see net.rptools.maptool.model.drawing.AbstractTemplate#paintBorder(java.awt.Graphics2D, int,
+   * @see net.rptools.maptool.model.drawing.AbstractTemplate#getShapeKey()
+   */
+  @Override
+  protected Object getShapeKey() {
+    return direction;
+  }
+
+  /**
+   * @see net.rptools.maptool.model.drawing.AbstractTemplate#paintBorder(java.awt.geom.Path2D, int,
    *     int, int, int, int, int)
    */
   @Override
   protected void paintBorder(
-      Graphics2D g, int x, int y, int xOff, int yOff, int gridSize, int distance) {
-    paintBorderAtRadius(g, x, y, xOff, yOff, gridSize, distance, getRadius());
-    paintEdges(g, x, y, xOff, yOff, gridSize, distance);
+      Path2D border, int x, int y, int xOff, int yOff, int gridSize, int distance) {
+    paintBorderAtRadius(border, x, y, xOff, yOff, gridSize, distance, getRadius());
+    paintEdges(border, x, y, xOff, yOff, gridSize, distance);
   }
 
   /**
-   * @see net.rptools.maptool.model.drawing.AbstractTemplate#paintArea(java.awt.Graphics2D, int,
+   * @see net.rptools.maptool.model.drawing.AbstractTemplate#paintArea(java.awt.geom.Path2D, int,
    *     int, int, int, int, int)
    */
   @Override
   protected void paintArea(
-      Graphics2D g, int x, int y, int xOff, int yOff, int gridSize, int distance) {
+      Path2D area, int x, int y, int xOff, int yOff, int gridSize, int distance) {
 
     // Drawing along the spines only?
     if ((getDirection() == Direction.EAST || getDirection() == Direction.WEST) && y > x) return;
@@ -230,7 +238,7 @@ protected void paintArea(
     }
     for (Quadrant q : Quadrant.values()) {
       if (withinQuadrant(q)) {
-        paintArea(g, xOff, yOff, gridSize, q);
+        paintArea(area, xOff, yOff, gridSize, q);
       }
     }
   }
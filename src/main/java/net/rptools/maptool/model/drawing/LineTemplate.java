@@ -15,9 +15,9 @@
 package net.rptools.maptool.model.drawing;
 
 import com.google.protobuf.StringValue;
-import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.awt.geom.Area;
+import java.awt.geom.Path2D;
 import java.math.BigDecimal;
 import java.math.MathContext;
 import java.math.RoundingMode;
@@ -77,24 +77,24 @@ public LineTemplate(GUID id) {
    *-------------------------------------------------------------------------------------------*/
 
   /**
-   * @see net.rptools.maptool.model.drawing.AbstractTemplate#paintArea(java.awt.Graphics2D, int,
+   * @see net.rptools.maptool.model.drawing.AbstractTemplate#paintArea(java.awt.geom.Path2D, int,
    *     int, int, int, int, int)
    */
   @Override
   protected void paintArea(
-      Graphics2D g, int x, int y, int xOff, int yOff, int gridSize, int distance) {
-    paintArea(g, xOff, yOff, gridSize, getQuadrant());
+      Path2D area, int x, int y, int xOff, int yOff, int gridSize, int distance) {
+    paintArea(area, xOff, yOff, gridSize, getQuadrant());
   }
 
   /**
    * This method is cheating, the distance parameter was replaced with the offset into the path.
    *
-   * @see net.rptools.maptool.model.drawing.AbstractTemplate#paintBorder(java.awt.Graphics2D, int,
+   * @see net.rptools.maptool.model.drawing.AbstractTemplate#paintBorder(java.awt.geom.Path2D, int,
    *     int, int, int, int, int)
    */
   @Override
   protected void paintBorder(
-      Graphics2D g, int x, int y, int xOff, int yOff, int gridSize, int pElement) {
+      Path2D border, int x, int y, int xOff, int yOff, int gridSize, int pElement) {
     // Have to scan 3 points behind and ahead, since that is the maximum number of points
     // that can be added to the path from any single intersection.
     boolean[] noPaint = new boolean[4];
@@ -112,28 +112,43 @@ protected void paintBorder(
     } // endif
 
     // Paint the borders as needed
-    if (!noPaint[0]) paintCloseVerticalBorder(g, xOff, yOff, gridSize, getQuadrant());
-    if (!noPaint[1]) paintFarHorizontalBorder(g, xOff, yOff, gridSize, getQuadrant());
-    if (!noPaint[2]) paintFarVerticalBorder(g, xOff, yOff, gridSize, getQuadrant());
-    if (!noPaint[3]) paintCloseHorizontalBorder(g, xOff, yOff, gridSize, getQuadrant());
+    if (!noPaint[0]) paintCloseVerticalBorder(border, xOff, yOff, gridSize, getQuadrant());
+    if (!noPaint[1]) paintFarHorizontalBorder(border, xOff, yOff, gridSize, getQuadrant());
+    if (!noPaint[2]) paintFarVerticalBorder(border, xOff, yOff, gridSize, getQuadrant());
+    if (!noPaint[3]) paintCloseHorizontalBorder(border, xOff, yOff, gridSize, getQuadrant());
   }
 
   /**
-   * @see net.rptools.maptool.model.drawing.AbstractTemplate#paint(java.awt.Graphics2D, boolean,
-   *     boolean)
+   * The shape of a line is its path of cells and the quadrant they are drawn in.
+   *
+   * @see net.rptools.maptool.model.drawing.AbstractTemplate#getShapeKey()
    */
   @Override
-  protected void paint(Graphics2D g, boolean border, boolean area) {
-    if (MapTool.getCampaign().getZone(getZoneId()) == null) {
+  protected Object getShapeKey() {
+    if (pathVertex == null || path == null && calcPath() == null) {
+      return null;
+    }
+    List<Integer> key = new ArrayList<>(path.size() * 2 + 1);
+    key.add(quadrant == null ? -1 : getQuadrant().ordinal());
+    for (CellPoint p : path) {
+      key.add(p.x);
+      key.add(p.y);
+    }
+    return key;
+  }
+
+  /**
+   * @see net.rptools.maptool.model.drawing.AbstractTemplate#buildGeometry(java.awt.geom.Path2D,
+   *     java.awt.geom.Path2D, int)
+   */
+  @Override
+  protected void buildGeometry(Path2D border, Path2D area, int gridSize) {
+    // Need to paint? We need a line
+    if (pathVertex == null || path == null) {
       return;
     }
-    // Need to paint? We need a line and to translate the painting
-    if (pathVertex == null) return;
-    if (getRadius() == 0) return;
-    if (calcPath() == null) return;
 
     // Paint each element in the path
-    int gridSize = MapTool.getCampaign().getZone(getZoneId()).getGrid().getSize();
     ListIterator<CellPoint> i = path.listIterator();
     while (i.hasNext()) {
       CellPoint p = i.next();
@@ -141,13 +156,8 @@ protected void paint(Graphics2D g, boolean border, boolean area) {
       int yOff = p.y * gridSize;
       int distance = getDistance(p.x, p.y);
 
-      // Paint what is needed.
-      if (area) {
-        paintArea(g, p.x, p.y, xOff, yOff, gridSize, distance);
-      } // endif
-      if (border) {
-        paintBorder(g, p.x, p.y, xOff, yOff, gridSize, i.previousIndex());
-      } // endif
+      paintArea(area, p.x, p.y, xOff, yOff, gridSize, distance);
+      paintBorder(border, p.x, p.y, xOff, yOff, gridSize, i.previousIndex());
     } // endfor
   }
 
@@ -345,6 +355,8 @@ public boolean isMouseSlopeGreater() {
    * @param aMouseSlopeGreater The mouseSlopeGreater to set.
    */
   public void setMouseSlopeGreater(boolean aMouseSlopeGreater) {
+    if (aMouseSlopeGreater == mouseSlopeGreater) return;
+    clearPath();
     mouseSlopeGreater = aMouseSlopeGreater;
   }
 
@@ -363,6 +375,8 @@ public boolean isDoubleWide() {
    * @param aDoubleWide The doubleWide to set.
    */
   public void setDoubleWide(boolean aDoubleWide) {
+    if (aDoubleWide == doubleWide) return;
+    clearPath();
     doubleWide = aDoubleWide;
   }
 
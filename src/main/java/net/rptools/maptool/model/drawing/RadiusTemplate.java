@@ -19,6 +19,7 @@
 import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Area;
+import java.awt.geom.Path2D;
 import java.awt.geom.PathIterator;
 import net.rptools.maptool.client.MapTool;
 import net.rptools.maptool.model.GUID;
@@ -45,7 +46,7 @@ public RadiusTemplate(GUID id) {
   /**
    * Paint the border at a specific radius.
    *
-   * @param g Where to paint
+   * @param border The path the border lines are added to.
    * @param x Distance from vertex along X axis in cell coordinates.
    * @param y Distance from vertex along Y axis in cell coordinates.
    * @param xOff Distance from vertex along X axis in screen coordinates.
@@ -54,24 +55,24 @@ public RadiusTemplate(GUID id) {
    * @param distance The distance in cells from the vertex to the cell which is offset from the
    *     vertex by {@code x & y}.
    * @param radius The radius where the border is painted.
-   * @see net.rptools.maptool.model.drawing.AbstractTemplate#paintBorder(java.awt.Graphics2D, int,
+   * @see net.rptools.maptool.model.drawing.AbstractTemplate#paintBorder(java.awt.geom.Path2D, int,
    *     int, int, int, int, int)
    */
   protected void paintBorderAtRadius(
-      Graphics2D g, int x, int y, int xOff, int yOff, int gridSize, int distance, int radius) {
+      Path2D border, int x, int y, int xOff, int yOff, int gridSize, int distance, int radius) {
     // At the border?
     if (distance == radius) {
       // Paint lines between vertical boundaries if needed
       if (getDistance(x + 1, y) > radius) {
         for (Quadrant q : Quadrant.values()) {
-          paintFarVerticalBorder(g, xOff, yOff, gridSize, q);
+          paintFarVerticalBorder(border, xOff, yOff, gridSize, q);
         }
       }
 
       // Paint lines between horizontal boundaries if needed
       if (getDistance(x, y + 1) > radius) {
         for (Quadrant q : Quadrant.values()) {
-          paintFarHorizontalBorder(g, xOff, yOff, gridSize, q);
+          paintFarHorizontalBorder(border, xOff, yOff, gridSize, q);
         }
       }
     }
@@ -82,13 +83,13 @@ protected void paintBorderAtRadius(
    *-------------------------------------------------------------------------------------------*/
 
   /**
-   * @see net.rptools.maptool.model.drawing.AbstractTemplate#paintBorder(java.awt.Graphics2D, int,
+   * @see net.rptools.maptool.model.drawing.AbstractTemplate#paintBorder(java.awt.geom.Path2D, int,
    *     int, int, int, int, int)
    */
   @Override
   protected void paintBorder(
-      Graphics2D g, int x, int y, int xOff, int yOff, int gridSize, int distance) {
-    paintBorderAtRadius(g, x, y, xOff, yOff, gridSize, distance, getRadius());
+      Path2D border, int x, int y, int xOff, int yOff, int gridSize, int distance) {
+    paintBorderAtRadius(border, x, y, xOff, yOff, gridSize, distance, getRadius());
 
     // At the center?
     // FIXME This is wrong because it draws the filled rectangle at CellPoint(0,0) and it should be
@@ -99,17 +100,17 @@ protected void paintBorder(
   }
 
   /**
-   * @see net.rptools.maptool.model.drawing.AbstractTemplate#paintArea(java.awt.Graphics2D, int,
+   * @see net.rptools.maptool.model.drawing.AbstractTemplate#paintArea(java.awt.geom.Path2D, int,
    *     int, int, int, int, int)
    */
   @Override
   protected void paintArea(
-      Graphics2D g, int x, int y, int xOff, int yOff, int gridSize, int distance) {
+      Path2D area, int x, int y, int xOff, int yOff, int gridSize, int distance) {
     // Only squares w/in the radius
     if (distance <= getRadius()) {
       // Paint the squares
       for (Quadrant q : Quadrant.values()) {
-        paintArea(g, xOff, yOff, gridSize, q);
+        paintArea(area, xOff, yOff, gridSize, q);
       }
     }
   }
@@ -286,6 +286,14 @@ public void deregisterAllLibraries() {
     libraryTokenManager.clearLibraries();
   }
 
+  /**
+   * Removes all the lib:tokens from the library manager. The lib:tokens of the current campaign are
+   * added back as its zones are announced.
+   */
+  public void clearLibraryTokens() {
+    libraryTokenManager.clearLibraries();
+  }
+
   /** de-registers all the add-on in libraries. */
   public void deregisterAddOnLibraries() {
     addOnLibraryManager.removeAllLibraries();
@@ -343,20 +351,22 @@ public void removeAddOnLibraries() {
    * @return the list of tokens that have handlers for the specified legacy token events.
    */
   public CompletableFuture<List<Library>> getLegacyEventTargets(String eventName) {
-    return CompletableFuture.supplyAsync(
-        () -> {
-          var addons = addOnLibraryManager.getLegacyEventTargets(eventName).join();
-          var tokens = libraryTokenManager.getLegacyEventTargets(eventName).join();
-          var libs = new HashSet<Library>(addons);
-          var addonLibNamespaces =
-              addons.stream().map(Library::getNamespace).collect(Collectors.toSet());
-          // Only add lib:tokens if there are no addon libraries with the same namespace
-          for (var token : tokens) {
-            if (!addonLibNamespaces.contains(token.getNamespace())) {
-              libs.add(token);
-            }
-          }
-          return new ArrayList<>(libs);
-        });
+    // Both managers keep an index of event handlers so this is cheap enough to do on the
+    // calling thread.
+    var addons = addOnLibraryManager.getLegacyEventTargets(eventName).join();
+    var tokens = libraryTokenManager.getLegacyEventTargets(eventName).join();
+    if (addons.isEmpty() && tokens.isEmpty()) {
+      return CompletableFuture.completedFuture(new ArrayList<>());
+    }
+    var libs = new HashSet<Library>(addons);
+    var addonLibNamespaces =
+        addons.stream().map(l -> l.getNamespace().join().toLowerCase()).collect(Collectors.toSet());
+    // Only add lib:tokens if there are no addon libraries with the same namespace
+    for (var token : tokens) {
+      if (!addonLibNamespaces.contains(token.getNamespace().join().toLowerCase())) {
+        libs.add(token);
+      }
+    }
+    return CompletableFuture.completedFuture(new ArrayList<>(libs));
   }
 }
@@ -29,6 +29,7 @@
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.script.ScriptException;
 import javax.swing.SwingUtilities;
 import net.rptools.lib.MD5Key;
@@ -124,6 +125,12 @@ private record MTScript(String path, boolean autoExecute, String description, MD
   /** The mapping between MTScript function paths and asset information. */
   private final Map<String, MTScript> mtsFunctionAssetMap;
 
+  /** The details of the public MTScript functions that have been called, by macro name. */
+  private final Map<String, MTScriptMacroInfo> publicMacroInfoMap = new ConcurrentHashMap<>();
+
+  /** The details of the MTScript functions that have been called privately, by macro name. */
+  private final Map<String, MTScriptMacroInfo> privateMacroInfoMap = new ConcurrentHashMap<>();
+
   /** The mapping between MTScript function paths and legacy events. */
   private final Map<String, String> legacyEventNameMap = new HashMap<>();
 
@@ -281,27 +288,34 @@ public CompletableFuture<LibraryInfo> getLibraryInfo() {
   }
 
   /**
-   * Return a {@link MTScriptMacroInfo} for the macro.
+   * Return a {@link MTScriptMacroInfo} for the macro. The macro is decoded the first time it is
+   * called and the details kept for later calls, as add-on libraries can't change once imported.
    *
+   * @param macroInfoMap The map of macro details already decoded.
    * @param macroName The name of the macro.
    * @param macro The macro details.
    * @return The {@link MTScriptMacroInfo} details.
    */
   private CompletableFuture<Optional<MTScriptMacroInfo>> getMacroInfo(
-      String macroName, MTScript macro) {
-    return CompletableFuture.supplyAsync(
-        () -> {
-          Asset asset = AssetManager.getAsset(macro.md5Key());
-          String command = asset.getDataAsString();
-          // Drop In Library Functions are always trusted as only GM can add and no one can edit.
-          return Optional.of(
-              new MTScriptMacroInfo(
+      Map<String, MTScriptMacroInfo> macroInfoMap, String macroName, MTScript macro) {
+    try {
+      return CompletableFuture.completedFuture(
+          Optional.of(
+              macroInfoMap.computeIfAbsent(
                   macroName,
-                  command,
-                  true, // Drop In Library Functions are always trusted
-                  macro.autoExecute(),
-                  macro.description()));
-        });
+                  k -> {
+                    Asset asset = AssetManager.getAsset(macro.md5Key());
+                    String command = asset.getDataAsString();
+                    return new MTScriptMacroInfo(
+                        macroName,
+                        command,
+                        true, // Drop In Library Functions are always trusted
+                        macro.autoExecute(),
+                        macro.description());
+                  })));
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
   }
 
   @Override
@@ -310,7 +324,7 @@ public CompletableFuture<Optional<MTScriptMacroInfo>> getMTScriptMacroInfo(Strin
     if (macro == null) {
       return CompletableFuture.completedFuture(Optional.empty());
     }
-    return getMacroInfo(macroName, macro);
+    return getMacroInfo(publicMacroInfoMap, macroName, macro);
   }
 
   @Override
@@ -319,7 +333,7 @@ public CompletableFuture<Optional<MTScriptMacroInfo>> getPrivateMacroInfo(String
     if (macro == null) {
       return CompletableFuture.completedFuture(Optional.empty());
     }
-    return getMacroInfo(macroName, macro);
+    return getMacroInfo(privateMacroInfoMap, macroName, macro);
   }
 
   @Override
@@ -382,6 +396,8 @@ public void cleanup() {
     if (JSScriptEngine.hasAddOnContext(jsContextName)) {
       JSScriptEngine.removeAddOnContext(jsContextName);
     }
+    publicMacroInfoMap.clear();
+    privateMacroInfoMap.clear();
   }
 
   @Override
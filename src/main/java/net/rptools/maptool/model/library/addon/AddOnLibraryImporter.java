@@ -15,6 +15,7 @@
 package net.rptools.maptool.model.library.addon;
 
 import com.google.protobuf.util.JsonFormat;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -163,8 +164,12 @@ public AddOnLibrary importFromFile(File file) throws IOException {
             .merge(new InputStreamReader(zip.getInputStream(eventsZipEntry)), eventPropBuilder);
       }
       var addOnLib = builder.build();
-      byte[] data = Files.readAllBytes(file.toPath());
-      var asset = Type.MTLIB.getFactory().apply(addOnLib.getNamespace(), data);
+      var data = new ByteArrayOutputStream((int) file.length());
+      MD5Key key;
+      try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+        key = MD5Key.fromStream(inputStream, data);
+      }
+      var asset = Asset.createAsset(addOnLib.getNamespace(), data.toByteArray(), Type.MTLIB, key);
       addAsset(asset);
 
       return AddOnLibrary.fromDto(
@@ -195,10 +200,12 @@ private Map<String, Pair<MD5Key, Type>> processAssets(String namespace, ZipFile
     for (var entry : entries) {
       String path = entry.getName().substring(CONTENT_DIRECTORY.length());
       try (InputStream inputStream = zip.getInputStream(entry)) {
-        byte[] bytes = inputStream.readAllBytes();
+        var data = new ByteArrayOutputStream((int) Math.max(entry.getSize(), 32));
+        MD5Key key = MD5Key.fromStream(inputStream, data);
+        byte[] bytes = data.toByteArray();
         MediaType mediaType = Asset.getMediaType(entry.getName(), bytes);
         Asset asset =
-            Type.fromMediaType(mediaType).getFactory().apply(namespace + "/" + path, bytes);
+            Asset.createAsset(namespace + "/" + path, bytes, Type.fromMediaType(mediaType), key);
         addAsset(asset);
         pathAssetMap.put(path, Pair.with(asset.getMD5Key(), asset.getType()));
       }
@@ -17,6 +17,7 @@
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -40,6 +41,9 @@ public class AddOnLibraryManager {
   /** The add-on libraries that are registered. */
   private final Map<String, AddOnLibrary> namespaceLibraryMap = new ConcurrentHashMap<>();
 
+  /** Map of legacy event names to the namespaces of the add-on libraries that handle them. */
+  private final Map<String, Set<String>> legacyEventNamespaces = new ConcurrentHashMap<>();
+
   /**
    * Is there a add-on library that would handle this path. This just checks the protocol and
    * namespace, it won't check that the full path actually exists.
@@ -80,6 +84,11 @@ public void registerLibrary(AddOnLibrary library) {
     }
 
     library.initialize();
+    for (String event : library.getLegacyEvents()) {
+      legacyEventNamespaces
+          .computeIfAbsent(event, k -> ConcurrentHashMap.newKeySet())
+          .add(namespace);
+    }
     new MapToolEventBus()
         .getMainEventBus()
         .post(new AddOnsAddedEvent(Set.of(library.getLibraryInfo().join())));
@@ -93,6 +102,7 @@ public void registerLibrary(AddOnLibrary library) {
   public void deregisterLibrary(String namespace) {
     var removed = namespaceLibraryMap.remove(namespace.toLowerCase());
     if (removed != null) {
+      removeLegacyEvents(namespace.toLowerCase(), removed);
       removed.cleanup();
       new MapToolEventBus()
           .getMainEventBus()
@@ -177,6 +187,24 @@ public void removeAllLibraries() {
         library.cleanup();
       }
       namespaceLibraryMap.clear();
+      legacyEventNamespaces.clear();
+    }
+  }
+
+  /**
+   * Removes the legacy events of the add-on library from the legacy event index.
+   *
+   * @param namespace the namespace of the add-on library.
+   * @param library the add-on library.
+   */
+  private void removeLegacyEvents(String namespace, AddOnLibrary library) {
+    for (String event : library.getLegacyEvents()) {
+      legacyEventNamespaces.computeIfPresent(
+          event,
+          (k, v) -> {
+            v.remove(namespace);
+            return v.isEmpty() ? null : v;
+          });
     }
   }
 
@@ -187,10 +215,14 @@ public void removeAllLibraries() {
    * @return the list of tokens that have handlers for the specified legacy token events.
    */
   public CompletableFuture<Set<Library>> getLegacyEventTargets(String eventName) {
-    return CompletableFuture.supplyAsync(
-        () ->
-            namespaceLibraryMap.values().stream()
-                .filter(l -> l.getLegacyEvents().contains(eventName))
-                .collect(Collectors.toSet()));
+    var namespaces = legacyEventNamespaces.getOrDefault(eventName, Set.of());
+    Set<Library> libs = new HashSet<>(namespaces.size());
+    for (String namespace : namespaces) {
+      var lib = namespaceLibraryMap.get(namespace);
+      if (lib != null) {
+        libs.add(lib);
+      }
+    }
+    return CompletableFuture.completedFuture(libs);
   }
 }
@@ -21,6 +21,7 @@
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
@@ -494,4 +495,13 @@ GUID getId() {
   boolean hasMacro(String name) {
     return macroNames.contains(name);
   }
+
+  /**
+   * Returns the names of the macros on the lib:token at the time this object was created.
+   *
+   * @return the names of the macros.
+   */
+  Set<String> getMacroNames() {
+    return Collections.unmodifiableSet(macroNames);
+  }
 }
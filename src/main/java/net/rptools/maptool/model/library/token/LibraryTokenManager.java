@@ -19,17 +19,19 @@
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
 import javax.swing.SwingUtilities;
 import net.rptools.maptool.client.MapTool;
 import net.rptools.maptool.events.MapToolEventBus;
 import net.rptools.maptool.language.I18N;
 import net.rptools.maptool.model.GUID;
 import net.rptools.maptool.model.Token;
+import net.rptools.maptool.model.Zone;
 import net.rptools.maptool.model.library.Library;
 import net.rptools.maptool.model.library.LibraryManager;
 import net.rptools.maptool.model.library.LibraryNotValidException;
@@ -38,7 +40,7 @@
 import net.rptools.maptool.model.zones.TokensAdded;
 import net.rptools.maptool.model.zones.TokensChanged;
 import net.rptools.maptool.model.zones.TokensRemoved;
-import net.rptools.maptool.util.threads.ThreadExecutionHelper;
+import net.rptools.maptool.model.zones.ZoneRemoved;
 
 /** Class that represents Lib:Token libraries. */
 public class LibraryTokenManager {
@@ -73,97 +75,167 @@ public class LibraryTokenManager {
   /** The version number to return if the lin:token version is unknown. */
   private static final String LIB_VERSION_UNKNOWN = "unknown";
 
-  /** Map of library token names to library tokens. */
-  private final Map<String, LibraryToken> libraryTokens = new ConcurrentHashMap<>();
+  /** The key of a library token in a zone. */
+  private record TokenKey(GUID zoneId, GUID tokenId) {}
+
+  /**
+   * The library tokens looked up by namespace and macro name. This is rebuilt whenever the library
+   * tokens change, and is never modified, so lookups can read it from any thread without locking.
+   *
+   * @param byNamespace the library tokens by lower case namespace, in the order they were added.
+   * @param byMacro the first library token of each namespace that has a macro, by macro name.
+   */
+  private record Index(
+      Map<String, List<LibraryToken>> byNamespace, Map<String, List<Library>> byMacro) {
+    private static final Index EMPTY = new Index(Map.of(), Map.of());
+  }
+
+  /** The library tokens of all the zones, in the order they were added. Guarded by itself. */
+  private final Map<TokenKey, LibraryToken> libraryTokens = new LinkedHashMap<>();
+
+  /** The index lookups are served from. */
+  private volatile Index index = Index.EMPTY;
 
   /** Class to listen to token changes. */
   private TokenEventListener tokenEventListener = new TokenEventListener();
 
   /** Removes all of the library tokens from the manager. */
   public void clearLibraries() {
-    libraryTokens.clear();
+    synchronized (libraryTokens) {
+      libraryTokens.clear();
+      index = Index.EMPTY;
+    }
   }
 
+  /**
+   * Keeps the library tokens up to date as tokens change. The index is updated on the thread that
+   * changed the token, so a lookup made right after the change sees it.
+   */
   private class TokenEventListener {
     @Subscribe
     public void tokensAdded(TokensAdded event) {
-      SwingUtilities.invokeLater(
-          () -> {
-            addTokens(
-                event.tokens().stream()
-                    .filter(t -> t.getName().toLowerCase().startsWith("lib:"))
-                    .map(LibraryToken::new)
-                    .toList());
-          });
+      putTokens(event.zone(), event.tokens());
     }
 
     @Subscribe
     public void tokensRemoved(TokensRemoved event) {
-      SwingUtilities.invokeLater(
-          () -> {
-            removeTokens(
-                event.tokens().stream()
-                    .filter(t -> t.getName().toLowerCase().startsWith("lib:"))
-                    .map(t -> LibraryToken.namespaceForName(t.getName()))
-                    .toList());
-          });
+      removeTokens(event.zone(), event.tokens());
     }
 
     @Subscribe
     public void tokensChanged(TokensChanged event) {
-      SwingUtilities.invokeLater(
-          () -> {
-            changeTokens(
-                event.tokens().stream()
-                    .filter(t -> t.getName().toLowerCase().startsWith("lib:"))
-                    .map(LibraryToken::new)
-                    .toList());
-          });
+      putTokens(event.zone(), event.tokens());
     }
 
     @Subscribe
     public void tokenEdited(TokenEdited event) {
       // Treat the same as a change.
-      tokensChanged(new TokensChanged(event.zone(), Collections.singletonList(event.token())));
+      putTokens(event.zone(), Collections.singletonList(event.token()));
+    }
+
+    @Subscribe
+    public void zoneRemoved(ZoneRemoved event) {
+      removeZone(event.zone());
     }
   }
 
-  private void addTokens(Collection<LibraryToken> libs) {
-    libs.forEach(
-        l -> {
-          String name = l.getName().join();
-          if (name.length() > 4 && name.toLowerCase().startsWith("lib:")) {
-            String namespace = l.getNamespace().join();
-            libraryTokens.put(namespace, l);
-          }
-        });
+  /**
+   * Returns if the name is the name of a lib:token.
+   *
+   * @param name the name of the token.
+   * @return {@code true} if the name is the name of a lib:token.
+   */
+  private static boolean isLibraryName(String name) {
+    return name != null && name.length() > 4 && name.toLowerCase().startsWith("lib:");
   }
 
-  private void removeTokens(Collection<String> namespaces) {
-    namespaces.forEach(libraryTokens::remove);
+  /**
+   * Adds or updates the library tokens for tokens that have been added to or changed in a zone.
+   * Tokens that are no longer named as lib:tokens are removed.
+   *
+   * @param zone the zone the tokens are in.
+   * @param tokens the tokens that were added or changed.
+   */
+  void putTokens(Zone zone, Collection<Token> tokens) {
+    synchronized (libraryTokens) {
+      boolean changed = false;
+      for (Token token : tokens) {
+        var key = new TokenKey(zone.getId(), token.getId());
+        if (isLibraryName(token.getName())) {
+          libraryTokens.put(key, new LibraryToken(token));
+          changed = true;
+        } else if (libraryTokens.remove(key) != null) {
+          changed = true;
+        }
+      }
+      if (changed) {
+        rebuildIndex();
+      }
+    }
   }
 
-  private void changeTokens(Collection<LibraryToken> libs) {
-    libs.forEach(
-        l -> {
-          // name may have changed so we need to search by id
-          GUID id = l.getId();
-          var old = libraryTokens.values().stream().filter(l2 -> id.equals(l2.getId())).findFirst();
-          old.ifPresent(libraryToken -> removeTokens(List.of(libraryToken.getNamespace().join())));
-          addTokens(List.of(l));
-        });
+  /**
+   * Removes the library tokens for tokens that have been removed from a zone.
+   *
+   * @param zone the zone the tokens were removed from.
+   * @param tokens the tokens that were removed.
+   */
+  void removeTokens(Zone zone, Collection<Token> tokens) {
+    synchronized (libraryTokens) {
+      boolean changed = false;
+      for (Token token : tokens) {
+        if (libraryTokens.remove(new TokenKey(zone.getId(), token.getId())) != null) {
+          changed = true;
+        }
+      }
+      if (changed) {
+        rebuildIndex();
+      }
+    }
+  }
+
+  /**
+   * Removes the library tokens of a zone that has been removed.
+   *
+   * @param zone the zone that was removed.
+   */
+  void removeZone(Zone zone) {
+    synchronized (libraryTokens) {
+      if (libraryTokens.keySet().removeIf(k -> k.zoneId().equals(zone.getId()))) {
+        rebuildIndex();
+      }
+    }
+  }
+
+  /** Rebuilds the index from the library tokens. Must be called holding the lock. */
+  private void rebuildIndex() {
+    var byNamespace = new HashMap<String, List<LibraryToken>>();
+    for (LibraryToken lib : libraryTokens.values()) {
+      byNamespace
+          .computeIfAbsent(lib.getNamespace().join().toLowerCase(), k -> new ArrayList<>())
+          .add(lib);
+    }
+
+    var byMacro = new HashMap<String, List<Library>>();
+    for (List<LibraryToken> libs : byNamespace.values()) {
+      LibraryToken lib = libs.get(0);
+      for (String macro : lib.getMacroNames()) {
+        byMacro.computeIfAbsent(macro, k -> new ArrayList<>()).add(lib);
+      }
+    }
+
+    byNamespace.replaceAll((k, v) -> List.copyOf(v));
+    byMacro.replaceAll((k, v) -> List.copyOf(v));
+    index = new Index(Map.copyOf(byNamespace), Map.copyOf(byMacro));
   }
 
   public void init() {
     SwingUtilities.invokeLater(
         () -> {
-          var tokens = new ArrayList<Token>();
+          new MapToolEventBus().getMainEventBus().register(tokenEventListener);
           for (var zone : MapTool.getCampaign().getZones()) {
-            tokens.addAll(
-                zone.getTokensFiltered(f -> f.getName().toLowerCase().startsWith("lib:")));
+            putTokens(zone, zone.getTokensFiltered(t -> isLibraryName(t.getName())));
           }
-          addTokens(tokens.stream().map(LibraryToken::new).toList());
-          new MapToolEventBus().getMainEventBus().register(tokenEventListener);
         });
   }
 
@@ -188,35 +260,19 @@ public boolean handles(URL path) {
    * @return list of library tokens
    */
   public CompletableFuture<List<Library>> getLibraries() {
-    return getMatchingLibraryList(null, null);
+    var libs = new ArrayList<Library>();
+    index.byNamespace().values().forEach(libs::addAll);
+    return CompletableFuture.completedFuture(libs);
   }
 
   /**
-   * Returns a list of the library tokens filtered by those that have a given property and macro
-   * name. if either the property or macro name is null then it will match all tokens for that
-   * filter.
+   * Returns all the library tokens for a namespace (case-insensitive).
    *
-   * @param property the name of the property to match or null to ignore
-   * @param macro the name of the macro to match or null to ignore
-   * @return list of library tokens that match the filters.
+   * @param namespace the namespace to match.
+   * @return the library tokens in the order they were added.
    */
-  private CompletableFuture<List<Library>> getMatchingLibraryList(String property, String macro) {
-    return new ThreadExecutionHelper<List<Library>>()
-        .runOnSwingThread(
-            () -> {
-              List<Library> tokenList = new ArrayList<>();
-              for (var zone : MapTool.getCampaign().getZones()) {
-                tokenList.addAll(
-                    zone
-                        .getTokensFiltered(t -> t.getName().toLowerCase().startsWith("lib:"))
-                        .stream()
-                        .filter(t -> property == null || t.getProperty(property) != null)
-                        .filter(t -> macro == null || t.getMacro(macro, false) != null)
-                        .map(LibraryToken::new)
-                        .toList());
-              }
-              return tokenList;
-            });
+  private List<LibraryToken> getLibraryTokens(String namespace) {
+    return index.byNamespace().getOrDefault(namespace.toLowerCase(), List.of());
   }
 
   /**
@@ -226,16 +282,8 @@ private CompletableFuture<List<Library>> getMatchingLibraryList(String property,
    * @return the library for the namespace.
    */
   public CompletableFuture<Library> getLibrary(String namespace) {
-    return new ThreadExecutionHelper<Library>()
-        .runOnSwingThread(
-            () -> {
-              var tokenList = getTokensWithName("lib:" + namespace);
-              if (tokenList.isEmpty()) {
-                return null;
-              } else {
-                return new LibraryToken(tokenList.get(0));
-              }
-            });
+    var libs = getLibraryTokens(namespace);
+    return CompletableFuture.completedFuture(libs.isEmpty() ? null : libs.get(0));
   }
 
   /**
@@ -249,8 +297,11 @@ public CompletableFuture<Optional<Library>> getLibrary(URL path) {
       return CompletableFuture.completedFuture(Optional.empty());
     }
 
-    return new ThreadExecutionHelper<Optional<Library>>()
-        .runOnSwingThread(() -> Optional.ofNullable(findLibrary(path)));
+    try {
+      return CompletableFuture.completedFuture(Optional.ofNullable(findLibrary(path)));
+    } catch (LibraryNotValidException e) {
+      return CompletableFuture.failedFuture(e);
+    }
   }
 
   /**
@@ -259,54 +310,22 @@ public CompletableFuture<Optional<Library>> getLibrary(URL path) {
    * @param path the path of the token to find.
    * @return the library token or {@code null} if it can not be found.
    */
-  private static Library findLibrary(URL path) {
-    String name = "lib:" + path.getHost();
-    List<Token> tokenList = getTokensWithName(name);
-    if (tokenList.size() > 0) {
-      Optional<Token> token = tokenList.stream().filter(Token::getAllowURIAccess).findFirst();
-      if (token.isPresent()) {
-        return new LibraryToken(token.get());
+  private Library findLibrary(URL path) {
+    List<LibraryToken> libs = getLibraryTokens(path.getHost());
+    if (libs.size() > 0) {
+      Optional<LibraryToken> lib =
+          libs.stream().filter(l -> l.allowsUriAccess().join()).findFirst();
+      if (lib.isPresent()) {
+        return lib.get();
       } else { // There are some tokens but none with "Allow URI Access"
         throw new LibraryNotValidException(
-            Reason.MISSING_PERMISSIONS, I18N.getText("library.error.libtoken.no.access", name));
+            Reason.MISSING_PERMISSIONS,
+            I18N.getText("library.error.libtoken.no.access", "lib:" + path.getHost()));
       }
     }
     return null;
   }
 
-  /**
-   * Returns a list of all tokens that match the specified name (case-insensitive)
-   *
-   * @param name the name to match.
-   * @return list of tokens.
-   */
-  private static List<Token> getTokensWithName(String name) {
-    List<Token> tokenList = new ArrayList<Token>();
-    for (var zone : MapTool.getCampaign().getZones()) {
-      tokenList.addAll(zone.getTokensFiltered(t -> name.equalsIgnoreCase(t.getName())));
-    }
-
-    return tokenList;
-  }
-
-  /**
-   * Returns the {@link Token} for the library.
-   *
-   * @param id the id of the token Lib:Token to get.
-   * @return the Token for the library.
-   */
-  private Token findLibrary(GUID id) {
-    for (var zone : MapTool.getCampaign().getZones()) {
-      var token = zone.getToken(id);
-      if (token != null) {
-        return token;
-      }
-    }
-
-    throw new LibraryNotValidException(
-        Reason.MISSING_LIBRARY, I18N.getText("library.error.libtoken.missing"));
-  }
-
   /**
    * Returns the list of tokens that have handlers for the specified legacy token events.
    *
@@ -314,9 +333,7 @@ private Token findLibrary(GUID id) {
    * @return the list of tokens that have handlers for the specified legacy token events.
    */
   public CompletableFuture<List<Library>> getLegacyEventTargets(String eventName) {
-    var libs =
-        new ArrayList<Library>(
-            libraryTokens.values().stream().filter(l -> l.hasMacro(eventName)).toList());
-    return CompletableFuture.completedFuture(libs);
+    return CompletableFuture.completedFuture(
+        new ArrayList<>(index.byMacro().getOrDefault(eventName, List.of())));
   }
 }
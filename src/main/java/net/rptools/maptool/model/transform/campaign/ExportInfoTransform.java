@@ -15,13 +15,16 @@
 package net.rptools.maptool.model.transform.campaign;
 
 import java.util.regex.Pattern;
-import net.rptools.lib.ModelVersionTransformation;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.events.XMLEvent;
+import net.rptools.lib.StreamingModelVersionTransformation;
+import net.rptools.lib.XMLEventFilterReader;
 
 /**
  * This should be applied to any campaign file version 1.3.74 and earlier due to the deletion of the
  * ExportInfo class afterwards.
  */
-public class ExportInfoTransform implements ModelVersionTransformation {
+public class ExportInfoTransform implements StreamingModelVersionTransformation {
   private static final String blockStart = "<exportInfo>";
   private static final String blockEnd = "</exportInfo>";
   private static final String regex = blockStart + ".*" + blockEnd;
@@ -38,4 +41,26 @@ public String transform(String xml) {
     // except that we can specify the flag DOTALL
     return pattern.matcher(xml).replaceAll(replacement);
   }
+
+  @Override
+  public XMLEventReader transform(XMLEventReader events) {
+    return new XMLEventFilterReader(events) {
+      private int skipDepth;
+
+      @Override
+      protected void process(XMLEvent event) {
+        if (skipDepth > 0) {
+          if (event.isStartElement()) {
+            skipDepth++;
+          } else if (event.isEndElement()) {
+            skipDepth--;
+          }
+        } else if ("exportInfo".equals(startName(event))) {
+          skipDepth = 1;
+        } else {
+          emit(event);
+        }
+      }
+    };
+  }
 }
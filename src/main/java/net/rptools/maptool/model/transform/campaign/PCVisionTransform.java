@@ -14,9 +14,12 @@
  */
 package net.rptools.maptool.model.transform.campaign;
 
-import net.rptools.lib.ModelVersionTransformation;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.events.XMLEvent;
+import net.rptools.lib.StreamingModelVersionTransformation;
+import net.rptools.lib.XMLEventFilterReader;
 
-public class PCVisionTransform implements ModelVersionTransformation {
+public class PCVisionTransform implements StreamingModelVersionTransformation {
   private static final String searchFor = "<tokenType>PC";
   private static final String subField = "<hasSight>";
 
@@ -37,4 +40,42 @@ public String transform(String xml) {
 
     return xml;
   }
+
+  @Override
+  public XMLEventReader transform(XMLEventReader events) {
+    return new XMLEventFilterReader(events) {
+      private boolean inTokenType;
+      private boolean pcSeen;
+      private boolean inSightOfPC;
+
+      @Override
+      protected void process(XMLEvent event) {
+        if ("tokenType".equals(startName(event))) {
+          inTokenType = true;
+        } else if ("tokenType".equals(endName(event))) {
+          inTokenType = false;
+        } else if ("hasSight".equals(startName(event))) {
+          inSightOfPC = pcSeen;
+          pcSeen = false;
+        } else if ("hasSight".equals(endName(event))) {
+          inSightOfPC = false;
+        } else if (event.isCharacters()) {
+          String text = event.asCharacters().getData();
+          if (inTokenType && text.startsWith("PC")) {
+            pcSeen = true;
+          } else if (inSightOfPC) {
+            inSightOfPC = false;
+            String value = text.stripLeading();
+            if (value.startsWith("false")) {
+              String leading = text.substring(0, text.length() - value.length());
+              event =
+                  eventFactory.createCharacters(
+                      leading + "true" + value.substring("false".length()));
+            }
+          }
+        }
+        emit(event);
+      }
+    };
+  }
 }
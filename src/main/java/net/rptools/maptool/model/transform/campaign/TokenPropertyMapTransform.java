@@ -14,10 +14,20 @@
  */
 package net.rptools.maptool.model.transform.campaign;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
 import java.util.regex.Pattern;
-import net.rptools.lib.ModelVersionTransformation;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import net.rptools.lib.StreamingModelVersionTransformation;
+import net.rptools.lib.XMLEventFilterReader;
 
-public class TokenPropertyMapTransform implements ModelVersionTransformation {
+public class TokenPropertyMapTransform implements StreamingModelVersionTransformation {
   private static final String blockStart = "<propertyMap>\\s*<store";
   private static final String blockEnd = "</propertyMap>";
   private static final String regex = blockStart + "(/?>.*?)" + blockEnd;
@@ -25,6 +35,9 @@ public class TokenPropertyMapTransform implements ModelVersionTransformation {
 
   private static final Pattern pattern = Pattern.compile(regex, Pattern.DOTALL);
 
+  private static final QName PROPERTY_MAP = new QName("propertyMap");
+  private static final QName PROPERTY_MAP_CI = new QName("propertyMapCI");
+
   /**
    * Delete the block containing the now-obsolete exportInfo class data, since there is no place to
    * put it (and therefore generates an XStream error)
@@ -34,4 +47,45 @@ public String transform(String xml) {
     // except that we can specify the flag DOTALL
     return pattern.matcher(xml).replaceAll(replacement);
   }
+
+  @Override
+  public XMLEventReader transform(XMLEventReader events) {
+    return new XMLEventFilterReader(events) {
+      /** For each open propertyMap element, whether it has been renamed. */
+      private final Deque<Boolean> renamed = new ArrayDeque<>();
+
+      @Override
+      protected void process(XMLEvent event) throws XMLStreamException {
+        if (event.isStartElement() && event.asStartElement().getName().equals(PROPERTY_MAP)) {
+          StartElement start = event.asStartElement();
+          // Look ahead past any whitespace to see if the first child is a store element
+          List<XMLEvent> whitespace = new ArrayList<>();
+          XMLEvent next = null;
+          while (getParent().hasNext()) {
+            next = getParent().nextEvent();
+            if (next.isCharacters() && next.asCharacters().getData().isBlank()) {
+              whitespace.add(next);
+              next = null;
+            } else {
+              break;
+            }
+          }
+          boolean rename =
+              !start.getAttributes().hasNext() && next != null && "store".equals(startName(next));
+          renamed.push(rename);
+          emit(rename ? eventFactory.createStartElement(PROPERTY_MAP_CI, null, null) : start);
+          whitespace.forEach(this::emit);
+          if (next != null) {
+            process(next);
+          }
+        } else if (event.isEndElement()
+            && event.asEndElement().getName().equals(PROPERTY_MAP)
+            && !renamed.isEmpty()) {
+          emit(renamed.pop() ? eventFactory.createEndElement(PROPERTY_MAP_CI, null) : event);
+        } else {
+          emit(event);
+        }
+      }
+    };
+  }
 }
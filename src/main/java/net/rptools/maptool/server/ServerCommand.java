@@ -29,6 +29,7 @@
 import net.rptools.maptool.model.gamedata.proto.GameDataValueDto;
 import net.rptools.maptool.model.library.addon.TransferableAddOnLibrary;
 import net.rptools.maptool.model.player.Player;
+import net.rptools.maptool.server.proto.InitiativeChangeDto;
 
 public interface ServerCommand {
   void bootPlayer(String player);
@@ -153,6 +154,10 @@ default void removeTopology(GUID zoneGUID, Area area, Zone.TopologyTypeSet topol
 
   void updateTokenInitiative(GUID zone, GUID token, Boolean hold, String state, Integer index);
 
+  void updateInitiativeChanges(GUID zone, List<InitiativeChangeDto> changes);
+
+  void resyncInitiative(GUID zone);
+
   void setVisionType(GUID zoneGUID, VisionType visionType);
 
   void updateCampaignMacros(List<MacroButtonProperties> properties);
@@ -155,6 +155,10 @@ public void handleMessage(String id, byte[] message) {
           handle(id, msg.getPutTokenMsg());
           sendToClients(id, msg);
         }
+        case TOKEN_DELTA_MSG -> {
+          handle(msg.getTokenDeltaMsg());
+          sendToClients(id, msg);
+        }
         case PUT_ZONE_MSG -> {
           handle(msg.getPutZoneMsg());
           sendToClients(id, msg);
@@ -241,6 +245,14 @@ public void handleMessage(String id, byte[] message) {
           handle(msg.getUpdateTokenInitiativeMsg());
           sendToAllClients(msg);
         }
+        case INITIATIVE_DELTA_MSG -> {
+          if (msg.getInitiativeDeltaMsg().getResync()) {
+            handle(id, msg.getInitiativeDeltaMsg());
+          } else {
+            handle(id, msg);
+            sendToClients(id, msg);
+          }
+        }
         case UPDATE_CAMPAIGN_MACROS_MSG -> {
           handle(msg.getUpdateCampaignMacrosMsg());
           sendToClients(id, msg);
@@ -321,6 +333,42 @@ private void handle(UpdateTokenInitiativeMsg msg) {
         });
   }
 
+  /**
+   * Applies initiative changes to the server's list. The sender already made the changes, and they
+   * are forwarded to the other clients in the same order as the other initiative messages. If they
+   * don't apply to the server's list, the clients are sent the server's full list, so everyone is
+   * back in step.
+   */
+  private void handle(String clientId, Message msg) {
+    EventQueue.invokeLater(
+        () -> {
+          var deltaMsg = msg.getInitiativeDeltaMsg();
+          Zone zone = server.getCampaign().getZone(GUID.valueOf(deltaMsg.getZoneGuid()));
+          if (zone == null) return;
+          InitiativeList list = zone.getInitiativeList();
+          if (!list.applyChanges(deltaMsg.getChangesList())) {
+            log.warn("Initiative changes from " + clientId + " did not match, sending full list");
+            var updateMsg = UpdateInitiativeMsg.newBuilder().setList(list.toDto());
+            sendToAllClients(Message.newBuilder().setUpdateInitiativeMsg(updateMsg).build());
+          }
+        });
+  }
+
+  /** Sends the server's full initiative list to a client whose list no longer matches. */
+  private void handle(String clientId, InitiativeDeltaMsg msg) {
+    EventQueue.invokeLater(
+        () -> {
+          Zone zone = server.getCampaign().getZone(GUID.valueOf(msg.getZoneGuid()));
+          if (zone == null) return;
+          var updateMsg =
+              UpdateInitiativeMsg.newBuilder().setList(zone.getInitiativeList().toDto());
+          server
+              .getConnection()
+              .sendMessage(
+                  clientId, Message.newBuilder().setUpdateInitiativeMsg(updateMsg).build());
+        });
+  }
+
   private void handle(UpdateInitiativeMsg msg) {
     EventQueue.invokeLater(
         () -> {
@@ -623,6 +671,17 @@ private void handle(String clientId, EditTokenMsg editTokenMsg) {
         });
   }
 
+  private void handle(TokenDeltaMsg tokenDeltaMsg) {
+    EventQueue.invokeLater(
+        () -> {
+          var zoneGUID = GUID.valueOf(tokenDeltaMsg.getZoneGuid());
+          Zone zone = server.getCampaign().getZone(zoneGUID);
+          if (zone.applyTokenDelta(tokenDeltaMsg) == null) {
+            log.warn("Changes received for unknown token " + tokenDeltaMsg.getTokenGuid());
+          }
+        });
+  }
+
   private void handle(DrawMsg drawMsg) {
     EventQueue.invokeLater(
         () -> {
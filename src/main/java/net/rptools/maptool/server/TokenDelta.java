@@ -0,0 +1,142 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.server;
+
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import com.google.protobuf.MessageOrBuilder;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import net.rptools.maptool.server.proto.TokenDeltaMsg;
+import net.rptools.maptool.server.proto.TokenDto;
+
+/**
+ * Works out which fields of a {@link TokenDto} have changed between two versions of a token, so
+ * that only those fields have to be sent to the other clients. Map fields such as the properties,
+ * states and macros are compared entry by entry.
+ */
+public class TokenDelta {
+
+  private TokenDelta() {}
+
+  /**
+   * Returns the changes needed to turn one version of a token into another.
+   *
+   * @param before the version of the token the receivers already have.
+   * @param after the new version of the token.
+   * @return the changes without the zone set, or {@code null} if the versions are the same.
+   */
+  public static TokenDeltaMsg.Builder diff(TokenDto before, TokenDto after) {
+    var delta = TokenDeltaMsg.newBuilder().setTokenGuid(after.getId());
+    var values = TokenDto.newBuilder();
+    var removed = TokenDto.newBuilder();
+
+    for (FieldDescriptor field : TokenDto.getDescriptor().getFields()) {
+      boolean changed = false;
+      if (field.isMapField()) {
+        Map<Object, Message> oldEntries = entries(before, field);
+        for (Message entry : entryList(after, field)) {
+          if (!entry.equals(oldEntries.remove(key(entry)))) {
+            values.addRepeatedField(field, entry);
+            changed = true;
+          }
+        }
+        FieldDescriptor valueField = field.getMessageType().findFieldByNumber(2);
+        for (Message entry : oldEntries.values()) {
+          // Only the key is needed to remove the entry
+          removed.addRepeatedField(field, entry.toBuilder().clearField(valueField).build());
+          changed = true;
+        }
+      } else if (field.isRepeated()) {
+        changed = !before.getField(field).equals(after.getField(field));
+        if (changed) {
+          values.setField(field, after.getField(field));
+        }
+      } else {
+        changed =
+            before.hasField(field) != after.hasField(field)
+                || !before.getField(field).equals(after.getField(field));
+        if (changed && after.hasField(field)) {
+          values.setField(field, after.getField(field));
+        }
+      }
+      if (changed) {
+        delta.addChangedFields(field.getNumber());
+      }
+    }
+
+    if (delta.getChangedFieldsCount() == 0) {
+      return null;
+    }
+    return delta.setToken(values).setRemovedEntries(removed);
+  }
+
+  /**
+   * Applies changes made by {@link #diff(TokenDto, TokenDto)} to a token.
+   *
+   * @param token the token to change.
+   * @param delta the changes to apply.
+   * @return the changed token.
+   */
+  public static TokenDto apply(TokenDto token, TokenDeltaMsg delta) {
+    var builder = token.toBuilder();
+    var values = delta.getToken();
+    var removed = delta.getRemovedEntries();
+
+    for (int number : delta.getChangedFieldsList()) {
+      FieldDescriptor field = TokenDto.getDescriptor().findFieldByNumber(number);
+      if (field == null) {
+        // Sent by a newer version that has fields we don't know about
+        continue;
+      }
+      if (field.isMapField()) {
+        Map<Object, Message> entries = entries(builder, field);
+        for (Message entry : entryList(removed, field)) {
+          entries.remove(key(entry));
+        }
+        for (Message entry : entryList(values, field)) {
+          entries.put(key(entry), entry);
+        }
+        builder.clearField(field);
+        for (Message entry : entries.values()) {
+          builder.addRepeatedField(field, entry);
+        }
+      } else if (field.isRepeated() || values.hasField(field)) {
+        builder.setField(field, values.getField(field));
+      } else {
+        builder.clearField(field);
+      }
+    }
+    return builder.build();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<Message> entryList(MessageOrBuilder message, FieldDescriptor field) {
+    return (List<Message>) message.getField(field);
+  }
+
+  private static Map<Object, Message> entries(MessageOrBuilder message, FieldDescriptor field) {
+    Map<Object, Message> entries = new LinkedHashMap<>();
+    for (Message entry : entryList(message, field)) {
+      entries.put(key(entry), entry);
+    }
+    return entries;
+  }
+
+  private static Object key(Message entry) {
+    return entry.getField(entry.getDescriptorForType().findFieldByNumber(1));
+  }
+}
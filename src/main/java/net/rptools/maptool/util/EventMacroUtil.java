@@ -25,7 +25,6 @@
 import net.rptools.maptool.model.TextMessage;
 import net.rptools.maptool.model.Token;
 import net.rptools.maptool.model.library.LibraryManager;
-import net.rptools.maptool.model.player.Player;
 import net.rptools.parser.ParserException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -56,28 +55,11 @@ public static List<Token> getEventMacroTokens(final String macroCallback) {
     List<ZoneRenderer> zrenderers = MapTool.getFrame().getZoneRenderers();
     for (ZoneRenderer zr : zrenderers) {
       List<Token> tokenList =
-          zr.getZone().getTokensFiltered(t -> t.getName().toLowerCase().startsWith("lib:"));
+          zr.getZone().getTokensFiltered(t -> t.getName().regionMatches(true, 0, "lib:", 0, 4));
       for (Token token : tokenList) {
-        // If the token is not owned by everyone and all owners are GMs
-        // then we are in
-        // its a trusted Lib:token so we can run the macro
-        if (token != null) {
-          if (token.isOwnedByAll()) {
-            continue;
-          } else {
-            Set<String> gmPlayers = new HashSet<String>();
-            for (Object o : MapTool.getPlayerList()) {
-              Player p = (Player) o;
-              if (p.isGM()) {
-                gmPlayers.add(p.getName());
-              }
-            }
-            for (String owner : token.getOwners()) {
-              if (!gmPlayers.contains(owner)) {
-                continue;
-              }
-            }
-          }
+        // Lib:tokens owned by all players are not trusted so their macros are not run
+        if (token.isOwnedByAll()) {
+          continue;
         }
         if (token.getMacro(macroCallback, false) != null) {
           found.add(token);
@@ -19,6 +19,7 @@
 import java.awt.Dimension;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -616,9 +617,11 @@ private static void loadAssets(Collection<MD5Key> assetIds, PackedFile pakFile)
         Asset asset = null;
         if (fixRequired) {
           try (InputStream is = pakFile.getFileAsInputStream(pathname)) {
+            var data = new ByteArrayOutputStream();
+            MD5Key id = MD5Key.fromStream(is, data);
             asset =
                 Asset.createAssetDetectType(
-                    key.toString(), IOUtils.toByteArray(is)); // Ugly bug fix :(
+                    key.toString(), data.toByteArray(), id); // Ugly bug fix :(
           } catch (FileNotFoundException fnf) {
             // Doesn't need to be reported, since that's handled below.
           } catch (Exception e) {
@@ -18,6 +18,7 @@
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 public class MTWebClientManager {
@@ -50,14 +51,24 @@ Collection<MTWebSocket> getClientSessions() {
   }
 
   /**
-   * Sends a message to all sessions.
+   * Sends a message to all sessions. The message is serialized once and queued for each session, so
+   * a slow client doesn't hold up the others.
    *
    * @param messageType the type of the message.
    * @param data the data to send
    */
   public void sendToAllSessions(String messageType, JsonObject data) {
-    for (MTWebSocket ws : clientSockets) {
-      ws.sendMessage(messageType, data);
+    List<MTWebSocket> sockets;
+    synchronized (clientSockets) {
+      if (clientSockets.isEmpty()) {
+        return;
+      }
+      sockets = List.copyOf(clientSockets);
+    }
+
+    String message = MTWebSocket.encodeMessage(messageType, null, data);
+    for (MTWebSocket ws : sockets) {
+      ws.sendEncodedMessage(messageType, message);
     }
   }
 
@@ -15,25 +15,41 @@
 package net.rptools.maptool.webapi;
 
 import com.google.gson.JsonObject;
-import java.io.IOException;
+import java.util.Set;
 import net.rptools.maptool.client.functions.json.JSONMacroFunctions;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.WebSocketAdapter;
 
 public class MTWebSocket extends WebSocketAdapter {
+  private static final Logger log = LogManager.getLogger(MTWebSocket.class);
+
+  /**
+   * The message types that carry the full current state, so a newer one replaces any that are still
+   * waiting to be sent.
+   */
+  private static final Set<String> SUPERSEDING_TYPES = Set.of("initiative", "keepalive");
 
   /** The Session of this socket. */
   private Session session;
 
+  /** Sends messages to the session without blocking. */
+  private WebSocketSender sender;
+
   @Override
   /**
    * Adds the session to the chatroom participants list, and sends back to the user the last three
    * messages in the conversation.
    */
   public void onWebSocketConnect(Session session) {
-    System.out.println("DEBUG: Websocket Connect from " + session.getRemoteAddress().getAddress());
+    log.debug("Websocket Connect from {}", session.getRemoteAddress().getAddress());
     this.session = session;
-    System.out.println("DEBUG: Connected");
+    sender =
+        new WebSocketSender(
+            session,
+            WebSocketSender.DEFAULT_MAX_QUEUED,
+            () -> MTWebClientManager.getInstance().removeClient(this));
     MTWebClientManager.getInstance().addClient(this);
   }
 
@@ -44,7 +60,6 @@ public void onWebSocketBinary(byte[] bytes, int x, int y) {
 
   @Override
   public void onWebSocketText(String message) {
-    System.out.println("DEBUG: Got Message" + message);
     // FIXME: need to test this is valid
     try {
       JsonObject json = JSONMacroFunctions.getInstance().asJsonElement(message).getAsJsonObject();
@@ -53,7 +68,6 @@ public void onWebSocketText(String message) {
       JsonObject data = json.get("data").getAsJsonObject();
 
       if ("initiative".equals(messageType)) {
-        System.out.println("DEBUG: Got an initiative message");
         WebAppInitiative.getInstance().processInitiativeMessage(data);
       } else if ("tokenInfo".equals(messageType) || "tokenProperties".equals(messageType)) {
         WebTokenInfo.getInstance().sendTokenInfo(this, messageId, data);
@@ -69,16 +83,13 @@ public void onWebSocketText(String message) {
 
   @Override
   public void onWebSocketError(Throwable cause) {
-    System.out.println("DEBUG: Websocket Error " + cause.getMessage());
-    System.out.println(
-        "DEBUG: number connections = "
-            + MTWebClientManager.getInstance().getClientSessions().size());
+    log.debug("Websocket Error {}", cause.getMessage());
     MTWebClientManager.getInstance().removeClient(this);
   }
 
   @Override
   public void onWebSocketClose(int statusCode, String reason) {
-    System.out.println("DEBUG: Websocket Close from " + session.getRemoteAddress().getAddress());
+    log.debug("Websocket Close from {}", session.getRemoteAddress().getAddress());
     MTWebClientManager.getInstance().removeClient(this);
   }
 
@@ -87,29 +98,48 @@ void sendMessage(String messageType, JsonObject data) {
   }
 
   /**
-   * Sends a message to the client.
+   * Sends a message to the client. This doesn't wait for the message to be written.
    *
    * @param messageType The type of the message.
    * @param inResponseTo The message this is a response to.
    * @param data The data in the message.
    */
   void sendMessage(String messageType, String inResponseTo, JsonObject data) {
+    String message = encodeMessage(messageType, inResponseTo, data);
+    if (inResponseTo == null) {
+      sendEncodedMessage(messageType, message);
+    } else {
+      // Responses are always delivered.
+      sender.send(messageType, message, false);
+    }
+  }
+
+  /**
+   * Sends a message that has already been encoded with {@link #encodeMessage(String, String,
+   * JsonObject)}, so a message sent to every client only needs to be serialized once.
+   *
+   * @param messageType The type of the message.
+   * @param message The encoded message.
+   */
+  void sendEncodedMessage(String messageType, String message) {
+    sender.send(messageType, message, SUPERSEDING_TYPES.contains(messageType));
+  }
+
+  /**
+   * Encodes a message to be sent to clients.
+   *
+   * @param messageType The type of the message.
+   * @param inResponseTo The message this is a response to, or {@code null}.
+   * @param data The data in the message.
+   * @return The message as it is sent to the client.
+   */
+  static String encodeMessage(String messageType, String inResponseTo, JsonObject data) {
     JsonObject message = new JsonObject();
     message.addProperty("messageType", messageType);
     message.add("data", data);
     if (inResponseTo != null) {
       message.addProperty("inResponseTo", inResponseTo);
     }
-
-    try {
-      session.getRemote().sendString(message.toString());
-      System.out.println("DEBUG: Wrote: " + message.toString());
-    } catch (IOException ioe) {
-      System.out.println("DEBUG: websocket write error.");
-      System.out.println(
-          "DEBUG: number connections = "
-              + MTWebClientManager.getInstance().getClientSessions().size());
-      MTWebClientManager.getInstance().removeClient(this);
-    }
+    return message.toString();
   }
 }
@@ -14,127 +14,286 @@
  */
 package net.rptools.maptool.webapi;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
 import javax.imageio.ImageIO;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import net.rptools.lib.MD5Key;
+import net.rptools.lib.image.ImageUtil;
 import net.rptools.maptool.model.Asset;
 import net.rptools.maptool.model.AssetManager;
 import net.rptools.maptool.model.Token;
 import net.rptools.maptool.util.ImageManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.handler.AbstractHandler;
 
+/**
+ * Serves token images and portraits to the web app as {@code /<kind>/<tokenId>[?size=<pixels>]},
+ * where kind is one of {@code image}, {@code portrait} or {@code portraitOrImage}.
+ *
+ * <p>When a size is given the image is scaled down to fit in a square of that size. The scaled
+ * images are encoded once and cached by asset and size. Every response carries an {@code ETag}
+ * derived from the asset hash, so browsers can revalidate cheaply and get a {@code 304 Not
+ * Modified} without the image being loaded at all.
+ */
 public class TokenImageHandler extends AbstractHandler {
+  private static final Logger log = LogManager.getLogger(TokenImageHandler.class);
+
+  /** Requested sizes are rounded up to a multiple of this, to keep the number of variants down. */
+  static final int SIZE_STEP = 16;
+
+  /** The largest size an image is scaled to. Larger requests get the original image. */
+  static final int MAX_SIZE = 1024;
+
+  /** The most bytes of scaled images kept in the cache. */
+  private static final long MAX_CACHED_BYTES = 32 * 1024 * 1024;
+
+  /**
+   * Browsers keep the images but check back every time, as the image of a token can change while
+   * its URL stays the same. The check is answered from the ETag.
+   */
+  private static final String CACHE_CONTROL = "no-cache";
+
+  /** The ETag of the image sent for tokens without one. */
+  private static final String BROKEN_IMAGE_ETAG = "\"broken\"";
+
+  /** An encoded image ready to be sent. */
+  private record EncodedImage(String contentType, byte[] data) {}
+
+  /** The key of a scaled image in the cache. */
+  private record ScaledImageKey(MD5Key assetId, int size) {}
+
+  /** The scaled images, weighed by their encoded size. */
+  private final Cache<ScaledImageKey, EncodedImage> scaledImages =
+      CacheBuilder.newBuilder()
+          .maximumWeight(MAX_CACHED_BYTES)
+          .<ScaledImageKey, EncodedImage>weigher((key, image) -> image.data().length)
+          .build();
+
+  /** The broken image, encoded once when it's first needed. */
+  private final Supplier<EncodedImage> brokenImage =
+      Suppliers.memoize(
+          () -> {
+            try {
+              return new EncodedImage(
+                  "image/png", ImageUtil.imageToBytes(ImageManager.BROKEN_IMAGE, "png"));
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          });
+
+  /** Finds the token for an id from the request. */
+  private final Function<String, Token> tokenFinder;
+
+  /** Gets the asset for an asset id. */
+  private final Function<MD5Key, Asset> assetFinder;
+
+  /** Creates a new handler that serves the images of the tokens on the open maps. */
+  public TokenImageHandler() {
+    this(id -> WebTokenInfo.getInstance().findTokenFromId(id), AssetManager::getAsset);
+  }
+
+  /**
+   * Creates a new handler.
+   *
+   * @param tokenFinder finds the token for an id from the request, or returns {@code null}.
+   * @param assetFinder gets the asset for an asset id, or returns {@code null}.
+   */
+  TokenImageHandler(Function<String, Token> tokenFinder, Function<MD5Key, Asset> assetFinder) {
+    this.tokenFinder = tokenFinder;
+    this.assetFinder = assetFinder;
+  }
+
   @Override
   public void handle(
       String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
       throws IOException {
 
     String args[] = target.replaceAll("^/", "").split("/");
+    if (args.length < 2) {
+      return;
+    }
 
-    for (String s : args) {
-      System.out.println("DEBUG: ARGS: " + s);
+    Token token = tokenFinder.apply(args[1]);
+    if (token == null) {
+      log.debug("Unable to find token {}", args[1]);
+      return;
     }
 
+    MD5Key assetId;
     if ("portrait".equalsIgnoreCase(args[0])) {
-      baseRequest.setHandled(sendPortrait(response, args[1]));
+      assetId = token.getPortraitImage();
     } else if ("image".equalsIgnoreCase(args[0])) {
-      baseRequest.setHandled(sendImage(response, args[1]));
+      assetId = token.getImageAssetId();
     } else if ("portraitOrImage".equalsIgnoreCase(args[0])) {
-      baseRequest.setHandled(sendPortraitOrImage(response, args[1]));
+      assetId =
+          token.getPortraitImage() != null ? token.getPortraitImage() : token.getImageAssetId();
+    } else {
+      return;
     }
 
-    /*
-     * response.setContentType("text/html; charset=utf-8"); response.setStatus(HttpServletResponse.SC_OK);
-     *
-     * PrintWriter out = response.getWriter();
-     *
-     * baseRequest.setHandled(true);
-     */
+    sendImage(request, response, assetId, getRequestedSize(request));
+    baseRequest.setHandled(true);
   }
 
-  private boolean sendImage(HttpServletResponse response, String tokenId) throws IOException {
-    System.out.println("DEBUG: Here (> 0) as well");
-    Token token = WebTokenInfo.getInstance().findTokenFromId(tokenId);
-    if (token == null) {
-      return false;
-      // FIXME: log this error
+  /**
+   * Returns the size requested with the {@code size} parameter, rounded up to a multiple of {@link
+   * #SIZE_STEP}.
+   *
+   * @param request the request.
+   * @return the size, or 0 if the original image was requested.
+   */
+  private static int getRequestedSize(HttpServletRequest request) {
+    String param = request.getParameter("size");
+    if (param == null) {
+      return 0;
     }
-
-    if (token.getImageAssetId() == null) {
-      response.setContentType("image/png");
-      ImageIO.write(ImageManager.BROKEN_IMAGE, "png", response.getOutputStream());
-      response.setStatus(HttpServletResponse.SC_OK);
-    } else {
-      Asset asset = AssetManager.getAsset(token.getImageAssetId());
-      byte[] image = asset.getData();
-      response.setContentType("image/" + asset.getExtension());
-      response.setStatus(HttpServletResponse.SC_OK);
-
-      response.setContentLength(image.length);
-      response.getOutputStream().write(image);
+    try {
+      int size = Integer.parseInt(param.trim());
+      if (size <= 0 || size > MAX_SIZE) {
+        return 0;
+      }
+      return (size + SIZE_STEP - 1) / SIZE_STEP * SIZE_STEP;
+    } catch (NumberFormatException e) {
+      return 0;
     }
-
-    return true;
   }
 
-  private boolean sendPortrait(HttpServletResponse response, String tokenId) throws IOException {
+  /**
+   * Sends an image, or just {@code 304 Not Modified} if the client already has it.
+   *
+   * @param request the request.
+   * @param response the response.
+   * @param assetId the asset of the image, or {@code null} to send the broken image.
+   * @param size the size to fit the image in, or 0 for the original image.
+   */
+  private void sendImage(
+      HttpServletRequest request, HttpServletResponse response, MD5Key assetId, int size)
+      throws IOException {
+    String etag =
+        assetId == null ? BROKEN_IMAGE_ETAG : "\"" + assetId + (size == 0 ? "" : "-" + size) + "\"";
+    response.setHeader(HttpHeader.ETAG.asString(), etag);
+    response.setHeader(HttpHeader.CACHE_CONTROL.asString(), CACHE_CONTROL);
 
-    System.out.println("DEBUG: Here (> 0) as well");
-    Token token = WebTokenInfo.getInstance().findTokenFromId(tokenId);
-    if (token == null) {
-      return false;
-      // FIXME: log this error
+    if (matches(request.getHeader(HttpHeader.IF_NONE_MATCH.asString()), etag)) {
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return;
     }
 
-    if (token.getPortraitImage() == null) {
-      response.setContentType("image/png");
-      ImageIO.write(ImageManager.BROKEN_IMAGE, "png", response.getOutputStream());
-      response.setStatus(HttpServletResponse.SC_OK);
-    } else {
-      Asset asset = AssetManager.getAsset(token.getPortraitImage());
-      byte[] image = asset.getData();
-      response.setContentType("image/" + asset.getExtension());
-      response.setStatus(HttpServletResponse.SC_OK);
-
-      response.setContentLength(image.length);
-      response.getOutputStream().write(image);
+    EncodedImage image = null;
+    if (assetId != null) {
+      Asset asset = assetFinder.apply(assetId);
+      if (asset != null) {
+        image = getImage(asset, size);
+      }
+    }
+    if (image == null) {
+      // Don't let the broken image be cached under the asset's ETag.
+      response.setHeader(HttpHeader.ETAG.asString(), BROKEN_IMAGE_ETAG);
+      image = brokenImage.get();
     }
 
-    return true;
+    response.setStatus(HttpServletResponse.SC_OK);
+    response.setContentType(image.contentType());
+    response.setContentLength(image.data().length);
+    response.getOutputStream().write(image.data());
   }
 
-  private boolean sendPortraitOrImage(HttpServletResponse response, String tokenId)
-      throws IOException {
-
-    System.out.println("DEBUG: Here (> 0) as well");
-    Token token = WebTokenInfo.getInstance().findTokenFromId(tokenId);
-    if (token == null) {
+  /**
+   * Returns whether an {@code If-None-Match} header matches an ETag.
+   *
+   * @param ifNoneMatch the header, or {@code null}.
+   * @param etag the ETag of the image.
+   * @return {@code true} if the client already has the image.
+   */
+  private static boolean matches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null) {
       return false;
-      // FIXME: log this error
     }
+    for (String candidate : ifNoneMatch.split(",")) {
+      candidate = candidate.trim();
+      if (candidate.startsWith("W/")) {
+        candidate = candidate.substring(2);
+      }
+      if (candidate.equals("*") || candidate.equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
 
-    Asset asset = null;
-    if (token.getPortraitImage() != null) {
-      asset = AssetManager.getAsset(token.getPortraitImage());
-    } else if (token.getImageAssetId() != null) {
-      asset = AssetManager.getAsset(token.getImageAssetId());
+  /**
+   * Returns the image of an asset, scaled to fit in a square of the passed size.
+   *
+   * @param asset the asset.
+   * @param size the size, or 0 for the original image.
+   * @return the encoded image, or {@code null} if the asset isn't an image that can be read.
+   */
+  private EncodedImage getImage(Asset asset, int size) {
+    EncodedImage original = new EncodedImage("image/" + asset.getExtension(), asset.getData());
+    if (size == 0) {
+      return original;
     }
 
-    if (asset != null) {
-      byte[] image = asset.getData();
-      response.setContentType("image/" + asset.getExtension());
-      response.setStatus(HttpServletResponse.SC_OK);
+    try {
+      return scaledImages.get(
+          new ScaledImageKey(asset.getMD5Key(), size), () -> scaleImage(original, size));
+    } catch (ExecutionException e) {
+      log.warn("Unable to scale image {}", asset.getMD5Key(), e.getCause());
+      return null;
+    }
+  }
 
-      response.setContentLength(image.length);
-      response.getOutputStream().write(image);
-    } else {
-      response.setContentType("image/png");
-      ImageIO.write(ImageManager.BROKEN_IMAGE, "png", response.getOutputStream());
-      response.setStatus(HttpServletResponse.SC_OK);
+  /**
+   * Scales an image down to fit in a square of the passed size.
+   *
+   * @param original the original image.
+   * @param size the size.
+   * @return the scaled image, or the original image if it is no larger than the size or the scaled
+   *     image can't be encoded any smaller.
+   * @throws IOException if the image can't be read or encoded.
+   */
+  private static EncodedImage scaleImage(EncodedImage original, int size) throws IOException {
+    BufferedImage image = ImageIO.read(new ByteArrayInputStream(original.data()));
+    if (image == null) {
+      throw new IOException("Not a readable image");
+    }
+    int width = image.getWidth();
+    int height = image.getHeight();
+    if (width <= size && height <= size) {
+      return original;
     }
 
-    return true;
+    double scale = (double) size / Math.max(width, height);
+    BufferedImage scaled =
+        ImageUtil.scaleBufferedImage(
+            image,
+            Math.max(1, (int) Math.round(width * scale)),
+            Math.max(1, (int) Math.round(height * scale)));
+
+    // Token images are mostly transparent around the edges, so only opaque ones can use jpeg.
+    String format = scaled.getColorModel().hasAlpha() ? "png" : "jpeg";
+    byte[] data = ImageUtil.imageToBytes(scaled, format);
+    if (data.length == 0 && !format.equals("png")) {
+      // No jpeg writer could handle the image, so fall back to png as ImageUtil does.
+      format = "png";
+      data = ImageUtil.imageToBytes(scaled, format);
+    }
+    if (data.length == 0 || data.length >= original.data().length) {
+      return original;
+    }
+    return new EncodedImage("image/" + format, data);
   }
 }
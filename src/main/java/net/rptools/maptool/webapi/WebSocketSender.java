@@ -0,0 +1,209 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.webapi;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+/**
+ * Sends already serialized messages to a single web socket session without blocking the caller.
+ *
+ * <p>Only one message is written at a time; the rest wait in a bounded queue. A message that
+ * supersedes earlier messages of its type replaces the one still waiting in the queue, so a client
+ * that falls behind gets the latest state instead of every intermediate one. If the queue still
+ * fills up the client is not keeping up at all, and it is disconnected rather than being allowed to
+ * hold on to an ever growing backlog.
+ *
+ * <p>Jetty can complete a write on the thread that started it, so the queue is drained in a loop
+ * rather than by starting the next write from {@link #writeSuccess()}, which could otherwise nest
+ * once for every queued message.
+ */
+final class WebSocketSender implements WriteCallback {
+  private static final Logger log = LogManager.getLogger(WebSocketSender.class);
+
+  /** The default number of messages that can wait for a session. */
+  static final int DEFAULT_MAX_QUEUED = 256;
+
+  /** A message waiting to be written. */
+  private static final class Pending {
+    private final String messageType;
+    private final boolean supersedes;
+    private String text;
+
+    private Pending(String messageType, String text, boolean supersedes) {
+      this.messageType = messageType;
+      this.text = text;
+      this.supersedes = supersedes;
+    }
+  }
+
+  /** The session messages are written to. */
+  private final Session session;
+
+  /** The maximum number of messages that can wait to be written. */
+  private final int maxQueued;
+
+  /** Called once if the session can no longer be written to. */
+  private final Runnable onFailure;
+
+  /** The messages waiting to be written. Guarded by {@code this}. */
+  private final Deque<Pending> queue = new ArrayDeque<>();
+
+  /** Is a message being written, or about to be. Guarded by {@code this}. */
+  private boolean writing;
+
+  /** Is a thread in the {@link #writeNext()} loop. Guarded by {@code this}. */
+  private boolean draining;
+
+  /** Is the last message handed to the session still being written. Guarded by {@code this}. */
+  private boolean inFlight;
+
+  /** Has the session failed. Guarded by {@code this}. */
+  private boolean failed;
+
+  /**
+   * Creates a new sender.
+   *
+   * @param session the session to write to.
+   * @param maxQueued the maximum number of messages that can wait to be written.
+   * @param onFailure called once if a write fails or the queue overflows.
+   */
+  WebSocketSender(Session session, int maxQueued, Runnable onFailure) {
+    this.session = session;
+    this.maxQueued = maxQueued;
+    this.onFailure = onFailure;
+  }
+
+  /**
+   * Queues a message to be written and returns without waiting for it.
+   *
+   * @param messageType the type of the message.
+   * @param text the serialized message.
+   * @param supersedes if the message replaces any message of the same type that is still waiting.
+   */
+  void send(String messageType, String text, boolean supersedes) {
+    boolean startWriting = false;
+    boolean overflowed = false;
+    synchronized (this) {
+      if (failed) {
+        return;
+      }
+      if (supersedes) {
+        for (Pending pending : queue) {
+          if (pending.supersedes && pending.messageType.equals(messageType)) {
+            // Keep its place in the queue so the latest state goes out as early as possible.
+            pending.text = text;
+            return;
+          }
+        }
+      }
+      if (queue.size() < maxQueued) {
+        queue.add(new Pending(messageType, text, supersedes));
+        startWriting = !writing;
+        writing = true;
+      } else {
+        log.warn("Disconnecting web client that is {} messages behind.", queue.size());
+        fail();
+        overflowed = true;
+      }
+    }
+
+    if (startWriting) {
+      writeNext();
+    } else if (overflowed) {
+      onFailure.run();
+      session.close(StatusCode.POLICY_VIOLATION, "Too many pending messages");
+    }
+  }
+
+  /**
+   * Writes the waiting messages until there are none left, or until a write doesn't complete
+   * straight away, in which case {@link #writeSuccess()} carries on when it does.
+   */
+  private void writeNext() {
+    synchronized (this) {
+      draining = true;
+    }
+    while (true) {
+      Pending next;
+      synchronized (this) {
+        next = failed ? null : queue.poll();
+        if (next == null) {
+          writing = false;
+          draining = false;
+          return;
+        }
+        inFlight = true;
+      }
+      try {
+        session.getRemote().sendString(next.text, this);
+      } catch (RuntimeException e) {
+        writeFailed(e);
+      }
+      synchronized (this) {
+        if (inFlight) {
+          draining = false;
+          return;
+        }
+      }
+    }
+  }
+
+  private void fail() {
+    failed = true;
+    writing = false;
+    queue.clear();
+  }
+
+  /**
+   * Returns the number of messages waiting to be written.
+   *
+   * @return the number of messages waiting to be written.
+   */
+  synchronized int getQueuedCount() {
+    return queue.size();
+  }
+
+  @Override
+  public void writeSuccess() {
+    synchronized (this) {
+      inFlight = false;
+      if (draining) {
+        // Completed before sendString() returned, the loop in writeNext() carries on.
+        return;
+      }
+    }
+    writeNext();
+  }
+
+  @Override
+  public void writeFailed(Throwable cause) {
+    log.debug("Web socket write failed.", cause);
+    synchronized (this) {
+      inFlight = false;
+      if (failed) {
+        return;
+      }
+      fail();
+    }
+    onFailure.run();
+    session.close(StatusCode.SERVER_ERROR, "Write failed");
+  }
+}
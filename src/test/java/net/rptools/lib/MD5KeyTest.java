@@ -0,0 +1,103 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.lib;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MD5KeyTest {
+  private static final byte[] DATA = "The quick brown fox".getBytes(StandardCharsets.UTF_8);
+  private static final String DATA_MD5 = "a2004f37730b9445670a738fa0fc9ee5";
+
+  @TempDir Path tempDir;
+
+  @Test
+  void hashesByteArray() {
+    assertEquals(DATA_MD5, new MD5Key(DATA).toString());
+    assertEquals("d41d8cd98f00b204e9800998ecf8427e", new MD5Key(new byte[0]).toString());
+  }
+
+  @Test
+  void streamAndFileMatchByteArray() throws IOException {
+    byte[] large = new byte[100_000];
+    for (int i = 0; i < large.length; i++) {
+      large[i] = (byte) (i * 31);
+    }
+    Path file = tempDir.resolve("data.bin");
+    Files.write(file, large);
+
+    MD5Key expected = new MD5Key(large);
+    assertEquals(expected, new MD5Key(new ByteArrayInputStream(large)));
+    assertEquals(expected, MD5Key.fromFile(file));
+  }
+
+  @Test
+  void streamCopiesData() throws IOException {
+    byte[] large = new byte[100_000];
+    for (int i = 0; i < large.length; i++) {
+      large[i] = (byte) (i * 17);
+    }
+    var copy = new ByteArrayOutputStream();
+
+    assertEquals(new MD5Key(large), MD5Key.fromStream(new ByteArrayInputStream(large), copy));
+    assertArrayEquals(large, copy.toByteArray());
+  }
+
+  @Test
+  void stringRoundTrip() {
+    MD5Key key = new MD5Key(DATA_MD5);
+    assertEquals(DATA_MD5, key.toString());
+    assertEquals(new MD5Key(DATA), key);
+    assertEquals(new MD5Key(DATA).hashCode(), key.hashCode());
+    String small = "00000000000000000000000000000001";
+    assertEquals(small, new MD5Key(small).toString());
+  }
+
+  @Test
+  void nonHexIdsAreKeptAsIs() {
+    MD5Key bad = new MD5Key("bad-location");
+    assertEquals("bad-location", bad.toString());
+    assertEquals(new MD5Key("bad-location"), bad);
+    assertNotEquals(new MD5Key(DATA), bad);
+
+    MD5Key upper = new MD5Key(DATA_MD5.toUpperCase());
+    assertEquals(DATA_MD5.toUpperCase(), upper.toString());
+    assertNotEquals(new MD5Key(DATA_MD5), upper);
+  }
+
+  @Test
+  void javaSerialization() throws IOException, ClassNotFoundException {
+    MD5Key key = new MD5Key(DATA);
+    var bytes = new ByteArrayOutputStream();
+    try (var out = new ObjectOutputStream(bytes)) {
+      out.writeObject(key);
+    }
+    try (var in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      assertEquals(key, in.readObject());
+    }
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.lib;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import javax.xml.parsers.DocumentBuilderFactory;
+import net.rptools.maptool.model.transform.campaign.ExportInfoTransform;
+import net.rptools.maptool.model.transform.campaign.PCVisionTransform;
+import net.rptools.maptool.model.transform.campaign.TokenPropertyMapTransform;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+
+class ModelVersionManagerTest {
+
+  private ModelVersionManager manager;
+
+  @BeforeEach
+  void setUp() {
+    manager = new ModelVersionManager();
+    manager.registerTransformation("1.3.51", new PCVisionTransform());
+    manager.registerTransformation("1.3.75", new ExportInfoTransform());
+    manager.registerTransformation("1.3.78", new TokenPropertyMapTransform());
+  }
+
+  private static String legacyToken(int i, boolean pc) {
+    return "<token><name>Token "
+        + i
+        + " &amp; co</name><tokenType>"
+        + (pc ? "PC" : "NPC")
+        + "</tokenType><hasSight>\n  false</hasSight>"
+        + "<propertyMap>\n  <store><entry><string>hp</string><string>"
+        + i
+        + "</string></entry></store></propertyMap>"
+        + "<macroMap><propertyMap><other/></propertyMap></macroMap></token>";
+  }
+
+  private static String legacyCampaign(int tokens) {
+    var sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?><campaign>");
+    sb.append("<exportInfo><location><path>/x</path></location></exportInfo>");
+    for (int i = 0; i < tokens; i++) {
+      sb.append(legacyToken(i, i % 3 == 0));
+    }
+    return sb.append("</campaign>").toString();
+  }
+
+  private static String readAll(Reader reader) throws IOException {
+    try (reader) {
+      var writer = new StringWriter();
+      reader.transferTo(writer);
+      return writer.toString();
+    }
+  }
+
+  private static Document parse(String xml) throws Exception {
+    var doc =
+        DocumentBuilderFactory.newInstance()
+            .newDocumentBuilder()
+            .parse(new InputSource(new StringReader(xml)));
+    removeWhitespace(doc.getDocumentElement());
+    doc.normalizeDocument();
+    return doc;
+  }
+
+  private static void removeWhitespace(Node node) {
+    var child = node.getFirstChild();
+    while (child != null) {
+      var next = child.getNextSibling();
+      if (child.getNodeType() == Node.TEXT_NODE && child.getTextContent().isBlank()) {
+        node.removeChild(child);
+      } else {
+        removeWhitespace(child);
+      }
+      child = next;
+    }
+  }
+
+  @Test
+  void testStreamingSupported() {
+    assertTrue(manager.isStreamingSupported("1.3.40"));
+    manager.registerTransformation("1.3.80", xml -> xml);
+    assertFalse(manager.isStreamingSupported("1.3.40"));
+    assertTrue(manager.isStreamingSupported("1.3.81"));
+  }
+
+  @Test
+  void testStreamingMatchesStringTransform() throws Exception {
+    for (String version : new String[] {"1.3.40", "1.3.60", "1.3.76", "1.3.78"}) {
+      String xml = legacyCampaign(20);
+      String expected = manager.transform(xml, version);
+      String actual = readAll(manager.transform(new StringReader(xml), version));
+      assertTrue(parse(expected).isEqualNode(parse(actual)), "version " + version);
+    }
+  }
+
+  @Test
+  void testTransformsApplied() throws Exception {
+    String actual = readAll(manager.transform(new StringReader(legacyCampaign(3)), "1.3.40"));
+    assertFalse(actual.contains("exportInfo"));
+    assertTrue(actual.contains("<propertyMapCI>"));
+    assertTrue(actual.contains("<propertyMap><other"));
+    assertTrue(actual.contains("<tokenType>PC</tokenType><hasSight>\n  true</hasSight>"));
+    assertTrue(actual.contains("<tokenType>NPC</tokenType><hasSight>\n  false</hasSight>"));
+  }
+
+  @Test
+  void testLargeDocument() throws Exception {
+    String xml = legacyCampaign(20_000);
+    String expected = manager.transform(xml, "1.3.40");
+    String actual = readAll(manager.transform(new StringReader(xml), "1.3.40"));
+    assertTrue(parse(expected).isEqualNode(parse(actual)));
+  }
+
+  @Test
+  void testMalformedXmlReportsError() {
+    assertThrows(
+        IOException.class,
+        () -> readAll(manager.transform(new StringReader("<campaign><a></campaign>"), "1.3.40")));
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.lib;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.StringReader;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.XMLEvent;
+import org.junit.jupiter.api.Test;
+
+class XMLEventFilterReaderTest {
+
+  /** Drops {@code secret} elements and splits text in two, so text comes in several events. */
+  private static class TestFilter extends XMLEventFilterReader {
+    private int secretDepth;
+
+    TestFilter(XMLEventReader parent) {
+      super(parent);
+    }
+
+    @Override
+    protected void process(XMLEvent event) {
+      if ("secret".equals(startName(event))) {
+        secretDepth++;
+      } else if ("secret".equals(endName(event))) {
+        secretDepth--;
+      } else if (secretDepth == 0) {
+        if (event.isCharacters() && event.asCharacters().getData().length() > 1) {
+          String data = event.asCharacters().getData();
+          emit(eventFactory.createCharacters(data.substring(0, 1)));
+          emit(eventFactory.createCharacters(data.substring(1)));
+        } else {
+          emit(event);
+        }
+      }
+    }
+  }
+
+  private static TestFilter filter(String xml) throws XMLStreamException {
+    return new TestFilter(
+        XMLInputFactory.newInstance().createXMLEventReader(new StringReader(xml)));
+  }
+
+  /** Reads up to and including the start of the named element. */
+  private static void readTo(XMLEventReader reader, String name) throws XMLStreamException {
+    while (!name.equals(XMLEventFilterReader.startName(reader.nextEvent()))) {}
+  }
+
+  @Test
+  void testGetElementText() throws Exception {
+    var reader = filter("<a><b>one &amp; <!-- comment -->two<secret>x</secret>!</b><c/></a>");
+    readTo(reader, "b");
+    assertEquals("one & two!", reader.getElementText());
+    assertEquals("c", XMLEventFilterReader.startName(reader.nextTag()));
+  }
+
+  @Test
+  void testGetElementTextNotAtStart() throws Exception {
+    var reader = filter("<a><b>text</b></a>");
+    reader.nextEvent(); // start document
+    assertThrows(XMLStreamException.class, reader::getElementText);
+  }
+
+  @Test
+  void testGetElementTextWithChild() throws Exception {
+    var reader = filter("<a><b>text<c/></b></a>");
+    readTo(reader, "b");
+    assertThrows(XMLStreamException.class, reader::getElementText);
+  }
+
+  @Test
+  void testNextTag() throws Exception {
+    var reader = filter("<a>\n  <secret>x</secret>\n  <!-- comment --><?pi data?>\n  <b/>\n</a>");
+    readTo(reader, "a");
+    assertEquals("b", XMLEventFilterReader.startName(reader.nextTag()));
+    assertEquals("b", XMLEventFilterReader.endName(reader.nextTag()));
+    assertEquals("a", XMLEventFilterReader.endName(reader.nextTag()));
+  }
+
+  @Test
+  void testNextTagWithText() throws Exception {
+    var reader = filter("<a>  text <b/></a>");
+    readTo(reader, "a");
+    assertThrows(XMLStreamException.class, reader::nextTag);
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.lib.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class TimerTest {
+
+  @AfterEach
+  void tearDown() {
+    Metrics.setEnabled(false);
+  }
+
+  @Test
+  void testBucketBoundsContainValue() {
+    for (long v : new long[] {0, 1, 7, 8, 9, 15, 16, 17, 1000, 123_456_789, Long.MAX_VALUE}) {
+      int bucket = Timer.bucketFor(v);
+      assertTrue(Timer.upperBound(bucket) >= v, "upper bound for " + v);
+      if (bucket > 0) {
+        assertTrue(Timer.upperBound(bucket - 1) < v, "previous bucket for " + v);
+      }
+    }
+  }
+
+  @Test
+  void testPercentiles() {
+    var timer = new Timer("test");
+    for (int i = 1; i <= 1000; i++) {
+      timer.record(i * 1000L);
+    }
+    var snapshot = timer.snapshot();
+    assertEquals(1000, snapshot.count());
+    assertEquals(1000_000, snapshot.max());
+    assertEquals(500_500, snapshot.mean());
+    // Within the 1/8th resolution of the histogram
+    assertEquals(500_000, snapshot.p50(), 500_000 / 8.0);
+    assertEquals(990_000, snapshot.p99(), 990_000 / 8.0);
+  }
+
+  @Test
+  void testDisabledRecordsNothing() {
+    var timer = Metrics.timer("test.disabled");
+    Metrics.setEnabled(false);
+    timer.stop(timer.start());
+    Metrics.counter("test.disabled").increment();
+    assertEquals(0, timer.snapshot().count());
+    assertEquals(0, Metrics.counter("test.disabled").getCount());
+
+    Metrics.setEnabled(true);
+    timer.stop(timer.start());
+    Metrics.counter("test.disabled").increment();
+    assertEquals(1, timer.snapshot().count());
+    assertEquals(1, Metrics.counter("test.disabled").getCount());
+  }
+}
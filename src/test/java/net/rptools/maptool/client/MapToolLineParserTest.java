@@ -197,6 +197,23 @@ public void testRollBranching() throws ParserException {
     assertEquals("three", res.getVariable("a"));
   }
 
+  @Test
+  public void testRepeatedLinesBranchAgain() throws ParserException {
+    String ifMacro = "[r, if(a > 1), code: { [r: \"big\"] }; { [r: \"small\"] }] [r: a]";
+    String switchMacro =
+        "[r, switch(a): case 1: \"one\"; case 2: \"two\"; default: \"many\"]"
+            + "[r, count(a, \"\"): \"-\"]";
+    MapToolVariableResolver res = new MapToolVariableResolver(null);
+    for (int pass = 0; pass < 2; pass++) {
+      for (int a = 1; a <= 3; a++) {
+        res.setVariable("a", BigDecimal.valueOf(a));
+        assertEquals((a > 1 ? "big " : "small ") + a, parseLine(ifMacro, null, res));
+        String name = a == 1 ? "one" : a == 2 ? "two" : "many";
+        assertEquals(name + "-".repeat(a), parseLine(switchMacro, null, res));
+      }
+    }
+  }
+
   @Test
   public void testConditional() throws ParserException {
 
@@ -0,0 +1,144 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import net.rptools.maptool.model.GUID;
+import net.rptools.maptool.model.Token;
+import net.rptools.maptool.model.Zone;
+import net.rptools.maptool.server.proto.BringTokensToFrontMsg;
+import net.rptools.maptool.server.proto.Message;
+import net.rptools.maptool.server.proto.SendTokensToBackMsg;
+import net.rptools.maptool.server.proto.SetTokenLocationMsg;
+import net.rptools.maptool.server.proto.TokenDeltaMsg;
+import net.rptools.maptool.server.proto.UpdateTokenInitiativeMsg;
+import net.rptools.maptool.server.proto.UpdateTokenPropertyMsg;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class TokenDeltaTrackerTest {
+  private TokenDeltaTracker tracker;
+  private GUID zoneGUID;
+  private Token token;
+
+  @BeforeEach
+  void setUp() {
+    tracker = new TokenDeltaTracker();
+    zoneGUID = new GUID();
+    token = new Token();
+    token.setName("Old");
+
+    // The other clients get the whole token the first time
+    Message message = tracker.tokenChanged(zoneGUID, token, false);
+    assertEquals(Message.MessageTypeCase.PUT_TOKEN_MSG, message.getMessageTypeCase());
+  }
+
+  /** Puts the token and checks that the other clients end up with its current name. */
+  private void assertSentInFull() {
+    Message message = tracker.tokenChanged(zoneGUID, token, false);
+    assertNotNull(message, "Nothing sent, so the other clients keep the old name");
+    assertEquals(Message.MessageTypeCase.PUT_TOKEN_MSG, message.getMessageTypeCase());
+    assertEquals(token.getName(), message.getPutTokenMsg().getToken().getName());
+  }
+
+  @Test
+  @DisplayName("Only the changes are sent for a token the other clients have")
+  void testDelta() {
+    token.setName("New");
+    Message message = tracker.tokenChanged(zoneGUID, token, false);
+    assertEquals(Message.MessageTypeCase.TOKEN_DELTA_MSG, message.getMessageTypeCase());
+
+    // Nothing has changed since
+    assertNull(tracker.tokenChanged(zoneGUID, token, false));
+  }
+
+  @Test
+  @DisplayName("A property update sent to the others is followed by the whole token")
+  void testPropertyUpdateThenPut() {
+    // What updateTokenProperty() does: change the token locally and send just that property.
+    token.setName("New");
+    tracker.forget(token.getId());
+
+    // Changed back to the version the other clients had before the property update
+    token.setName("Old");
+    assertSentInFull();
+
+    // Back to deltas after that
+    token.setName("Newer");
+    Message message = tracker.tokenChanged(zoneGUID, token, false);
+    assertEquals(Message.MessageTypeCase.TOKEN_DELTA_MSG, message.getMessageTypeCase());
+  }
+
+  @Test
+  @DisplayName("Token changes received from other clients are followed by the whole token")
+  void testReceivedChangeThenPut() {
+    String id = token.getId().toString();
+    List<Message> received =
+        List.of(
+            Message.newBuilder()
+                .setUpdateTokenPropertyMsg(UpdateTokenPropertyMsg.newBuilder().setTokenGuid(id))
+                .build(),
+            Message.newBuilder()
+                .setUpdateTokenInitiativeMsg(UpdateTokenInitiativeMsg.newBuilder().setTokenGuid(id))
+                .build(),
+            Message.newBuilder()
+                .setSetTokenLocationMsg(SetTokenLocationMsg.newBuilder().setTokenGuid(id))
+                .build(),
+            Message.newBuilder()
+                .setBringTokensToFrontMsg(BringTokensToFrontMsg.newBuilder().addTokenGuids(id))
+                .build(),
+            Message.newBuilder()
+                .setSendTokensToBackMsg(SendTokensToBackMsg.newBuilder().addTokenGuids(id))
+                .build());
+
+    for (Message message : received) {
+      // Someone else changes the token, and it is put back the way it was here
+      tracker.messageReceived(message);
+      assertSentInFull();
+    }
+  }
+
+  @Test
+  @DisplayName("Changes held back in a batch are sent as one delta when flushed")
+  void testBatchFlush() {
+    Zone zone = new Zone();
+    zone.putToken(token);
+    MapTool.getCampaign().putZone(zone);
+    tracker.tokenChanged(zone.getId(), token, false);
+
+    tracker.beginBatch();
+    token.setName("First");
+    assertNull(tracker.tokenChanged(zone.getId(), token, false));
+    token.setName("Second");
+    assertNull(tracker.tokenChanged(zone.getId(), token, true));
+
+    // Another message is about to be sent, so the changes so far go out first
+    List<Message> pending = tracker.takePending();
+    assertEquals(1, pending.size());
+    TokenDeltaMsg delta = pending.get(0).getTokenDeltaMsg();
+    assertTrue(delta.getEdit());
+    assertEquals("Second", delta.getToken().getName());
+
+    // The batch is still open for the rest of the macro
+    token.setName("Third");
+    assertNull(tracker.tokenChanged(zone.getId(), token, false));
+    assertEquals("Third", tracker.takePending().get(0).getTokenDeltaMsg().getToken().getName());
+    assertTrue(tracker.takePending().isEmpty());
+    tracker.endBatch();
+  }
+}
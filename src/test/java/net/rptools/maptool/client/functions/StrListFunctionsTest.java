@@ -232,6 +232,31 @@ public void testListContains() throws ParameterException {
     assertEquals(big(1), listContains("one;two;three", "two"));
   }
 
+  @Test
+  public void testRepeatedSearchesIgnoreCase() throws ParameterException {
+    setDelim(",");
+    String listStr = "Alpha, beta, ALPHA, \u00df, \u0130, Gamma, \ud801\udc00, alpha";
+    List<String> items = StrListFunctions.toList(listStr, delim);
+    List<String> targets =
+        List.of("alpha", "BETA", "\u00df", "\u0131", "i", "gamma", "\ud801\udc28", "delta", "");
+    // Searching the same list more than once switches to a lookup table, which must give the same
+    // answers as comparing each item.
+    for (int pass = 0; pass < 3; pass++) {
+      for (String target : targets) {
+        int first = -1;
+        int count = 0;
+        for (int i = 0; i < items.size(); i++) {
+          if (items.get(i).equalsIgnoreCase(target)) {
+            first = first < 0 ? i : first;
+            count++;
+          }
+        }
+        assertEquals(big(first), listFind(listStr, target), target);
+        assertEquals(big(count), listContains(listStr, target), target);
+      }
+    }
+  }
+
   private Object listInsert(String listStr, int index, Object element) throws ParameterException {
     return funcs.listInsert(toParms("listInsert()", index, element, delim), listStr, delim);
   }
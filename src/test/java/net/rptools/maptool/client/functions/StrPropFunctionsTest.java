@@ -20,6 +20,8 @@
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import net.rptools.parser.ParserException;
 import org.junit.jupiter.api.Test;
 
 class StrPropFunctionsTest {
@@ -89,4 +91,34 @@ void parse_onePropWithTwoSpaces() {
 
     inMap(map).key("A B 1").hasValue("1");
   }
+
+  @Test
+  void setStrProp_resultParsesLikeNewString() throws ParserException {
+    StrPropFunctions funcs = StrPropFunctions.getInstance();
+    List<String> keys = List.of("a", "B", "a b", "c.d", " e", "f=", "");
+    List<String> values = List.of("1", " 2 ", "x=y", "3;4", "5 ; g=6", "7\n8", "", "\u00e9");
+    var random = new Random(17);
+    for (String delim : List.of(";", ",", "##", " ", "", "a", ".")) {
+      String props = "";
+      for (int i = 0; i < 40; i++) {
+        String key = keys.get(random.nextInt(keys.size()));
+        String value = values.get(random.nextInt(values.size()));
+        props =
+            (String)
+                funcs.childEvaluate(
+                    null, null, "setStrProp", new ArrayList<>(List.of(props, key, value, delim)));
+
+        // The result of setStrProp may already be cached, it must match parsing it from scratch.
+        Map<String, String> scannedMap = new HashMap<>();
+        List<String> scannedKeys = new ArrayList<>();
+        StrPropFunctions.scan(props, scannedMap, scannedKeys, delim);
+        map = new HashMap<>();
+        oldKeys = new ArrayList<>();
+        oldKeysNormalized = new ArrayList<>();
+        StrPropFunctions.parse(props, map, oldKeys, oldKeysNormalized, delim);
+        assertEquals(scannedMap, map, props);
+        assertEquals(scannedKeys, oldKeys, props);
+      }
+    }
+  }
 }
@@ -0,0 +1,179 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.functions.json;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import net.rptools.parser.ParserException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Differential tests that check json values which are shared between calls (through the parse cache
+ * or by passing results straight into the next function) give the same results as values that are
+ * converted to a string and parsed again between every call.
+ */
+class JsonValueSharingTest {
+
+  private static final String OBJECT =
+      "{\"a\":{\"b\":[1,2,{\"c\":\"x\"}],\"d\":\"y\"},\"e\":[3,1,2],\"f\":1.50,\"g\":null}";
+  private static final String ARRAY =
+      "[{\"n\":2,\"s\":\"b\"},{\"n\":1,\"s\":\"a\"},[5,[6]],\"t\",4]";
+  private static final String NUMBERS = "[3,1,2,3,10,-1]";
+
+  /** Calls whose json arguments are read by the function, function name followed by arguments. */
+  private static final List<List<Object>> CALLS =
+      List.of(
+          List.of("json.get", OBJECT, "a"),
+          List.of("json.get", OBJECT, "a", "e", "missing"),
+          List.of("json.get", ARRAY, n(2)),
+          List.of("json.get", ARRAY, n(1), n(3)),
+          List.of("json.set", OBJECT, "a", "{\"z\":1}", "h", "2"),
+          List.of("json.set", ARRAY, n(2), "[7]"),
+          List.of("json.append", ARRAY, OBJECT, "8"),
+          List.of("json.remove", OBJECT, "a"),
+          List.of("json.remove", ARRAY, n(0)),
+          List.of("json.fields", OBJECT, "json"),
+          List.of("json.length", OBJECT),
+          List.of("json.type", ARRAY),
+          List.of("json.contains", OBJECT, "e"),
+          List.of("json.sort", NUMBERS),
+          List.of("json.sort", NUMBERS, "d"),
+          List.of("json.sort", "[{\"n\":2},{\"n\":1},{\"n\":3}]", "a", "n"),
+          List.of("json.reverse", ARRAY),
+          List.of("json.merge", OBJECT, "{\"a\":1,\"i\":[1]}"),
+          List.of("json.merge", ARRAY, NUMBERS),
+          List.of("json.unique", NUMBERS),
+          List.of("json.removeAll", NUMBERS, "[3]"),
+          List.of("json.union", NUMBERS, ARRAY),
+          List.of("json.intersection", NUMBERS, "[1,2,99]"),
+          List.of("json.difference", NUMBERS, "[1]"),
+          List.of("json.isSubset", NUMBERS, "[1,2]"),
+          List.of("json.removeFirst", NUMBERS, "[3]"),
+          List.of("json.count", NUMBERS, n(3)),
+          List.of("json.indexOf", NUMBERS, n(3)),
+          List.of("json.equals", OBJECT, OBJECT),
+          List.of("json.toStrProp", "{\"a\":1,\"b\":\"c\"}"),
+          List.of("json.toList", NUMBERS),
+          List.of("json.indent", OBJECT, n(2)),
+          List.of("json.path.read", OBJECT, "a.b[2].c"),
+          List.of("json.path.read", ARRAY, "$..n"),
+          List.of("json.path.set", OBJECT, "f", n(2)),
+          List.of("json.path.set", OBJECT, "a.b[2].c", "changed"),
+          List.of("json.path.set", OBJECT, "$.a['d']", "[1]"),
+          List.of("json.path.set", ARRAY, "$..n", n(0)),
+          List.of("json.path.put", OBJECT, "$", "k", "v"),
+          List.of("json.path.put", OBJECT, "a", "k", "{\"v\":1}"),
+          List.of("json.path.add", OBJECT, "e", n(4)),
+          List.of("json.path.add", ARRAY, "$[2][1]", n(7)),
+          List.of("json.path.delete", OBJECT, "a.b[0]"),
+          List.of("json.path.delete", OBJECT, "g"),
+          List.of("json.path.delete", ARRAY, "$[?(@.n > 1)]"));
+
+  private static BigDecimal n(long value) {
+    return BigDecimal.valueOf(value);
+  }
+
+  private final JSONMacroFunctions functions = JSONMacroFunctions.getInstance();
+
+  private Object call(List<Object> args) throws ParserException {
+    return functions.childEvaluate(
+        null, null, args.get(0).toString(), new ArrayList<>(args.subList(1, args.size())));
+  }
+
+  /** Replaces every json string in the arguments with a newly parsed value. */
+  private List<Object> freshlyParsed(List<Object> args) {
+    List<Object> result = new ArrayList<>(args);
+    for (int i = 1; i < result.size(); i++) {
+      if (result.get(i) instanceof String s && (s.startsWith("[") || s.startsWith("{"))) {
+        result.set(i, JsonParser.parseString(s));
+      }
+    }
+    return result;
+  }
+
+  private String asString(Object value) {
+    return value instanceof JsonElement json ? json.toString() : String.valueOf(value);
+  }
+
+  @Test
+  void cachedArgumentsMatchFreshlyParsedArguments() throws ParserException {
+    for (int pass = 0; pass < 3; pass++) {
+      for (List<Object> args : CALLS) {
+        String expected = asString(call(freshlyParsed(args)));
+        assertEquals(expected, asString(call(args)), args.toString());
+      }
+    }
+
+    // None of the calls may have modified the values held in the parse cache.
+    for (String json : List.of(OBJECT, ARRAY, NUMBERS)) {
+      assertEquals(JsonParser.parseString(json), functions.asJsonElement(json), json);
+    }
+  }
+
+  @Test
+  void sharedArgumentsAreNotModified() throws ParserException {
+    for (List<Object> args : CALLS) {
+      List<Object> shared = freshlyParsed(args);
+      List<String> before = shared.stream().map(this::asString).toList();
+      call(shared);
+      assertEquals(before, shared.stream().map(this::asString).toList(), args.toString());
+    }
+  }
+
+  @Test
+  void chainedResultsMatchStringRoundTrip() throws ParserException {
+    // Each step is applied to the result of the previous one.
+    List<List<Object>> steps =
+        List.of(
+            Arrays.asList("json.set", null, "a", "{\"b\":[1,2],\"c\":{\"d\":1}}", "x", n(1)),
+            Arrays.asList("json.path.set", null, "a.c.d", n(2)),
+            Arrays.asList("json.set", null, "y", "[1,2,3]"),
+            Arrays.asList("json.path.add", null, "a.b", n(3)),
+            Arrays.asList("json.path.put", null, "a.c", "e", "[4]"),
+            Arrays.asList("json.path.delete", null, "a.b[0]"),
+            Arrays.asList("json.remove", null, "x"),
+            Arrays.asList("json.path.set", null, "$..d", n(5)),
+            Arrays.asList("json.merge", null, "{\"z\":{\"q\":1}}"),
+            Arrays.asList("json.path.put", null, "z", "r", n(2)));
+
+    Object shared = "{}";
+    Object roundTripped = "{}";
+    Map<Object, String> intermediate = new IdentityHashMap<>();
+    for (List<Object> step : steps) {
+      List<Object> sharedArgs = new ArrayList<>(step);
+      sharedArgs.set(1, shared);
+      shared = call(sharedArgs);
+      intermediate.put(shared, asString(shared));
+
+      List<Object> stringArgs = new ArrayList<>(step);
+      stringArgs.set(1, asString(roundTripped));
+      roundTripped = call(freshlyParsed(stringArgs));
+
+      assertEquals(asString(roundTripped), asString(shared), step.get(0).toString());
+    }
+
+    for (var entry : intermediate.entrySet()) {
+      assertEquals(entry.getValue(), asString(entry.getKey()));
+    }
+  }
+}
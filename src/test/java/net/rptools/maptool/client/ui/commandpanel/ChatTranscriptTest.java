@@ -0,0 +1,93 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.commandpanel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ChatTranscriptTest {
+
+  @TempDir File spillDir;
+
+  @Test
+  void keepsOnlyWindowInMemory() {
+    var transcript = new ChatTranscript(3, spillDir);
+    assertEquals(List.of(), transcript.add(1, "<div>1</div>"));
+    assertEquals(List.of(), transcript.add(2, "<div>2</div>"));
+    assertEquals(List.of(), transcript.add(3, "<div>3</div>"));
+    assertEquals(List.of(1L), transcript.add(4, "<div>4</div><div>4b</div>"));
+    assertEquals(List.of(2L), transcript.add(5, "x"));
+
+    assertEquals(5, transcript.size());
+    assertEquals(2, transcript.getSpilledCount());
+  }
+
+  @Test
+  void exportContainsSpilledMessagesInOrder() throws IOException {
+    var transcript = new ChatTranscript(2, spillDir);
+    for (int i = 1; i <= 5; i++) {
+      transcript.add(i, "<div>" + i + "</div>");
+    }
+
+    var spilled = new StringWriter();
+    transcript.writeSpilled(spilled);
+    assertEquals("<div>1</div>\n<div>2</div>\n<div>3</div>\n", spilled.toString());
+
+    var all = new StringWriter();
+    transcript.writeAll(all);
+    assertEquals(
+        "<div>1</div>\n<div>2</div>\n<div>3</div>\n<div>4</div>\n<div>5</div>\n", all.toString());
+  }
+
+  @Test
+  void shrinkingWindowEvicts() throws IOException {
+    var transcript = new ChatTranscript(10, spillDir);
+    for (int i = 0; i < 10; i++) {
+      transcript.add(i, "<div>" + i + "</div>");
+    }
+    assertEquals(List.of(0L, 1L, 2L, 3L, 4L, 5L), transcript.setWindowSize(4));
+    assertEquals(4, transcript.getWindowSize());
+    assertEquals(6, transcript.getSpilledCount());
+
+    var spilled = new StringWriter();
+    transcript.writeSpilled(spilled);
+    assertEquals(6, spilled.toString().lines().count());
+  }
+
+  @Test
+  void clearRemovesEverything() throws IOException {
+    var transcript = new ChatTranscript(1, spillDir);
+    transcript.add(1, "<div>1</div>");
+    transcript.add(2, "<div>2</div>");
+    transcript.clear();
+
+    assertEquals(0, transcript.size());
+    var all = new StringWriter();
+    transcript.writeAll(all);
+    assertEquals("", all.toString());
+
+    transcript.add(3, "<div>3</div>");
+    transcript.add(4, "<div>4</div>");
+    all = new StringWriter();
+    transcript.writeAll(all);
+    assertEquals("<div>3</div>\n<div>4</div>\n", all.toString());
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.zone;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.geom.Area;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import net.rptools.maptool.client.ui.zone.Illumination.LumensLevel;
+import net.rptools.maptool.client.ui.zone.Illuminator.LitArea;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class IlluminationRasterTest {
+  private static final double RESOLUTION = 5;
+
+  /** A light-like polygon, as built for circular lights. */
+  private static Area polygon(double centerX, double centerY, double radius, int sides) {
+    final var path = new Path2D.Double();
+    for (int i = 0; i < sides; ++i) {
+      final double angle = 2 * Math.PI * i / sides;
+      final double x = centerX + radius * Math.cos(angle);
+      final double y = centerY + radius * Math.sin(angle);
+      if (i == 0) {
+        path.moveTo(x, y);
+      } else {
+        path.lineTo(x, y);
+      }
+    }
+    path.closePath();
+    return new Area(path);
+  }
+
+  /** A scene of overlapping lights and darkness spread around the origin. */
+  private static List<LitArea> randomScene(long seed, int count) {
+    final var random = new Random(seed);
+    final var litAreas = new ArrayList<LitArea>();
+    for (int i = 0; i < count; ++i) {
+      final double x = random.nextDouble() * 400 - 200;
+      final double y = random.nextDouble() * 400 - 200;
+      final double size = 10 + random.nextDouble() * 100;
+      final var area =
+          random.nextBoolean()
+              ? polygon(x, y, size, 12 + random.nextInt(30))
+              : new Area(new Rectangle2D.Double(x, y, size, size * random.nextDouble()));
+      int lumens = 1 + random.nextInt(6) * 10;
+      if (random.nextInt(3) == 0) {
+        lumens = -lumens;
+      }
+      litAreas.add(new LitArea(lumens, area));
+    }
+    return litAreas;
+  }
+
+  private static Illumination illuminate(List<LitArea> litAreas, double rasterResolution) {
+    final var illuminator = new Illuminator();
+    litAreas.forEach(illuminator::add);
+    return illuminator.getIllumination(rasterResolution);
+  }
+
+  /**
+   * Checks that {@code raster} covers exactly the raster cells whose centers are in {@code exact}.
+   */
+  private static void assertSameCells(Area exact, Area raster, String message) {
+    final var bounds = exact.getBounds2D().createUnion(raster.getBounds2D());
+    final int firstColumn = (int) Math.floor(bounds.getMinX() / RESOLUTION) - 1;
+    final int lastColumn = (int) Math.ceil(bounds.getMaxX() / RESOLUTION) + 1;
+    final int firstRow = (int) Math.floor(bounds.getMinY() / RESOLUTION) - 1;
+    final int lastRow = (int) Math.ceil(bounds.getMaxY() / RESOLUTION) + 1;
+    for (int row = firstRow; row <= lastRow; ++row) {
+      for (int column = firstColumn; column <= lastColumn; ++column) {
+        final double x = (column + 0.5) * RESOLUTION;
+        final double y = (row + 0.5) * RESOLUTION;
+        assertEquals(exact.contains(x, y), raster.contains(x, y), message + " at " + x + "," + y);
+      }
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(longs = {1, 2, 3, 4, 5})
+  @DisplayName("Rasterized disjoint lumens levels agree with the area pipeline at every cell")
+  void testDisjointLevels(long seed) {
+    final var scene = randomScene(seed, 40);
+    final var exact = illuminate(scene, 0).getDisjointObscuredLumensLevels();
+    final var raster = illuminate(scene, RESOLUTION).getDisjointObscuredLumensLevels();
+
+    assertEquals(exact.size(), raster.size());
+    for (int i = 0; i < exact.size(); ++i) {
+      final var strength = exact.get(i).lumensStrength();
+      assertEquals(strength, raster.get(i).lumensStrength());
+      assertSameCells(exact.get(i).lightArea(), raster.get(i).lightArea(), "light " + strength);
+      assertSameCells(
+          exact.get(i).darknessArea(), raster.get(i).darknessArea(), "darkness " + strength);
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(longs = {6, 7, 8})
+  @DisplayName("Rasterized obscured lumens levels agree with the area pipeline at every cell")
+  void testObscuredLevels(long seed) {
+    final var scene = randomScene(seed, 30);
+    final var exact = illuminate(scene, 0);
+    final var raster = illuminate(scene, RESOLUTION);
+
+    for (final var litArea : scene) {
+      final var strength = Math.abs(litArea.lumens());
+      final var exactLevel = exact.getObscuredLumensLevel(strength).orElseThrow();
+      final var rasterLevel = raster.getObscuredLumensLevel(strength).orElseThrow();
+      assertSameCells(exactLevel.lightArea(), rasterLevel.lightArea(), "light " + strength);
+      assertSameCells(
+          exactLevel.darknessArea(), rasterLevel.darknessArea(), "darkness " + strength);
+    }
+    assertTrue(raster.getObscuredLumensLevel(1000).isEmpty());
+    assertSameCells(exact.getVisibleArea(), raster.getVisibleArea(), "visible area");
+  }
+
+  @Test
+  @DisplayName("Darkness wins over light of the same strength on the raster")
+  void testEqualDarknessObscuresLight() {
+    final var light = new Area(new Rectangle2D.Double(0.5, 0.5, 100, 100));
+    final var darkness = new Area(new Rectangle2D.Double(50.5, 0.5, 100, 100));
+    final var illumination =
+        new Illumination(
+            List.of(new LumensLevel(20, light, darkness), new LumensLevel(10, light, new Area())),
+            RESOLUTION);
+
+    final var levels = illumination.getDisjointObscuredLumensLevels();
+    assertEquals(20, levels.get(0).lumensStrength());
+    assertEquals(new Rectangle2D.Double(0, 0, 50, 100), levels.get(0).lightArea().getBounds2D());
+    assertEquals(
+        new Rectangle2D.Double(50, 0, 100, 100), levels.get(0).darknessArea().getBounds2D());
+    assertTrue(levels.get(1).lightArea().isEmpty());
+
+    final var visible = illumination.getVisibleArea();
+    assertTrue(visible.contains(10, 10));
+    assertFalse(visible.contains(60, 10));
+  }
+
+  @Test
+  @DisplayName("An empty illumination has empty rasterized levels")
+  void testEmpty() {
+    final var illumination = new Illumination(List.of(new LumensLevel(10)), RESOLUTION);
+    assertTrue(illumination.getVisibleArea().isEmpty());
+    assertTrue(illumination.getDisjointObscuredLumensLevels().get(0).lightArea().isEmpty());
+  }
+}
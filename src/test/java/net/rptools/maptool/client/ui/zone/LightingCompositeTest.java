@@ -0,0 +1,130 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.zone;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.awt.Composite;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.WritableRaster;
+import java.util.Random;
+import java.util.function.IntBinaryOperator;
+import org.junit.jupiter.api.Test;
+
+class LightingCompositeTest {
+
+  /** Screen blend of a single pixel, as the blender was originally written. */
+  private static int screen(int dst, int src) {
+    int result = 0;
+    for (int shift = 0; shift <= 16; shift += 8) {
+      int dstC = (dst >>> shift) & 0xFF;
+      int srcC = (src >>> shift) & 0xFF;
+      result |= renormalize((255 - srcC) * dstC) << shift;
+    }
+    return src + result;
+  }
+
+  /** Constrained brighten blend of a single pixel, as the blender was originally written. */
+  private static int constrainedBrighten(int dst, int src) {
+    int result = 0;
+    for (int shift = 0; shift <= 16; shift += 8) {
+      int dstC = (dst >>> shift) & 0xFF;
+      int srcC = (src >>> shift) & 0xFF;
+      result |= renormalize(srcC * (dstC < 128 ? dstC : 255 - dstC)) << shift;
+    }
+    return dst + result;
+  }
+
+  private static int renormalize(int x) {
+    return (x + (x >>> 8)) >>> 8;
+  }
+
+  private static BufferedImage randomImage(Random random, int width, int height) {
+    var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        image.setRGB(x, y, random.nextInt());
+      }
+    }
+    return image;
+  }
+
+  private static void assertBlend(
+      Composite composite, IntBinaryOperator expected, int width, int height) {
+    var random = new Random(width * 31L + height);
+    var src = randomImage(random, width, height);
+    var dst = randomImage(random, width, height);
+
+    int[] expectedPixels = new int[width * height];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        expectedPixels[y * width + x] = expected.applyAsInt(dst.getRGB(x, y), src.getRGB(x, y));
+      }
+    }
+
+    WritableRaster dstRaster = dst.getRaster();
+    var context =
+        composite.createContext(ColorModel.getRGBdefault(), ColorModel.getRGBdefault(), null);
+    context.compose(src.getRaster(), dstRaster, dstRaster);
+    context.dispose();
+
+    assertArrayEquals(expectedPixels, dst.getRGB(0, 0, width, height, null, 0, width));
+  }
+
+  @Test
+  void screenMatchesReferenceForSmallRaster() {
+    assertBlend(LightingComposite.BlendedLights, LightingCompositeTest::screen, 37, 19);
+  }
+
+  @Test
+  void screenMatchesReferenceForBandedRaster() {
+    assertBlend(LightingComposite.BlendedLights, LightingCompositeTest::screen, 1021, 517);
+  }
+
+  @Test
+  void screenMatchesReferenceForRowsWiderThanBuffer() {
+    assertBlend(LightingComposite.BlendedLights, LightingCompositeTest::screen, 4500, 40);
+  }
+
+  @Test
+  void constrainedBrightenMatchesReference() {
+    assertBlend(
+        LightingComposite.OverlaidLights, LightingCompositeTest::constrainedBrighten, 1021, 517);
+  }
+
+  @Test
+  void blendsChildRastersInPlace() {
+    var random = new Random(7);
+    var src = randomImage(random, 600, 400);
+    var dst = randomImage(random, 800, 600);
+
+    int[] expected = dst.getRGB(0, 0, 800, 600, null, 0, 800);
+    for (int y = 0; y < 400; y++) {
+      for (int x = 0; x < 600; x++) {
+        int i = (y + 150) * 800 + x + 100;
+        expected[i] = screen(expected[i], src.getRGB(x, y));
+      }
+    }
+
+    var dstChild = dst.getRaster().createWritableChild(100, 150, 600, 400, 0, 0, null);
+    var context =
+        LightingComposite.BlendedLights.createContext(
+            ColorModel.getRGBdefault(), ColorModel.getRGBdefault(), null);
+    context.compose(src.getRaster(), dstChild, dstChild);
+
+    assertArrayEquals(expected, dst.getRGB(0, 0, 800, 600, null, 0, 800));
+  }
+}
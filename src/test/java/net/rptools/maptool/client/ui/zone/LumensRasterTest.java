@@ -0,0 +1,54 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.zone;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Rectangle;
+import java.awt.geom.Area;
+import java.util.List;
+import net.rptools.maptool.client.ui.zone.Illumination.LumensLevel;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class LumensRasterTest {
+  private static List<LumensLevel> light(Rectangle bounds) {
+    return List.of(new LumensLevel(100, new Area(bounds), new Area()));
+  }
+
+  @Test
+  @DisplayName("Small lit areas keep the requested resolution")
+  void testSmallArea() {
+    var raster = new LumensRaster(light(new Rectangle(0, 0, 1000, 1000)), 1);
+    assertEquals(1, raster.getResolution());
+    assertEquals(new Rectangle(0, 0, 1000, 1000), raster.getVisibleArea().getBounds());
+  }
+
+  @Test
+  @DisplayName("Huge lit areas are resolved on larger cells")
+  void testHugeArea() {
+    var bounds = new Rectangle(-500_000, -500_000, 1_000_000, 1_000_000);
+    var raster = new LumensRaster(light(bounds), 1);
+
+    double resolution = raster.getResolution();
+    assertTrue(resolution > 1);
+    double cells = Math.pow(bounds.width / resolution, 2);
+    assertTrue(cells <= LumensRaster.MAX_CELLS, "Raster spans " + cells + " cells");
+    // The edges follow the larger cells.
+    var visible = raster.getVisibleArea().getBounds();
+    assertEquals(bounds.getCenterX(), visible.getCenterX(), resolution);
+    assertEquals(bounds.width, visible.width, resolution);
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.zone;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.imageio.ImageIO;
+import net.rptools.maptool.client.ui.zone.ZoneRasterizer.TilePainter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ZoneRasterizerTest {
+
+  /** Paints shapes that cross the tiles, in image coordinates. */
+  private static void paintScene(Graphics2D g) {
+    g.setColor(new Color(40, 90, 30));
+    g.fillRect(0, 0, 1000, 700);
+    g.setColor(Color.ORANGE);
+    g.fillOval(100, 80, 500, 420);
+    g.setColor(Color.BLUE);
+    g.setStroke(new BasicStroke(9));
+    g.drawLine(0, 699, 999, 0);
+    g.setColor(Color.WHITE);
+    for (int x = 0; x < 1000; x += 37) {
+      g.fillRect(x, x * 7 / 10, 13, 13);
+    }
+  }
+
+  private static BufferedImage rasterize(ZoneRasterizer rasterizer) throws IOException {
+    var out = new ByteArrayOutputStream();
+    rasterizer.writePng(out);
+    return ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+  }
+
+  @Test
+  @DisplayName("The tiles put together are the same as painting the image in one go")
+  void testMatchesWholeImage() throws Exception {
+    var expected = new BufferedImage(1000, 700, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = expected.createGraphics();
+    paintScene(g);
+    g.dispose();
+
+    Set<String> threadNames = ConcurrentHashMap.newKeySet();
+    BufferedImage actual =
+        rasterize(
+            new ZoneRasterizer(
+                1000,
+                700,
+                128,
+                4,
+                (tileGraphics, tile) -> {
+                  threadNames.add(Thread.currentThread().getName());
+                  paintScene(tileGraphics);
+                }));
+
+    assertEquals(1000, actual.getWidth());
+    assertEquals(700, actual.getHeight());
+    for (int y = 0; y < 700; y++) {
+      for (int x = 0; x < 1000; x++) {
+        assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "Pixel at " + x + ", " + y);
+      }
+    }
+    assertFalse(threadNames.contains(Thread.currentThread().getName()));
+  }
+
+  @Test
+  @DisplayName("Rows are written out before the last tiles are painted")
+  void testStreamsRows() throws Exception {
+    int tileSize = 256;
+    int bands = 16;
+    var written = new AtomicLong();
+    var writtenBeforeLastBand = new AtomicLong(-1);
+    OutputStream out =
+        new OutputStream() {
+          @Override
+          public void write(int b) {
+            written.incrementAndGet();
+          }
+
+          @Override
+          public void write(byte[] b, int off, int len) {
+            written.addAndGet(len);
+          }
+        };
+
+    // Noise doesn't compress, so every row that has been written shows up in the output.
+    TilePainter painter =
+        (g, tile) -> {
+          if (tile.y == (bands - 1) * tileSize) {
+            writtenBeforeLastBand.compareAndSet(-1, written.get());
+          }
+          var noise = new BufferedImage(tile.width, tile.height, BufferedImage.TYPE_INT_RGB);
+          var random = new Random(tile.x * 31L + tile.y);
+          for (int y = 0; y < tile.height; y++) {
+            for (int x = 0; x < tile.width; x++) {
+              noise.setRGB(x, y, random.nextInt(0x1000000));
+            }
+          }
+          g.drawImage(noise, tile.x, tile.y, null);
+        };
+    new ZoneRasterizer(1024, bands * tileSize, tileSize, 2, painter).writePng(out);
+
+    // Only the bands being read and rendered ahead are held back, less whatever the PNG writer
+    // buffers, so well over half of the image has been written by then.
+    long bandBytes = 1024L * tileSize * 3;
+    assertTrue(
+        writtenBeforeLastBand.get() > bands / 2 * bandBytes,
+        "Only " + writtenBeforeLastBand.get() + " bytes written before painting the last band");
+    assertTrue(written.get() > bands * bandBytes);
+  }
+
+  @Test
+  @DisplayName("A tile that can't be painted fails the whole image")
+  void testPaintFailure() {
+    var rasterizer =
+        new ZoneRasterizer(
+            300,
+            300,
+            100,
+            2,
+            (g, tile) -> {
+              if (tile.equals(new Rectangle(100, 200, 100, 100))) {
+                throw new IllegalStateException("Broken tile");
+              }
+            });
+
+    var e =
+        assertThrows(IOException.class, () -> rasterizer.writePng(OutputStream.nullOutputStream()));
+    assertInstanceOf(IllegalStateException.class, e.getCause());
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.zone.vbl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.Point;
+import java.awt.geom.Area;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiFunction;
+import net.rptools.maptool.client.ui.zone.vbl.VisibilityInspector.Topology;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.util.GeometricShapeFactory;
+
+/** Checks that the spatial indexes of {@link AreaTree} give the same results as a linear scan. */
+class AreaTreeTest {
+  private static final GeometryFactory geometryFactory = new GeometryFactory();
+  private static final double[] VISION_RADII = {40, 150, 1000};
+
+  private static PreparedGeometry visionAt(Point origin, double radius) {
+    var shapeFactory = new GeometricShapeFactory(geometryFactory);
+    shapeFactory.setCentre(new Coordinate(origin.x, origin.y));
+    shapeFactory.setSize(2 * radius);
+    shapeFactory.setNumPoints(60);
+    return PreparedGeometryFactory.prepare(shapeFactory.createCircle());
+  }
+
+  private static List<String> describe(List<LineString> segments) {
+    return segments.stream().map(s -> Arrays.toString(s.getCoordinates())).sorted().toList();
+  }
+
+  private static String describe(AreaContainer container) {
+    return container == null
+        ? "none"
+        : container.getClass().getSimpleName() + " " + container.getEnvelope();
+  }
+
+  private static void assertSameResults(
+      Area area, BiFunction<VisionBlockingAccumulator, AreaTree, Boolean> addBlocking) {
+    var indexed = new AreaTree(area);
+    var linear = new AreaTree(area, false);
+
+    for (int x = -25; x <= 775; x += 50) {
+      for (int y = -25; y <= 775; y += 50) {
+        var origin = new Point(x, y);
+        assertEquals(
+            describe(linear.getContainerAt(origin)),
+            describe(indexed.getContainerAt(origin)),
+            "container at " + origin);
+
+        for (double radius : VISION_RADII) {
+          var vision = visionAt(origin, radius);
+          var linearAccumulator = new VisionBlockingAccumulator(geometryFactory, origin, vision);
+          var indexedAccumulator = new VisionBlockingAccumulator(geometryFactory, origin, vision);
+
+          assertEquals(
+              addBlocking.apply(linearAccumulator, linear),
+              addBlocking.apply(indexedAccumulator, indexed));
+          assertEquals(
+              describe(linearAccumulator.getVisionBlockingSegments()),
+              describe(indexedAccumulator.getVisionBlockingSegments()),
+              "segments at " + origin + " with radius " + radius);
+        }
+      }
+    }
+  }
+
+  private static void assertSameResults(Topology topology) {
+    assertSameResults(topology.wallVbl(), VisionBlockingAccumulator::addWallBlocking);
+    assertSameResults(topology.hillVbl(), VisionBlockingAccumulator::addHillBlocking);
+    assertSameResults(topology.pitVbl(), VisionBlockingAccumulator::addPitBlocking);
+  }
+
+  @Test
+  void repeatedSquaredTopology() {
+    assertSameResults(VisibilityInspector.buildRepeatedSquaredTopology());
+  }
+
+  @Test
+  void tripleIntersectionTopology() {
+    assertSameResults(VisibilityInspector.buildTripleIntersectionTopology());
+  }
+
+  @Test
+  void singlePillarTopology() {
+    assertSameResults(VisibilityInspector.buildSinglePillarTopology());
+  }
+
+  @Test
+  void roundPillarsTopology() {
+    assertSameResults(VisibilityInspector.buildRoundPillarsTopology());
+  }
+}
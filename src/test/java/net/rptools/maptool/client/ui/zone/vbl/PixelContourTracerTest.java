@@ -0,0 +1,216 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.zone.vbl;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import net.rptools.maptool.client.ui.zone.vbl.PixelContourTracer.Contour;
+import org.junit.jupiter.api.Test;
+
+class PixelContourTracerTest {
+
+  private static long ringArea(int[] xy) {
+    long area = 0;
+    for (int i = 0; i < xy.length; i += 2) {
+      area += (long) xy[i] * xy[(i + 3) % xy.length] - (long) xy[(i + 2) % xy.length] * xy[i + 1];
+    }
+    return Math.abs(area) / 2;
+  }
+
+  private static long tracedArea(List<Contour> contours) {
+    long area = 0;
+    for (Contour contour : contours) {
+      area += ringArea(contour.shell());
+      for (int[] hole : contour.holes()) {
+        area -= ringArea(hole);
+      }
+    }
+    return area;
+  }
+
+  /** The area covered by the column rectangles that the topology used to be built from. */
+  private static long columnArea(boolean[] mask) {
+    long area = 0;
+    for (boolean set : mask) {
+      if (set) {
+        area++;
+      }
+    }
+    return area;
+  }
+
+  private static void addRing(Path2D path, int[] xy) {
+    path.moveTo(xy[0], xy[1]);
+    for (int i = 2; i < xy.length; i += 2) {
+      path.lineTo(xy[i], xy[i + 1]);
+    }
+    path.closePath();
+  }
+
+  /** Checks that exactly the masked pixel centres are inside the traced outlines. */
+  private static void assertCoversMask(int width, int height, boolean[] mask) {
+    List<Contour> contours = PixelContourTracer.trace(width, height, mask, false);
+    assertEquals(columnArea(mask), tracedArea(contours));
+
+    var path = new Path2D.Double(Path2D.WIND_EVEN_ODD);
+    for (Contour contour : contours) {
+      addRing(path, contour.shell());
+      contour.holes().forEach(hole -> addRing(path, hole));
+    }
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        assertEquals(mask[y * width + x], path.contains(x + 0.5, y + 0.5), "pixel " + x + "," + y);
+      }
+    }
+
+    List<Contour> parallel = PixelContourTracer.trace(width, height, mask, true);
+    assertEquals(contours.size(), parallel.size());
+    for (int i = 0; i < contours.size(); i++) {
+      assertArrayEquals(contours.get(i).shell(), parallel.get(i).shell());
+    }
+  }
+
+  private static boolean[] circleMask(int size, double outer, double inner) {
+    boolean[] mask = new boolean[size * size];
+    double centre = size / 2.0;
+    for (int y = 0; y < size; y++) {
+      for (int x = 0; x < size; x++) {
+        double distance = Math.hypot(x + 0.5 - centre, y + 0.5 - centre);
+        mask[y * size + x] = distance <= outer && distance >= inner;
+      }
+    }
+    return mask;
+  }
+
+  @Test
+  void rectangleHasOnlyFourCorners() {
+    int width = 50;
+    int height = 30;
+    boolean[] mask = new boolean[width * height];
+    for (int y = 5; y < 25; y++) {
+      for (int x = 10; x < 40; x++) {
+        mask[y * width + x] = true;
+      }
+    }
+
+    List<Contour> contours = PixelContourTracer.trace(width, height, mask, false);
+    assertEquals(1, contours.size());
+    assertArrayEquals(new int[] {40, 5, 40, 25, 10, 25, 10, 5}, contours.get(0).shell());
+    assertTrue(contours.get(0).holes().isEmpty());
+  }
+
+  @Test
+  void annulusHasOneHole() {
+    boolean[] mask = circleMask(64, 30, 12);
+    List<Contour> contours = PixelContourTracer.trace(64, 64, mask, false);
+    assertEquals(1, contours.size());
+    assertEquals(1, contours.get(0).holes().size());
+    assertCoversMask(64, 64, mask);
+  }
+
+  @Test
+  void nestedIslandsAreSeparateContours() {
+    int size = 40;
+    boolean[] mask = circleMask(size, 19, 13);
+    boolean[] island = circleMask(size, 8, 4);
+    for (int i = 0; i < mask.length; i++) {
+      mask[i] |= island[i];
+    }
+    List<Contour> contours = PixelContourTracer.trace(size, size, mask, false);
+    assertEquals(2, contours.size());
+    assertEquals(1, contours.get(0).holes().size());
+    assertEquals(1, contours.get(1).holes().size());
+    assertCoversMask(size, size, mask);
+  }
+
+  @Test
+  void diagonalNeighboursAreSeparated() {
+    int size = 9;
+    boolean[] mask = new boolean[size * size];
+    for (int y = 0; y < size; y++) {
+      for (int x = 0; x < size; x++) {
+        mask[y * size + x] = (x + y) % 2 == 0;
+      }
+    }
+    assertEquals(41, PixelContourTracer.trace(size, size, mask, false).size());
+    assertCoversMask(size, size, mask);
+  }
+
+  @Test
+  void randomNoiseMatchesColumnArea() {
+    var random = new Random(42);
+    for (int density = 1; density < 10; density += 2) {
+      int width = 73;
+      int height = 41;
+      boolean[] mask = new boolean[width * height];
+      for (int i = 0; i < mask.length; i++) {
+        mask[i] = random.nextInt(10) < density;
+      }
+      assertCoversMask(width, height, mask);
+    }
+  }
+
+  @Test
+  void tracesImagePixels() {
+    var argb = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
+    var abgr = new BufferedImage(64, 64, BufferedImage.TYPE_4BYTE_ABGR);
+    for (BufferedImage image : List.of(argb, abgr)) {
+      var g = image.createGraphics();
+      g.setColor(Color.RED);
+      g.fillOval(4, 4, 56, 56);
+      g.setComposite(java.awt.AlphaComposite.Clear);
+      g.fillRect(24, 24, 16, 16);
+      g.dispose();
+    }
+
+    List<Contour> fromArgb = PixelContourTracer.trace(argb, rgb -> (rgb >>> 24) > 0, false);
+    List<Contour> fromAbgr = PixelContourTracer.trace(abgr, rgb -> (rgb >>> 24) > 0, true);
+    assertEquals(1, fromArgb.size());
+    assertEquals(1, fromArgb.get(0).holes().size());
+    assertEquals(tracedArea(fromArgb), tracedArea(fromAbgr));
+
+    long opaque = 0;
+    for (int y = 0; y < 64; y++) {
+      for (int x = 0; x < 64; x++) {
+        if ((argb.getRGB(x, y) >>> 24) > 0) {
+          opaque++;
+        }
+      }
+    }
+    assertEquals(opaque, tracedArea(fromArgb));
+  }
+
+  @Test
+  void interruptedTraceGivesUp() {
+    boolean[] mask = new boolean[64 * 64];
+    Arrays.fill(mask, true);
+    Thread.currentThread().interrupt();
+    try {
+      assertEquals(List.of(), PixelContourTracer.trace(64, 64, mask, false));
+      assertTrue(Thread.currentThread().isInterrupted());
+    } finally {
+      Thread.interrupted();
+    }
+    assertEquals(1, PixelContourTracer.trace(64, 64, mask, false).size());
+  }
+}
@@ -0,0 +1,200 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.rptools.lib.MD5Key;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class AssetStoreTest {
+
+  /** Stands in for the persistent cache. */
+  private final Map<MD5Key, Asset> disk = new ConcurrentHashMap<>();
+
+  private final AtomicInteger loads = new AtomicInteger();
+
+  private AssetStore store;
+
+  @BeforeEach
+  void setUp() {
+    store =
+        new AssetStore(
+            1000,
+            id -> {
+              loads.incrementAndGet();
+              return disk.get(id);
+            });
+  }
+
+  private static Asset asset(int number, int size) {
+    byte[] data = new byte[size];
+    data[0] = (byte) number;
+    data[1] = (byte) (number >> 8);
+    return Asset.createDataAssetType("asset" + number, data);
+  }
+
+  /** Adds an asset that is also on disk. */
+  private Asset putReloadable(int number, int size) {
+    Asset asset = asset(number, size);
+    disk.put(asset.getMD5Key(), asset);
+    store.put(asset, true);
+    return asset;
+  }
+
+  @Test
+  @DisplayName("Assets used least recently are dropped when over the budget")
+  void testEviction() {
+    Asset first = putReloadable(1, 400);
+    Asset second = putReloadable(2, 400);
+    assertSame(first, store.get(first.getMD5Key()));
+
+    Asset third = putReloadable(3, 400);
+    assertTrue(store.isInMemory(first.getMD5Key()));
+    assertFalse(store.isInMemory(second.getMD5Key()));
+    assertTrue(store.isInMemory(third.getMD5Key()));
+    assertTrue(store.getBytesInMemory() <= 1000);
+
+    // Dropped assets are still known
+    assertEquals(Set.of(first.getMD5Key(), second.getMD5Key(), third.getMD5Key()), store.getIds());
+  }
+
+  @Test
+  @DisplayName("Dropped assets are loaded again when they are asked for")
+  void testReload() {
+    Asset first = putReloadable(1, 600);
+    putReloadable(2, 600);
+    assertFalse(store.isInMemory(first.getMD5Key()));
+    assertEquals(0, loads.get());
+
+    Asset reloaded = store.get(first.getMD5Key());
+    assertEquals(first, reloaded);
+    assertArrayEquals(first.getData(), reloaded.getData());
+    assertEquals(1, loads.get());
+    assertTrue(store.isInMemory(first.getMD5Key()));
+
+    // Now in memory again
+    store.get(first.getMD5Key());
+    assertEquals(1, loads.get());
+
+    // Removed, and gone from the disk too
+    store.remove(first.getMD5Key());
+    disk.remove(first.getMD5Key());
+    assertNull(store.get(first.getMD5Key()));
+    assertFalse(store.getIds().contains(first.getMD5Key()));
+  }
+
+  @Test
+  @DisplayName("Assets that can't be loaded again stay in memory until they can")
+  void testPinned() {
+    Asset first = asset(1, 800);
+    Asset second = asset(2, 800);
+    store.put(first, false);
+    store.put(second, false);
+    putReloadable(3, 300);
+    assertTrue(store.isInMemory(first.getMD5Key()));
+    assertTrue(store.isInMemory(second.getMD5Key()));
+
+    // Written to disk
+    disk.put(first.getMD5Key(), first);
+    store.setReloadable(first.getMD5Key());
+    disk.put(second.getMD5Key(), second);
+    store.setReloadable(second.getMD5Key());
+    assertTrue(store.getBytesInMemory() <= 1000);
+    assertSame(second, store.get(second.getMD5Key()));
+  }
+
+  @Test
+  @DisplayName("An empty asset is replaced by one with data but not the other way round")
+  void testReplaceEmpty() {
+    Asset asset = asset(1, 100);
+    Asset empty = Asset.createBrokenImageAsset(asset.getMD5Key());
+    store.put(empty, false);
+    store.put(asset, false);
+    assertSame(asset, store.get(asset.getMD5Key()));
+    store.put(empty, false);
+    assertSame(asset, store.get(asset.getMD5Key()));
+  }
+
+  @Test
+  @DisplayName("Assets without data weigh nothing and are replaced by ones with data")
+  void testNullData() {
+    Asset asset = asset(1, 100);
+    Asset noData = mock(Asset.class);
+    when(noData.getMD5Key()).thenReturn(asset.getMD5Key());
+
+    store.put(noData, true);
+    assertSame(noData, store.get(asset.getMD5Key()));
+    assertEquals(0, store.getBytesInMemory());
+
+    store.put(asset, false);
+    assertSame(asset, store.get(asset.getMD5Key()));
+    assertEquals(100, store.getBytesInMemory());
+  }
+
+  @Test
+  @DisplayName("Assets can be added and read from many threads while they are being dropped")
+  void testConcurrentAccess() throws Exception {
+    int count = 50;
+    List<Asset> all = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      Asset asset = asset(i, 100);
+      disk.put(asset.getMD5Key(), asset);
+      all.add(asset);
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        int offset = t;
+        futures.add(
+            executor.submit(
+                () -> {
+                  for (int n = 0; n < 2000; n++) {
+                    Asset expected = all.get((n * 7 + offset) % count);
+                    if (n % 5 == 0) {
+                      store.put(expected, true);
+                    }
+                    Asset actual = store.get(expected.getMD5Key());
+                    assertEquals(expected, actual);
+                    assertArrayEquals(expected.getData(), actual.getData());
+                  }
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertTrue(store.getBytesInMemory() <= 1000);
+    assertEquals(count, store.getIds().size());
+  }
+}
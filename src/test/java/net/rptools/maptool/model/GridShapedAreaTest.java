@@ -0,0 +1,98 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Rectangle;
+import java.awt.geom.Area;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class GridShapedAreaTest {
+
+  private static Grid testGrid(int size) {
+    Zone zone = new Zone();
+    Grid grid = new SquareGrid();
+    grid.setSize(size);
+    zone.setGrid(grid);
+    return grid;
+  }
+
+  @Test
+  @DisplayName("Shaped areas are fresh copies that callers can change.")
+  void testShapedAreaIsCopy() {
+    Grid grid = testGrid(50);
+    Token token = new Token();
+
+    Area first = grid.getShapedArea(ShapeType.CIRCLE, token, 30, 0, 0, false);
+    Rectangle bounds = first.getBounds();
+    first.add(new Area(new Rectangle(-1000, -1000, 10, 10)));
+
+    Area second = grid.getShapedArea(ShapeType.CIRCLE, token, 30, 0, 0, false);
+    assertNotSame(first, second);
+    assertEquals(bounds, second.getBounds());
+  }
+
+  @Test
+  @DisplayName("Grids of different sizes don't share shaped areas.")
+  void testShapedAreaPerGridSize() {
+    Token token = new Token();
+    Area small = testGrid(50).getShapedArea(ShapeType.SQUARE, token, 30, 0, 0, false);
+    Area large = testGrid(100).getShapedArea(ShapeType.SQUARE, token, 30, 0, 0, false);
+
+    // 30 feet is 6 cells either way
+    assertEquals(new Rectangle(-300, -300, 600, 600), small.getBounds());
+    assertEquals(new Rectangle(-600, -600, 1200, 1200), large.getBounds());
+  }
+
+  @Test
+  @DisplayName("Cones follow the facing of the token.")
+  void testConeFacing() {
+    Grid grid = testGrid(50);
+    Token token = new Token();
+
+    token.setFacing(0);
+    Area east = grid.getShapedArea(ShapeType.CONE, token, 30, 90, 0, false);
+    assertTrue(east.contains(250, 0));
+    assertFalse(east.contains(-250, 0));
+
+    token.setFacing(180);
+    Area west = grid.getShapedArea(ShapeType.CONE, token, 30, 90, 0, false);
+    assertTrue(west.contains(-250, 0));
+    assertFalse(west.contains(250, 0));
+
+    token.setFacing(0);
+    assertTrue(east.equals(grid.getShapedArea(ShapeType.CONE, token, 30, 90, 0, false)));
+  }
+
+  @Test
+  @DisplayName("Cones share their shape between facings, but not the token's footprint.")
+  void testConeFootprint() {
+    Grid grid = testGrid(50);
+    Token token = new Token();
+
+    token.setFacing(0);
+    grid.getShapedArea(ShapeType.CONE, token, 30, 90, 0, false);
+
+    // Pointing north east, the corner behind it is only covered by the footprint, which isn't
+    // turned with the cone.
+    token.setFacing(45);
+    Area northEast = grid.getShapedArea(ShapeType.CONE, token, 30, 90, 0, false);
+    assertTrue(northEast.contains(-24, 24));
+    assertTrue(northEast.contains(150, -150));
+    assertFalse(northEast.contains(-150, 150));
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.beans.IndexedPropertyChangeEvent;
+import java.util.ArrayList;
+import java.util.List;
+import net.rptools.maptool.client.MapTool;
+import net.rptools.maptool.server.ServerCommand;
+import net.rptools.maptool.server.proto.InitiativeChangeDto;
+import net.rptools.maptool.server.proto.InitiativeEntryDto;
+import net.rptools.maptool.server.proto.TokenInitiativeDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.MockedStatic;
+
+class InitiativeListChangesTest {
+  private Zone zone;
+  private List<Token> tokens;
+  private ServerCommand serverCommand;
+  private MockedStatic<MapTool> mapTool;
+
+  @BeforeEach
+  void setUp() {
+    zone = new Zone();
+    tokens = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      Token token = new Token();
+      token.setName("Token " + i);
+      zone.putToken(token);
+      tokens.add(token);
+    }
+
+    serverCommand = mock(ServerCommand.class);
+    mapTool = mockStatic(MapTool.class);
+    mapTool.when(MapTool::serverCommand).thenReturn(serverCommand);
+  }
+
+  @AfterEach
+  void tearDown() {
+    mapTool.close();
+  }
+
+  /** A copy of the list as another client would have it. */
+  private InitiativeList copyOf(InitiativeList list) {
+    InitiativeList copy = InitiativeList.fromDto(list.toDto());
+    copy.setZone(zone);
+    return copy;
+  }
+
+  /** Applies every delta sent so far to the copy. */
+  @SuppressWarnings("unchecked")
+  private void applySentChanges(InitiativeList copy) {
+    ArgumentCaptor<List<InitiativeChangeDto>> captor = ArgumentCaptor.forClass(List.class);
+    verify(serverCommand, atLeastOnce())
+        .updateInitiativeChanges(eq(zone.getId()), captor.capture());
+    for (List<InitiativeChangeDto> changes : captor.getAllValues()) {
+      assertTrue(copy.applyChanges(changes));
+    }
+    clearInvocations(serverCommand);
+  }
+
+  @Test
+  @DisplayName("Changes sent as deltas bring another copy of the list up to date")
+  void testRoundTrip() {
+    InitiativeList list = new InitiativeList(zone);
+    list.insertTokens(tokens.subList(0, 4));
+    InitiativeList copy = copyOf(list);
+    clearInvocations(serverCommand);
+
+    list.setRound(1);
+    list.setCurrent(1);
+    list.insertToken(1, tokens.get(4));
+    list.insertToken(-1, tokens.get(5));
+    list.getTokenInitiative(2).setState("17");
+    list.getTokenInitiative(3).setHolding(true);
+    list.moveToken(0, 4);
+    list.moveToken(5, 1);
+    list.removeToken(list.getCurrent());
+    list.setHideNPC(!list.isHideNPC());
+    list.setCurrent(0);
+    list.setRound(2);
+
+    applySentChanges(copy);
+    verify(serverCommand, never()).updateInitiative(any(), any());
+    assertEquals(list.toDto(), copy.toDto());
+  }
+
+  @Test
+  @DisplayName("A unit of work is sent as a single delta")
+  void testUnitOfWork() {
+    InitiativeList list = new InitiativeList(zone);
+    clearInvocations(serverCommand);
+
+    list.insertTokens(tokens);
+    verify(serverCommand, times(1)).updateInitiativeChanges(any(), any());
+
+    // Nothing changed, nothing sent
+    clearInvocations(serverCommand);
+    list.startUnitOfWork();
+    list.finishUnitOfWork();
+    verifyNoInteractions(serverCommand);
+  }
+
+  @Test
+  @DisplayName("Sorting and clearing the list send the full list")
+  void testFullUpdates() {
+    InitiativeList list = new InitiativeList(zone);
+    list.insertTokens(tokens);
+    for (int i = 0; i < tokens.size(); i++) {
+      list.getTokenInitiative(i).setState(Integer.toString(i));
+    }
+    clearInvocations(serverCommand);
+
+    list.sort();
+    verify(serverCommand).updateInitiative(list, null);
+    verify(serverCommand, never()).updateInitiativeChanges(any(), any());
+
+    list.clearModel();
+    verify(serverCommand, times(2)).updateInitiative(list, null);
+  }
+
+  @Test
+  @DisplayName("Positions are found for every token as the list changes")
+  void testIndexOf() {
+    InitiativeList list = new InitiativeList(zone);
+    list.insertTokens(tokens);
+    list.moveToken(5, 0);
+    list.removeToken(3);
+    for (int i = 0; i < list.getSize(); i++) {
+      assertEquals(i, list.indexOf(list.getTokenInitiative(i)));
+    }
+    assertEquals(-1, list.indexOf(list.new TokenInitiative(tokens.get(0))));
+    assertEquals(-1, list.indexOf((InitiativeList.TokenInitiative) null));
+  }
+
+  @Test
+  @DisplayName("Applying changes fires indexed events instead of replacing the list")
+  void testApplyFiresIndexedEvents() {
+    InitiativeList list = new InitiativeList(zone);
+    list.insertTokens(tokens.subList(0, 3));
+    InitiativeList copy = copyOf(list);
+    clearInvocations(serverCommand);
+    List<Integer> indexes = new ArrayList<>();
+    copy.addPropertyChangeListener(
+        InitiativeList.TOKENS_PROP,
+        evt -> indexes.add(((IndexedPropertyChangeEvent) evt).getIndex()));
+
+    list.insertToken(1, tokens.get(3));
+    list.getTokenInitiative(2).setState("5");
+    applySentChanges(copy);
+
+    // The insert, then the state of the updated token. Its holding didn't change.
+    assertEquals(List.of(1, 2), indexes);
+    verifyNoInteractions(serverCommand);
+  }
+
+  @Test
+  @DisplayName("Changes that don't match the list are rejected")
+  void testMismatch() {
+    InitiativeList list = new InitiativeList(zone);
+    list.insertTokens(tokens.subList(0, 3));
+
+    var entry =
+        InitiativeEntryDto.newBuilder()
+            .setIndex(1)
+            .setToken(TokenInitiativeDto.newBuilder().setTokenId(tokens.get(0).getId().toString()));
+    assertFalse(
+        list.applyChanges(List.of(InitiativeChangeDto.newBuilder().setRemove(entry).build())));
+    assertEquals(3, list.getSize());
+
+    entry.setIndex(7);
+    assertFalse(
+        list.applyChanges(List.of(InitiativeChangeDto.newBuilder().setInsert(entry).build())));
+  }
+
+  @Test
+  @DisplayName("A delta with a change that doesn't match leaves the list alone")
+  void testMismatchIsAllOrNothing() {
+    InitiativeList list = new InitiativeList(zone);
+    list.insertTokens(tokens.subList(0, 3));
+    InitiativeList copy = copyOf(list);
+    var before = copy.toDto();
+
+    var remove =
+        InitiativeEntryDto.newBuilder()
+            .setIndex(0)
+            .setToken(TokenInitiativeDto.newBuilder().setTokenId(tokens.get(0).getId().toString()));
+    // After the first remove, the token at index 0 is no longer the same one
+    var changes =
+        List.of(
+            InitiativeChangeDto.newBuilder().setRemove(remove).build(),
+            InitiativeChangeDto.newBuilder().setRemove(remove).build());
+    assertFalse(copy.applyChanges(changes));
+    assertEquals(before, copy.toDto());
+
+    assertTrue(copy.applyChanges(changes.subList(0, 1)));
+    assertEquals(2, copy.getSize());
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import net.rptools.maptool.model.LookupTable.LookupEntry;
+import net.rptools.parser.ParserException;
+import org.junit.jupiter.api.Test;
+
+class LookupTableTest {
+
+  /** Looks up a roll by going through every entry, the way lookups used to be done. */
+  private static LookupEntry linearLookup(List<LookupEntry> entries, int roll) {
+    int min = Integer.MAX_VALUE;
+    int max = Integer.MIN_VALUE;
+    for (LookupEntry entry : entries) {
+      min = Math.min(min, entry.getMin());
+      max = Math.max(max, entry.getMax());
+    }
+    roll = Math.max(Math.min(roll, max), min);
+    LookupEntry found = null;
+    for (LookupEntry entry : entries) {
+      if (roll >= entry.getMin() && roll <= entry.getMax()) {
+        found = entry;
+      }
+    }
+    return found;
+  }
+
+  @Test
+  void lookupMatchesLinearSearch() throws ParserException {
+    var random = new Random(11);
+    for (int tables = 0; tables < 50; tables++) {
+      var table = new LookupTable();
+      int size = 1 + random.nextInt(40);
+      for (int i = 0; i < size; i++) {
+        // Overlapping, reversed and gapped ranges are all allowed
+        int min = random.nextInt(100) - 20;
+        int max = min + random.nextInt(15) - 2;
+        table.addEntry(min, max, "entry " + i, null);
+      }
+      for (int roll = -40; roll < 140; roll++) {
+        assertSame(
+            linearLookup(table.getEntryList(), roll),
+            table.getLookupDirect(Integer.toString(roll)),
+            "roll " + roll);
+      }
+    }
+  }
+
+  @Test
+  void lookupAfterEntriesChange() throws ParserException {
+    var table = new LookupTable();
+    table.addEntry(1, 3, "low", null);
+    table.addEntry(4, 6, "high", null);
+    assertEquals("high", table.getLookupDirect("5").getValue());
+
+    table.addEntries(List.of(new LookupEntry(5, 5, "five", null)));
+    assertEquals("five", table.getLookupDirect("5").getValue());
+    assertEquals("high", table.getLookupDirect("6").getValue());
+
+    table.clearEntries();
+    assertNull(table.getLookupDirect("5"));
+
+    table.addEntry(Integer.MIN_VALUE, Integer.MAX_VALUE, "all", null);
+    assertEquals("all", table.getLookupDirect("0").getValue());
+    assertEquals("all", table.getLookupDirect(Integer.toString(Integer.MAX_VALUE)).getValue());
+  }
+
+  @Test
+  void pickOnceCountsRemainingPicks() throws ParserException {
+    var table = new LookupTable();
+    for (int i = 0; i < 100; i++) {
+      table.addEntry(i, i, "entry " + i, null);
+    }
+    table.setPickOnce(true);
+    assertEquals(100, table.getPicksLeft());
+
+    Set<String> picked = new HashSet<>();
+    for (int i = 0; i < 100; i++) {
+      LookupEntry entry = table.getLookup();
+      assertTrue(picked.add(entry.getValue()), entry.getValue());
+      assertEquals(99 - i, table.getPicksLeft());
+    }
+    assertEquals(LookupTable.NO_PICKS_LEFT, table.getLookup().getValue());
+
+    table.reset(List.of("3", "7", "7", "500"));
+    assertEquals(2, table.getPicksLeft());
+    Set<String> repicked = new HashSet<>();
+    repicked.add(table.getLookup().getValue());
+    repicked.add(table.getLookup().getValue());
+    assertEquals(Set.of("entry 3", "entry 7"), repicked);
+    assertEquals(0, table.getPicksLeft());
+
+    // Picking an entry that has already been picked does not change the count
+    table.getLookup("3");
+    assertEquals(0, table.getPicksLeft());
+
+    table.reset();
+    assertEquals(100, table.getPicksLeft());
+  }
+
+  @Test
+  void copiedTablePicksSeparately() throws ParserException {
+    var table = new LookupTable();
+    List<LookupEntry> entries = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      entries.add(new LookupEntry(i, i, "entry " + i, null));
+    }
+    table.addEntries(entries);
+    table.setPickOnce(true);
+    var copy = new LookupTable(table);
+
+    copy.getLookup("4");
+    assertEquals(9, copy.getPicksLeft());
+    assertEquals(10, table.getPicksLeft());
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model.drawing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import net.rptools.maptool.model.*;
+import net.rptools.maptool.model.drawing.AbstractTemplate.Direction;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+public class TemplateGeometryTest {
+  private Campaign testCampaign;
+  private Zone testZone;
+
+  private <T extends AbstractTemplate> T testTemplate(T template, ZonePoint vertex, int radius) {
+    testCampaign = new Campaign();
+    testZone = new Zone();
+    Grid testGrid = new SquareGrid();
+    testGrid.setSize(50);
+    testZone.setGrid(testGrid);
+    testCampaign.putZone(testZone);
+
+    template.setName("test");
+    template.setVertex(vertex);
+    template.setRadius(radius);
+    template.setZoneId(testZone.getId());
+
+    template = Mockito.spy(template);
+    Mockito.when(template.getCampaign()).thenReturn(testCampaign);
+    return template;
+  }
+
+  /** The cells covered by the cached geometry, moved to the vertex of the template. */
+  private Area paintedArea(AbstractTemplate template) {
+    ZonePoint vertex = template.getVertex();
+    return new Area(template.getGeometry(testZone.getGrid()).area())
+        .createTransformedArea(AffineTransform.getTranslateInstance(vertex.x, vertex.y));
+  }
+
+  @Test
+  @DisplayName("Radius template geometry covers the same cells as its area")
+  void testRadiusGeometry() {
+    for (int radius = 1; radius <= 12; radius++) {
+      RadiusTemplate template = testTemplate(new RadiusTemplate(), new ZonePoint(100, 150), radius);
+      assertTrue(template.getArea().equals(paintedArea(template)), "radius " + radius);
+    }
+  }
+
+  @Test
+  @DisplayName("Cone template geometry covers the same cells as its area in every direction")
+  void testConeGeometry() {
+    for (Direction direction : Direction.values()) {
+      if (direction == Direction.ALL) continue;
+      for (int radius = 1; radius <= 8; radius++) {
+        ConeTemplate template = testTemplate(new ConeTemplate(), new ZonePoint(100, 150), radius);
+        template.setDirection(direction);
+        assertTrue(
+            template.getArea().equals(paintedArea(template)), direction + " radius " + radius);
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("Radius cell template geometry covers the same cells as its area")
+  void testRadiusCellGeometry() {
+    for (int radius = 1; radius <= 12; radius++) {
+      RadiusCellTemplate template =
+          testTemplate(new RadiusCellTemplate(), new ZonePoint(100, 150), radius);
+      assertTrue(template.getArea().equals(paintedArea(template)), "radius " + radius);
+    }
+  }
+
+  @Test
+  @DisplayName("Line template geometry covers every cell of its path")
+  void testLineGeometry() {
+    LineTemplate template = testTemplate(new LineTemplate(), new ZonePoint(100, 150), 6);
+    template.setPathVertex(new ZonePoint(350, 250));
+    Area area = paintedArea(template);
+    assertFalse(area.isEmpty());
+    for (CellPoint p : template.getPath()) {
+      Rectangle cell = new Rectangle(100 + p.x * 50, 150 + p.y * 50, 50, 50);
+      assertTrue(area.contains(cell), "cell " + p.x + "," + p.y);
+    }
+  }
+
+  @Test
+  @DisplayName("Geometry is rebuilt only when the shape of the template changes")
+  void testGeometryCache() {
+    ConeTemplate template = testTemplate(new ConeTemplate(), new ZonePoint(100, 150), 4);
+    var geometry = template.getGeometry(testZone.getGrid());
+    assertSame(geometry, template.getGeometry(testZone.getGrid()));
+
+    // Moving the template only moves where the geometry is painted
+    template.setVertex(new ZonePoint(500, 650));
+    assertSame(geometry, template.getGeometry(testZone.getGrid()));
+    assertTrue(template.getArea().equals(paintedArea(template)));
+
+    template.setDirection(Direction.NORTH);
+    assertNotSame(geometry, template.getGeometry(testZone.getGrid()));
+    geometry = template.getGeometry(testZone.getGrid());
+
+    template.setRadius(5);
+    assertNotSame(geometry, template.getGeometry(testZone.getGrid()));
+    geometry = template.getGeometry(testZone.getGrid());
+
+    testZone.getGrid().setSize(70);
+    assertNotSame(geometry, template.getGeometry(testZone.getGrid()));
+    assertTrue(template.getArea().equals(paintedArea(template)));
+  }
+}
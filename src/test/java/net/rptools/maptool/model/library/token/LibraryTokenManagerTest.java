@@ -0,0 +1,152 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model.library.token;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import net.rptools.maptool.model.GUID;
+import net.rptools.maptool.model.MacroButtonProperties;
+import net.rptools.maptool.model.Token;
+import net.rptools.maptool.model.Zone;
+import net.rptools.maptool.model.library.Library;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class LibraryTokenManagerTest {
+  private LibraryTokenManager manager;
+  private Zone zone;
+  private Zone otherZone;
+
+  @BeforeEach
+  void setUp() {
+    manager = new LibraryTokenManager();
+    zone = new Zone();
+    otherZone = new Zone();
+  }
+
+  private static Token token(String name, String... macros) {
+    Token token = new Token();
+    token.setName(name);
+    for (int i = 0; i < macros.length; i++) {
+      MacroButtonProperties macro = new MacroButtonProperties(i);
+      macro.setLabel(macros[i]);
+      token.saveMacro(macro);
+    }
+    return token;
+  }
+
+  private GUID idOf(String namespace) {
+    Library lib = manager.getLibrary(namespace).join();
+    return lib == null ? null : ((LibraryToken) lib).getId();
+  }
+
+  private List<GUID> legacyTargets(String eventName) {
+    return manager.getLegacyEventTargets(eventName).join().stream()
+        .map(l -> ((LibraryToken) l).getId())
+        .toList();
+  }
+
+  @Test
+  @DisplayName("Library tokens are found by namespace ignoring case")
+  void testLookup() {
+    Token lib = token("lib:Test");
+    manager.putTokens(zone, List.of(lib, token("Goblin")));
+
+    assertEquals(lib.getId(), idOf("Test"));
+    assertEquals(lib.getId(), idOf("test"));
+    assertNull(idOf("Goblin"));
+    assertEquals(1, manager.getLibraries().join().size());
+  }
+
+  @Test
+  @DisplayName("Renaming a library token moves it to its new namespace")
+  void testRename() {
+    Token lib = token("lib:Old", "onCampaignLoad");
+    manager.putTokens(zone, List.of(lib));
+
+    lib.setName("lib:New");
+    manager.putTokens(zone, List.of(lib));
+    assertNull(idOf("Old"));
+    assertEquals(lib.getId(), idOf("New"));
+    assertEquals(List.of(lib.getId()), legacyTargets("onCampaignLoad"));
+
+    // No longer a library token at all
+    lib.setName("Old");
+    manager.putTokens(zone, List.of(lib));
+    assertNull(idOf("New"));
+    assertNull(idOf("Old"));
+    assertTrue(manager.getLibraries().join().isEmpty());
+    assertTrue(legacyTargets("onCampaignLoad").isEmpty());
+  }
+
+  @Test
+  @DisplayName("Moving a library token to another zone keeps it whatever order the events come in")
+  void testMove() {
+    Token lib = token("lib:Test");
+    manager.putTokens(zone, List.of(lib));
+
+    // Added to the new zone before it is removed from the old one
+    manager.putTokens(otherZone, List.of(lib));
+    manager.removeTokens(zone, List.of(lib));
+    assertEquals(lib.getId(), idOf("Test"));
+
+    manager.removeZone(otherZone);
+    assertNull(idOf("Test"));
+  }
+
+  @Test
+  @DisplayName("Deleting a library token falls back to another with the same name")
+  void testDelete() {
+    Token first = token("lib:Test", "onTokenMove");
+    Token second = token("LIB:test");
+    manager.putTokens(zone, List.of(first));
+    manager.putTokens(otherZone, List.of(second));
+
+    assertEquals(first.getId(), idOf("Test"));
+    assertEquals(2, manager.getLibraries().join().size());
+    assertEquals(List.of(first.getId()), legacyTargets("onTokenMove"));
+
+    manager.removeTokens(zone, List.of(first));
+    assertEquals(second.getId(), idOf("Test"));
+    assertTrue(legacyTargets("onTokenMove").isEmpty());
+
+    manager.removeTokens(otherZone, List.of(second));
+    assertNull(idOf("Test"));
+
+    manager.putTokens(zone, List.of(first));
+    manager.clearLibraries();
+    assertNull(idOf("Test"));
+  }
+
+  @Test
+  @DisplayName("Loading another campaign drops the library tokens of the old one")
+  void testCampaignSwap() {
+    Token old = token("lib:Old", "onCampaignLoad");
+    manager.putTokens(zone, List.of(old));
+    assertEquals(old.getId(), idOf("Old"));
+
+    // MapTool.setCampaign() clears the libraries, then announces the tokens of the new zones.
+    manager.clearLibraries();
+    Token lib = token("lib:New", "onCampaignLoad");
+    manager.putTokens(otherZone, List.of(lib, token("Goblin")));
+
+    assertNull(idOf("Old"));
+    assertEquals(lib.getId(), idOf("New"));
+    assertEquals(List.of(lib.getId()), legacyTargets("onCampaignLoad"));
+    assertEquals(1, manager.getLibraries().join().size());
+  }
+}
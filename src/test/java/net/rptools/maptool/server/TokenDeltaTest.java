@@ -0,0 +1,147 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.protobuf.Int32Value;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.StringValue;
+import java.util.Random;
+import net.rptools.maptool.server.proto.MacroButtonPropertiesDto;
+import net.rptools.maptool.server.proto.Message;
+import net.rptools.maptool.server.proto.PutTokenMsg;
+import net.rptools.maptool.server.proto.TokenDeltaMsg;
+import net.rptools.maptool.server.proto.TokenDto;
+import org.junit.jupiter.api.Test;
+
+class TokenDeltaTest {
+
+  private static TokenDto randomToken(Random random) {
+    var token = TokenDto.newBuilder().setId("0123456789abcdef0123456789abcdef");
+    token.setName("token " + random.nextInt(3));
+    token.setX(random.nextInt(3)).setY(random.nextInt(3));
+    token.setIsVisible(random.nextBoolean());
+    if (random.nextBoolean()) {
+      token.setFacing(Int32Value.of(random.nextInt(2) * 90));
+    }
+    if (random.nextBoolean()) {
+      token.setLabel(StringValue.of(random.nextBoolean() ? "" : "label"));
+    }
+    for (int i = random.nextInt(4); i > 0; i--) {
+      token.addOwnerList("owner " + random.nextInt(3));
+    }
+    for (int i = random.nextInt(8); i > 0; i--) {
+      token.putProperties("Prop" + random.nextInt(10), random.nextBoolean() ? "" : "v" + i);
+    }
+    for (int i = random.nextInt(4); i > 0; i--) {
+      token.putState(
+          "state" + random.nextInt(5),
+          random.nextBoolean()
+              ? TokenDto.State.newBuilder().setBoolValue(true).build()
+              : TokenDto.State.newBuilder().setDoubleValue(random.nextInt(3) / 2.0).build());
+    }
+    for (int i = random.nextInt(4); i > 0; i--) {
+      token.putMacroProperties(
+          random.nextInt(5),
+          MacroButtonPropertiesDto.newBuilder()
+              .setLabel("macro " + random.nextInt(2))
+              .setCommand("[r: " + random.nextInt(2) + "]")
+              .build());
+    }
+    return token.build();
+  }
+
+  /** Sends the delta the way the clients do so that it goes through serialization. */
+  private static TokenDto applyOverWire(TokenDto before, TokenDto after)
+      throws InvalidProtocolBufferException {
+    TokenDeltaMsg.Builder delta = TokenDelta.diff(before, after);
+    if (delta == null) {
+      return before;
+    }
+    var message = Message.newBuilder().setTokenDeltaMsg(delta.setZoneGuid("zone")).build();
+    return TokenDelta.apply(before, Message.parseFrom(message.toByteArray()).getTokenDeltaMsg());
+  }
+
+  @Test
+  void applyingDeltaMatchesFullPut() throws InvalidProtocolBufferException {
+    var random = new Random(7);
+    for (int i = 0; i < 2000; i++) {
+      TokenDto before = randomToken(random);
+      TokenDto after = randomToken(random);
+      var put = Message.newBuilder().setPutTokenMsg(PutTokenMsg.newBuilder().setToken(after));
+      TokenDto fullPut = Message.parseFrom(put.build().toByteArray()).getPutTokenMsg().getToken();
+
+      assertEquals(fullPut, applyOverWire(before, after));
+    }
+  }
+
+  @Test
+  void unchangedTokenHasNoDelta() {
+    var random = new Random(3);
+    for (int i = 0; i < 100; i++) {
+      TokenDto token = randomToken(random);
+      assertNull(TokenDelta.diff(token, token.toBuilder().build()));
+    }
+  }
+
+  @Test
+  void changedPropertyOnlySendsThatEntry() {
+    var token = TokenDto.newBuilder().setId("id").setName("Orc");
+    for (int i = 0; i < 100; i++) {
+      token.putProperties("Prop" + i, "value " + i);
+      token.putMacroProperties(i, MacroButtonPropertiesDto.newBuilder().setCommand("x").build());
+    }
+    TokenDto before = token.build();
+    TokenDto after = token.putProperties("Prop7", "changed").removeProperties("Prop8").build();
+
+    TokenDeltaMsg delta = TokenDelta.diff(before, after).build();
+    assertEquals(1, delta.getChangedFieldsCount());
+    assertEquals(1, delta.getToken().getPropertiesCount());
+    assertEquals("changed", delta.getToken().getPropertiesOrThrow("Prop7"));
+    assertTrue(delta.getRemovedEntries().containsProperties("Prop8"));
+    assertTrue(delta.getSerializedSize() * 20 < after.getSerializedSize());
+    assertEquals(after, TokenDelta.apply(before, delta));
+  }
+
+  @Test
+  void clearedFieldsAreCleared() {
+    TokenDto before =
+        TokenDto.newBuilder()
+            .setId("id")
+            .setX(4)
+            .setLabel(StringValue.of(""))
+            .addOwnerList("a")
+            .build();
+    TokenDto after = TokenDto.newBuilder().setId("id").build();
+    TokenDto applied = TokenDelta.apply(before, TokenDelta.diff(before, after).build());
+    assertEquals(after, applied);
+    assertEquals(false, applied.hasLabel());
+  }
+
+  @Test
+  void unknownFieldsAreIgnored() {
+    TokenDto token = TokenDto.newBuilder().setId("id").setName("a").build();
+    var delta =
+        TokenDeltaMsg.newBuilder()
+            .addChangedFields(9999)
+            .addChangedFields(TokenDto.NAME_FIELD_NUMBER)
+            .setToken(TokenDto.newBuilder().setName("b"))
+            .build();
+    assertEquals("b", TokenDelta.apply(token, delta).getName());
+  }
+}
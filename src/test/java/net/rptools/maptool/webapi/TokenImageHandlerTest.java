@@ -0,0 +1,188 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.webapi;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import net.rptools.lib.MD5Key;
+import net.rptools.maptool.model.Asset;
+import net.rptools.maptool.model.Token;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.ContextHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class TokenImageHandlerTest {
+  private final Map<String, Token> tokens = new HashMap<>();
+  private final Map<MD5Key, Asset> assets = new HashMap<>();
+  private final HttpClient client = HttpClient.newHttpClient();
+
+  private Server server;
+  private ServerConnector connector;
+  private Asset portrait;
+  private Asset image;
+  private Token token;
+
+  /** A noisy opaque image, which doesn't compress well, like a photographic portrait. */
+  private static byte[] noisyImage(int width, int height) throws Exception {
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    Random random = new Random(width * 31L + height);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        image.setRGB(x, y, random.nextInt(0x1000000));
+      }
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ImageIO.write(image, "png", out);
+    return out.toByteArray();
+  }
+
+  private Asset addAsset(String name, byte[] data) {
+    Asset asset = Asset.createImageAsset(name, data);
+    assets.put(asset.getMD5Key(), asset);
+    return asset;
+  }
+
+  @BeforeEach
+  void setUp() throws Exception {
+    portrait = addAsset("portrait", noisyImage(800, 600));
+    image = addAsset("image", noisyImage(100, 100));
+
+    token = new Token("test", image.getMD5Key());
+    token.setPortraitImage(portrait.getMD5Key());
+    tokens.put(token.getId().toString(), token);
+
+    server = new Server();
+    connector = new ServerConnector(server);
+    connector.setHost("localhost");
+    connector.setPort(0);
+    server.addConnector(connector);
+
+    ContextHandler context = new ContextHandler("/token");
+    context.setHandler(new TokenImageHandler(tokens::get, assets::get));
+    server.setHandler(context);
+    server.start();
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    server.stop();
+  }
+
+  private HttpResponse<byte[]> get(String path, String ifNoneMatch) throws Exception {
+    HttpRequest.Builder request =
+        HttpRequest.newBuilder(
+            URI.create("http://localhost:" + connector.getLocalPort() + "/token/" + path));
+    if (ifNoneMatch != null) {
+      request.header("If-None-Match", ifNoneMatch);
+    }
+    return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+  }
+
+  private static String etag(HttpResponse<?> response) {
+    return response.headers().firstValue("ETag").orElseThrow();
+  }
+
+  @Test
+  @DisplayName("The original image is sent with validators derived from the asset hash")
+  void testOriginal() throws Exception {
+    var response = get("portrait/" + token.getId(), null);
+
+    assertEquals(200, response.statusCode());
+    assertArrayEquals(portrait.getData(), response.body());
+    assertEquals("\"" + portrait.getMD5Key() + "\"", etag(response));
+    assertEquals("no-cache", response.headers().firstValue("Cache-Control").orElseThrow());
+  }
+
+  @Test
+  @DisplayName("A requested size gets a much smaller scaled down image")
+  void testScaled() throws Exception {
+    var response = get("portrait/" + token.getId() + "?size=60", null);
+
+    assertEquals(200, response.statusCode());
+    // Sizes are rounded up to a multiple of 16
+    assertEquals("\"" + portrait.getMD5Key() + "-64\"", etag(response));
+    BufferedImage scaled = ImageIO.read(new ByteArrayInputStream(response.body()));
+    assertEquals(64, scaled.getWidth());
+    assertEquals(48, scaled.getHeight());
+    assertTrue(
+        response.body().length * 50 < portrait.getData().length,
+        "Scaled image is " + response.body().length + " bytes");
+
+    // The same variant is served again from the cache
+    var again = get("portrait/" + token.getId() + "?size=64", null);
+    assertEquals(etag(response), etag(again));
+    assertArrayEquals(response.body(), again.body());
+  }
+
+  @Test
+  @DisplayName("Images no larger than the requested size are sent as they are")
+  void testSmallImage() throws Exception {
+    var response = get("image/" + token.getId() + "?size=128", null);
+
+    assertEquals(200, response.statusCode());
+    assertArrayEquals(image.getData(), response.body());
+  }
+
+  @Test
+  @DisplayName("A client that has the current image gets 304 Not Modified without a body")
+  void testNotModified() throws Exception {
+    var first = get("portrait/" + token.getId() + "?size=32", null);
+    var second = get("portrait/" + token.getId() + "?size=32", etag(first));
+
+    assertEquals(304, second.statusCode());
+    assertEquals(0, second.body().length);
+    assertEquals(etag(first), etag(second));
+
+    // A different size is a different image
+    assertEquals(200, get("portrait/" + token.getId() + "?size=64", etag(first)).statusCode());
+
+    // So is a new portrait
+    token.setPortraitImage(image.getMD5Key());
+    var changed = get("portrait/" + token.getId() + "?size=32", etag(first));
+    assertEquals(200, changed.statusCode());
+    assertNotEquals(etag(first), etag(changed));
+  }
+
+  @Test
+  @DisplayName("Portrait or image falls back to the image of tokens without a portrait")
+  void testPortraitOrImage() throws Exception {
+    assertArrayEquals(portrait.getData(), get("portraitOrImage/" + token.getId(), null).body());
+
+    token.setPortraitImage(null);
+    assertArrayEquals(image.getData(), get("portraitOrImage/" + token.getId(), null).body());
+  }
+
+  @Test
+  @DisplayName("Unknown tokens are not found")
+  void testUnknownToken() throws Exception {
+    assertEquals(404, get("image/" + new Token().getId(), null).statusCode());
+    assertEquals(404, get("unknown/" + token.getId(), null).statusCode());
+  }
+}
@@ -0,0 +1,341 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.webapi;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.ContextHandler;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.eclipse.jetty.websocket.client.WebSocketClient;
+import org.eclipse.jetty.websocket.server.WebSocketHandler;
+import org.eclipse.jetty.websocket.servlet.WebSocketServletFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class WebSocketSenderTest {
+  /** Large enough that a few of them fill the socket buffers of a client that stops reading. */
+  private static final String FILLER = "x".repeat(256 * 1024);
+
+  private static final long TIMEOUT_SECONDS = 10;
+
+  /** The server side of a connection, which sends through a {@link WebSocketSender}. */
+  private static class ServerSocket extends WebSocketAdapter {
+    private final CompletableFuture<WebSocketSender> sender = new CompletableFuture<>();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final int maxQueued;
+
+    private ServerSocket(int maxQueued) {
+      this.maxQueued = maxQueued;
+    }
+
+    @Override
+    public void onWebSocketConnect(Session session) {
+      super.onWebSocketConnect(session);
+      sender.complete(new WebSocketSender(session, maxQueued, failures::incrementAndGet));
+    }
+  }
+
+  /** The browser side of a connection, which can stop reading after the first message. */
+  private static class ClientSocket extends WebSocketAdapter {
+    private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+    private final CountDownLatch resume = new CountDownLatch(1);
+    private final CompletableFuture<Integer> closed = new CompletableFuture<>();
+    private final boolean stall;
+
+    private ClientSocket(boolean stall) {
+      this.stall = stall;
+    }
+
+    @Override
+    public void onWebSocketText(String message) {
+      received.add(message);
+      if (stall) {
+        try {
+          resume.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+
+    @Override
+    public void onWebSocketClose(int statusCode, String reason) {
+      closed.complete(statusCode);
+    }
+
+    private String take() throws InterruptedException {
+      String message = received.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      assertNotNull(message, "Timed out waiting for a message");
+      return message;
+    }
+  }
+
+  private Server server;
+  private ServerConnector connector;
+  private final List<WebSocketClient> clients = new ArrayList<>();
+  private final BlockingQueue<ServerSocket> serverSockets = new LinkedBlockingQueue<>();
+  private int maxQueued = WebSocketSender.DEFAULT_MAX_QUEUED;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    server = new Server();
+    connector = new ServerConnector(server);
+    connector.setHost("localhost");
+    connector.setPort(0);
+    server.addConnector(connector);
+
+    ContextHandler contextHandler = new ContextHandler("/ws");
+    contextHandler.setHandler(
+        new WebSocketHandler() {
+          @Override
+          public void configure(WebSocketServletFactory factory) {
+            factory.setCreator(
+                (req, resp) -> {
+                  ServerSocket socket = new ServerSocket(maxQueued);
+                  serverSockets.add(socket);
+                  return socket;
+                });
+          }
+        });
+    server.setHandler(contextHandler);
+    server.start();
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    for (WebSocketClient client : clients) {
+      client.stop();
+    }
+    server.stop();
+  }
+
+  /**
+   * Connects a client and returns the server side of its connection. Every client gets its own
+   * {@link WebSocketClient}, like separate browsers, so a stalled one can't hold up the others.
+   */
+  private ServerSocket connect(ClientSocket clientSocket) throws Exception {
+    WebSocketClient client = new WebSocketClient();
+    client.getPolicy().setMaxTextMessageSize(2 * FILLER.length());
+    client.start();
+    clients.add(client);
+
+    URI uri = URI.create("ws://localhost:" + connector.getLocalPort() + "/ws/");
+    client.connect(clientSocket, uri).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    ServerSocket serverSocket = serverSockets.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    assertNotNull(serverSocket);
+    serverSocket.sender.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    return serverSocket;
+  }
+
+  /** Sends filler messages until the socket buffers of a stalled client are full. */
+  private static void fillBuffers(WebSocketSender sender) throws InterruptedException {
+    for (int i = 0; i < 64; i++) {
+      sender.send("token-update", FILLER, false);
+    }
+    // Wait for the writes that still fit in the buffers to finish.
+    int queued;
+    do {
+      queued = sender.getQueuedCount();
+      Thread.sleep(100);
+    } while (queued != sender.getQueuedCount());
+    assertTrue(queued > 0, "Client should have stopped accepting writes");
+  }
+
+  @Test
+  @DisplayName("Messages are delivered in the order they were sent")
+  void testOrder() throws Exception {
+    ClientSocket clientSocket = new ClientSocket(false);
+    WebSocketSender sender = connect(clientSocket).sender.get();
+
+    for (int i = 0; i < 200; i++) {
+      sender.send("token-update", Integer.toString(i), false);
+    }
+    for (int i = 0; i < 200; i++) {
+      assertEquals(Integer.toString(i), clientSocket.take());
+    }
+  }
+
+  @Test
+  @DisplayName("Superseding messages that are waiting are replaced by the latest one")
+  void testCoalesce() throws Exception {
+    ClientSocket clientSocket = new ClientSocket(true);
+    WebSocketSender sender = connect(clientSocket).sender.get();
+
+    sender.send("token-update", "first", false);
+    assertEquals("first", clientSocket.take());
+    fillBuffers(sender);
+    int queued = sender.getQueuedCount();
+
+    for (int i = 0; i < 100; i++) {
+      sender.send("initiative", "initiative " + i, true);
+    }
+    sender.send("tokenInfo", "response", false);
+    assertEquals(queued + 2, sender.getQueuedCount());
+
+    clientSocket.resume.countDown();
+    List<String> rest = new ArrayList<>();
+    String message;
+    do {
+      message = clientSocket.take();
+      if (!message.equals(FILLER)) {
+        rest.add(message);
+      }
+    } while (!message.equals("response"));
+    assertEquals(List.of("initiative 99", "response"), rest);
+  }
+
+  @Test
+  @DisplayName("A client that stops reading is dropped without holding up the others")
+  void testSlowClient() throws Exception {
+    maxQueued = 16;
+    ClientSocket slowSocket = new ClientSocket(true);
+    ServerSocket slowServer = connect(slowSocket);
+    WebSocketSender slow = slowServer.sender.get();
+    maxQueued = WebSocketSender.DEFAULT_MAX_QUEUED;
+    ClientSocket fastSocket = new ClientSocket(false);
+    ServerSocket fastServer = connect(fastSocket);
+    WebSocketSender fast = fastServer.sender.get();
+
+    slow.send("token-update", "first", false);
+    assertEquals("first", slowSocket.take());
+
+    assertTimeoutPreemptively(
+        Duration.ofSeconds(TIMEOUT_SECONDS),
+        () -> {
+          for (int i = 0; i < 100; i++) {
+            slow.send("token-update", FILLER, false);
+            fast.send("token-update", FILLER, false);
+          }
+        });
+    for (int i = 0; i < 100; i++) {
+      assertEquals(FILLER.length(), fastSocket.take().length());
+    }
+
+    assertEquals(1, slowServer.failures.get());
+    assertEquals(0, slow.getQueuedCount());
+    assertEquals(0, fastServer.failures.get());
+    slowSocket.resume.countDown();
+    assertNotNull(slowSocket.closed.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+  }
+
+  @Test
+  @DisplayName("Writes that complete straight away don't nest while the queue is drained")
+  void testSynchronousCompletion() {
+    int count = 100_000;
+    List<String> written = new ArrayList<>();
+    AtomicReference<WriteCallback> firstWrite = new AtomicReference<>();
+    RemoteEndpoint remote = mock(RemoteEndpoint.class);
+    doAnswer(
+            invocation -> {
+              written.add(invocation.getArgument(0));
+              WriteCallback callback = invocation.getArgument(1);
+              // Hold on to the first write so the rest queue up behind it.
+              if (!firstWrite.compareAndSet(null, callback)) {
+                callback.writeSuccess();
+              }
+              return null;
+            })
+        .when(remote)
+        .sendString(anyString(), any(WriteCallback.class));
+    Session session = mock(Session.class);
+    when(session.getRemote()).thenReturn(remote);
+    AtomicInteger failures = new AtomicInteger();
+    WebSocketSender sender = new WebSocketSender(session, count, failures::incrementAndGet);
+
+    for (int i = 0; i < count; i++) {
+      sender.send("token-update", Integer.toString(i), false);
+    }
+    assertEquals(count - 1, sender.getQueuedCount());
+    firstWrite.get().writeSuccess();
+
+    assertEquals(0, sender.getQueuedCount());
+    assertEquals(count, written.size());
+    assertEquals(Integer.toString(count - 1), written.get(count - 1));
+    assertEquals(0, failures.get());
+
+    // Writing starts again for the next message
+    sender.send("token-update", "next", false);
+    assertEquals("next", written.get(count));
+  }
+
+  @Test
+  @DisplayName("The session is closed when a write fails")
+  void testWriteFailed() {
+    RemoteEndpoint remote = mock(RemoteEndpoint.class);
+    doAnswer(
+            invocation -> {
+              WriteCallback callback = invocation.getArgument(1);
+              callback.writeFailed(new IOException("Broken pipe"));
+              return null;
+            })
+        .when(remote)
+        .sendString(anyString(), any(WriteCallback.class));
+    Session session = mock(Session.class);
+    when(session.getRemote()).thenReturn(remote);
+    AtomicInteger failures = new AtomicInteger();
+    WebSocketSender sender = new WebSocketSender(session, 16, failures::incrementAndGet);
+
+    sender.send("token-update", "first", false);
+    sender.send("token-update", "second", false);
+
+    assertEquals(1, failures.get());
+    verify(session).close(eq(StatusCode.SERVER_ERROR), anyString());
+    verify(remote, times(1)).sendString(anyString(), any(WriteCallback.class));
+    assertEquals(0, sender.getQueuedCount());
+  }
+
+  @Test
+  @DisplayName("Encoded messages carry the type, data and the message they respond to")
+  void testEncode() {
+    JsonObject data = new JsonObject();
+    data.addProperty("round", 3);
+
+    JsonObject message =
+        JsonParser.parseString(MTWebSocket.encodeMessage("initiative", "42", data))
+            .getAsJsonObject();
+    assertEquals("initiative", message.get("messageType").getAsString());
+    assertEquals("42", message.get("inResponseTo").getAsString());
+    assertEquals(data, message.get("data"));
+
+    message =
+        JsonParser.parseString(MTWebSocket.encodeMessage("keepalive", null, new JsonObject()))
+            .getAsJsonObject();
+    assertFalse(message.has("inResponseTo"));
+  }
+}